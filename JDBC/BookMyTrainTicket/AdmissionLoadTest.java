@@ -0,0 +1,205 @@
+package BookMyTrainTicket;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Load test for BookingAdmission at a multiple of the admissible rate
+ *
+ * Offers bookings at [multiplier] times the admission rate for [seconds],
+ * spread over a few classes of one train, twice: straight at the database,
+ * and through BookingAdmission. The database is simulated so the test runs
+ * without MySQL: a connection pool of the app's size with the pool's wait
+ * timeout, and a booking time that grows with the number of bookings
+ * running at once (hot seat rows). Reports end-to-end latency percentiles of
+ * completed bookings, p99 per two-second window (flat means stable), how
+ * many were shed, and admissions per class.
+ *
+ * Usage: AdmissionLoadTest [seconds] [multiplier]
+ */
+public class AdmissionLoadTest {
+    private static final double ADMISSIBLE_RATE = 100;
+    private static final int POOL_SIZE = 10;
+    private static final long POOL_WAIT_TIMEOUT_MS = 10_000;
+    private static final long BASE_BOOKING_MS = 10;
+    private static final long CONTENTION_MS = 4;
+    private static final int CLASSES = 4;
+    private static final int CALLER_THREADS = 2_000;
+    private static final long MAX_WAIT_MS = 1_000;
+    private static final long WINDOW_MS = 2_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int multiplier = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        double offeredRate = ADMISSIBLE_RATE * multiplier;
+
+        System.out.println("Offering " + (int) offeredRate + " bookings/s for " + seconds + "s (" + multiplier +
+                           "x the admissible " + (int) ADMISSIBLE_RATE + "/s)...");
+
+        Result direct = run("direct", seconds, offeredRate, null);
+        BookingAdmission admission = new BookingAdmission(ADMISSIBLE_RATE, 10, POOL_SIZE - 2,
+                                                          (int) (ADMISSIBLE_RATE * MAX_WAIT_MS / 1000),
+                                                          Integer.MAX_VALUE, MAX_WAIT_MS);
+        Result admitted = run("admitted", seconds, offeredRate, admission);
+
+        System.out.println("\n=== Admission load test results ===");
+        direct.print();
+        admitted.print();
+        System.out.println("Admission         : " + admission.getStats());
+
+        long limit = MAX_WAIT_MS + 500;
+        if (admitted.percentile(99) > limit) {
+            System.err.println("FAILED: p99 with admission control is above " + limit + " ms");
+            System.exit(1);
+        }
+        System.out.println("Admission load test passed!");
+    }
+
+    private static Result run(String name, int seconds, double rate, BookingAdmission admission)
+            throws InterruptedException {
+        SimulatedDatabase database = new SimulatedDatabase();
+        Result result = new Result(name, seconds);
+        ExecutorService callers = Executors.newFixedThreadPool(CALLER_THREADS);
+        LocalDate journeyDate = LocalDate.now().plusDays(1);
+
+        int total = (int) (rate * seconds);
+        long intervalNanos = (long) (1_000_000_000L / rate);
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long arrival = start + i * intervalNanos;
+            long sleep = arrival - System.nanoTime();
+            if (sleep > 0) {
+                TimeUnit.NANOSECONDS.sleep(sleep);
+            }
+            int classId = 1 + i % CLASSES;
+            callers.submit(() -> {
+                try {
+                    if (admission != null) {
+                        admission.admit(1, journeyDate, classId, null, () -> database.book());
+                        result.admittedPerClass.incrementAndGet(classId);
+                    } else {
+                        database.book();
+                    }
+                    result.record(start, arrival, System.nanoTime());
+                } catch (BookingAdmission.Rejected e) {
+                    result.rejected.incrementAndGet();
+                } catch (SQLException e) {
+                    result.failed.incrementAndGet();
+                }
+            });
+        }
+        callers.shutdown();
+        callers.awaitTermination(10, TimeUnit.MINUTES);
+        result.offered = total;
+        return result;
+    }
+
+    /**
+     * A pool of connections whose bookings slow down as more run at once
+     */
+    private static class SimulatedDatabase {
+        private final Semaphore connections = new Semaphore(POOL_SIZE, true);
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        Void book() throws SQLException {
+            try {
+                if (!connections.tryAcquire(POOL_WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    throw new SQLException("Timed out waiting for a pooled connection");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted", e);
+            }
+            try {
+                int others = inFlight.incrementAndGet() - 1;
+                Thread.sleep(BASE_BOOKING_MS + CONTENTION_MS * others);
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted", e);
+            } finally {
+                inFlight.decrementAndGet();
+                connections.release();
+            }
+        }
+    }
+
+    private static class Result {
+        private final String name;
+        private final List<List<Long>> windows = new ArrayList<>();
+        private final ConcurrentLinkedQueue<long[]> samples = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger rejected = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicLongArray admittedPerClass = new AtomicLongArray(CLASSES + 1);
+        private List<Long> latencies;
+        private int offered;
+
+        Result(String name, int seconds) {
+            this.name = name;
+            for (long w = 0; w * WINDOW_MS < seconds * 1000L; w++) {
+                windows.add(new ArrayList<>());
+            }
+        }
+
+        void record(long start, long arrival, long done) {
+            samples.add(new long[] { (arrival - start) / 1_000_000, (done - arrival) / 1_000_000 });
+        }
+
+        long percentile(int p) {
+            sort();
+            return percentile(latencies, p);
+        }
+
+        void print() {
+            sort();
+            System.out.println(String.format("%-9s offered=%d completed=%d shed=%d failed=%d p50=%dms p99=%dms max=%dms",
+                name, offered, latencies.size(), rejected.get(), failed.get(),
+                percentile(latencies, 50), percentile(latencies, 99),
+                latencies.isEmpty() ? 0 : latencies.get(latencies.size() - 1)));
+            StringBuilder byWindow = new StringBuilder("          p99 per " + (WINDOW_MS / 1000) + "s window:");
+            for (List<Long> window : windows) {
+                Collections.sort(window);
+                byWindow.append(' ').append(window.isEmpty() ? "-" : percentile(window, 99) + "ms");
+            }
+            System.out.println(byWindow);
+            if (admittedPerClass.get(1) > 0) {
+                StringBuilder perClass = new StringBuilder("          admitted per class:");
+                for (int c = 1; c <= CLASSES; c++) {
+                    perClass.append(' ').append(admittedPerClass.get(c));
+                }
+                System.out.println(perClass);
+            }
+        }
+
+        private void sort() {
+            if (latencies != null) {
+                return;
+            }
+            latencies = new ArrayList<>();
+            for (long[] sample : samples) {
+                latencies.add(sample[1]);
+                int window = (int) Math.min(windows.size() - 1, sample[0] / WINDOW_MS);
+                windows.get(window).add(sample[1]);
+            }
+            Collections.sort(latencies);
+        }
+
+        private static long percentile(List<Long> sorted, int p) {
+            if (sorted.isEmpty()) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p / 100.0 * sorted.size()) - 1;
+            return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+        }
+    }
+}
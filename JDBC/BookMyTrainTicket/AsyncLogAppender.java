@@ -0,0 +1,307 @@
+package BookMyTrainTicket;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background writer behind {@link Logger}
+ *
+ * Callers only put an event into a bounded lock-free ring (multi-producer,
+ * single-consumer, one sequence slot per cell) and return. One daemon thread
+ * drains the ring, formats the lines and writes them through a single
+ * buffered writer over a long-lived FileChannel, flushing whenever the ring
+ * runs dry. The file is rotated when it passes a size limit or the date
+ * changes; the newest archives are kept.
+ *
+ * When the ring is full the overflow policy decides: DROP counts the event
+ * and reports the count in the log later, BLOCK waits for the writer.
+ */
+public class AsyncLogAppender {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final DateTimeFormatter ARCHIVE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmssSSS");
+    private static final long IDLE_PARK_NANOS = 2_000_000;
+    private static final long FULL_PARK_NANOS = 50_000;
+
+    public enum OverflowPolicy {
+        DROP, BLOCK
+    }
+
+    private final Path path;
+    private final long maxFileBytes;
+    private final int maxArchives;
+    private final OverflowPolicy overflowPolicy;
+    private final boolean echoToConsole;
+
+    // Ring: cell i is free for the producer claiming position p when sequences[i] == p,
+    // and holds that producer's event for the consumer when sequences[i] == p + 1
+    private final Object[] events;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private volatile long written;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private Writer writer;
+    private long fileBytes; // approximate: counts characters
+    private LocalDate fileDate;
+
+    /**
+     * @param capacity ring size, rounded up to a power of two
+     */
+    public AsyncLogAppender(String fileName, int capacity, long maxFileBytes, int maxArchives,
+                            OverflowPolicy overflowPolicy, boolean echoToConsole) {
+        this.path = new File(fileName).toPath();
+        this.maxFileBytes = maxFileBytes;
+        this.maxArchives = maxArchives;
+        this.overflowPolicy = overflowPolicy;
+        this.echoToConsole = echoToConsole;
+
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.events = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+
+        this.writerThread = new Thread(this::drainLoop, "log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "log-writer-shutdown"));
+    }
+
+    /**
+     * Queue one event; returns false if it was dropped because the ring was full
+     */
+    public boolean append(Logger.LogLevel level, String className, String methodName, String message) {
+        Event event = new Event(System.currentTimeMillis(), level, className, methodName, message);
+        while (!offer(event)) {
+            if (overflowPolicy == OverflowPolicy.DROP || !running) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        return true;
+    }
+
+    /**
+     * Wait until everything queued so far has been written and flushed
+     */
+    public void flush() {
+        long target = tail.get();
+        while (written < target && writerThread.isAlive()) {
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        synchronized (this) {
+            flushWriter();
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Stop the writer after it has drained the ring
+     */
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean offer(Event event) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    events[index] = event;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                return false;
+            }
+            // Another producer claimed this position first; retry with the new tail
+        }
+    }
+
+    /**
+     * Only called from the writer thread
+     */
+    private Event poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        Event event = (Event) events[index];
+        events[index] = null;
+        sequences.set(index, position + events.length);
+        head = position + 1;
+        return event;
+    }
+
+    private void drainLoop() {
+        StringBuilder line = new StringBuilder(256);
+        while (true) {
+            Event event = poll();
+            if (event == null) {
+                synchronized (this) {
+                    reportDropped(line);
+                    flushWriter();
+                }
+                if (!running && head == tail.get()) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            synchronized (this) {
+                write(event, line);
+            }
+            written = head;
+        }
+        synchronized (this) {
+            closeWriter();
+        }
+    }
+
+    private void reportDropped(StringBuilder line) {
+        long count = dropped.getAndSet(0);
+        if (count > 0) {
+            write(new Event(System.currentTimeMillis(), Logger.LogLevel.WARN, "AsyncLogAppender", "append",
+                            count + " log messages dropped because the log buffer was full"), line);
+        }
+    }
+
+    private void write(Event event, StringBuilder line) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(event.timestamp), ZoneId.systemDefault());
+        line.setLength(0);
+        line.append('[').append(DATE_FORMATTER.format(time)).append("] [").append(event.level).append("] [")
+            .append(event.className).append('.').append(event.methodName).append("] ")
+            .append(event.message).append(System.lineSeparator());
+        String text = line.toString();
+
+        try {
+            rotateIfNeeded(time.toLocalDate());
+            writer.write(text);
+            fileBytes += text.length();
+        } catch (IOException e) {
+            System.err.println("Failed to write to log file: " + e.getMessage());
+            closeWriter();
+        }
+
+        if (echoToConsole) {
+            System.out.print(text);
+        }
+    }
+
+    private void rotateIfNeeded(LocalDate today) throws IOException {
+        if (writer != null && fileBytes < maxFileBytes && today.equals(fileDate)) {
+            return;
+        }
+        closeWriter();
+
+        File dir = path.toAbsolutePath().getParent().toFile();
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        if (Files.exists(path) && Files.size(path) > 0) {
+            LocalDate lastModified = LocalDate.ofInstant(Files.getLastModifiedTime(path).toInstant(), ZoneId.systemDefault());
+            if (Files.size(path) >= maxFileBytes || !lastModified.equals(today)) {
+                archive(dir);
+            }
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               StandardOpenOption.APPEND);
+        writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), 64 * 1024);
+        fileBytes = channel.size();
+        fileDate = today;
+    }
+
+    private void archive(File dir) throws IOException {
+        String name = path.getFileName().toString();
+        Path target = path.resolveSibling(name + "." + ARCHIVE_FORMATTER.format(LocalDateTime.now()));
+        Files.move(path, target, StandardCopyOption.REPLACE_EXISTING);
+
+        File[] archives = dir.listFiles((d, file) -> file.startsWith(name + "."));
+        if (archives != null && archives.length > maxArchives) {
+            // Archive suffixes sort by time
+            Arrays.sort(archives);
+            for (int i = 0; i < archives.length - maxArchives; i++) {
+                archives[i].delete();
+            }
+        }
+    }
+
+    private void flushWriter() {
+        if (writer != null) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                System.err.println("Failed to flush log file: " + e.getMessage());
+            }
+        }
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close log file: " + e.getMessage());
+            }
+            writer = null;
+        }
+    }
+
+    private static class Event {
+        private final long timestamp;
+        private final Logger.LogLevel level;
+        private final String className;
+        private final String methodName;
+        private final String message;
+
+        Event(long timestamp, Logger.LogLevel level, String className, String methodName, String message) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.className = className;
+            this.methodName = methodName;
+            this.message = message;
+        }
+    }
+}
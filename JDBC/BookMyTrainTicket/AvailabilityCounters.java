@@ -0,0 +1,487 @@
+package BookMyTrainTicket;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Free-seat counters per (train, journey date, route, class)
+ *
+ * Search reads availability from the availability_summary table with one
+ * grouped query instead of loading and scanning seat bitmaps. SeatInventory
+ * adds the change of every claim, release and block to the counters on the
+ * same connection, so a booking that rolls back takes its counter change
+ * with it.
+ *
+ * A journey's rows are seeded from seat_inventory the first time it is
+ * written or read, and dropped (to be seeded again) when admins change a
+ * train's routes or seats. A background reconciler recounts the seeded
+ * journeys from today on and repairs any drift it finds.
+ */
+public class AvailabilityCounters {
+    private static final long RECONCILE_INTERVAL_MINUTES = 15;
+
+    private static AvailabilityCounters instance;
+
+    private final DatabaseManager dbManager;
+    // Journeys known to have committed counter rows. A journey seeded inside a
+    // caller's transaction is only marked once a later call finds its rows, and
+    // apply() seeds again if an entry turns out stale, so no delta is dropped.
+    private final Map<Integer, Set<LocalDate>> seeded = new ConcurrentHashMap<>();
+    private ScheduledExecutorService reconciler;
+
+    private AvailabilityCounters() throws SQLException {
+        this.dbManager = DatabaseManager.getInstance();
+    }
+
+    public static synchronized AvailabilityCounters getInstance() throws SQLException {
+        if (instance == null) {
+            instance = new AvailabilityCounters();
+        }
+        return instance;
+    }
+
+    /**
+     * Make sure the journey has counter rows before the caller changes its
+     * seats on the same connection. Rows seeded here belong to the caller's
+     * transaction, so the journey is not marked seeded until they are seen
+     * again; a rollback takes them away.
+     */
+    void ensureJourney(Connection conn, int trainId, LocalDate journeyDate) throws SQLException {
+        if (isSeeded(trainId, journeyDate)) {
+            return;
+        }
+        String query = "SELECT 1 FROM availability_summary WHERE train_id = ? AND journey_date = ? LIMIT 1";
+        boolean present;
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, trainId);
+            pstmt.setDate(2, Date.valueOf(journeyDate));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                present = rs.next();
+            }
+        }
+        if (present) {
+            markSeeded(trainId, journeyDate);
+        } else {
+            seed(conn, List.of(trainId), journeyDate);
+        }
+    }
+
+    /**
+     * Add per-(route, class) deltas to a journey's counters with one batched
+     * UPDATE. A delta that matches no row means the journey was wrongly taken
+     * as seeded: it is forgotten and seeded here, and since the caller's seat
+     * changes come first, the fresh counts already include the deltas.
+     */
+    void apply(Connection conn, int trainId, LocalDate journeyDate, Map<Key, Integer> deltas) throws SQLException {
+        String update = """
+            UPDATE availability_summary SET free_seats = free_seats + ?
+            WHERE train_id = ? AND journey_date = ? AND route_id = ? AND class_id = ?
+            """;
+        boolean batched = false;
+        try (PreparedStatement pstmt = conn.prepareStatement(update)) {
+            for (Map.Entry<Key, Integer> delta : deltas.entrySet()) {
+                if (delta.getValue() == 0) {
+                    continue;
+                }
+                pstmt.setInt(1, delta.getValue());
+                pstmt.setInt(2, trainId);
+                pstmt.setDate(3, Date.valueOf(journeyDate));
+                pstmt.setInt(4, delta.getKey().routeId);
+                pstmt.setInt(5, delta.getKey().classId);
+                pstmt.addBatch();
+                batched = true;
+            }
+            if (batched && updatedNothing(pstmt.executeBatch())) {
+                Logger.getInstance().warn("AvailabilityCounters", "apply",
+                    "Train " + trainId + " on " + journeyDate + " had no counter rows; seeding again");
+                forgetSeeded(trainId, journeyDate);
+                seed(conn, List.of(trainId), journeyDate);
+            }
+        }
+    }
+
+    private static boolean updatedNothing(int[] counts) {
+        for (int count : counts) {
+            if (count == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Free seats of one route for the date
+     */
+    public int getFreeSeats(int trainId, int routeId, LocalDate journeyDate) throws SQLException {
+        RouteAvailability availability = getAvailability(List.of(trainId), journeyDate).get(routeId);
+        return availability != null ? availability.getTotal() : 0;
+    }
+
+    /**
+     * Free seats per route (keyed by route ID, split by class) of several
+     * trains for the date. One grouped read; trains not seeded yet are seeded
+     * first in a single short transaction.
+     */
+    public Map<Integer, RouteAvailability> getAvailability(Collection<Integer> trainIds, LocalDate journeyDate) throws SQLException {
+        Map<Integer, RouteAvailability> availability = new HashMap<>();
+        if (trainIds.isEmpty()) {
+            return availability;
+        }
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(trainIds));
+
+        try (Connection conn = dbManager.getConnection()) {
+            Set<Integer> found = readAvailability(conn, ids, journeyDate, availability);
+
+            List<Integer> missing = new ArrayList<>(ids);
+            missing.removeAll(found);
+            if (missing.isEmpty()) {
+                return availability;
+            }
+
+            boolean originalAutoCommit = conn.getAutoCommit();
+            try {
+                conn.setAutoCommit(false);
+                seed(conn, missing, journeyDate);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(originalAutoCommit);
+            }
+            for (Integer trainId : missing) {
+                markSeeded(trainId, journeyDate);
+            }
+            readAvailability(conn, missing, journeyDate, availability);
+        }
+        return availability;
+    }
+
+    /**
+     * Drop a train's counters after its routes or seats change; they are
+     * seeded again on next use
+     */
+    public void resetTrain(int trainId) throws SQLException {
+        seeded.remove(trainId);
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM availability_summary WHERE train_id = ?")) {
+            pstmt.setInt(1, trainId);
+            pstmt.executeUpdate();
+        }
+        System.out.println("DEBUG: Reset availability counters for train " + trainId);
+    }
+
+    /**
+     * Drop every counter (used when the affected train is not known)
+     */
+    public void resetAll() throws SQLException {
+        seeded.clear();
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM availability_summary");
+        }
+        System.out.println("DEBUG: Reset all availability counters");
+    }
+
+    /**
+     * Recount every seeded journey from the given date on and correct any
+     * counter that has drifted. Returns the number of rows corrected.
+     */
+    public int reconcile(LocalDate fromDate) throws SQLException {
+        Map<LocalDate, List<Integer>> journeys = new LinkedHashMap<>();
+        String query = """
+            SELECT DISTINCT journey_date, train_id FROM availability_summary
+            WHERE journey_date >= ?
+            ORDER BY journey_date, train_id
+            """;
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setDate(1, Date.valueOf(fromDate));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    journeys.computeIfAbsent(rs.getDate("journey_date").toLocalDate(), d -> new ArrayList<>())
+                            .add(rs.getInt("train_id"));
+                }
+            }
+        }
+
+        int corrected = 0;
+        for (Map.Entry<LocalDate, List<Integer>> entry : journeys.entrySet()) {
+            for (Integer trainId : entry.getValue()) {
+                corrected += reconcileJourney(trainId, entry.getKey());
+            }
+        }
+        System.out.println("DEBUG: Reconciled availability counters for " + journeys.size() +
+                          " date(s), " + corrected + " row(s) corrected");
+        return corrected;
+    }
+
+    /**
+     * Run {@link #reconcile} for today onwards in the background at a fixed delay
+     */
+    public synchronized void startReconciler() {
+        if (reconciler != null) {
+            return;
+        }
+        reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "availability-reconciler");
+            t.setDaemon(true);
+            return t;
+        });
+        reconciler.scheduleWithFixedDelay(() -> {
+            try {
+                reconcile(LocalDate.now());
+            } catch (SQLException | RuntimeException e) {
+                Logger.getInstance().error("AvailabilityCounters", "reconcile", "Availability reconcile failed", e);
+            }
+        }, RECONCILE_INTERVAL_MINUTES, RECONCILE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Lock the journey's counter rows, recount from seat_inventory and fix
+     * the differences. Writers change seat rows before counter rows, so once
+     * the counters are locked no committed seat change can be missing from them.
+     */
+    private int reconcileJourney(int trainId, LocalDate journeyDate) throws SQLException {
+        try (Connection conn = dbManager.getConnection()) {
+            boolean originalAutoCommit = conn.getAutoCommit();
+            try {
+                conn.setAutoCommit(false);
+
+                Map<Key, Integer> stored = new HashMap<>();
+                String lock = """
+                    SELECT route_id, class_id, free_seats FROM availability_summary
+                    WHERE train_id = ? AND journey_date = ?
+                    FOR UPDATE
+                    """;
+                try (PreparedStatement pstmt = conn.prepareStatement(lock)) {
+                    pstmt.setInt(1, trainId);
+                    pstmt.setDate(2, Date.valueOf(journeyDate));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            stored.put(new Key(rs.getInt("route_id"), rs.getInt("class_id")), rs.getInt("free_seats"));
+                        }
+                    }
+                }
+
+                Map<Key, Integer> actual = SeatInventory.getInstance()
+                    .countFreeByRouteAndClass(conn, List.of(trainId), journeyDate).get(trainId);
+
+                int corrected = 0;
+                String upsert = """
+                    INSERT INTO availability_summary (train_id, journey_date, route_id, class_id, free_seats)
+                    VALUES (?, ?, ?, ?, ?)
+                    ON DUPLICATE KEY UPDATE free_seats = VALUES(free_seats)
+                    """;
+                try (PreparedStatement pstmt = conn.prepareStatement(upsert)) {
+                    for (Map.Entry<Key, Integer> count : actual.entrySet()) {
+                        Integer current = stored.remove(count.getKey());
+                        if (Objects.equals(current, count.getValue())) {
+                            continue;
+                        }
+                        Logger.getInstance().warn("AvailabilityCounters", "reconcile",
+                            "Train " + trainId + " on " + journeyDate + ", " + count.getKey() + ": counter " + current +
+                            ", recounted " + count.getValue());
+                        pstmt.setInt(1, trainId);
+                        pstmt.setDate(2, Date.valueOf(journeyDate));
+                        pstmt.setInt(3, count.getKey().routeId);
+                        pstmt.setInt(4, count.getKey().classId);
+                        pstmt.setInt(5, count.getValue());
+                        pstmt.addBatch();
+                        corrected++;
+                    }
+                    if (corrected > 0) {
+                        pstmt.executeBatch();
+                    }
+                }
+
+                // Rows for routes or classes that no longer exist
+                if (!stored.isEmpty()) {
+                    String delete = "DELETE FROM availability_summary WHERE train_id = ? AND journey_date = ? AND route_id = ? AND class_id = ?";
+                    try (PreparedStatement pstmt = conn.prepareStatement(delete)) {
+                        for (Key key : stored.keySet()) {
+                            pstmt.setInt(1, trainId);
+                            pstmt.setDate(2, Date.valueOf(journeyDate));
+                            pstmt.setInt(3, key.routeId);
+                            pstmt.setInt(4, key.classId);
+                            pstmt.addBatch();
+                        }
+                        pstmt.executeBatch();
+                    }
+                    corrected += stored.size();
+                }
+
+                conn.commit();
+                return corrected;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(originalAutoCommit);
+            }
+        }
+    }
+
+    /**
+     * Count the trains' free seats from seat_inventory and insert their rows;
+     * rows another transaction inserted first are kept
+     */
+    private void seed(Connection conn, List<Integer> trainIds, LocalDate journeyDate) throws SQLException {
+        Map<Integer, Map<Key, Integer>> counts = SeatInventory.getInstance()
+            .countFreeByRouteAndClass(conn, trainIds, journeyDate);
+
+        String insert = """
+            INSERT IGNORE INTO availability_summary (train_id, journey_date, route_id, class_id, free_seats)
+            VALUES (?, ?, ?, ?, ?)
+            """;
+        int rows = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(insert)) {
+            for (Map.Entry<Integer, Map<Key, Integer>> train : counts.entrySet()) {
+                for (Map.Entry<Key, Integer> count : train.getValue().entrySet()) {
+                    pstmt.setInt(1, train.getKey());
+                    pstmt.setDate(2, Date.valueOf(journeyDate));
+                    pstmt.setInt(3, count.getKey().routeId);
+                    pstmt.setInt(4, count.getKey().classId);
+                    pstmt.setInt(5, count.getValue());
+                    pstmt.addBatch();
+                    rows++;
+                }
+            }
+            if (rows > 0) {
+                pstmt.executeBatch();
+            }
+        }
+        System.out.println("DEBUG: Seeded " + rows + " availability counter(s) for " + trainIds.size() +
+                          " train(s) on " + journeyDate);
+    }
+
+    /**
+     * Read the counters of the trains into the map; returns the trains that had rows
+     */
+    private Set<Integer> readAvailability(Connection conn, List<Integer> trainIds, LocalDate journeyDate,
+                                          Map<Integer, RouteAvailability> availability) throws SQLException {
+        Set<Integer> found = new LinkedHashSet<>();
+        String query = """
+            SELECT a.train_id, a.route_id, a.class_id, cl.class_type, a.free_seats
+            FROM availability_summary a
+            JOIN classes cl ON cl.class_id = a.class_id
+            WHERE a.journey_date = ? AND a.train_id IN (%s)
+            ORDER BY a.route_id, cl.class_type
+            """.formatted(String.join(", ", Collections.nCopies(trainIds.size(), "?")));
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setDate(1, Date.valueOf(journeyDate));
+            for (int i = 0; i < trainIds.size(); i++) {
+                pstmt.setInt(2 + i, trainIds.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    found.add(rs.getInt("train_id"));
+                    int routeId = rs.getInt("route_id");
+                    availability.computeIfAbsent(routeId, RouteAvailability::new)
+                                .add(rs.getInt("class_id"), rs.getString("class_type"), rs.getInt("free_seats"));
+                }
+            }
+        }
+        return found;
+    }
+
+    private boolean isSeeded(int trainId, LocalDate journeyDate) {
+        Set<LocalDate> dates = seeded.get(trainId);
+        return dates != null && dates.contains(journeyDate);
+    }
+
+    private void markSeeded(int trainId, LocalDate journeyDate) {
+        seeded.computeIfAbsent(trainId, id -> ConcurrentHashMap.newKeySet()).add(journeyDate);
+    }
+
+    private void forgetSeeded(int trainId, LocalDate journeyDate) {
+        Set<LocalDate> dates = seeded.get(trainId);
+        if (dates != null) {
+            dates.remove(journeyDate);
+        }
+    }
+
+    /**
+     * Counter key within one journey
+     */
+    static class Key {
+        private final int routeId;
+        private final int classId;
+
+        Key(int routeId, int classId) {
+            this.routeId = routeId;
+            this.classId = classId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return routeId == other.routeId && classId == other.classId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(routeId, classId);
+        }
+
+        @Override
+        public String toString() {
+            return "route " + routeId + ", class " + classId;
+        }
+    }
+
+    /**
+     * Free seats of one route, by class type
+     */
+    public static class RouteAvailability {
+        private final int routeId;
+        private final Map<String, Integer> byClass = new LinkedHashMap<>();
+        private final Map<Integer, String> classTypes = new HashMap<>();
+
+        RouteAvailability(int routeId) {
+            this.routeId = routeId;
+        }
+
+        void add(int classId, String classType, int freeSeats) {
+            classTypes.put(classId, classType);
+            byClass.merge(classType, Math.max(0, freeSeats), Integer::sum);
+        }
+
+        /**
+         * Take seats of a class out of the free count (held in checkout)
+         */
+        void subtract(int classId, int seats) {
+            String classType = classTypes.get(classId);
+            if (classType != null) {
+                byClass.computeIfPresent(classType, (type, free) -> Math.max(0, free - seats));
+            }
+        }
+
+        public int getRouteId() { return routeId; }
+        public Map<String, Integer> getByClass() { return Collections.unmodifiableMap(byClass); }
+
+        public int getTotal() {
+            int total = 0;
+            for (int free : byClass.values()) {
+                total += free;
+            }
+            return total;
+        }
+    }
+}
@@ -10,9 +10,19 @@ import java.sql.SQLException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Connection;
-import java.sql.DatabaseMetaData;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -28,6 +38,20 @@ public class BookMyTicketApp {
     private SeatAvailabilityManager seatManager;
     private RACQueue racQueue;
     private WaitlistManager waitlistManager;
+    // Seats held while the current user fills in passenger details
+    private SeatHoldService.Hold activeHold;
+    // How long a booking may wait for admission before the queue dialog appears
+    private static final long QUEUE_DIALOG_DELAY_MS = 300;
+    private static final int BOOKING_REQUEST_THREADS = 2;
+    
+    // Booking requests wait for admission here, never on the EDT
+    private static final ExecutorService bookingRequests = Executors.newFixedThreadPool(BOOKING_REQUEST_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "booking-request");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Departure/arrival times of connecting journeys in search results
+    private static final DateTimeFormatter CONNECTION_TIME_FORMAT = DateTimeFormatter.ofPattern("dd MMM HH:mm");
     
     // GUI Components
     private JPanel currentPanel;
@@ -39,6 +63,13 @@ public class BookMyTicketApp {
     private JTextArea userListTextArea;
     private JTextArea bookingListTextArea;
     
+    // Paging state of the admin "All Bookings" list; the cursor is null when every page is shown
+    private static final int BOOKING_PAGE_SIZE = 50;
+    private BookingManager.PageCursor allBookingsCursor;
+    private int allBookingsShown;
+    private int allBookingsGeneration;
+    private boolean allBookingsLoading;
+    
     public BookMyTicketApp() {
         try {
             // Initialize managers
@@ -49,6 +80,10 @@ public class BookMyTicketApp {
             racQueue = new RACQueue();
             waitlistManager = new WaitlistManager();
             
+            // Build the station/route index up front so the first search doesn't pay for it
+            RouteIndex.getInstance().refresh();
+            AvailabilityCounters.getInstance().startReconciler();
+            
             // Initialize GUI
             initializeGUI();
             
@@ -360,6 +395,7 @@ public class BookMyTicketApp {
         
         JTextField sourceField = new JTextField(15);
         JTextField destField = new JTextField(15);
+        JTextField dateField = new JTextField(LocalDate.now().toString(), 10);
         JButton searchButton = new JButton("Search Trains");
         searchButton.setBackground(new Color(30, 144, 255));
         searchButton.setForeground(Color.BLACK);
@@ -374,6 +410,10 @@ public class BookMyTicketApp {
         gbc.gridx = 3;
         searchPanel.add(destField, gbc);
         gbc.gridx = 4;
+        searchPanel.add(new JLabel("Date (YYYY-MM-DD):"), gbc);
+        gbc.gridx = 5;
+        searchPanel.add(dateField, gbc);
+        gbc.gridx = 6;
         searchPanel.add(searchButton, gbc);
         
         panel.add(searchPanel, BorderLayout.NORTH);
@@ -396,61 +436,117 @@ public class BookMyTicketApp {
                 return;
             }
             
+            LocalDate journeyDate;
             try {
-                List<TrainManager.TrainSearchResult> results = trainManager.searchTrains(source, destination);
-                
-                StringBuilder sb = new StringBuilder();
-                sb.append("Search Results for: ").append(source).append(" → ").append(destination).append("\n");
-                sb.append("=".repeat(80)).append("\n\n");
+                journeyDate = LocalDate.parse(dateField.getText().trim());
+            } catch (DateTimeParseException ex) {
+                JOptionPane.showMessageDialog(mainFrame, "Please enter the journey date as YYYY-MM-DD", 
+                    "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            if (journeyDate.isBefore(LocalDate.now())) {
+                JOptionPane.showMessageDialog(mainFrame, "Journey date cannot be in the past", 
+                    "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            
+            String header = "Search Results for: " + source + " → " + destination + " on " + journeyDate + "\n" +
+                            "=".repeat(80) + "\n\n";
+            String sourceText = source.toLowerCase();
+            String destText = destination.toLowerCase();
+            
+            // Each train's block is appended as soon as it is formatted
+            UiTask.<List<TrainManager.TrainSearchResult>, String>create("search", task -> {
+                List<TrainManager.TrainSearchResult> results = trainManager.searchTrains(source, destination, journeyDate);
                 
                 if (results.isEmpty()) {
+                    StringBuilder sb = new StringBuilder();
                     sb.append("No trains found for the specified route.\n");
-                } else {
-                    int index = 1;
-                    for (TrainManager.TrainSearchResult result : results) {
-                        sb.append(index++).append(". ");
-                        sb.append(result.getTrain().getTrainName()).append(" (").append(result.getTrain().getTrainNumber()).append(")\n");
-                        sb.append("   Route: ").append(result.getRoute().getSourceStation()).append(" → ");
-                        sb.append(result.getRoute().getDestinationStation()).append("\n");
-                        
-                        // Show intermediate stations if available
-                        String intermediateStations = result.getRoute().getIntermediateStations();
-                        if (intermediateStations != null && !intermediateStations.trim().isEmpty()) {
-                            sb.append("   Stops via: ").append(intermediateStations).append("\n");
-                        }
-                        
-                        sb.append("   Departure: ").append(result.getRoute().getDepartureTime());
-                        sb.append(" | Arrival: ").append(result.getRoute().getArrivalTime()).append("\n");
-                        sb.append("   Price: ₹").append(result.getRoute().getPrice());
-                        sb.append(" | Available Seats: ").append(result.getAvailableSeats()).append("\n");
-                        
-                        // Enhanced search match information with direction validation
-                        String sourceText = sourceField.getText().trim().toLowerCase();
-                        String destText = destField.getText().trim().toLowerCase();
-                        
-                        // Show route sequence to confirm direction
-                        List<String> routeSequence = buildRouteSequence(result.getRoute());
-                        if (!routeSequence.isEmpty()) {
-                            sb.append("   ✓ Route Direction: ");
-                            for (int i = 0; i < routeSequence.size(); i++) {
-                                if (i > 0) sb.append(" → ");
-                                String station = routeSequence.get(i);
-                                
-                                // Highlight searched stations
-                                if (station.toLowerCase().contains(sourceText)) {
-                                    sb.append("[").append(station).append("]");
-                                } else if (station.toLowerCase().contains(destText)) {
-                                    sb.append("[").append(station).append("]");
-                                } else {
-                                    sb.append(station);
-                                }
+                    appendConnections(sb, source, destination, journeyDate);
+                    appendStationHints(sb, "From", source);
+                    appendStationHints(sb, "To", destination);
+                    task.publish(sb.toString());
+                    return results;
+                }
+                
+                int index = 1;
+                for (TrainManager.TrainSearchResult result : results) {
+                    if (task.isCancelled()) {
+                        break;
+                    }
+                    StringBuilder sb = new StringBuilder();
+                    sb.append(index++).append(". ");
+                    sb.append(result.getTrain().getTrainName()).append(" (").append(result.getTrain().getTrainNumber()).append(")\n");
+                    sb.append("   Route: ").append(result.getRoute().getSourceStation()).append(" → ");
+                    sb.append(result.getRoute().getDestinationStation()).append("\n");
+                    
+                    // Show intermediate stations if available
+                    String intermediateStations = result.getRoute().getIntermediateStations();
+                    if (intermediateStations != null && !intermediateStations.trim().isEmpty()) {
+                        sb.append("   Stops via: ").append(intermediateStations).append("\n");
+                    }
+                    
+                    sb.append("   Departure: ").append(result.getRoute().getDepartureTime());
+                    sb.append(" | Arrival: ").append(result.getRoute().getArrivalTime()).append("\n");
+                    sb.append("   Fare: ₹").append(result.getFare());
+                    if (!result.getFaresByClass().isEmpty()) {
+                        StringJoiner fares = new StringJoiner(", ", " (", ")");
+                        result.getFaresByClass().forEach((classType, fare) -> fares.add(classType + ": ₹" + fare));
+                        sb.append(fares);
+                    }
+                    sb.append(" | Available Seats: ").append(result.getAvailableSeats());
+                    if (!result.getSeatsByClass().isEmpty()) {
+                        StringJoiner byClass = new StringJoiner(", ", " (", ")");
+                        result.getSeatsByClass().forEach((classType, free) -> byClass.add(classType + ": " + free));
+                        sb.append(byClass);
+                    }
+                    sb.append("\n");
+                    
+                    // Show route sequence to confirm direction
+                    List<String> routeSequence = buildRouteSequence(result.getRoute());
+                    if (!routeSequence.isEmpty()) {
+                        sb.append("   ✓ Route Direction: ");
+                        for (int i = 0; i < routeSequence.size(); i++) {
+                            if (i > 0) sb.append(" → ");
+                            String station = routeSequence.get(i);
+                            
+                            // Highlight searched stations
+                            if (station.toLowerCase().contains(sourceText)) {
+                                sb.append("[").append(station).append("]");
+                            } else if (station.toLowerCase().contains(destText)) {
+                                sb.append("[").append(station).append("]");
+                            } else {
+                                sb.append(station);
                             }
-                            sb.append("\n");
                         }
-                        
-                        sb.append("   [Click 'Book Seat' to proceed with booking]\n\n");
+                        sb.append("\n");
                     }
                     
+                    sb.append("   [Click 'Book Seat' to proceed with booking]\n\n");
+                    task.publish(sb.toString());
+                }
+                if (!task.isCancelled()) {
+                    StringBuilder sb = new StringBuilder();
+                    appendConnections(sb, source, destination, journeyDate);
+                    task.publish(sb.toString());
+                }
+                return results;
+            })
+            .onStart(() -> {
+                resultsArea.setText(header + "Searching...\n");
+                searchButton.setEnabled(false);
+            })
+            .onChunks(blocks -> {
+                if (resultsArea.getText().endsWith("Searching...\n")) {
+                    resultsArea.setText(header);
+                }
+                for (String block : blocks) {
+                    resultsArea.append(block);
+                }
+            })
+            .onSuccess(results -> {
+                searchButton.setEnabled(true);
+                if (!results.isEmpty()) {
                     // Add booking button
                     JButton bookButton = new JButton("Book Seat for Selected Train");
                     bookButton.setBackground(new Color(34, 139, 34));
@@ -460,14 +556,15 @@ public class BookMyTicketApp {
                     JPanel buttonPanel = new JPanel();
                     buttonPanel.add(bookButton);
                     panel.add(buttonPanel, BorderLayout.SOUTH);
+                    panel.revalidate();
                 }
-                
-                resultsArea.setText(sb.toString());
-                
-            } catch (SQLException ex) {
+            })
+            .onError(ex -> {
+                searchButton.setEnabled(true);
                 JOptionPane.showMessageDialog(mainFrame, "Error searching trains: " + ex.getMessage(), 
                     "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            })
+            .start();
         });
         
         return panel;
@@ -518,48 +615,51 @@ public class BookMyTicketApp {
     }
     
     private void showMultipleSeatMapDialog(TrainManager.TrainSearchResult trainResult, int numberOfSeats) {
-        try {
-            // First, let user select a compartment
-            List<SeatAvailabilityManager.CompartmentSeats> compartments = 
-                seatManager.getCompartmentsForTrain(trainResult.getTrain().getTrainId());
-            
-            if (compartments.isEmpty()) {
-                JOptionPane.showMessageDialog(mainFrame, 
-                    "No compartments found for this train.", 
-                    "No Compartments", JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-            
-            // Filter compartments that have available seats (even if less than requested)
-            List<SeatAvailabilityManager.CompartmentSeats> validCompartments = new ArrayList<>();
-            for (SeatAvailabilityManager.CompartmentSeats comp : compartments) {
-                if (comp.getAvailableSeatsCount() > 0) {
-                    validCompartments.add(comp);
-                }
-            }
-            
-            if (validCompartments.isEmpty()) {
-                JOptionPane.showMessageDialog(mainFrame, 
-                    "No compartments have available seats.\n" +
-                    "All passengers will be placed in RAC/Waitlist queue.", 
-                    "No Available Seats", JOptionPane.INFORMATION_MESSAGE);
-                
-                // Proceed with RAC/Waitlist booking for all seats
-                proceedWithRACWaitlistBooking(trainResult, numberOfSeats);
-                return;
+        // First, let user select a compartment
+        UiTask.<List<SeatAvailabilityManager.CompartmentSeats>, Void>create("seatMap", task ->
+                seatManager.getCompartmentsForTrain(trainResult.getTrain().getTrainId(),
+                    trainResult.getRoute().getRouteId(), trainResult.getFromOrdinal(), trainResult.getToOrdinal(),
+                    trainResult.getJourneyDate()))
+            .onSuccess(compartments -> showCompartmentChoice(trainResult, numberOfSeats, compartments))
+            .onError(e -> JOptionPane.showMessageDialog(mainFrame, "Error loading compartments: " + e.getMessage(), 
+                "Error", JOptionPane.ERROR_MESSAGE))
+            .start();
+    }
+    
+    private void showCompartmentChoice(TrainManager.TrainSearchResult trainResult, int numberOfSeats,
+                                       List<SeatAvailabilityManager.CompartmentSeats> compartments) {
+        if (compartments.isEmpty()) {
+            JOptionPane.showMessageDialog(mainFrame, 
+                "No compartments found for this train.", 
+                "No Compartments", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        
+        // Filter compartments that have available seats (even if less than requested)
+        List<SeatAvailabilityManager.CompartmentSeats> validCompartments = new ArrayList<>();
+        for (SeatAvailabilityManager.CompartmentSeats comp : compartments) {
+            if (comp.getAvailableSeatsCount() > 0) {
+                validCompartments.add(comp);
             }
+        }
+        
+        if (validCompartments.isEmpty()) {
+            JOptionPane.showMessageDialog(mainFrame, 
+                "No compartments have available seats.\n" +
+                "All passengers will be placed in RAC/Waitlist queue.", 
+                "No Available Seats", JOptionPane.INFORMATION_MESSAGE);
             
-            // Show compartment selection dialog
-            SeatAvailabilityManager.CompartmentSeats selectedCompartment = showCompartmentSelectionDialog(validCompartments, numberOfSeats);
-            if (selectedCompartment == null) return;
-            
-            // Show seat selection for the selected compartment
-            showCompartmentSeatMapDialog(trainResult, selectedCompartment, numberOfSeats);
-            
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(mainFrame, "Error loading compartments: " + e.getMessage(), 
-                "Error", JOptionPane.ERROR_MESSAGE);
+            // Proceed with RAC/Waitlist booking for all seats
+            proceedWithRACWaitlistBooking(trainResult, numberOfSeats);
+            return;
         }
+        
+        // Show compartment selection dialog
+        SeatAvailabilityManager.CompartmentSeats selectedCompartment = showCompartmentSelectionDialog(validCompartments, numberOfSeats);
+        if (selectedCompartment == null) return;
+        
+        // Show seat selection for the selected compartment
+        showCompartmentSeatMapDialog(trainResult, selectedCompartment, numberOfSeats);
     }
     
     private SeatAvailabilityManager.CompartmentSeats showCompartmentSelectionDialog(
@@ -762,27 +862,39 @@ public class BookMyTicketApp {
                     }
                 }
                 
-                // Check if we need to handle mixed booking scenario
-                if (seats.size() < numberOfSeats) {
-                    // Mixed booking scenario - some seats confirmed, some RAC/waitlist
-                    if (selectedSeats.isEmpty()) {
-                        // No seats selected, all go to RAC/waitlist
-                        showMixedBookingDialog(trainResult, new ArrayList<>(), numberOfSeats, seatDialog);
+                Runnable proceed = () -> {
+                    // Check if we need to handle mixed booking scenario
+                    if (seats.size() < numberOfSeats) {
+                        // Mixed booking scenario - some seats confirmed, some RAC/waitlist
+                        if (selectedSeats.isEmpty()) {
+                            // No seats selected, all go to RAC/waitlist
+                            showMixedBookingDialog(trainResult, new ArrayList<>(), numberOfSeats, seatDialog);
+                        } else {
+                            // Some seats selected for confirmation, rest go to RAC/waitlist
+                            showMixedBookingDialog(trainResult, selectedSeats, numberOfSeats, seatDialog);
+                        }
                     } else {
-                        // Some seats selected for confirmation, rest go to RAC/waitlist
-                        showMixedBookingDialog(trainResult, selectedSeats, numberOfSeats, seatDialog);
+                        // Normal booking scenario - enough seats available
+                        if (selectedSeats.size() != numberOfSeats) {
+                            releaseActiveHold();
+                            JOptionPane.showMessageDialog(seatDialog, 
+                                "Please select exactly " + numberOfSeats + " seat(s)", 
+                                "Selection Error", JOptionPane.ERROR_MESSAGE);
+                            return;
+                        }
+                        
+                        // Show passenger details dialog for multiple passengers
+                        showMultiplePassengerDetailsDialog(trainResult, selectedSeats, seatDialog);
                     }
+                    // The details dialog is modal: a hold still active here was not booked
+                    releaseActiveHold();
+                };
+                
+                // Hold the picked seats while passenger details are entered
+                if (selectedSeats.isEmpty()) {
+                    proceed.run();
                 } else {
-                    // Normal booking scenario - enough seats available
-                    if (selectedSeats.size() != numberOfSeats) {
-                        JOptionPane.showMessageDialog(seatDialog, 
-                            "Please select exactly " + numberOfSeats + " seat(s)", 
-                            "Selection Error", JOptionPane.ERROR_MESSAGE);
-                        return;
-                    }
-                    
-                    // Show passenger details dialog for multiple passengers
-                    showMultiplePassengerDetailsDialog(trainResult, selectedSeats, seatDialog);
+                    holdSeats(trainResult, selectedSeats, seatDialog, bookButton, proceed);
                 }
             });
             
@@ -798,84 +910,233 @@ public class BookMyTicketApp {
         }
     }
     
+    /**
+     * Hold the selected seats for the current user between their stops,
+     * replacing any earlier hold, then run onHeld on the EDT. The hold is
+     * taken in the background with the book button disabled; if a seat was
+     * taken meanwhile the user is told and onHeld is not run.
+     */
+    private void holdSeats(TrainManager.TrainSearchResult trainResult,
+                           List<SeatAvailabilityManager.SeatWithDetails> selectedSeats, Component parent,
+                           JButton bookButton, Runnable onHeld) {
+        releaseActiveHold();
+        List<Integer> seatIds = new ArrayList<>();
+        for (SeatAvailabilityManager.SeatWithDetails seat : selectedSeats) {
+            seatIds.add(seat.getSeatId());
+        }
+        int userId = currentUser.getUserId();
+        UiTask.<SeatHoldService.Hold, Void>create(null, task ->
+                SeatHoldService.getInstance().hold(userId,
+                    trainResult.getTrain().getTrainId(), trainResult.getRoute().getRouteId(),
+                    trainResult.getFromOrdinal(), trainResult.getToOrdinal(),
+                    trainResult.getJourneyDate(), seatIds, SeatHoldService.DEFAULT_TTL))
+            .onStart(() -> bookButton.setEnabled(false))
+            .onSuccess(hold -> {
+                bookButton.setEnabled(true);
+                if (hold == null) {
+                    JOptionPane.showMessageDialog(parent,
+                        "A selected seat was just booked or is being booked by another passenger.\nPlease reopen the seat map and pick again.",
+                        "Seat Unavailable", JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
+                activeHold = hold;
+                onHeld.run();
+            })
+            .onError(e -> {
+                bookButton.setEnabled(true);
+                JOptionPane.showMessageDialog(parent, "Could not hold seats: " + e.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+            })
+            .start();
+    }
+    
+    /**
+     * Run a booking through admission control and return its result. The
+     * request runs on the booking executor while the EDT keeps dispatching
+     * events in a secondary loop; if it is still waiting after a moment, a
+     * timer shows a dialog with its queue position until it is admitted.
+     * A shed request throws BookingAdmission.Rejected with the reason.
+     */
+    private <T> T admitBooking(Component parent, TrainManager.TrainSearchResult trainResult, int seatId,
+                               BookingAdmission.Work<T> work) throws SQLException {
+        BookingAdmission admission = BookingAdmission.getInstance();
+        int trainId = trainResult.getTrain().getTrainId();
+        int classId = admission.classOf(trainId, seatId);
+        
+        JDialog queueDialog = new JDialog(mainFrame, "Booking Queue", true);
+        JLabel queueLabel = new JLabel("Waiting for a booking slot...");
+        queueLabel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        queueDialog.add(queueLabel);
+        queueDialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        queueDialog.pack();
+        queueDialog.setLocationRelativeTo(parent);
+        
+        // Admission is immediate unless there is a rush; only show the queue when still waiting
+        Timer showQueue = new Timer((int) QUEUE_DIALOG_DELAY_MS, null);
+        showQueue.setRepeats(false);
+        SecondaryLoop waiting = Toolkit.getDefaultToolkit().getSystemEventQueue().createSecondaryLoop();
+        
+        FutureTask<T> request = new FutureTask<>(() -> admission.admit(trainId, trainResult.getJourneyDate(), classId,
+                (position, waitSeconds) -> SwingUtilities.invokeLater(() -> {
+                    queueLabel.setText("You are number " + (position + 1) + " in the queue for this train and class" +
+                                       " (about " + waitSeconds + " s)");
+                    queueDialog.pack();
+                }), work)) {
+            @Override
+            protected void done() {
+                // Posted to the EDT, so it runs inside the loop entered below
+                SwingUtilities.invokeLater(() -> {
+                    showQueue.stop();
+                    queueDialog.dispose();
+                    waiting.exit();
+                });
+            }
+        };
+        showQueue.addActionListener(e -> {
+            if (!request.isDone()) {
+                queueDialog.setVisible(true);
+            }
+        });
+        bookingRequests.execute(request);
+        if (SwingUtilities.isEventDispatchThread()) {
+            // Keeps painting and input going until the request is done
+            showQueue.start();
+            waiting.enter();
+        }
+        
+        try {
+            return request.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while booking", e);
+        } catch (ExecutionException e) {
+            throw asSqlException(e);
+        }
+    }
+    
+    private static SQLException asSqlException(ExecutionException e) {
+        if (e.getCause() instanceof SQLException) {
+            return (SQLException) e.getCause();
+        }
+        return new SQLException("Booking failed: " + e.getCause().getMessage(), e.getCause());
+    }
+    
+    /**
+     * End the active hold because its seats were booked
+     */
+    private void confirmActiveHold() {
+        if (activeHold == null) {
+            return;
+        }
+        try {
+            SeatHoldService.getInstance().confirm(activeHold.getHoldId());
+        } catch (SQLException ex) {
+            System.out.println("DEBUG: Could not confirm hold " + activeHold.getHoldId() + ": " + ex.getMessage());
+        }
+        activeHold = null;
+    }
+    
+    /**
+     * Give the active hold's seats back (checkout abandoned)
+     */
+    private void releaseActiveHold() {
+        if (activeHold == null) {
+            return;
+        }
+        try {
+            SeatHoldService.getInstance().release(activeHold.getHoldId());
+        } catch (SQLException ex) {
+            System.out.println("DEBUG: Could not release hold " + activeHold.getHoldId() + ": " + ex.getMessage());
+        }
+        activeHold = null;
+    }
+    
     private void showSeatMapDialog(TrainManager.TrainSearchResult trainResult) {
+        UiTask.<List<List<SeatAvailabilityManager.SeatWithDetails>>, Void>create("seatMap", task -> List.of(
+                seatManager.getAvailableSeats(trainResult.getTrain().getTrainId(),
+                    trainResult.getRoute().getRouteId(), trainResult.getFromOrdinal(), trainResult.getToOrdinal(),
+                    trainResult.getJourneyDate()),
+                // Get recommended seats for user type
+                seatManager.getRecommendedSeats(trainResult.getTrain().getTrainId(),
+                    trainResult.getRoute().getRouteId(), trainResult.getFromOrdinal(), trainResult.getToOrdinal(),
+                    trainResult.getJourneyDate(), currentUser.getRole())))
+            .onSuccess(loaded -> showSeatMap(trainResult, loaded.get(0), loaded.get(1)))
+            .onError(e -> JOptionPane.showMessageDialog(mainFrame, "Error loading seats: " + e.getMessage(), 
+                "Error", JOptionPane.ERROR_MESSAGE))
+            .start();
+    }
+    
+    private void showSeatMap(TrainManager.TrainSearchResult trainResult,
+                             List<SeatAvailabilityManager.SeatWithDetails> seats,
+                             List<SeatAvailabilityManager.SeatWithDetails> recommendedSeats) {
         JDialog seatDialog = new JDialog(mainFrame, "Select Seat - " + trainResult.getTrain().getTrainName(), true);
         seatDialog.setSize(800, 600);
         seatDialog.setLocationRelativeTo(mainFrame);
         
-        try {
-            List<SeatAvailabilityManager.SeatWithDetails> seats = seatManager.getAvailableSeats(
-                trainResult.getTrain().getTrainId(), trainResult.getRoute().getRouteId());
-            
-            // Get recommended seats for user type
-            List<SeatAvailabilityManager.SeatWithDetails> recommendedSeats = 
-                seatManager.getRecommendedSeats(trainResult.getTrain().getTrainId(), currentUser.getRole());
-            
-            JPanel mainPanel = new JPanel(new BorderLayout());
-            
-            // Info panel
-            JPanel infoPanel = new JPanel();
-            infoPanel.add(new JLabel("Recommended seats for " + currentUser.getRole() + " users are highlighted"));
-            mainPanel.add(infoPanel, BorderLayout.NORTH);
-            
-            // Seat selection area
-            JPanel seatPanel = new JPanel(new GridLayout(0, 6, 5, 5));
-            seatPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        JPanel mainPanel = new JPanel(new BorderLayout());
+        
+        // Info panel
+        JPanel infoPanel = new JPanel();
+        infoPanel.add(new JLabel("Recommended seats for " + currentUser.getRole() + " users are highlighted"));
+        mainPanel.add(infoPanel, BorderLayout.NORTH);
+        
+        // Seat selection area
+        JPanel seatPanel = new JPanel(new GridLayout(0, 6, 5, 5));
+        seatPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        
+        ButtonGroup seatGroup = new ButtonGroup();
+        
+        for (SeatAvailabilityManager.SeatWithDetails seat : seats) {
+            JRadioButton seatButton = new JRadioButton(seat.getSeatNumber() + " (" + seat.getBerthType() + ")");
+            seatButton.putClientProperty("seat", seat);
             
-            ButtonGroup seatGroup = new ButtonGroup();
+            // Highlight recommended seats
+            if (recommendedSeats.contains(seat)) {
+                seatButton.setBackground(new Color(144, 238, 144));
+                seatButton.setOpaque(true);
+            }
             
-            for (SeatAvailabilityManager.SeatWithDetails seat : seats) {
-                JRadioButton seatButton = new JRadioButton(seat.getSeatNumber() + " (" + seat.getBerthType() + ")");
-                seatButton.putClientProperty("seat", seat);
-                
-                // Highlight recommended seats
-                if (recommendedSeats.contains(seat)) {
-                    seatButton.setBackground(new Color(144, 238, 144));
-                    seatButton.setOpaque(true);
+            seatGroup.add(seatButton);
+            seatPanel.add(seatButton);
+        }
+        
+        JScrollPane seatScrollPane = new JScrollPane(seatPanel);
+        mainPanel.add(seatScrollPane, BorderLayout.CENTER);
+        
+        // Book button
+        JPanel buttonPanel = new JPanel();
+        JButton bookButton = new JButton("Book Selected Seat");
+        bookButton.setBackground(new Color(34, 139, 34));
+        bookButton.setForeground(Color.BLACK);
+        
+        bookButton.addActionListener(e -> {
+            // Find selected seat
+            SeatAvailabilityManager.SeatWithDetails selectedSeat = null;
+            for (AbstractButton button : java.util.Collections.list(seatGroup.getElements())) {
+                if (button.isSelected()) {
+                    selectedSeat = (SeatAvailabilityManager.SeatWithDetails) button.getClientProperty("seat");
+                    break;
                 }
-                
-                seatGroup.add(seatButton);
-                seatPanel.add(seatButton);
             }
             
-            JScrollPane seatScrollPane = new JScrollPane(seatPanel);
-            mainPanel.add(seatScrollPane, BorderLayout.CENTER);
-            
-            // Book button
-            JPanel buttonPanel = new JPanel();
-            JButton bookButton = new JButton("Book Selected Seat");
-            bookButton.setBackground(new Color(34, 139, 34));
-            bookButton.setForeground(Color.BLACK);
+            if (selectedSeat == null) {
+                JOptionPane.showMessageDialog(seatDialog, "Please select a seat", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
             
-            bookButton.addActionListener(e -> {
-                // Find selected seat
-                SeatAvailabilityManager.SeatWithDetails selectedSeat = null;
-                for (AbstractButton button : java.util.Collections.list(seatGroup.getElements())) {
-                    if (button.isSelected()) {
-                        selectedSeat = (SeatAvailabilityManager.SeatWithDetails) button.getClientProperty("seat");
-                        break;
-                    }
-                }
-                
-                if (selectedSeat == null) {
-                    JOptionPane.showMessageDialog(seatDialog, "Please select a seat", "Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-                
-                // Show passenger details dialog
-                showPassengerDetailsDialog(trainResult, selectedSeat, seatDialog);
+            // Show passenger details dialog once the seat is held
+            SeatAvailabilityManager.SeatWithDetails heldSeat = selectedSeat;
+            holdSeats(trainResult, List.of(selectedSeat), seatDialog, bookButton, () -> {
+                showPassengerDetailsDialog(trainResult, heldSeat, seatDialog);
+                releaseActiveHold();
             });
-            
-            buttonPanel.add(bookButton);
-            mainPanel.add(buttonPanel, BorderLayout.SOUTH);
-            
-            seatDialog.add(mainPanel);
-            seatDialog.setVisible(true);
-            
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(mainFrame, "Error loading seats: " + e.getMessage(), 
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
+        
+        buttonPanel.add(bookButton);
+        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+        
+        seatDialog.add(mainPanel);
+        seatDialog.setVisible(true);
     }
     
     private void showPassengerDetailsDialog(TrainManager.TrainSearchResult trainResult, 
@@ -929,18 +1190,24 @@ public class BookMyTicketApp {
                 }
                 
                 // Create booking
-                BookingManager.BookingResult result = bookingManager.createBooking(
-                    currentUser.getUserId(),
-                    seat.getSeatId(),
-                    trainResult.getTrain().getTrainId(),
-                    trainResult.getRoute().getRouteId(),
-                    name,
-                    age
-                );
+                BookingManager.BookingResult result = admitBooking(passengerDialog, trainResult, seat.getSeatId(),
+                    () -> bookingManager.createBooking(
+                        currentUser.getUserId(),
+                        seat.getSeatId(),
+                        trainResult.getTrain().getTrainId(),
+                        trainResult.getRoute().getRouteId(),
+                        name,
+                        age,
+                        trainResult.getJourneyDate(),
+                        trainResult.getFromOrdinal(),
+                        trainResult.getToOrdinal()
+                    ));
 
                 if (result.isSuccess()) {
+                    confirmActiveHold();
+                    
                     // Show payment dialog
-                    BigDecimal bookingAmount = trainResult.getRoute().getPrice();
+                    BigDecimal bookingAmount = trainResult.getFare(seat.getClassType());
                     PaymentDialog paymentDialog = new PaymentDialog(mainFrame, result.getId(), bookingAmount);
                     paymentDialog.setVisible(true);
                     
@@ -1328,50 +1595,63 @@ public class BookMyTicketApp {
                                    JDialog mixedDialog,
                                    JDialog parentDialog) {
         try {
-            List<BookingManager.BookingResult> allResults = new ArrayList<>();
             BigDecimal totalAmount = BigDecimal.ZERO;
             int confirmedSeats = selectedSeats.size();
             int racWaitlistSeats = totalRequestedSeats - confirmedSeats;
             
-            // Book confirmed seats first
-            for (int i = 0; i < confirmedSeats; i++) {
-                SeatAvailabilityManager.SeatWithDetails seat = selectedSeats.get(i);
-                String passengerName = passengerNames.get(i);
-                int passengerAge = passengerAges.get(i);
+            // The whole request takes one turn in the booking queue
+            int firstSeatId = confirmedSeats > 0 ? selectedSeats.get(0).getSeatId() : -1;
+            List<BookingManager.BookingResult> allResults = admitBooking(mixedDialog, trainResult, firstSeatId, () -> {
+                List<BookingManager.BookingResult> results = new ArrayList<>();
                 
-                BookingManager.BookingResult result = bookingManager.createBooking(
-                    currentUser.getUserId(),
-                    seat.getSeatId(),
-                    trainResult.getTrain().getTrainId(),
-                    trainResult.getRoute().getRouteId(),
-                    passengerName,
-                    passengerAge
-                );
+                // Book confirmed seats first
+                for (int i = 0; i < confirmedSeats; i++) {
+                    SeatAvailabilityManager.SeatWithDetails seat = selectedSeats.get(i);
+                    String passengerName = passengerNames.get(i);
+                    int passengerAge = passengerAges.get(i);
+                    
+                    results.add(bookingManager.createBooking(
+                        currentUser.getUserId(),
+                        seat.getSeatId(),
+                        trainResult.getTrain().getTrainId(),
+                        trainResult.getRoute().getRouteId(),
+                        passengerName,
+                        passengerAge,
+                        trainResult.getJourneyDate(),
+                        trainResult.getFromOrdinal(),
+                        trainResult.getToOrdinal()
+                    ));
+                }
                 
-                allResults.add(result);
-                if (result.isSuccess() && "Confirmed".equals(result.getStatus())) {
-                    totalAmount = totalAmount.add(trainResult.getRoute().getPrice());
+                // Book remaining passengers in RAC/Waitlist
+                for (int i = confirmedSeats; i < totalRequestedSeats; i++) {
+                    String passengerName = passengerNames.get(i);
+                    int passengerAge = passengerAges.get(i);
+                    
+                    System.out.println("DEBUG: Mixed booking RAC/Waitlist attempt " + (i+1) + " - Name: '" + passengerName + "', Age: " + passengerAge);
+                    
+                    // Use a dummy seat ID (-1) for RAC/Waitlist bookings
+                    results.add(bookingManager.createBooking(
+                        currentUser.getUserId(),
+                        -1, // Dummy seat ID for RAC/Waitlist
+                        trainResult.getTrain().getTrainId(),
+                        trainResult.getRoute().getRouteId(),
+                        passengerName,
+                        passengerAge,
+                        trainResult.getJourneyDate(),
+                        trainResult.getFromOrdinal(),
+                        trainResult.getToOrdinal()
+                    ));
                 }
-            }
+                return results;
+            });
+            confirmActiveHold();
             
-            // Book remaining passengers in RAC/Waitlist
-            for (int i = confirmedSeats; i < totalRequestedSeats; i++) {
-                String passengerName = passengerNames.get(i);
-                int passengerAge = passengerAges.get(i);
-                
-                System.out.println("DEBUG: Mixed booking RAC/Waitlist attempt " + (i+1) + " - Name: '" + passengerName + "', Age: " + passengerAge);
-                
-                // Use a dummy seat ID (-1) for RAC/Waitlist bookings
-                BookingManager.BookingResult result = bookingManager.createBooking(
-                    currentUser.getUserId(),
-                    -1, // Dummy seat ID for RAC/Waitlist
-                    trainResult.getTrain().getTrainId(),
-                    trainResult.getRoute().getRouteId(),
-                    passengerName,
-                    passengerAge
-                );
-                
-                allResults.add(result);
+            for (int i = 0; i < confirmedSeats; i++) {
+                BookingManager.BookingResult result = allResults.get(i);
+                if (result.isSuccess() && "Confirmed".equals(result.getStatus())) {
+                    totalAmount = totalAmount.add(trainResult.getFare(selectedSeats.get(i).getClassType()));
+                }
             }
             
             // Process payment for confirmed bookings if any
@@ -1487,25 +1767,28 @@ public class BookMyTicketApp {
             if (validatePassengerDetails(nameFields, ageFields, passengerNames, passengerAges, racDialog)) {
                 // Process RAC/Waitlist bookings
                 try {
-                    List<BookingManager.BookingResult> racResults = new ArrayList<>();
-                    
-                    for (int i = 0; i < numberOfSeats; i++) {
-                        String passengerName = passengerNames.get(i);
-                        int passengerAge = passengerAges.get(i);
-                        
-                        System.out.println("DEBUG: RAC/Waitlist booking attempt " + (i+1) + " - Name: '" + passengerName + "', Age: " + passengerAge);
-                        
-                        BookingManager.BookingResult result = bookingManager.createBooking(
-                            currentUser.getUserId(),
-                            -1, // Dummy seat ID for RAC/Waitlist
-                            trainResult.getTrain().getTrainId(),
-                            trainResult.getRoute().getRouteId(),
-                            passengerName,
-                            passengerAge
-                        );
-                        
-                        racResults.add(result);
-                    }
+                    List<BookingManager.BookingResult> racResults = admitBooking(racDialog, trainResult, -1, () -> {
+                        List<BookingManager.BookingResult> results = new ArrayList<>();
+                        for (int i = 0; i < numberOfSeats; i++) {
+                            String passengerName = passengerNames.get(i);
+                            int passengerAge = passengerAges.get(i);
+                            
+                            System.out.println("DEBUG: RAC/Waitlist booking attempt " + (i+1) + " - Name: '" + passengerName + "', Age: " + passengerAge);
+                            
+                            results.add(bookingManager.createBooking(
+                                currentUser.getUserId(),
+                                -1, // Dummy seat ID for RAC/Waitlist
+                                trainResult.getTrain().getTrainId(),
+                                trainResult.getRoute().getRouteId(),
+                                passengerName,
+                                passengerAge,
+                                trainResult.getJourneyDate(),
+                                trainResult.getFromOrdinal(),
+                                trainResult.getToOrdinal()
+                            ));
+                        }
+                        return results;
+                    });
                     
                     // Show success message
                     StringBuilder message = new StringBuilder();
@@ -1555,53 +1838,61 @@ public class BookMyTicketApp {
             StringBuilder statusMessages = new StringBuilder();
             boolean hasFailures = false;
             
-            // Create bookings for each seat
+            // Book the whole group in one transaction
+            List<BookingManager.PassengerRequest> passengers = new ArrayList<>();
             for (int i = 0; i < selectedSeats.size(); i++) {
+                passengers.add(new BookingManager.PassengerRequest(
+                    currentUser.getUserId(),
+                    selectedSeats.get(i).getSeatId(),
+                    trainResult.getTrain().getTrainId(),
+                    trainResult.getRoute().getRouteId(),
+                    passengerNames.get(i),
+                    passengerAges.get(i),
+                    trainResult.getJourneyDate(),
+                    trainResult.getFromOrdinal(),
+                    trainResult.getToOrdinal()
+                ));
+            }
+            
+            try {
+                bookingResults.addAll(admitBooking(detailsDialog, trainResult, selectedSeats.get(0).getSeatId(),
+                    () -> bookingManager.createGroupBooking(passengers)));
+                confirmActiveHold();
+            } catch (SQLException ex) {
+                JOptionPane.showMessageDialog(detailsDialog,
+                    "Group booking failed: " + ex.getMessage(),
+                    "Booking Failed", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            
+            for (int i = 0; i < bookingResults.size(); i++) {
+                BookingManager.BookingResult result = bookingResults.get(i);
                 SeatAvailabilityManager.SeatWithDetails seat = selectedSeats.get(i);
                 String passengerName = passengerNames.get(i);
-                int passengerAge = passengerAges.get(i);
                 
-                try {
-                    BookingManager.BookingResult result = bookingManager.createBooking(
-                        currentUser.getUserId(),
-                        seat.getSeatId(),
-                        trainResult.getTrain().getTrainId(),
-                        trainResult.getRoute().getRouteId(),
-                        passengerName,
-                        passengerAge
-                    );
-                    
-                    bookingResults.add(result);
+                if (result.isSuccess()) {
+                    totalAmount = totalAmount.add(trainResult.getFare(seat.getClassType()));
                     
-                    if (result.isSuccess()) {
-                        totalAmount = totalAmount.add(trainResult.getRoute().getPrice());
-                        
-                        // Build status message based on booking status
-                        String status = result.getStatus();
-                        if ("Confirmed".equals(status)) {
-                            statusMessages.append("✓ Seat ").append(seat.getSeatNumber())
-                                        .append(" - ").append(passengerName)
-                                        .append(" (Confirmed - ID: ").append(result.getId()).append(")\n");
-                        } else if ("RAC".equals(status)) {
-                            statusMessages.append("⚪ Seat ").append(seat.getSeatNumber())
-                                        .append(" - ").append(passengerName)
-                                        .append(" (RAC - ").append(result.getMessage()).append(")\n");
-                        } else if ("Waiting".equals(status)) {
-                            statusMessages.append("⏳ Seat ").append(seat.getSeatNumber())
-                                        .append(" - ").append(passengerName)
-                                        .append(" (Waitlist - ").append(result.getMessage()).append(")\n");
-                        }
-                    } else {
-                        hasFailures = true;
-                        statusMessages.append("✗ Seat ").append(seat.getSeatNumber())
+                    // Build status message based on booking status
+                    String status = result.getStatus();
+                    if ("Confirmed".equals(status)) {
+                        statusMessages.append("✓ Seat ").append(seat.getSeatNumber())
+                                    .append(" - ").append(passengerName)
+                                    .append(" (Confirmed - ID: ").append(result.getId()).append(")\n");
+                    } else if ("RAC".equals(status)) {
+                        statusMessages.append("⚪ Seat ").append(seat.getSeatNumber())
                                     .append(" - ").append(passengerName)
-                                    .append(" (Failed: ").append(result.getMessage()).append(")\n");
+                                    .append(" (RAC - ").append(result.getMessage()).append(")\n");
+                    } else if ("Waiting".equals(status)) {
+                        statusMessages.append("⏳ Seat ").append(seat.getSeatNumber())
+                                    .append(" - ").append(passengerName)
+                                    .append(" (Waitlist - ").append(result.getMessage()).append(")\n");
                     }
-                } catch (SQLException ex) {
+                } else {
                     hasFailures = true;
                     statusMessages.append("✗ Seat ").append(seat.getSeatNumber())
-                                 .append(" - ").append(passengerName)
-                                 .append(" (Error: ").append(ex.getMessage()).append(")\n");
+                                .append(" - ").append(passengerName)
+                                .append(" (Failed: ").append(result.getMessage()).append(")\n");
                 }
             }
             
@@ -1624,10 +1915,11 @@ public class BookMyTicketApp {
             BigDecimal confirmedAmount = BigDecimal.ZERO;
             List<BookingManager.BookingResult> confirmedBookings = new ArrayList<>();
             
-            for (BookingManager.BookingResult result : successfulBookings) {
-                if ("Confirmed".equals(result.getStatus())) {
+            for (int i = 0; i < bookingResults.size(); i++) {
+                BookingManager.BookingResult result = bookingResults.get(i);
+                if (result.isSuccess() && "Confirmed".equals(result.getStatus())) {
                     confirmedBookings.add(result);
-                    confirmedAmount = confirmedAmount.add(trainResult.getRoute().getPrice());
+                    confirmedAmount = confirmedAmount.add(trainResult.getFare(selectedSeats.get(i).getClassType()));
                 }
             }
             
@@ -1765,7 +2057,7 @@ public class BookMyTicketApp {
     }
     
     private void refreshMyBookings() {
-        try {
+        UiTask.<String, Void>create("myBookings", task -> {
             List<BookingManager.BookingDetails> bookings = bookingManager.getBookingsForUser(currentUser.getUserId());
             
             StringBuilder sb = new StringBuilder();
@@ -1919,150 +2211,153 @@ public class BookMyTicketApp {
                 sb.append("╚").append("═".repeat(140)).append("╝");
             }
             
+            return sb.toString();
+        }).onSuccess(text -> {
             // Update the text area directly using the instance variable
             if (myBookingsTextArea != null) {
-                myBookingsTextArea.setText(sb.toString());
+                myBookingsTextArea.setText(text);
                 myBookingsTextArea.setCaretPosition(0); // Scroll to top
             }
-            
-        } catch (SQLException e) {
+        }).onError(e -> {
             JOptionPane.showMessageDialog(mainFrame, "Error loading bookings: " + e.getMessage(), 
                 "Error", JOptionPane.ERROR_MESSAGE);
             if (myBookingsTextArea != null) {
                 myBookingsTextArea.setText("Error loading bookings: " + e.getMessage());
             }
-        }
+        }).start();
     }
     
     private void showCancelBookingDialog() {
-        try {
-            List<BookingManager.BookingDetails> bookings = bookingManager.getBookingsForUser(currentUser.getUserId());
-            
-            // Filter only active bookings (not cancelled)
-            List<BookingManager.BookingDetails> activeBookings = bookings.stream()
-                .filter(b -> !"Cancelled".equals(b.getStatus()))
-                .collect(Collectors.toList());
-            
-            if (activeBookings.isEmpty()) {
-                JOptionPane.showMessageDialog(mainFrame, 
-                    "No active bookings found to cancel.", 
-                    "No Bookings", JOptionPane.INFORMATION_MESSAGE);
-                return;
+        UiTask.<List<BookingManager.BookingDetails>, Void>create("cancelBooking", task ->
+                bookingManager.getBookingsForUser(currentUser.getUserId()))
+            .onSuccess(this::showCancelBookingDialog)
+            .onError(e -> JOptionPane.showMessageDialog(mainFrame, 
+                "Error loading bookings: " + e.getMessage(), 
+                "Database Error", JOptionPane.ERROR_MESSAGE))
+            .start();
+    }
+    
+    private void showCancelBookingDialog(List<BookingManager.BookingDetails> bookings) {
+        // Filter only active bookings (not cancelled)
+        List<BookingManager.BookingDetails> activeBookings = bookings.stream()
+            .filter(b -> !"Cancelled".equals(b.getStatus()))
+            .collect(Collectors.toList());
+        
+        if (activeBookings.isEmpty()) {
+            JOptionPane.showMessageDialog(mainFrame, 
+                "No active bookings found to cancel.", 
+                "No Bookings", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        
+        // Create dialog
+        JDialog cancelDialog = new JDialog(mainFrame, "Cancel Booking", true);
+        cancelDialog.setSize(800, 600);
+        cancelDialog.setLocationRelativeTo(mainFrame);
+        
+        JPanel mainPanel = new JPanel(new BorderLayout());
+        
+        // Instructions
+        JLabel instructionLabel = new JLabel("Select a booking to cancel:");
+        instructionLabel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        instructionLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        mainPanel.add(instructionLabel, BorderLayout.NORTH);
+        
+        // Table for bookings
+        String[] columnNames = {"Booking ID", "Train", "Route", "Passenger", "Seat", "Status", "Booking Date", "Price"};
+        DefaultTableModel tableModel = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
             }
-            
-            // Create dialog
-            JDialog cancelDialog = new JDialog(mainFrame, "Cancel Booking", true);
-            cancelDialog.setSize(800, 600);
-            cancelDialog.setLocationRelativeTo(mainFrame);
-            
-            JPanel mainPanel = new JPanel(new BorderLayout());
-            
-            // Instructions
-            JLabel instructionLabel = new JLabel("Select a booking to cancel:");
-            instructionLabel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-            instructionLabel.setFont(new Font("Arial", Font.BOLD, 14));
-            mainPanel.add(instructionLabel, BorderLayout.NORTH);
-            
-            // Table for bookings
-            String[] columnNames = {"Booking ID", "Train", "Route", "Passenger", "Seat", "Status", "Booking Date", "Price"};
-            DefaultTableModel tableModel = new DefaultTableModel(columnNames, 0) {
-                @Override
-                public boolean isCellEditable(int row, int column) {
-                    return false;
-                }
+        };
+        
+        JTable bookingTable = new JTable(tableModel);
+        bookingTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        bookingTable.setFont(new Font("Arial", Font.PLAIN, 12));
+        bookingTable.getTableHeader().setFont(new Font("Arial", Font.BOLD, 12));
+        
+        // Populate table
+        for (BookingManager.BookingDetails booking : activeBookings) {
+            Object[] row = {
+                booking.getBookingId(),
+                booking.getTrainName() + " (" + booking.getTrainNumber() + ")",
+                booking.getSourceStation() + " → " + booking.getDestinationStation(),
+                booking.getPassengerName() + " (" + booking.getPassengerAge() + ")",
+                booking.getSeatNumber() != null ? booking.getSeatNumber() : "RAC/Waitlist",
+                booking.getStatus(),
+                booking.getBookingTime().toLocalDate().toString(),
+                "₹" + booking.getPrice()
             };
-            
-            JTable bookingTable = new JTable(tableModel);
-            bookingTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-            bookingTable.setFont(new Font("Arial", Font.PLAIN, 12));
-            bookingTable.getTableHeader().setFont(new Font("Arial", Font.BOLD, 12));
-            
-            // Populate table
-            for (BookingManager.BookingDetails booking : activeBookings) {
-                Object[] row = {
-                    booking.getBookingId(),
-                    booking.getTrainName() + " (" + booking.getTrainNumber() + ")",
-                    booking.getSourceStation() + " → " + booking.getDestinationStation(),
-                    booking.getPassengerName() + " (" + booking.getPassengerAge() + ")",
-                    booking.getSeatNumber() != null ? booking.getSeatNumber() : "RAC/Waitlist",
-                    booking.getStatus(),
-                    booking.getBookingTime().toLocalDate().toString(),
-                    "₹" + booking.getPrice()
-                };
-                tableModel.addRow(row);
-            }
-            
-            JScrollPane tableScrollPane = new JScrollPane(bookingTable);
-            mainPanel.add(tableScrollPane, BorderLayout.CENTER);
-            
-            // Buttons
-            JPanel buttonPanel = new JPanel(new FlowLayout());
-            
-            JButton cancelBookingBtn = new JButton("Cancel Selected Booking");
-            cancelBookingBtn.setBackground(new Color(220, 20, 60));
-            cancelBookingBtn.setForeground(Color.BLACK);
-            
-            JButton closeBtn = new JButton("Close");
-            closeBtn.setForeground(Color.BLACK);
-            
-            cancelBookingBtn.addActionListener(e -> {
-                int selectedRow = bookingTable.getSelectedRow();
-                if (selectedRow >= 0) {
-                    BookingManager.BookingDetails selectedBooking = activeBookings.get(selectedRow);
-                    
-                    int confirmation = JOptionPane.showConfirmDialog(
-                        cancelDialog,
-                        "Are you sure you want to cancel this booking?\n\n" +
-                        "Booking ID: " + selectedBooking.getBookingId() + "\n" +
-                        "Train: " + selectedBooking.getTrainName() + "\n" +
-                        "Passenger: " + selectedBooking.getPassengerName() + "\n" +
-                        "Price: ₹" + selectedBooking.getPrice(),
-                        "Confirm Cancellation",
-                        JOptionPane.YES_NO_OPTION,
-                        JOptionPane.WARNING_MESSAGE
-                    );
-                    
-                    if (confirmation == JOptionPane.YES_OPTION) {
-                        try {
-                            boolean success = bookingManager.cancelBooking(selectedBooking.getBookingId());
-                            if (success) {
-                                JOptionPane.showMessageDialog(cancelDialog, 
-                                    "Booking cancelled successfully!", 
-                                    "Success", JOptionPane.INFORMATION_MESSAGE);
-                                cancelDialog.dispose();
-                                refreshMyBookings(); // Refresh the main bookings view
-                            } else {
-                                JOptionPane.showMessageDialog(cancelDialog, 
-                                    "Failed to cancel booking. Please try again.", 
-                                    "Error", JOptionPane.ERROR_MESSAGE);
-                            }
-                        } catch (SQLException ex) {
+            tableModel.addRow(row);
+        }
+        
+        JScrollPane tableScrollPane = new JScrollPane(bookingTable);
+        mainPanel.add(tableScrollPane, BorderLayout.CENTER);
+        
+        // Buttons
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        
+        JButton cancelBookingBtn = new JButton("Cancel Selected Booking");
+        cancelBookingBtn.setBackground(new Color(220, 20, 60));
+        cancelBookingBtn.setForeground(Color.BLACK);
+        
+        JButton closeBtn = new JButton("Close");
+        closeBtn.setForeground(Color.BLACK);
+        
+        cancelBookingBtn.addActionListener(e -> {
+            int selectedRow = bookingTable.getSelectedRow();
+            if (selectedRow >= 0) {
+                BookingManager.BookingDetails selectedBooking = activeBookings.get(selectedRow);
+                
+                int confirmation = JOptionPane.showConfirmDialog(
+                    cancelDialog,
+                    "Are you sure you want to cancel this booking?\n\n" +
+                    "Booking ID: " + selectedBooking.getBookingId() + "\n" +
+                    "Train: " + selectedBooking.getTrainName() + "\n" +
+                    "Passenger: " + selectedBooking.getPassengerName() + "\n" +
+                    "Price: ₹" + selectedBooking.getPrice(),
+                    "Confirm Cancellation",
+                    JOptionPane.YES_NO_OPTION,
+                    JOptionPane.WARNING_MESSAGE
+                );
+                
+                if (confirmation == JOptionPane.YES_OPTION) {
+                    try {
+                        boolean success = bookingManager.cancelBooking(selectedBooking.getBookingId());
+                        if (success) {
+                            JOptionPane.showMessageDialog(cancelDialog, 
+                                "Booking cancelled successfully!", 
+                                "Success", JOptionPane.INFORMATION_MESSAGE);
+                            cancelDialog.dispose();
+                            refreshMyBookings(); // Refresh the main bookings view
+                        } else {
                             JOptionPane.showMessageDialog(cancelDialog, 
-                                "Error cancelling booking: " + ex.getMessage(), 
-                                "Database Error", JOptionPane.ERROR_MESSAGE);
+                                "Failed to cancel booking. Please try again.", 
+                                "Error", JOptionPane.ERROR_MESSAGE);
                         }
+                    } catch (SQLException ex) {
+                        JOptionPane.showMessageDialog(cancelDialog, 
+                            "Error cancelling booking: " + ex.getMessage(), 
+                            "Database Error", JOptionPane.ERROR_MESSAGE);
                     }
-                } else {
-                    JOptionPane.showMessageDialog(cancelDialog, 
-                        "Please select a booking to cancel.", 
-                        "No Selection", JOptionPane.WARNING_MESSAGE);
                 }
-            });
-            
-            closeBtn.addActionListener(e -> cancelDialog.dispose());
-            
-            buttonPanel.add(cancelBookingBtn);
-            buttonPanel.add(closeBtn);
-            mainPanel.add(buttonPanel, BorderLayout.SOUTH);
-            
-            cancelDialog.add(mainPanel);
-            cancelDialog.setVisible(true);
-            
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(mainFrame, 
-                "Error loading bookings: " + e.getMessage(), 
-                "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+            } else {
+                JOptionPane.showMessageDialog(cancelDialog, 
+                    "Please select a booking to cancel.", 
+                    "No Selection", JOptionPane.WARNING_MESSAGE);
+            }
+        });
+        
+        closeBtn.addActionListener(e -> cancelDialog.dispose());
+        
+        buttonPanel.add(cancelBookingBtn);
+        buttonPanel.add(closeBtn);
+        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+        
+        cancelDialog.add(mainPanel);
+        cancelDialog.setVisible(true);
+
     }
     
     private JPanel createAdminPanel() {
@@ -2231,14 +2526,8 @@ public class BookMyTicketApp {
         JComboBox<Train> trainCombo = new JComboBox<>();
         trainCombo.addItem(null); // Add null option for "All Trains"
         
-        try {
-            List<Train> trains = trainManager.getAllTrains();
-            for (Train train : trains) {
-                trainCombo.addItem(train);
-            }
-        } catch (SQLException e) {
-            System.err.println("Error loading trains for booking overview: " + e.getMessage());
-        }
+        loadTrainsInto(trainCombo, trains -> { },
+            e -> System.err.println("Error loading trains for booking overview: " + e.getMessage()));
         
         trainSelectionPanel.add(new JLabel("Train:"));
         trainSelectionPanel.add(trainCombo);
@@ -2283,6 +2572,14 @@ public class BookMyTicketApp {
         JScrollPane scrollPane = new JScrollPane(bookingListTextArea);
         panel.add(scrollPane, BorderLayout.CENTER);
         
+        // Fetch the next page of bookings once the list is scrolled near its end
+        JScrollBar bookingScrollBar = scrollPane.getVerticalScrollBar();
+        bookingScrollBar.addAdjustmentListener(e -> {
+            if (bookingScrollBar.getValue() + 2 * bookingScrollBar.getVisibleAmount() >= bookingScrollBar.getMaximum()) {
+                loadMoreBookings();
+            }
+        });
+        
         // Load initial booking overview
         refreshAllBookings();
         
@@ -2347,8 +2644,14 @@ public class BookMyTicketApp {
     }
     
     private void showDeleteTrainDialog() {
+        UiTask.<List<Train>, Void>create("deleteTrain", task -> trainManager.getAllTrains())
+            .onSuccess(this::showDeleteTrainDialog)
+            .onError(e -> JOptionPane.showMessageDialog(mainFrame, "Database error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE))
+            .start();
+    }
+    
+    private void showDeleteTrainDialog(List<Train> trains) {
         try {
-            List<Train> trains = trainManager.getAllTrains();
             if (trains.isEmpty()) {
                 JOptionPane.showMessageDialog(mainFrame, "No trains available to delete", "Info", JOptionPane.INFORMATION_MESSAGE);
                 return;
@@ -2451,7 +2754,7 @@ public class BookMyTicketApp {
     }
     
     private void refreshTrainList() {
-        try {
+        UiTask.<String, Void>create("trainListArea", task -> {
             System.out.println("DEBUG: Refreshing train list...");
             List<Train> trains = trainManager.getAllTrains();
             System.out.println("DEBUG: Found " + trains.size() + " trains");
@@ -2474,19 +2777,20 @@ public class BookMyTicketApp {
                 sb.append(String.format("\nTotal Trains: %d\n", trains.size()));
             }
             
+            return sb.toString();
+        }).onSuccess(text -> {
             // Update the train list area
             System.out.println("DEBUG: Updating text area...");
-            updateAdminTextArea("trainListArea", sb.toString());
+            updateAdminTextArea("trainListArea", text);
             System.out.println("DEBUG: Text area updated");
-            
-        } catch (SQLException e) {
+        }).onError(e -> {
             System.err.println("DEBUG: SQL Error: " + e.getMessage());
             JOptionPane.showMessageDialog(mainFrame, "Error loading trains: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        }).start();
     }
     
     private void refreshUserList() {
-        try {
+        UiTask.<String, Void>create("userListArea", task -> {
             List<User> users = loginOps.getAllUsers();
             
             StringBuilder sb = new StringBuilder();
@@ -2507,58 +2811,101 @@ public class BookMyTicketApp {
                 sb.append(String.format("\nTotal Users: %d\n", users.size()));
             }
             
-            updateAdminTextArea("userListArea", sb.toString());
-            
-        } catch (SQLException e) {
+            return sb.toString();
+        }).onSuccess(text -> {
+            updateAdminTextArea("userListArea", text);
+        }).onError(e -> {
             JOptionPane.showMessageDialog(mainFrame, "Error loading users: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        }).start();
     }
     
     private void refreshAllBookings() {
-        try {
-            List<BookingManager.BookingDetails> bookings = bookingManager.getAllBookings();
-            
+        int generation = ++allBookingsGeneration;
+        allBookingsLoading = true;
+        UiTask.<BookingManager.BookingPage, Void>create("bookingListArea", task ->
+                bookingManager.getAllBookings(null, BOOKING_PAGE_SIZE)
+        ).onSuccess(page -> {
             StringBuilder sb = new StringBuilder();
             sb.append("All Bookings Overview\n");
             sb.append("=".repeat(100)).append("\n\n");
             
-            if (bookings.isEmpty()) {
+            if (page.getBookings().isEmpty()) {
                 sb.append("No bookings found in the system.\n");
             } else {
-                for (BookingManager.BookingDetails booking : bookings) {
-                    sb.append("Booking ID: ").append(booking.getBookingId());
-                    sb.append(" | User: ").append(booking.getUsername());
-                    sb.append(" | Status: ").append(booking.getStatus()).append("\n");
-                    
-                    sb.append("Train: ").append(booking.getTrainName()).append(" (").append(booking.getTrainNumber()).append(")\n");
-                    sb.append("Route: ").append(booking.getSourceStation()).append(" → ").append(booking.getDestinationStation()).append("\n");
-                    sb.append("Passenger: ").append(booking.getPassengerName()).append(" (Age: ").append(booking.getPassengerAge()).append(")\n");
-                    
-                    if (booking.getSeatNumber() != null) {
-                        sb.append("Seat: ").append(booking.getSeatNumber());
-                        if (booking.getBerthType() != null) {
-                            sb.append(" (").append(booking.getBerthType()).append(")");
-                        }
-                        sb.append("\n");
-                    }
-                    
-                    sb.append("Booking Time: ").append(booking.getBookingTime()).append("\n");
-                    sb.append("Price: ₹").append(booking.getPrice()).append("\n");
-                    
-                    if (booking.getPaymentAmount() != null) {
-                        sb.append("Payment: ₹").append(booking.getPaymentAmount());
-                        sb.append(" (").append(booking.getPaymentStatus()).append(")\n");
-                    }
-                    
-                    sb.append("-".repeat(80)).append("\n\n");
+                appendBookings(sb, page, 0);
+            }
+            
+            updateAdminTextArea("bookingListArea", sb.toString());
+            // Set after the text, which resets the paging state for other views
+            allBookingsGeneration = generation;
+            allBookingsCursor = page.getNextCursor();
+            allBookingsShown = page.getBookings().size();
+            allBookingsLoading = false;
+        }).onError(e -> {
+            allBookingsLoading = false;
+            JOptionPane.showMessageDialog(mainFrame, "Error loading bookings: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }).start();
+    }
+    
+    /**
+     * Append the next page to the "All Bookings" list, if it is showing and not complete
+     */
+    private void loadMoreBookings() {
+        if (allBookingsCursor == null || allBookingsLoading) {
+            return;
+        }
+        allBookingsLoading = true;
+        int generation = allBookingsGeneration;
+        BookingManager.PageCursor cursor = allBookingsCursor;
+        
+        UiTask.<BookingManager.BookingPage, Void>create("bookingPage", task ->
+                bookingManager.getAllBookings(cursor, BOOKING_PAGE_SIZE)
+        ).onSuccess(page -> {
+            allBookingsLoading = false;
+            if (generation != allBookingsGeneration) {
+                return; // the list was refreshed or replaced meanwhile
+            }
+            StringBuilder sb = new StringBuilder();
+            appendBookings(sb, page, allBookingsShown);
+            bookingListTextArea.append(sb.toString());
+            allBookingsShown += page.getBookings().size();
+            allBookingsCursor = page.getNextCursor();
+        }).onError(e -> {
+            allBookingsLoading = false;
+            JOptionPane.showMessageDialog(mainFrame, "Error loading bookings: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }).start();
+    }
+    
+    private void appendBookings(StringBuilder sb, BookingManager.BookingPage page, int shownBefore) {
+        for (BookingManager.BookingDetails booking : page.getBookings()) {
+            sb.append("Booking ID: ").append(booking.getBookingId());
+            sb.append(" | User: ").append(booking.getUsername());
+            sb.append(" | Status: ").append(booking.getStatus()).append("\n");
+            
+            sb.append("Train: ").append(booking.getTrainName()).append(" (").append(booking.getTrainNumber()).append(")\n");
+            sb.append("Route: ").append(booking.getSourceStation()).append(" → ").append(booking.getDestinationStation()).append("\n");
+            sb.append("Passenger: ").append(booking.getPassengerName()).append(" (Age: ").append(booking.getPassengerAge()).append(")\n");
+            
+            if (booking.getSeatNumber() != null) {
+                sb.append("Seat: ").append(booking.getSeatNumber());
+                if (booking.getBerthType() != null) {
+                    sb.append(" (").append(booking.getBerthType()).append(")");
                 }
-                sb.append("Total Bookings: ").append(bookings.size()).append("\n");
+                sb.append("\n");
             }
             
-            updateAdminTextArea("bookingListArea", sb.toString());
+            sb.append("Booking Time: ").append(booking.getBookingTime()).append("\n");
+            sb.append("Price: ₹").append(booking.getPrice()).append("\n");
             
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(mainFrame, "Error loading bookings: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            if (booking.getPaymentAmount() != null) {
+                sb.append("Payment: ₹").append(booking.getPaymentAmount());
+                sb.append(" (").append(booking.getPaymentStatus()).append(")\n");
+            }
+            
+            sb.append("-".repeat(80)).append("\n\n");
+        }
+        if (!page.hasMore()) {
+            sb.append("Total Bookings: ").append(shownBefore + page.getBookings().size()).append("\n");
         }
     }
     
@@ -2568,7 +2915,7 @@ public class BookMyTicketApp {
     }
     
     private void refreshRACQueueByTrain(Train selectedTrain) {
-        try {
+        UiTask.<String, Void>create("bookingListArea", task -> {
             List<RACQueue.RACEntryWithTrainInfo> racEntries;
             
             if (selectedTrain == null) {
@@ -2625,7 +2972,7 @@ public class BookMyTicketApp {
                     sb.append(String.format("%d. RAC ID: %d\n", count++, entry.getRacId()));
                     sb.append(String.format("   Passenger: %s\n", entry.getUsername()));
                     sb.append(String.format("   Email: %s\n", entry.getEmail()));
-                    sb.append(String.format("   Position: %d\n", entry.getPosition()));
+                    sb.append("   Position: ").append(entry.getPosition() > 0 ? String.valueOf(entry.getPosition()) : "-").append("\n");
                     sb.append(String.format("   Status: %s\n", entry.getStatus()));
                     sb.append(String.format("   Request Time: %s\n", entry.getRequestTime()));
                     sb.append("\n");
@@ -2635,9 +2982,10 @@ public class BookMyTicketApp {
                 sb.append("Lower position numbers have higher priority for confirmation.\n");
             }
             
-            updateAdminTextArea("bookingListArea", sb.toString());
-            
-        } catch (SQLException e) {
+            return sb.toString();
+        }).onSuccess(text -> {
+            updateAdminTextArea("bookingListArea", text);
+        }).onError(e -> {
             StringBuilder sb = new StringBuilder();
             sb.append("Error loading RAC queue");
             if (selectedTrain != null) {
@@ -2651,7 +2999,7 @@ public class BookMyTicketApp {
             sb.append("Please check the database setup and try again.\n");
             
             updateAdminTextArea("bookingListArea", sb.toString());
-        }
+        }).start();
     }
     
     private void refreshWaitlist() {
@@ -2660,7 +3008,7 @@ public class BookMyTicketApp {
     }
     
     private void refreshWaitlistByTrain(Train selectedTrain) {
-        try {
+        UiTask.<String, Void>create("bookingListArea", task -> {
             List<WaitlistManager.WaitlistEntryWithTrainInfo> waitlistEntries;
             
             if (selectedTrain == null) {
@@ -2717,7 +3065,7 @@ public class BookMyTicketApp {
                     sb.append(String.format("%d. Waitlist ID: %d\n", count++, entry.getWaitlistId()));
                     sb.append(String.format("   Passenger: %s\n", entry.getUsername()));
                     sb.append(String.format("   Email: %s\n", entry.getEmail()));
-                    sb.append(String.format("   Position: %d\n", entry.getPosition()));
+                    sb.append("   Position: ").append(entry.getPosition() > 0 ? String.valueOf(entry.getPosition()) : "-").append("\n");
                     sb.append(String.format("   Status: %s\n", entry.getStatus()));
                     sb.append(String.format("   Request Time: %s\n", entry.getRequestTime()));
                     sb.append("\n");
@@ -2728,9 +3076,10 @@ public class BookMyTicketApp {
                 sb.append("Waitlist → RAC → Confirmed is the typical booking progression.\n");
             }
             
-            updateAdminTextArea("bookingListArea", sb.toString());
-            
-        } catch (SQLException e) {
+            return sb.toString();
+        }).onSuccess(text -> {
+            updateAdminTextArea("bookingListArea", text);
+        }).onError(e -> {
             StringBuilder sb = new StringBuilder();
             sb.append("Error loading waitlist");
             if (selectedTrain != null) {
@@ -2744,7 +3093,7 @@ public class BookMyTicketApp {
             sb.append("Please check the database setup and try again.\n");
             
             updateAdminTextArea("bookingListArea", sb.toString());
-        }
+        }).start();
     }
     
     private void updateAdminTextArea(String areaName, String text) {
@@ -2756,6 +3105,10 @@ public class BookMyTicketApp {
             userListTextArea.setText(text);
             userListTextArea.setCaretPosition(0);
         } else if ("bookingListArea".equals(areaName)) {
+            // Whatever replaces the list ends its paging
+            allBookingsGeneration++;
+            allBookingsCursor = null;
+            allBookingsShown = 0;
             bookingListTextArea.setText(text);
             bookingListTextArea.setCaretPosition(0);
         }
@@ -2812,30 +3165,21 @@ public class BookMyTicketApp {
         
         // Train selection
         JComboBox<Train> trainCombo = new JComboBox<>();
-        try {
-            List<Train> trains = trainManager.getAllTrains();
+        loadTrainsInto(trainCombo, trains -> {
             System.out.println("DEBUG: Loading trains for route dialog, found: " + trains.size() + " trains");
-            
             if (trains.isEmpty()) {
                 JOptionPane.showMessageDialog(dialog, 
                     "No trains found in the system.\nPlease add trains first before creating routes.", 
                     "No Trains Available", JOptionPane.WARNING_MESSAGE);
                 dialog.dispose();
-                return;
-            }
-            
-            for (Train train : trains) {
-                trainCombo.addItem(train);
-                System.out.println("DEBUG: Added train: " + train.getTrainName() + " (" + train.getTrainNumber() + ")");
             }
-        } catch (SQLException e) {
+        }, e -> {
             JOptionPane.showMessageDialog(dialog, 
                 "Error loading trains from database: " + e.getMessage() + 
                 "\n\nPlease ensure the database is running and accessible.", 
                 "Database Error", JOptionPane.ERROR_MESSAGE);
             dialog.dispose();
-            return;
-        }
+        });
         
         JTextField sourceField = new JTextField(25);
         sourceField.setFont(new Font("Arial", Font.PLAIN, 14));
@@ -3043,14 +3387,8 @@ public class BookMyTicketApp {
         // Train selection
         JPanel topPanel = new JPanel(new FlowLayout());
         JComboBox<Train> trainCombo = new JComboBox<>();
-        try {
-            List<Train> trains = trainManager.getAllTrains();
-            for (Train train : trains) {
-                trainCombo.addItem(train);
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(dialog, "Error loading trains: " + e.getMessage());
-        }
+        loadTrainsInto(trainCombo, trains -> { },
+            e -> JOptionPane.showMessageDialog(dialog, "Error loading trains: " + e.getMessage()));
         
         JButton loadCompartmentsBtn = new JButton("Load Compartments");
         loadCompartmentsBtn.setForeground(Color.BLACK);
@@ -3115,14 +3453,8 @@ public class BookMyTicketApp {
         // Train selection
         JPanel trainPanel = new JPanel(new FlowLayout());
         JComboBox<Train> trainCombo = new JComboBox<>();
-        try {
-            List<Train> trains = trainManager.getAllTrains();
-            for (Train train : trains) {
-                trainCombo.addItem(train);
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(dialog, "Error loading trains: " + e.getMessage());
-        }
+        loadTrainsInto(trainCombo, trains -> { },
+            e -> JOptionPane.showMessageDialog(dialog, "Error loading trains: " + e.getMessage()));
         
         trainPanel.add(new JLabel("Select Train:"));
         trainPanel.add(trainCombo);
@@ -3270,14 +3602,8 @@ public class BookMyTicketApp {
         // Train selection
         JPanel topPanel = new JPanel(new FlowLayout());
         JComboBox<Train> trainCombo = new JComboBox<>();
-        try {
-            List<Train> trains = trainManager.getAllTrains();
-            for (Train train : trains) {
-                trainCombo.addItem(train);
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(dialog, "Error loading trains: " + e.getMessage());
-        }
+        loadTrainsInto(trainCombo, trains -> { },
+            e -> JOptionPane.showMessageDialog(dialog, "Error loading trains: " + e.getMessage()));
         
         JButton loadConfigBtn = new JButton("Load Configuration");
         JButton saveConfigBtn = new JButton("Save Configuration");
@@ -3311,86 +3637,66 @@ public class BookMyTicketApp {
     // Helper methods for enhanced train management
     
     private void loadRoutes(JTextArea routeArea) {
-        try {
+        UiTask.<String, Void>create(viewKey(routeArea), task -> {
             StringBuilder sb = new StringBuilder();
             sb.append("All Routes in System\n");
             sb.append("=".repeat(80)).append("\n\n");
             
             // Check if extended columns exist
-            boolean hasExtendedColumns = checkRouteTableColumns();
-            
-            String query;
-            if (hasExtendedColumns) {
-                query = """
-                    SELECT r.route_id, r.source_station, r.destination_station, 
-                           r.departure_time, r.arrival_time, r.price, r.stops, r.intermediate_stations,
-                           t.train_name, t.train_number
-                    FROM routes r
-                    JOIN trains t ON r.train_id = t.train_id
-                    ORDER BY t.train_name, r.source_station
-                    """;
-            } else {
-                query = """
-                    SELECT r.route_id, r.source_station, r.destination_station, 
-                           r.departure_time, r.arrival_time, r.price,
-                           t.train_name, t.train_number
-                    FROM routes r
-                    JOIN trains t ON r.train_id = t.train_id
-                    ORDER BY t.train_name, r.source_station
-                    """;
-            }
-            
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(query);
-                 ResultSet rs = pstmt.executeQuery()) {
+            boolean hasExtendedColumns = DatabaseManager.getSchemaCapabilities().hasExtendedRouteColumns();
+            
+            ReferenceDataCache referenceData = ReferenceDataCache.getInstance();
+            int count = 0;
+            for (Route route : referenceData.getAllRoutes()) {
+                Train train = referenceData.getTrain(route.getTrainId());
+                if (train == null) {
+                    continue;
+                }
+                count++;
+                sb.append(String.format("%d. Route ID: %d\n", count, route.getRouteId()));
+                sb.append(String.format("   Train: %s (%s)\n", train.getTrainName(), train.getTrainNumber()));
+                sb.append(String.format("   Route: %s → %s\n", route.getSourceStation(), route.getDestinationStation()));
+                sb.append(String.format("   Time: %s - %s\n", java.sql.Time.valueOf(route.getDepartureTime()), java.sql.Time.valueOf(route.getArrivalTime())));
+                sb.append(String.format("   Price: ₹%.2f\n", route.getPrice()));
                 
-                int count = 0;
-                while (rs.next()) {
-                    count++;
-                    sb.append(String.format("%d. Route ID: %d\n", count, rs.getInt("route_id")));
-                    sb.append(String.format("   Train: %s (%s)\n", rs.getString("train_name"), rs.getString("train_number")));
-                    sb.append(String.format("   Route: %s → %s\n", rs.getString("source_station"), rs.getString("destination_station")));
-                    sb.append(String.format("   Time: %s - %s\n", rs.getTime("departure_time"), rs.getTime("arrival_time")));
-                    sb.append(String.format("   Price: ₹%.2f\n", rs.getBigDecimal("price")));
+                if (hasExtendedColumns) {
+                    sb.append(String.format("   Stops: %d\n", route.getStops()));
                     
-                    if (hasExtendedColumns) {
-                        int stops = rs.getInt("stops");
-                        sb.append(String.format("   Stops: %d\n", stops));
-                        
-                        String intermediateStations = rs.getString("intermediate_stations");
-                        if (intermediateStations != null && !intermediateStations.trim().isEmpty()) {
-                            sb.append(String.format("   Intermediate Stations: %s\n", intermediateStations.trim()));
-                        } else {
-                            sb.append("   Intermediate Stations: None\n");
-                        }
+                    String intermediateStations = route.getIntermediateStations();
+                    if (intermediateStations != null && !intermediateStations.trim().isEmpty()) {
+                        sb.append(String.format("   Intermediate Stations: %s\n", intermediateStations.trim()));
                     } else {
-                        sb.append("   Stops: Not available (database needs update)\n");
-                        sb.append("   Intermediate Stations: Not available (database needs update)\n");
+                        sb.append("   Intermediate Stations: None\n");
                     }
-                    
-                    sb.append("-".repeat(60)).append("\n");
-                }
-                
-                if (count == 0) {
-                    sb.append("No routes found in the system.\n");
                 } else {
-                    sb.append(String.format("\nTotal Routes: %d\n", count));
-                    if (!hasExtendedColumns) {
-                        sb.append("\nNote: Extended route information (stops, intermediate stations) is not available.\n");
-                        sb.append("Please run the database update script to enable these features.\n");
-                    }
+                    sb.append("   Stops: Not available (database needs update)\n");
+                    sb.append("   Intermediate Stations: Not available (database needs update)\n");
                 }
+                
+                sb.append("-".repeat(60)).append("\n");
             }
             
-            routeArea.setText(sb.toString());
+            if (count == 0) {
+                sb.append("No routes found in the system.\n");
+            } else {
+                sb.append(String.format("\nTotal Routes: %d\n", count));
+                if (!hasExtendedColumns) {
+                    sb.append("\nNote: Extended route information (stops, intermediate stations) is not available.\n");
+                    sb.append("Please run the database update script to enable these features.\n");
+                }
+            }
             
-        } catch (SQLException e) {
+            return sb.toString();
+        }).onSuccess(text -> {
+            routeArea.setText(text);
+        }).onError(e -> {
             routeArea.setText("Error loading routes: " + e.getMessage() + 
                 "\n\nNote: There may be a database connectivity issue or missing columns.");
-        }
+        }).start();
     }
     
     private void loadCompartments(Train train, JTextArea compartmentArea) {
-        try {
+        UiTask.<String, Void>create(viewKey(compartmentArea), task -> {
             StringBuilder sb = new StringBuilder();
             sb.append("Compartments for Train: ").append(train.getTrainName()).append("\n");
             sb.append("=".repeat(80)).append("\n\n");
@@ -3406,7 +3712,8 @@ public class BookMyTicketApp {
                 ORDER BY cl.class_type, c.compartment_name
                 """;
             
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(query)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
                 pstmt.setInt(1, train.getTrainId());
                 
                 try (ResultSet rs = pstmt.executeQuery()) {
@@ -3428,15 +3735,16 @@ public class BookMyTicketApp {
                 }
             }
             
-            compartmentArea.setText(sb.toString());
-            
-        } catch (SQLException e) {
+            return sb.toString();
+        }).onSuccess(text -> {
+            compartmentArea.setText(text);
+        }).onError(e -> {
             compartmentArea.setText("Error loading compartments: " + e.getMessage());
-        }
+        }).start();
     }
     
     private void loadSeats(Train train, JTextArea seatArea) {
-        try {
+        UiTask.<String, Void>create(viewKey(seatArea), task -> {
             StringBuilder sb = new StringBuilder();
             sb.append("Seats for Train: ").append(train.getTrainName()).append("\n");
             sb.append("=".repeat(100)).append("\n\n");
@@ -3451,7 +3759,8 @@ public class BookMyTicketApp {
                 ORDER BY cl.class_type, c.compartment_name, s.seat_number
                 """;
             
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(query)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
                 pstmt.setInt(1, train.getTrainId());
                 
                 try (ResultSet rs = pstmt.executeQuery()) {
@@ -3491,15 +3800,16 @@ public class BookMyTicketApp {
                 }
             }
             
-            seatArea.setText(sb.toString());
-            
-        } catch (SQLException e) {
+            return sb.toString();
+        }).onSuccess(text -> {
+            seatArea.setText(text);
+        }).onError(e -> {
             seatArea.setText("Error loading seats: " + e.getMessage());
-        }
+        }).start();
     }
     
     private void loadSeatsForCompartment(CompartmentInfo compartment, JTextArea seatArea) {
-        try {
+        UiTask.<String, Void>create(viewKey(seatArea), task -> {
             StringBuilder sb = new StringBuilder();
             sb.append("Seats for Compartment: ").append(compartment.compartmentName)
               .append(" (").append(compartment.classType).append(")\n");
@@ -3512,7 +3822,8 @@ public class BookMyTicketApp {
                 ORDER BY s.seat_number
                 """;
             
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(query)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
                 pstmt.setInt(1, compartment.compartmentId);
                 
                 try (ResultSet rs = pstmt.executeQuery()) {
@@ -3548,11 +3859,12 @@ public class BookMyTicketApp {
                 }
             }
             
-            seatArea.setText(sb.toString());
-            
-        } catch (SQLException e) {
+            return sb.toString();
+        }).onSuccess(text -> {
+            seatArea.setText(text);
+        }).onError(e -> {
             seatArea.setText("Error loading seats for compartment: " + e.getMessage());
-        }
+        }).start();
     }
     
     private void showAddSeatsToCompartmentDialog(CompartmentInfo compartment) {
@@ -3626,7 +3938,7 @@ public class BookMyTicketApp {
     }
     
     private void showDeleteSeatsFromCompartmentDialog(CompartmentInfo compartment, JTextArea seatArea) {
-        try {
+        UiTask.<java.util.List<SeatInfo>, Void>create("deleteSeat", task -> {
             // Get seats for this compartment
             String query = """
                 SELECT s.seat_id, s.seat_number, s.berth_type, s.is_available
@@ -3637,7 +3949,8 @@ public class BookMyTicketApp {
             
             java.util.List<SeatInfo> seats = new java.util.ArrayList<>();
             
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(query)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
                 pstmt.setInt(1, compartment.compartmentId);
                 
                 try (ResultSet rs = pstmt.executeQuery()) {
@@ -3651,88 +3964,81 @@ public class BookMyTicketApp {
                     }
                 }
             }
-            
-            if (seats.isEmpty()) {
-                JOptionPane.showMessageDialog(mainFrame, "No seats found in this compartment", "Info", JOptionPane.INFORMATION_MESSAGE);
-                return;
-            }
-            
-            // Show selection dialog
-            SeatInfo selectedSeat = (SeatInfo) JOptionPane.showInputDialog(
+            return seats;
+        }).onSuccess(seats -> {
+            showDeleteSeatsFromCompartmentDialog(compartment, seatArea, seats);
+        }).onError(e -> {
+            JOptionPane.showMessageDialog(mainFrame, "Database error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }).start();
+    }
+    
+    private void showDeleteSeatsFromCompartmentDialog(CompartmentInfo compartment, JTextArea seatArea,
+                                                      java.util.List<SeatInfo> seats) {
+        if (seats.isEmpty()) {
+            JOptionPane.showMessageDialog(mainFrame, "No seats found in this compartment", "Info", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        
+        // Show selection dialog
+        SeatInfo selectedSeat = (SeatInfo) JOptionPane.showInputDialog(
+            mainFrame,
+            "Select seat to delete from " + compartment.compartmentName + ":",
+            "Delete Seat",
+            JOptionPane.QUESTION_MESSAGE,
+            null,
+            seats.toArray(),
+            seats.get(0)
+        );
+        
+        if (selectedSeat != null) {
+            int confirm = JOptionPane.showConfirmDialog(
                 mainFrame,
-                "Select seat to delete from " + compartment.compartmentName + ":",
-                "Delete Seat",
-                JOptionPane.QUESTION_MESSAGE,
-                null,
-                seats.toArray(),
-                seats.get(0)
+                "Are you sure you want to delete seat " + selectedSeat.seatNumber + "?",
+                "Confirm Delete",
+                JOptionPane.YES_NO_OPTION
             );
             
-            if (selectedSeat != null) {
-                int confirm = JOptionPane.showConfirmDialog(
-                    mainFrame,
-                    "Are you sure you want to delete seat " + selectedSeat.seatNumber + "?",
-                    "Confirm Delete",
-                    JOptionPane.YES_NO_OPTION
-                );
-                
-                if (confirm == JOptionPane.YES_OPTION) {
-                    if (deleteSeatFromDatabase(selectedSeat.seatId)) {
-                        JOptionPane.showMessageDialog(mainFrame, "Seat deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                        loadSeatsForCompartment(compartment, seatArea); // Refresh display
-                    } else {
-                        JOptionPane.showMessageDialog(mainFrame, "Failed to delete seat", "Error", JOptionPane.ERROR_MESSAGE);
-                    }
+            if (confirm == JOptionPane.YES_OPTION) {
+                if (deleteSeatFromDatabase(selectedSeat.seatId)) {
+                    JOptionPane.showMessageDialog(mainFrame, "Seat deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                    loadSeatsForCompartment(compartment, seatArea); // Refresh display
+                } else {
+                    JOptionPane.showMessageDialog(mainFrame, "Failed to delete seat", "Error", JOptionPane.ERROR_MESSAGE);
                 }
             }
-            
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(mainFrame, "Database error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
     
     private void loadStations(JTextArea stationArea) {
-        try {
+        UiTask.<String, Void>create(viewKey(stationArea), task -> {
             StringBuilder sb = new StringBuilder();
             sb.append("All Stations in System\n");
             sb.append("=".repeat(50)).append("\n\n");
             
-            // Get unique stations from routes
-            String query = """
-                SELECT DISTINCT station_name FROM (
-                    SELECT source_station as station_name FROM routes
-                    UNION
-                    SELECT destination_station as station_name FROM routes
-                ) stations
-                ORDER BY station_name
-                """;
-            
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(query);
-                 ResultSet rs = pstmt.executeQuery()) {
-                
-                int count = 0;
-                while (rs.next()) {
-                    count++;
-                    sb.append(String.format("%d. %s\n", count, rs.getString("station_name")));
-                }
-                
-                if (count == 0) {
-                    sb.append("No stations found.\n");
-                    sb.append("Stations are automatically added when routes are created.\n");
-                } else {
-                    sb.append(String.format("\nTotal Stations: %d\n", count));
-                }
+            // Unique stations from routes
+            int count = 0;
+            for (String station : ReferenceDataCache.getInstance().getStationNames()) {
+                count++;
+                sb.append(String.format("%d. %s\n", count, station));
             }
             
-            stationArea.setText(sb.toString());
+            if (count == 0) {
+                sb.append("No stations found.\n");
+                sb.append("Stations are automatically added when routes are created.\n");
+            } else {
+                sb.append(String.format("\nTotal Stations: %d\n", count));
+            }
             
-        } catch (SQLException e) {
+            return sb.toString();
+        }).onSuccess(text -> {
+            stationArea.setText(text);
+        }).onError(e -> {
             stationArea.setText("Error loading stations: " + e.getMessage());
-        }
+        }).start();
     }
     
     private void loadTrainConfiguration(Train train, JTextArea configArea) {
-        try {
+        UiTask.<String, Void>create(viewKey(configArea), task -> {
             StringBuilder sb = new StringBuilder();
             sb.append("Configuration for Train: ").append(train.getTrainName()).append(" (").append(train.getTrainNumber()).append(")\n");
             sb.append("=".repeat(80)).append("\n\n");
@@ -3751,7 +4057,8 @@ public class BookMyTicketApp {
                 ORDER BY source_station
                 """;
             
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(routeQuery)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(routeQuery)) {
                 pstmt.setInt(1, train.getTrainId());
                 try (ResultSet rs = pstmt.executeQuery()) {
                     while (rs.next()) {
@@ -3777,7 +4084,8 @@ public class BookMyTicketApp {
                 ORDER BY cl.class_type, c.compartment_name
                 """;
             
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(classQuery)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(classQuery)) {
                 pstmt.setInt(1, train.getTrainId());
                 try (ResultSet rs = pstmt.executeQuery()) {
                     String currentClass = "";
@@ -3807,7 +4115,8 @@ public class BookMyTicketApp {
                 WHERE cl.train_id = ?
                 """;
             
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(summaryQuery)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(summaryQuery)) {
                 pstmt.setInt(1, train.getTrainId());
                 try (ResultSet rs = pstmt.executeQuery()) {
                     if (rs.next()) {
@@ -3819,11 +4128,12 @@ public class BookMyTicketApp {
                 }
             }
             
-            configArea.setText(sb.toString());
-            
-        } catch (SQLException e) {
+            return sb.toString();
+        }).onSuccess(text -> {
+            configArea.setText(text);
+        }).onError(e -> {
             configArea.setText("Error loading train configuration: " + e.getMessage());
-        }
+        }).start();
     }
     
     // Complete Route Management Implementation
@@ -3896,8 +4206,9 @@ public class BookMyTicketApp {
     }
     
     private void loadRoutesIntoTable(DefaultTableModel tableModel) {
-        try {
-            boolean hasExtendedColumns = checkRouteTableColumns();
+        // Rows are added as they are read
+        UiTask.<Void, Object[]>create(viewKey(tableModel), task -> {
+            boolean hasExtendedColumns = DatabaseManager.getSchemaCapabilities().hasExtendedRouteColumns();
             
             String query;
             if (hasExtendedColumns) {
@@ -3918,12 +4229,11 @@ public class BookMyTicketApp {
                     """;
             }
             
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(query);
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query);
                  ResultSet rs = pstmt.executeQuery()) {
                 
-                tableModel.setRowCount(0); // Clear existing data
-                
-                while (rs.next()) {
+                while (rs.next() && !task.isCancelled()) {
                     Object[] row;
                     if (hasExtendedColumns) {
                         row = new Object[]{
@@ -3948,20 +4258,23 @@ public class BookMyTicketApp {
                             "N/A"
                         };
                     }
-                    tableModel.addRow(row);
+                    task.publish(row);
                 }
             }
-        } catch (SQLException e) {
+            return null;
+        }).onStart(() -> tableModel.setRowCount(0)) // Clear existing data
+        .onChunks(rows -> rows.forEach(tableModel::addRow))
+        .onError(e -> {
             JOptionPane.showMessageDialog(mainFrame, "Error loading routes: " + e.getMessage() + 
                 "\n\nNote: Some database columns may be missing. Please run the database update script.", 
                 "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        }).start();
     }
     
     private void editSelectedRoute(int routeId) {
         try {
             // Get route details with fallback for missing columns
-            boolean hasExtendedColumns = checkRouteTableColumns();
+            boolean hasExtendedColumns = DatabaseManager.getSchemaCapabilities().hasExtendedRouteColumns();
             
             String query;
             if (hasExtendedColumns) {
@@ -3982,7 +4295,8 @@ public class BookMyTicketApp {
                     """;
             }
             
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(query)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
                 pstmt.setInt(1, routeId);
                 
                 try (ResultSet rs = pstmt.executeQuery()) {
@@ -4144,7 +4458,7 @@ public class BookMyTicketApp {
         try {
             System.out.println("DEBUG: Updating route - routeId: " + routeId + ", source: " + source + ", dest: " + dest);
             
-            boolean hasExtendedColumns = checkRouteTableColumns();
+            boolean hasExtendedColumns = DatabaseManager.getSchemaCapabilities().hasExtendedRouteColumns();
             System.out.println("DEBUG: Extended columns exist for update: " + hasExtendedColumns);
             
             String query;
@@ -4162,7 +4476,8 @@ public class BookMyTicketApp {
                     """;
             }
             
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(query)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
                 pstmt.setString(1, source);
                 pstmt.setString(2, dest);
                 pstmt.setTime(3, java.sql.Time.valueOf(depTime + ":00"));
@@ -4184,6 +4499,12 @@ public class BookMyTicketApp {
                 
                 if (result > 0) {
                     System.out.println("DEBUG: Route updated successfully");
+                    syncRouteStops(conn, routeId);
+                    invalidateSeatInventory();
+                    ReferenceDataCache.getInstance().invalidateRoutes();
+                    RouteIndex.getInstance().invalidate();
+                    JourneyPlanner.getInstance().invalidate();
+                    FareEngine.getInstance().invalidate(routeId);
                     return true;
                 } else {
                     System.err.println("DEBUG: Route update failed - no rows affected, route may not exist");
@@ -4226,7 +4547,8 @@ public class BookMyTicketApp {
             try {
                 // Check for existing bookings on this route
                 String checkQuery = "SELECT COUNT(*) FROM bookings b JOIN routes r ON b.train_id = r.train_id WHERE r.route_id = ?";
-                try (PreparedStatement checkStmt = DatabaseManager.getInstance().getConnection().prepareStatement(checkQuery)) {
+                try (Connection conn = DatabaseManager.getInstance().getConnection();
+                     PreparedStatement checkStmt = conn.prepareStatement(checkQuery)) {
                     checkStmt.setInt(1, routeId);
                     try (ResultSet rs = checkStmt.executeQuery()) {
                         if (rs.next() && rs.getInt(1) > 0) {
@@ -4248,10 +4570,17 @@ public class BookMyTicketApp {
                 
                 // Delete the route
                 String deleteQuery = "DELETE FROM routes WHERE route_id = ?";
-                try (PreparedStatement deleteStmt = DatabaseManager.getInstance().getConnection().prepareStatement(deleteQuery)) {
+                try (Connection conn = DatabaseManager.getInstance().getConnection();
+                     PreparedStatement deleteStmt = conn.prepareStatement(deleteQuery)) {
                     deleteStmt.setInt(1, routeId);
                     
                     if (deleteStmt.executeUpdate() > 0) {
+                        invalidateSeatInventory();
+                        RouteStopRepository.getInstance().invalidate(routeId);
+                        ReferenceDataCache.getInstance().invalidateRoutes();
+                        RouteIndex.getInstance().invalidate();
+                        JourneyPlanner.getInstance().invalidate();
+                        FareEngine.getInstance().invalidate(routeId);
                         JOptionPane.showMessageDialog(mainFrame, "Route deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
                     } else {
                         JOptionPane.showMessageDialog(mainFrame, "Failed to delete route", "Error", JOptionPane.ERROR_MESSAGE);
@@ -4415,7 +4744,7 @@ public class BookMyTicketApp {
     
     private void showAutoGenerateSeatsDialog(Train train) {
         JDialog dialog = new JDialog(mainFrame, "Auto-Generate Seats - " + train.getTrainName(), true);
-        dialog.setSize(450, 250);
+        dialog.setSize(450, 290);
         dialog.setLocationRelativeTo(mainFrame);
         
         JPanel panel = new JPanel(new GridBagLayout());
@@ -4430,6 +4759,8 @@ public class BookMyTicketApp {
         seatsPerCompartmentField.setEditable(true);
         seatsPerCompartmentField.setBackground(Color.WHITE);
         JComboBox<String> seatPatternCombo = new JComboBox<>(new String[]{"Sleeper Pattern", "AC Pattern", "Chair Car Pattern"});
+        JCheckBox wholeTrainCheck = new JCheckBox("All compartments without seats");
+        wholeTrainCheck.addActionListener(e -> compartmentCombo.setEnabled(!wholeTrainCheck.isSelected()));
         
         gbc.gridx = 0; gbc.gridy = 0;
         panel.add(new JLabel("Compartment:"), gbc);
@@ -4446,6 +4777,9 @@ public class BookMyTicketApp {
         gbc.gridx = 1;
         panel.add(seatPatternCombo, gbc);
         
+        gbc.gridx = 1; gbc.gridy = 3;
+        panel.add(wholeTrainCheck, gbc);
+        
         // Buttons
         JPanel buttonPanel = new JPanel(new FlowLayout());
         
@@ -4459,7 +4793,7 @@ public class BookMyTicketApp {
         generateButton.addActionListener(e -> {
             try {
                 CompartmentInfo selectedCompartment = (CompartmentInfo) compartmentCombo.getSelectedItem();
-                if (selectedCompartment == null) {
+                if (selectedCompartment == null && !wholeTrainCheck.isSelected()) {
                     JOptionPane.showMessageDialog(dialog, "Please select a compartment", "Error", JOptionPane.ERROR_MESSAGE);
                     return;
                 }
@@ -4467,8 +4801,11 @@ public class BookMyTicketApp {
                 int seatCount = Integer.parseInt(seatsPerCompartmentField.getText().trim());
                 String pattern = (String) seatPatternCombo.getSelectedItem();
                 
-                if (autoGenerateSeats(selectedCompartment.compartmentId, seatCount, pattern)) {
-                    JOptionPane.showMessageDialog(dialog, "Seats generated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                SeatProvisioner.ProvisionResult result = wholeTrainCheck.isSelected()
+                    ? autoGenerateTrainSeats(train.getTrainId(), seatCount, pattern)
+                    : autoGenerateSeats(selectedCompartment.compartmentId, seatCount, pattern);
+                if (result != null) {
+                    JOptionPane.showMessageDialog(dialog, "Seats generated successfully!\n" + result, "Success", JOptionPane.INFORMATION_MESSAGE);
                     dialog.dispose();
                 } else {
                     JOptionPane.showMessageDialog(dialog, "Failed to generate seats", "Error", JOptionPane.ERROR_MESSAGE);
@@ -4486,7 +4823,7 @@ public class BookMyTicketApp {
         buttonPanel.add(generateButton);
         buttonPanel.add(cancelButton);
         
-        gbc.gridx = 0; gbc.gridy = 3;
+        gbc.gridx = 0; gbc.gridy = 4;
         gbc.gridwidth = 2;
         panel.add(buttonPanel, gbc);
         
@@ -4611,7 +4948,7 @@ public class BookMyTicketApp {
             int classId = getOrCreateClassId(trainId, classType);
             
             // Check if capacity column exists in compartments table
-            boolean hasCapacityColumn = checkCompartmentTableColumns();
+            boolean hasCapacityColumn = DatabaseManager.getSchemaCapabilities().hasCompartmentCapacity();
             
             // Then add the compartment
             String query;
@@ -4621,7 +4958,8 @@ public class BookMyTicketApp {
                 query = "INSERT INTO compartments (class_id, compartment_name) VALUES (?, ?)";
             }
             
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(query)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
                 pstmt.setInt(1, classId);
                 pstmt.setString(2, compartmentName);
                 if (hasCapacityColumn) {
@@ -4636,41 +4974,25 @@ public class BookMyTicketApp {
         }
     }
     
-    private boolean checkCompartmentTableColumns() {
-        try {
-            String checkQuery = "SELECT capacity FROM compartments LIMIT 1";
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(checkQuery)) {
-                pstmt.executeQuery();
-                return true; // Capacity column exists
-            }
-        } catch (SQLException e) {
-            return false; // Capacity column doesn't exist
-        }
-    }
-    
     private int getOrCreateClassId(int trainId, String classType) throws SQLException {
         // First, check if class exists
-        String checkQuery = "SELECT class_id FROM classes WHERE train_id = ? AND class_type = ?";
-        try (PreparedStatement checkStmt = DatabaseManager.getInstance().getConnection().prepareStatement(checkQuery)) {
-            checkStmt.setInt(1, trainId);
-            checkStmt.setString(2, classType);
-            
-            try (ResultSet rs = checkStmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt("class_id");
-                }
-            }
+        Integer classId = ReferenceDataCache.getInstance().getClassId(trainId, classType);
+        if (classId != null) {
+            return classId;
         }
         
         // If not exists, create new class
         String insertQuery = "INSERT INTO classes (train_id, class_type) VALUES (?, ?)";
-        try (PreparedStatement insertStmt = DatabaseManager.getInstance().getConnection().prepareStatement(insertQuery, PreparedStatement.RETURN_GENERATED_KEYS)) {
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement insertStmt = conn.prepareStatement(insertQuery, PreparedStatement.RETURN_GENERATED_KEYS)) {
             insertStmt.setInt(1, trainId);
             insertStmt.setString(2, classType);
             
             if (insertStmt.executeUpdate() > 0) {
                 try (ResultSet keys = insertStmt.getGeneratedKeys()) {
                     if (keys.next()) {
+                        // Fare matrices list the classes of the train
+                        FareEngine.getInstance().invalidateAll();
                         return keys.getInt(1);
                     }
                 }
@@ -4681,7 +5003,7 @@ public class BookMyTicketApp {
     }
     
     private void loadCompartmentsForDropdown(int trainId, JComboBox<CompartmentInfo> compartmentCombo) {
-        try {
+        UiTask.<Void, CompartmentInfo>create(viewKey(compartmentCombo), task -> {
             String query = """
                 SELECT c.compartment_id, c.compartment_name, cl.class_type
                 FROM compartments c
@@ -4690,35 +5012,42 @@ public class BookMyTicketApp {
                 ORDER BY cl.class_type, c.compartment_name
                 """;
             
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(query)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
                 pstmt.setInt(1, trainId);
                 
                 try (ResultSet rs = pstmt.executeQuery()) {
-                    compartmentCombo.removeAllItems();
                     while (rs.next()) {
                         CompartmentInfo info = new CompartmentInfo(
                             rs.getInt("compartment_id"),
                             rs.getString("compartment_name"),
                             rs.getString("class_type")
                         );
-                        compartmentCombo.addItem(info);
+                        task.publish(info);
                     }
                 }
             }
-        } catch (SQLException e) {
-            System.err.println("Error loading compartments: " + e.getMessage());
-        }
+            return null;
+        }).onStart(compartmentCombo::removeAllItems)
+        .onChunks(compartments -> compartments.forEach(compartmentCombo::addItem))
+        .onError(e -> System.err.println("Error loading compartments: " + e.getMessage()))
+        .start();
     }
     
     private boolean addSeatToDatabase(int compartmentId, String seatNumber, String berthType) {
         try {
             String query = "INSERT INTO seats (compartment_id, seat_number, berth_type, is_available) VALUES (?, ?, ?, true)";
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(query)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
                 pstmt.setInt(1, compartmentId);
                 pstmt.setString(2, seatNumber);
                 pstmt.setString(3, berthType);
                 
-                return pstmt.executeUpdate() > 0;
+                boolean added = pstmt.executeUpdate() > 0;
+                if (added) {
+                    invalidateSeatInventory();
+                }
+                return added;
             }
         } catch (SQLException e) {
             System.err.println("Error adding seat: " + e.getMessage());
@@ -4729,10 +5058,15 @@ public class BookMyTicketApp {
     private boolean deleteSeatFromDatabase(int seatId) {
         try {
             String query = "DELETE FROM seats WHERE seat_id = ?";
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(query)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
                 pstmt.setInt(1, seatId);
                 
-                return pstmt.executeUpdate() > 0;
+                boolean deleted = pstmt.executeUpdate() > 0;
+                if (deleted) {
+                    invalidateSeatInventory();
+                }
+                return deleted;
             }
         } catch (SQLException e) {
             System.err.println("Error deleting seat: " + e.getMessage());
@@ -4770,11 +5104,12 @@ public class BookMyTicketApp {
         return preview.toString();
     }
     
-    private boolean autoGenerateSeats(int compartmentId, int seatCount, String pattern) {
+    private SeatProvisioner.ProvisionResult autoGenerateSeats(int compartmentId, int seatCount, String pattern) {
         try {
             // First, check if compartment already has seats
             String checkQuery = "SELECT COUNT(*) FROM seats WHERE compartment_id = ?";
-            try (PreparedStatement checkStmt = DatabaseManager.getInstance().getConnection().prepareStatement(checkQuery)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement checkStmt = conn.prepareStatement(checkQuery)) {
                 checkStmt.setInt(1, compartmentId);
                 try (ResultSet rs = checkStmt.executeQuery()) {
                     if (rs.next() && rs.getInt(1) > 0) {
@@ -4785,78 +5120,36 @@ public class BookMyTicketApp {
                             JOptionPane.YES_NO_OPTION
                         );
                         if (choice != JOptionPane.YES_OPTION) {
-                            return false;
+                            return null;
                         }
                     }
                 }
             }
             
-            // Generate seats based on pattern
-            String query = "INSERT INTO seats (compartment_id, seat_number, berth_type, is_available) VALUES (?, ?, ?, true)";
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(query)) {
-                
-                if ("Sleeper Pattern".equals(pattern)) {
-                    generateSleeperSeats(pstmt, compartmentId, seatCount);
-                } else if ("AC Pattern".equals(pattern)) {
-                    generateACSeats(pstmt, compartmentId, seatCount);
-                } else {
-                    generateChairCarSeats(pstmt, compartmentId, seatCount);
-                }
-                
-                return true;
-            }
+            // Generate seats based on pattern; seat numbers already in the compartment are skipped
+            SeatProvisioner.ProvisionResult result = new SeatProvisioner()
+                .provisionCompartment(compartmentId, SeatProvisioner.Pattern.fromLabel(pattern), seatCount);
+            invalidateSeatInventory();
+            return result;
         } catch (SQLException e) {
             System.err.println("Error auto-generating seats: " + e.getMessage());
-            return false;
-        }
-    }
-    
-    private void generateSleeperSeats(PreparedStatement pstmt, int compartmentId, int seatCount) throws SQLException {
-        String[] berthTypes = {"Lower", "Middle", "Upper", "Side Lower", "Side Upper", "Lower"};
-        int berths = seatCount / 8; // 8 berths per bay in sleeper
-        
-        for (int bay = 1; bay <= berths; bay++) {
-            for (int i = 0; i < 8 && (bay - 1) * 8 + i < seatCount; i++) {
-                String seatNumber = String.format("S%d", (bay - 1) * 8 + i + 1);
-                String berthType = berthTypes[i % 6];
-                
-                pstmt.setInt(1, compartmentId);
-                pstmt.setString(2, seatNumber);
-                pstmt.setString(3, berthType);
-                pstmt.addBatch();
-            }
-        }
-        pstmt.executeBatch();
-    }
-    
-    private void generateACSeats(PreparedStatement pstmt, int compartmentId, int seatCount) throws SQLException {
-        String[] berthTypes = {"Lower", "Upper", "Side Lower", "Side Upper"};
-        int berths = seatCount / 6; // 6 berths per bay in AC
-        
-        for (int bay = 1; bay <= berths; bay++) {
-            for (int i = 0; i < 6 && (bay - 1) * 6 + i < seatCount; i++) {
-                String seatNumber = String.format("A%d", (bay - 1) * 6 + i + 1);
-                String berthType = berthTypes[i % 4];
-                
-                pstmt.setInt(1, compartmentId);
-                pstmt.setString(2, seatNumber);
-                pstmt.setString(3, berthType);
-                pstmt.addBatch();
-            }
+            return null;
         }
-        pstmt.executeBatch();
     }
     
-    private void generateChairCarSeats(PreparedStatement pstmt, int compartmentId, int seatCount) throws SQLException {
-        for (int i = 1; i <= seatCount; i++) {
-            String seatNumber = String.format("CC%d", i);
-            
-            pstmt.setInt(1, compartmentId);
-            pstmt.setString(2, seatNumber);
-            pstmt.setString(3, "Lower");
-            pstmt.addBatch();
+    /**
+     * Generate seats for every compartment of the train that has none yet, in one transaction
+     */
+    private SeatProvisioner.ProvisionResult autoGenerateTrainSeats(int trainId, int seatCount, String pattern) {
+        try {
+            SeatProvisioner.ProvisionResult result = new SeatProvisioner()
+                .provisionTrain(trainId, SeatProvisioner.Pattern.fromLabel(pattern), seatCount);
+            invalidateSeatInventory(trainId);
+            return result;
+        } catch (SQLException e) {
+            System.err.println("Error auto-generating seats: " + e.getMessage());
+            return null;
         }
-        pstmt.executeBatch();
     }
     
     private boolean addStationToDatabase(String stationName, String stationCode, String city) {
@@ -4864,13 +5157,18 @@ public class BookMyTicketApp {
             // Since we don't have a dedicated stations table, we'll create a simple log
             // In a real system, you'd have a proper stations table
             String query = "INSERT INTO station_info (station_name, station_code, city, created_date) VALUES (?, ?, ?, NOW()) ON DUPLICATE KEY UPDATE city = ?, updated_date = NOW()";
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(query)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
                 pstmt.setString(1, stationName);
                 pstmt.setString(2, stationCode);
                 pstmt.setString(3, city);
                 pstmt.setString(4, city);
                 
-                return pstmt.executeUpdate() > 0;
+                boolean saved = pstmt.executeUpdate() > 0;
+                ReferenceDataCache.getInstance().invalidateStations();
+                RouteIndex.getInstance().invalidate();
+                JourneyPlanner.getInstance().invalidate();
+                return saved;
             }
         } catch (SQLException e) {
             // If table doesn't exist, that's okay - stations are managed through routes
@@ -5071,16 +5369,20 @@ public class BookMyTicketApp {
         try {
             // First delete all seats in the compartment
             String deleteSeatsQuery = "DELETE FROM seats WHERE compartment_id = ?";
-            try (PreparedStatement deleteSeatsStmt = DatabaseManager.getInstance().getConnection().prepareStatement(deleteSeatsQuery)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement deleteSeatsStmt = conn.prepareStatement(deleteSeatsQuery)) {
                 deleteSeatsStmt.setInt(1, compartmentId);
                 deleteSeatsStmt.executeUpdate();
             }
             
             // Then delete the compartment
             String deleteCompartmentQuery = "DELETE FROM compartments WHERE compartment_id = ?";
-            try (PreparedStatement deleteCompartmentStmt = DatabaseManager.getInstance().getConnection().prepareStatement(deleteCompartmentQuery)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement deleteCompartmentStmt = conn.prepareStatement(deleteCompartmentQuery)) {
                 deleteCompartmentStmt.setInt(1, compartmentId);
-                return deleteCompartmentStmt.executeUpdate() > 0;
+                boolean deleted = deleteCompartmentStmt.executeUpdate() > 0;
+                invalidateSeatInventory();
+                return deleted;
             }
         } catch (SQLException e) {
             System.err.println("Error deleting compartment: " + e.getMessage());
@@ -5091,9 +5393,14 @@ public class BookMyTicketApp {
     private boolean deleteAllSeatsInCompartment(int compartmentId) {
         try {
             String query = "DELETE FROM seats WHERE compartment_id = ?";
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(query)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
                 pstmt.setInt(1, compartmentId);
-                return pstmt.executeUpdate() > 0;
+                boolean deleted = pstmt.executeUpdate() > 0;
+                if (deleted) {
+                    invalidateSeatInventory();
+                }
+                return deleted;
             }
         } catch (SQLException e) {
             System.err.println("Error deleting seats: " + e.getMessage());
@@ -5104,10 +5411,15 @@ public class BookMyTicketApp {
     private boolean deleteSpecificSeat(int compartmentId, String seatNumber) {
         try {
             String query = "DELETE FROM seats WHERE compartment_id = ? AND seat_number = ?";
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(query)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
                 pstmt.setInt(1, compartmentId);
                 pstmt.setString(2, seatNumber);
-                return pstmt.executeUpdate() > 0;
+                boolean deleted = pstmt.executeUpdate() > 0;
+                if (deleted) {
+                    invalidateSeatInventory();
+                }
+                return deleted;
             }
         } catch (SQLException e) {
             System.err.println("Error deleting specific seat: " + e.getMessage());
@@ -5120,7 +5432,7 @@ public class BookMyTicketApp {
             System.out.println("DEBUG: Adding route - trainId: " + trainId + ", source: " + source + ", dest: " + dest);
             
             // Check if the extended columns exist
-            boolean hasExtendedColumns = checkRouteTableColumns();
+            boolean hasExtendedColumns = DatabaseManager.getSchemaCapabilities().hasExtendedRouteColumns();
             System.out.println("DEBUG: Extended columns exist: " + hasExtendedColumns);
             
             String query;
@@ -5132,7 +5444,8 @@ public class BookMyTicketApp {
                 System.out.println("DEBUG: Using basic query without stops and intermediate stations");
             }
             
-            try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(query)) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
                 pstmt.setInt(1, trainId);
                 pstmt.setString(2, source);
                 pstmt.setString(3, dest);
@@ -5151,6 +5464,15 @@ public class BookMyTicketApp {
                 
                 if (result > 0) {
                     System.out.println("DEBUG: Route added successfully");
+                    try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                        if (keys.next()) {
+                            syncRouteStops(conn, keys.getInt(1));
+                        }
+                    }
+                    invalidateSeatInventory(trainId);
+                    ReferenceDataCache.getInstance().invalidateRoutes();
+                    RouteIndex.getInstance().invalidate();
+                    JourneyPlanner.getInstance().invalidate();
                     return true;
                 } else {
                     System.err.println("DEBUG: Route insert failed - no rows affected");
@@ -5181,53 +5503,100 @@ public class BookMyTicketApp {
         }
     }
     
-    private boolean checkRouteTableColumns() {
+    /**
+     * Rewrite a route's route_stops rows after the route was saved. A failure here
+     * does not undo the save; the startup migrator backfills the route later.
+     */
+    private void syncRouteStops(Connection conn, int routeId) {
         try {
-            // Check if the columns exist by using DatabaseMetaData
-            DatabaseManager dbManager = DatabaseManager.getInstance();
-            Connection conn = dbManager.getConnection();
-            DatabaseMetaData metaData = conn.getMetaData();
-            
-            boolean hasStops = false;
-            boolean hasIntermediateStations = false;
-            
-            // Check for 'stops' column
-            try (ResultSet rs = metaData.getColumns(null, null, "routes", "stops")) {
-                if (rs.next()) {
-                    hasStops = true;
-                    System.out.println("DEBUG: Found 'stops' column");
-                }
-            }
-            
-            // Check for 'intermediate_stations' column
-            try (ResultSet rs = metaData.getColumns(null, null, "routes", "intermediate_stations")) {
-                if (rs.next()) {
-                    hasIntermediateStations = true;
-                    System.out.println("DEBUG: Found 'intermediate_stations' column");
-                }
-            }
-            
-            System.out.println("DEBUG: Column check - stops: " + hasStops + ", intermediate_stations: " + hasIntermediateStations);
-            return hasStops && hasIntermediateStations;
-            
+            new RouteStopsMigrator().migrateRoute(conn, routeId);
         } catch (SQLException e) {
-            System.err.println("Error checking route table columns: " + e.getMessage());
-            e.printStackTrace();
-            
-            // Fallback: try a simple select query to check if columns exist
-            try {
-                String testQuery = "SELECT stops, intermediate_stations FROM routes LIMIT 1";
-                try (PreparedStatement pstmt = DatabaseManager.getInstance().getConnection().prepareStatement(testQuery)) {
-                    try (ResultSet rs = pstmt.executeQuery()) {
-                        System.out.println("DEBUG: Fallback column check successful");
-                        return true;
-                    }
-                }
-            } catch (SQLException fallbackEx) {
-                System.err.println("DEBUG: Fallback column check failed: " + fallbackEx.getMessage());
-                return false;
+            RouteStopRepository.getInstance().invalidate(routeId);
+            System.err.println("DEBUG: Could not update stops for route " + routeId + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Journeys changing trains on the way, listed after the direct trains
+     * (each leg is booked by searching it on its own)
+     */
+    private void appendConnections(StringBuilder sb, String source, String destination, LocalDate journeyDate) throws SQLException {
+        int index = 1;
+        for (JourneyPlanner.Journey journey : trainManager.searchConnections(source, destination, journeyDate)) {
+            if (journey.getTransfers() == 0) {
+                continue;
+            }
+            if (index == 1) {
+                sb.append("\nConnecting journeys:\n");
+            }
+            Duration duration = journey.getDuration();
+            sb.append(index++).append(". ").append(journey.getTransfers()).append(journey.getTransfers() == 1 ? " change" : " changes");
+            sb.append(", arrives ").append(journey.getArrival().format(CONNECTION_TIME_FORMAT));
+            sb.append(" (").append(duration.toHours()).append("h ").append(duration.toMinutesPart()).append("m)\n");
+            for (JourneyPlanner.Leg leg : journey.getLegs()) {
+                BigDecimal fare = FareEngine.getInstance().quote(leg.getRoute().getRouteId(), leg.getFromOrdinal(),
+                                                                 leg.getToOrdinal(), 0);
+                sb.append("   ").append(leg.getTrain().getTrainName()).append(" (").append(leg.getTrain().getTrainNumber()).append("): ");
+                sb.append(leg.getFromStation()).append(" ").append(leg.getDeparture().format(CONNECTION_TIME_FORMAT));
+                sb.append(" → ").append(leg.getToStation()).append(" ").append(leg.getArrival().format(CONNECTION_TIME_FORMAT));
+                sb.append(" | Fare: ₹").append(fare).append(" | Book for ").append(leg.getJourneyDate()).append("\n");
             }
         }
+        if (index > 1) {
+            sb.append("\n");
+        }
+    }
+    
+    /**
+     * Add "did you mean" station names for a search term that found nothing
+     */
+    private void appendStationHints(StringBuilder sb, String label, String typed) throws SQLException {
+        List<String> suggestions = trainManager.suggestStations(typed, 5);
+        if (!suggestions.isEmpty() && !suggestions.get(0).equalsIgnoreCase(typed)) {
+            sb.append("   ").append(label).append(" - did you mean: ").append(String.join(", ", suggestions)).append("?\n");
+        }
+    }
+    
+    /**
+     * Fill a train picker in the background, then run afterLoad on the EDT
+     */
+    private void loadTrainsInto(JComboBox<Train> trainCombo, Consumer<List<Train>> afterLoad, Consumer<Exception> onError) {
+        UiTask.<List<Train>, Void>create(viewKey(trainCombo), task -> trainManager.getAllTrains())
+            .onSuccess(trains -> {
+                trains.forEach(trainCombo::addItem);
+                afterLoad.accept(trains);
+            })
+            .onError(onError)
+            .start();
+    }
+    
+    /**
+     * Coalescing key for background loads that fill one component
+     */
+    private static String viewKey(Object view) {
+        return view.getClass().getSimpleName() + "@" + System.identityHashCode(view);
+    }
+    
+    /**
+     * Drop cached seat inventory and availability counters after admin edits
+     * to routes, compartments or seats
+     */
+    private void invalidateSeatInventory() {
+        try {
+            SeatInventory.getInstance().invalidateAll();
+            AvailabilityCounters.getInstance().resetAll();
+        } catch (SQLException e) {
+            System.err.println("DEBUG: Could not invalidate seat inventory: " + e.getMessage());
+        }
+    }
+    
+    private void invalidateSeatInventory(int trainId) {
+        try {
+            SeatInventory.getInstance().invalidateTrain(trainId);
+            AvailabilityCounters.getInstance().resetTrain(trainId);
+        } catch (SQLException e) {
+            System.err.println("DEBUG: Could not invalidate seat inventory: " + e.getMessage());
+        }
     }
     
     /**
@@ -5270,27 +5639,13 @@ public class BookMyTicketApp {
      * Build the complete route sequence for display
      */
     private List<String> buildRouteSequence(Route route) {
-        List<String> sequence = new ArrayList<>();
-        
-        // Add source station
-        sequence.add(route.getSourceStation());
-        
-        // Add intermediate stations if they exist
-        String intermediateStations = route.getIntermediateStations();
-        if (intermediateStations != null && !intermediateStations.trim().isEmpty()) {
-            String[] intermediates = intermediateStations.split(",");
-            for (String station : intermediates) {
-                String trimmed = station.trim();
-                if (!trimmed.isEmpty()) {
-                    sequence.add(trimmed);
-                }
-            }
+        try {
+            return RouteStopRepository.getInstance().getStationNames(route);
+        } catch (SQLException e) {
+            System.err.println("DEBUG: Could not load stops for route " + route.getRouteId() + ": " + e.getMessage());
+            return RouteStopRepository.parseStations(route.getSourceStation(), route.getIntermediateStations(),
+                                                     route.getDestinationStation());
         }
-        
-        // Add destination station
-        sequence.add(route.getDestinationStation());
-        
-        return sequence;
     }
     
     private void logout() {
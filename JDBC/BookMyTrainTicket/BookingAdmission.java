@@ -0,0 +1,439 @@
+package BookMyTrainTicket;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control in front of BookingManager for rush hours (Tatkal
+ * opening, flash sales)
+ *
+ * Every booking attempt waits in a bounded FIFO queue for its (train,
+ * journey date, class). A dispatcher thread admits one attempt at a time,
+ * taking the queues in turn so a single hot train cannot starve the others.
+ * An attempt is admitted only when the token bucket has a token (steady
+ * rate plus a small burst) and fewer than the allowed number of bookings are
+ * running, so the database sees a load it can absorb instead of every
+ * clerk fighting for the same seat rows and pool connections.
+ *
+ * Excess load is shed early with a clear reason: a full queue, or an
+ * expected wait longer than the limit, is rejected on arrival, and an attempt
+ * still queued when the limit passes gives up. While waiting, the caller is
+ * told its queue position and expected wait.
+ *
+ * Positions come from per-queue ticket numbers, so attempts that give up
+ * ahead of a caller are only reflected once the queue reaches them.
+ */
+public class BookingAdmission {
+    // Steady admissions per second and extra tokens a quiet period may save up
+    private static final double ADMIT_RATE_PER_SECOND = 40;
+    private static final int ADMIT_BURST = 10;
+    // Pool connections left for searches, seat maps and admin screens
+    private static final int CONNECTIONS_RESERVED = 2;
+    private static final int MAX_QUEUE_PER_CLASS = 1_000;
+    private static final int MAX_QUEUED = 5_000;
+    private static final long MAX_WAIT_MILLIS = 120_000;
+    private static final long POSITION_UPDATE_MILLIS = 500;
+
+    private static BookingAdmission instance;
+
+    private final TokenBucket bucket;
+    private final Semaphore running;
+    private final int maxQueuePerClass;
+    private final int maxQueued;
+    private final long maxWaitMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    // Non-empty queues in the order the dispatcher serves them; guarded by lock
+    private final Map<QueueKey, ClassQueue> queues = new LinkedHashMap<>();
+    private int queued;
+
+    // Metrics
+    private final AtomicLong admittedCount = new AtomicLong();
+    private final AtomicLong rejectedFullCount = new AtomicLong();
+    private final AtomicLong rejectedWaitCount = new AtomicLong();
+    private final AtomicLong timedOutCount = new AtomicLong();
+
+    BookingAdmission(double ratePerSecond, int burst, int maxRunning, int maxQueuePerClass,
+                     int maxQueued, long maxWaitMillis) {
+        if (ratePerSecond <= 0 || burst <= 0 || maxRunning <= 0) {
+            throw new IllegalArgumentException("Admission rate, burst and concurrency must be positive");
+        }
+        this.bucket = new TokenBucket(ratePerSecond, burst);
+        this.running = new Semaphore(maxRunning);
+        this.maxQueuePerClass = maxQueuePerClass;
+        this.maxQueued = maxQueued;
+        this.maxWaitMillis = maxWaitMillis;
+
+        Thread dispatcher = new Thread(this::dispatch, "booking-admission");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    public static synchronized BookingAdmission getInstance() throws SQLException {
+        if (instance == null) {
+            DatabaseManager.getInstance();
+            int poolSize = DatabaseManager.getPoolStats().getMaxSize();
+            instance = new BookingAdmission(ADMIT_RATE_PER_SECOND, ADMIT_BURST,
+                                            Math.max(1, poolSize - CONNECTIONS_RESERVED),
+                                            MAX_QUEUE_PER_CLASS, MAX_QUEUED, MAX_WAIT_MILLIS);
+        }
+        return instance;
+    }
+
+    /**
+     * A booking attempt run once admitted
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T run() throws SQLException;
+    }
+
+    /**
+     * Told the caller's place in the queue while it waits (on the caller's thread)
+     */
+    @FunctionalInterface
+    public interface PositionListener {
+        /**
+         * @param position attempts ahead in the same train/date/class queue
+         * @param expectedWaitSeconds rough wait at the current admission rate
+         */
+        void positionChanged(long position, long expectedWaitSeconds);
+    }
+
+    /**
+     * Wait for a turn in the (train, date, class) queue, then run the work.
+     * Blocks the calling thread. Throws {@link Rejected} if the attempt is
+     * shed; the work has not run in that case.
+     *
+     * @param classId seat class of the booking, or 0 for RAC/waitlist requests
+     * @param listener may be null
+     */
+    public <T> T admit(int trainId, LocalDate journeyDate, int classId,
+                       PositionListener listener, Work<T> work) throws SQLException {
+        Ticket ticket = enqueue(new QueueKey(trainId, journeyDate, classId));
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+        try {
+            while (!ticket.admitted.await(POSITION_UPDATE_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (System.currentTimeMillis() >= deadline) {
+                    if (abandon(ticket)) {
+                        timedOutCount.incrementAndGet();
+                        throw new Rejected("Timed out waiting for a booking slot after " +
+                                           (maxWaitMillis / 1000) + " seconds - please try again");
+                    }
+                    break; // Admitted just now
+                }
+                if (listener != null) {
+                    long[] place = place(ticket);
+                    listener.positionChanged(place[0], place[1]);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (abandon(ticket)) {
+                throw new SQLException("Interrupted while waiting for a booking slot", e);
+            }
+        }
+
+        try {
+            return work.run();
+        } finally {
+            running.release();
+        }
+    }
+
+    /**
+     * Class of the seat a booking asks for; 0 for RAC/waitlist requests (seat -1)
+     */
+    public int classOf(int trainId, int seatId) throws SQLException {
+        return seatId > 0 ? SeatInventory.getInstance().getSeatClassId(trainId, seatId) : 0;
+    }
+
+    public AdmissionStats getStats() {
+        int waiting;
+        lock.lock();
+        try {
+            waiting = queued;
+        } finally {
+            lock.unlock();
+        }
+        return new AdmissionStats(admittedCount.get(), rejectedFullCount.get(), rejectedWaitCount.get(),
+                                  timedOutCount.get(), waiting);
+    }
+
+    private Ticket enqueue(QueueKey key) throws Rejected {
+        lock.lock();
+        try {
+            ClassQueue queue = queues.get(key);
+            int length = queue != null ? queue.tickets.size() : 0;
+            if (length >= maxQueuePerClass || queued >= maxQueued) {
+                rejectedFullCount.incrementAndGet();
+                throw new Rejected("Too many passengers are booking this train and class right now - " +
+                                   "please try again in a few minutes");
+            }
+            long expectedWait = expectedWaitSeconds(length);
+            if (expectedWait * 1000 > maxWaitMillis) {
+                rejectedWaitCount.incrementAndGet();
+                throw new Rejected("Expected wait of " + expectedWait + " seconds is too long - " +
+                                   "please try again in a few minutes");
+            }
+            if (queue == null) {
+                queue = new ClassQueue();
+                queues.put(key, queue);
+            }
+            Ticket ticket = new Ticket(key, queue.nextTicket++);
+            queue.tickets.addLast(ticket);
+            queued++;
+            notEmpty.signal();
+            return ticket;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Give up a queued ticket. False if it was admitted first (the caller
+     * then holds a running slot and must use it).
+     */
+    private boolean abandon(Ticket ticket) {
+        if (!ticket.state.compareAndSet(Ticket.WAITING, Ticket.ABANDONED)) {
+            return false;
+        }
+        lock.lock();
+        try {
+            ClassQueue queue = queues.get(ticket.key);
+            if (queue != null && queue.tickets.remove(ticket)) {
+                queued--;
+                if (queue.tickets.isEmpty()) {
+                    queues.remove(ticket.key);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Position of a waiting ticket and its expected wait in seconds
+     */
+    private long[] place(Ticket ticket) {
+        lock.lock();
+        try {
+            ClassQueue queue = queues.get(ticket.key);
+            long position = queue != null ? Math.max(0, ticket.number - queue.servedThrough - 1) : 0;
+            return new long[] { position, expectedWaitSeconds(position) };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues are served in turn, so a place in one queue waits for the others
+     * too. Call with the lock held.
+     */
+    private long expectedWaitSeconds(long position) {
+        int activeQueues = Math.max(1, queues.size());
+        return (long) Math.ceil(position * activeQueues / bucket.rate);
+    }
+
+    private void dispatch() {
+        while (true) {
+            try {
+                lock.lock();
+                try {
+                    while (queued == 0) {
+                        notEmpty.await();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+
+                running.acquire();
+                bucket.take();
+
+                Ticket ticket = next();
+                if (ticket == null || !ticket.state.compareAndSet(Ticket.WAITING, Ticket.ADMITTED)) {
+                    // Everyone waiting gave up in the meantime
+                    running.release();
+                    bucket.refund();
+                    continue;
+                }
+                admittedCount.incrementAndGet();
+                ticket.admitted.countDown();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                Logger.getInstance().error("BookingAdmission", "dispatch", "Admission dispatcher error", e);
+            }
+        }
+    }
+
+    /**
+     * Head of the next queue in turn; that queue then goes to the back of the line
+     */
+    private Ticket next() {
+        lock.lock();
+        try {
+            Iterator<Map.Entry<QueueKey, ClassQueue>> entries = queues.entrySet().iterator();
+            if (!entries.hasNext()) {
+                return null;
+            }
+            Map.Entry<QueueKey, ClassQueue> entry = entries.next();
+            entries.remove();
+            ClassQueue queue = entry.getValue();
+            Ticket ticket = queue.tickets.pollFirst();
+            queue.servedThrough = ticket.number;
+            queued--;
+            if (!queue.tickets.isEmpty()) {
+                queues.put(entry.getKey(), queue);
+            }
+            return ticket;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Thrown when a booking attempt is shed instead of run
+     */
+    public static class Rejected extends SQLException {
+        private static final long serialVersionUID = 1L;
+
+        public Rejected(String message) {
+            super(message);
+        }
+    }
+
+    public static class AdmissionStats {
+        private final long admitted;
+        private final long rejectedFull;
+        private final long rejectedWait;
+        private final long timedOut;
+        private final int waiting;
+
+        public AdmissionStats(long admitted, long rejectedFull, long rejectedWait, long timedOut, int waiting) {
+            this.admitted = admitted;
+            this.rejectedFull = rejectedFull;
+            this.rejectedWait = rejectedWait;
+            this.timedOut = timedOut;
+            this.waiting = waiting;
+        }
+
+        public long getAdmitted() { return admitted; }
+        public long getRejectedFull() { return rejectedFull; }
+        public long getRejectedWait() { return rejectedWait; }
+        public long getTimedOut() { return timedOut; }
+        public int getWaiting() { return waiting; }
+
+        @Override
+        public String toString() {
+            return "admitted=" + admitted + ", rejected(full)=" + rejectedFull + ", rejected(wait)=" + rejectedWait +
+                   ", timedOut=" + timedOut + ", waiting=" + waiting;
+        }
+    }
+
+    /**
+     * Tokens refill continuously at the rate, up to the burst size
+     */
+    private static final class TokenBucket {
+        private final double rate;
+        private final double capacity;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        TokenBucket(double rate, int capacity) {
+            this.rate = rate;
+            this.capacity = capacity;
+            this.tokens = capacity;
+        }
+
+        /**
+         * Wait for a token and take it (only the dispatcher calls this)
+         */
+        void take() throws InterruptedException {
+            while (true) {
+                long waitNanos;
+                synchronized (this) {
+                    refill();
+                    if (tokens >= 1) {
+                        tokens -= 1;
+                        return;
+                    }
+                    waitNanos = (long) Math.ceil((1 - tokens) / rate * 1_000_000_000L);
+                }
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+
+        synchronized void refund() {
+            tokens = Math.min(capacity, tokens + 1);
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * rate / 1_000_000_000L);
+            refilledAt = now;
+        }
+    }
+
+    private static final class ClassQueue {
+        private final Deque<Ticket> tickets = new ArrayDeque<>();
+        private long nextTicket;
+        private long servedThrough = -1;
+    }
+
+    private static final class Ticket {
+        private static final int WAITING = 0;
+        private static final int ADMITTED = 1;
+        private static final int ABANDONED = 2;
+
+        private final QueueKey key;
+        private final long number;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private final CountDownLatch admitted = new CountDownLatch(1);
+
+        private Ticket(QueueKey key, long number) {
+            this.key = key;
+            this.number = number;
+        }
+    }
+
+    private static final class QueueKey {
+        private final int trainId;
+        private final LocalDate journeyDate;
+        private final int classId;
+
+        private QueueKey(int trainId, LocalDate journeyDate, int classId) {
+            this.trainId = trainId;
+            this.journeyDate = journeyDate;
+            this.classId = classId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof QueueKey)) return false;
+            QueueKey other = (QueueKey) o;
+            return trainId == other.trainId && classId == other.classId && journeyDate.equals(other.journeyDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(trainId, journeyDate, classId);
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package BookMyTrainTicket;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulk work on every booking of one (train, date)
+ *
+ *   CANCEL_JOURNEY - the run is cancelled: every live booking is cancelled
+ *   PREPARE_CHART  - charts are prepared: bookings still waitlisted are
+ *                    dropped; confirmed and RAC bookings stand
+ *   WITHDRAW_COACH - a coach is withdrawn: its seats are blocked for the date
+ *                    and each confirmed booking on it moves to a free seat of
+ *                    the same class elsewhere on the train, or is cancelled
+ *
+ * Affected bookings are streamed in booking_id order on a read-only
+ * connection and processed in chunks of CHUNK_SIZE, each on its own
+ * transaction with batched statements. Seats freed by a job are not handed to
+ * the RAC/waitlist queues.
+ *
+ * After every chunk the last booking_id is saved in batch_job_checkpoints. A
+ * job that was interrupted picks up from there when run again with the same
+ * parameters; a job that finished is not run twice. Every step skips bookings
+ * that are already in their final state, so a chunk repeated after a crash
+ * changes nothing a second time.
+ */
+public class BookingBatchJob {
+    public enum Kind {
+        CANCEL_JOURNEY, PREPARE_CHART, WITHDRAW_COACH
+    }
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+
+    private final Kind kind;
+    private final int trainId;
+    private final LocalDate journeyDate;
+    private final int compartmentId;
+    private final BookingManager bookingManager;
+    private ProgressListener progressListener;
+
+    private BookingBatchJob(Kind kind, int trainId, LocalDate journeyDate, int compartmentId) throws SQLException {
+        this.kind = kind;
+        this.trainId = trainId;
+        this.journeyDate = journeyDate;
+        this.compartmentId = compartmentId;
+        this.bookingManager = new BookingManager();
+    }
+
+    public static BookingBatchJob cancelJourney(int trainId, LocalDate journeyDate) throws SQLException {
+        return new BookingBatchJob(Kind.CANCEL_JOURNEY, trainId, journeyDate, 0);
+    }
+
+    public static BookingBatchJob prepareChart(int trainId, LocalDate journeyDate) throws SQLException {
+        return new BookingBatchJob(Kind.PREPARE_CHART, trainId, journeyDate, 0);
+    }
+
+    public static BookingBatchJob withdrawCoach(int trainId, int compartmentId, LocalDate journeyDate) throws SQLException {
+        return new BookingBatchJob(Kind.WITHDRAW_COACH, trainId, journeyDate, compartmentId);
+    }
+
+    /**
+     * Called after every chunk, on the thread running the job
+     */
+    public interface ProgressListener {
+        void onProgress(Progress progress);
+    }
+
+    public BookingBatchJob onProgress(ProgressListener listener) {
+        this.progressListener = listener;
+        return this;
+    }
+
+    /**
+     * Identifies the job's checkpoint row
+     */
+    public String getJobKey() {
+        String key = kind + ":" + trainId + ":" + journeyDate;
+        return kind == Kind.WITHDRAW_COACH ? key + ":" + compartmentId : key;
+    }
+
+    /**
+     * Run the job to the end, resuming from its checkpoint
+     */
+    public Progress run() throws SQLException {
+        Progress progress = loadCheckpoint();
+        if (progress.isDone()) {
+            return progress;
+        }
+        long start = System.currentTimeMillis();
+        System.out.println("DEBUG: Batch job " + getJobKey() + " starting after booking " + progress.lastBookingId);
+
+        CoachPlan coach = null;
+        if (kind == Kind.WITHDRAW_COACH) {
+            coach = planCoach();
+            blockCoach(coach);
+        }
+
+        try (Connection reader = DatabaseManager.getConnection();
+             PreparedStatement pstmt = reader.prepareStatement(selectQuery(),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Connector/J streams rows one at a time instead of buffering the whole result
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            pstmt.setInt(1, trainId);
+            pstmt.setDate(2, Date.valueOf(journeyDate));
+            pstmt.setInt(3, progress.lastBookingId);
+            if (kind == Kind.WITHDRAW_COACH) {
+                pstmt.setInt(4, compartmentId);
+            }
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                List<Integer> chunk = new ArrayList<>(CHUNK_SIZE);
+                while (rs.next()) {
+                    chunk.add(rs.getInt("booking_id"));
+                    if (chunk.size() == CHUNK_SIZE) {
+                        finishChunk(progress, chunk, processChunk(chunk, coach), start);
+                        chunk.clear();
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    finishChunk(progress, chunk, processChunk(chunk, coach), start);
+                }
+            }
+        }
+
+        progress.done = true;
+        progress.elapsedMillis = System.currentTimeMillis() - start;
+        saveCheckpoint(progress);
+        System.out.println("DEBUG: Batch job " + getJobKey() + " finished: " + progress);
+        return progress;
+    }
+
+    private String selectQuery() {
+        switch (kind) {
+            case PREPARE_CHART:
+                return """
+                    SELECT booking_id FROM bookings
+                    WHERE train_id = ? AND journey_date = ? AND booking_id > ? AND status = 'Waiting'
+                    ORDER BY booking_id
+                    """;
+            case WITHDRAW_COACH:
+                return """
+                    SELECT b.booking_id
+                    FROM bookings b
+                    JOIN seats s ON b.seat_id = s.seat_id
+                    WHERE b.train_id = ? AND b.journey_date = ? AND b.booking_id > ?
+                      AND s.compartment_id = ? AND b.status = 'Confirmed'
+                    ORDER BY b.booking_id
+                    """;
+            default:
+                return """
+                    SELECT booking_id FROM bookings
+                    WHERE train_id = ? AND journey_date = ? AND booking_id > ? AND status <> 'Cancelled'
+                    ORDER BY booking_id
+                    """;
+        }
+    }
+
+    /**
+     * Returns how many bookings the chunk changed
+     */
+    private int processChunk(List<Integer> bookingIds, CoachPlan coach) throws SQLException {
+        if (kind != Kind.WITHDRAW_COACH) {
+            return bookingManager.cancelBookings(bookingIds, false);
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                List<Integer> unplaced = new ArrayList<>();
+                int moved = moveBookings(bookingIds, coach, unplaced);
+                if (unplaced.isEmpty()) {
+                    return moved;
+                }
+                int cancelled = bookingManager.cancelBookings(unplaced, false);
+                // Cancelling freed the old seats' segments again; take them back out
+                blockCoach(coach);
+                return moved + cancelled;
+            } catch (SeatTakenException e) {
+                // A clerk booked one of the seats we picked; the inventory was reloaded, pick again
+                if (attempt == MAX_CHUNK_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Move the chunk's bookings off the withdrawn coach in one transaction;
+     * bookings with no free seat of the same class are added to unplaced
+     */
+    private int moveBookings(List<Integer> bookingIds, CoachPlan coach, List<Integer> unplaced) throws SQLException {
+        SeatInventory inventory = SeatInventory.getInstance();
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try {
+                String lockQuery = """
+                    SELECT booking_id, route_id, from_ordinal, to_ordinal FROM bookings
+                    WHERE booking_id IN (%s) AND status = 'Confirmed'
+                    ORDER BY booking_id
+                    FOR UPDATE
+                    """.formatted(placeholders(bookingIds.size()));
+                // Bookings by (route, from stop, to stop): each moves for the segment it holds
+                Map<List<Integer>, List<Integer>> bookingsBySegment = new LinkedHashMap<>();
+                try (PreparedStatement pstmt = conn.prepareStatement(lockQuery)) {
+                    for (int i = 0; i < bookingIds.size(); i++) {
+                        pstmt.setInt(i + 1, bookingIds.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            List<Integer> segment = List.of(rs.getInt("route_id"),
+                                                            BookingManager.getOrdinal(rs, "from_ordinal"),
+                                                            BookingManager.getOrdinal(rs, "to_ordinal"));
+                            bookingsBySegment.computeIfAbsent(segment, k -> new ArrayList<>())
+                                             .add(rs.getInt("booking_id"));
+                        }
+                    }
+                }
+
+                List<Integer> movedBookings = new ArrayList<>();
+                List<Integer> newSeats = new ArrayList<>();
+                for (Map.Entry<List<Integer>, List<Integer>> route : bookingsBySegment.entrySet()) {
+                    int routeId = route.getKey().get(0);
+                    int fromOrdinal = route.getKey().get(1);
+                    int toOrdinal = route.getKey().get(2);
+                    Set<Integer> free = inventory.getFreeSeatIds(conn, trainId, routeId, fromOrdinal, toOrdinal, journeyDate);
+                    List<Integer> picked = new ArrayList<>();
+                    int next = 0;
+                    for (Integer bookingId : route.getValue()) {
+                        while (next < coach.sameClassSeats.size() && !free.contains(coach.sameClassSeats.get(next))) {
+                            next++;
+                        }
+                        if (next == coach.sameClassSeats.size()) {
+                            unplaced.add(bookingId);
+                            continue;
+                        }
+                        picked.add(coach.sameClassSeats.get(next));
+                        free.remove(coach.sameClassSeats.get(next));
+                        movedBookings.add(bookingId);
+                        next++;
+                    }
+                    if (!picked.isEmpty()
+                            && !inventory.claimAll(conn, trainId, routeId, fromOrdinal, toOrdinal, journeyDate, picked)) {
+                        throw new SeatTakenException();
+                    }
+                    newSeats.addAll(picked);
+                }
+
+                // The old seats stay blocked with the rest of the coach
+                String moveQuery = "UPDATE bookings SET seat_id = ? WHERE booking_id = ?";
+                try (PreparedStatement pstmt = conn.prepareStatement(moveQuery)) {
+                    for (int i = 0; i < movedBookings.size(); i++) {
+                        pstmt.setInt(1, newSeats.get(i));
+                        pstmt.setInt(2, movedBookings.get(i));
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+
+                conn.commit();
+                return movedBookings.size();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                inventory.evict(trainId, journeyDate);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void finishChunk(Progress progress, List<Integer> chunk, int changed, long start) throws SQLException {
+        progress.processed += chunk.size();
+        progress.changed += changed;
+        progress.lastBookingId = chunk.get(chunk.size() - 1);
+        progress.elapsedMillis = System.currentTimeMillis() - start;
+        saveCheckpoint(progress);
+        if (progressListener != null) {
+            progressListener.onProgress(progress);
+        }
+    }
+
+    /**
+     * Seats of the withdrawn coach, and the seats of the same class elsewhere
+     * on the train in seat map order
+     */
+    private CoachPlan planCoach() throws SQLException {
+        SeatMapSnapshot seatMap = new SeatAvailabilityManager().getSeatMap(trainId);
+        int withdrawn = -1;
+        for (int c = 0; c < seatMap.getCompartmentCount(); c++) {
+            if (seatMap.getCompartmentId(c) == compartmentId) {
+                withdrawn = c;
+            }
+        }
+        if (withdrawn < 0) {
+            throw new SQLException("Compartment " + compartmentId + " does not belong to train " + trainId);
+        }
+
+        CoachPlan plan = new CoachPlan();
+        String classType = seatMap.getClassType(withdrawn);
+        for (int c = 0; c < seatMap.getCompartmentCount(); c++) {
+            boolean sameClass = classType != null && classType.equals(seatMap.getClassType(c));
+            for (int seat = seatMap.getSeatStart(c); seat < seatMap.getSeatEnd(c); seat++) {
+                if (c == withdrawn) {
+                    plan.coachSeats.add(seatMap.getSeatId(seat));
+                } else if (sameClass) {
+                    plan.sameClassSeats.add(seatMap.getSeatId(seat));
+                }
+            }
+        }
+        return plan;
+    }
+
+    private void blockCoach(CoachPlan coach) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            SeatInventory.getInstance().blockSeats(conn, trainId, journeyDate, coach.coachSeats);
+        }
+    }
+
+    private Progress loadCheckpoint() throws SQLException {
+        Progress progress = new Progress();
+        String query = "SELECT last_booking_id, processed, changed, status FROM batch_job_checkpoints WHERE job_key = ?";
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setString(1, getJobKey());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    progress.lastBookingId = rs.getInt("last_booking_id");
+                    progress.processed = rs.getInt("processed");
+                    progress.changed = rs.getInt("changed");
+                    progress.done = "Done".equals(rs.getString("status"));
+                }
+            }
+        }
+        return progress;
+    }
+
+    private void saveCheckpoint(Progress progress) throws SQLException {
+        String query = """
+            INSERT INTO batch_job_checkpoints (job_key, last_booking_id, processed, changed, status)
+            VALUES (?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE last_booking_id = VALUES(last_booking_id), processed = VALUES(processed),
+                                    changed = VALUES(changed), status = VALUES(status)
+            """;
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setString(1, getJobKey());
+            pstmt.setInt(2, progress.lastBookingId);
+            pstmt.setInt(3, progress.processed);
+            pstmt.setInt(4, progress.changed);
+            pstmt.setString(5, progress.done ? "Done" : "Running");
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * How far a job has got; totals include chunks done by earlier runs
+     */
+    public static class Progress {
+        private int lastBookingId;
+        private int processed;
+        private int changed;
+        private boolean done;
+        private long elapsedMillis;
+
+        public int getLastBookingId() { return lastBookingId; }
+        public int getProcessed() { return processed; }
+        public int getChanged() { return changed; }
+        public boolean isDone() { return done; }
+        /** Time spent by the current run */
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        @Override
+        public String toString() {
+            return processed + " bookings processed, " + changed + " changed, up to booking " +
+                   lastBookingId + " (" + elapsedMillis + " ms)";
+        }
+    }
+
+    private static class CoachPlan {
+        private final List<Integer> coachSeats = new ArrayList<>();
+        private final List<Integer> sameClassSeats = new ArrayList<>();
+    }
+
+    /**
+     * A seat picked from the inventory was taken by a concurrent booking
+     */
+    private static class SeatTakenException extends SQLException {
+        private static final long serialVersionUID = 1L;
+
+        SeatTakenException() {
+            super("A replacement seat was taken by another booking");
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package BookMyTrainTicket;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports bookings, payments and passenger manifests to gzip-compressed CSV or
+ * JSON Lines files
+ *
+ * Rows are streamed from a forward-only, read-only result set (Connector/J
+ * hands them over one at a time instead of buffering the result) and written
+ * straight to a buffered gzip stream, so memory use does not grow with the
+ * number of rows exported. Requests can pick a subset of the dataset's columns,
+ * a date range and one train, and can write one file per train.
+ *
+ * Usage: BookingExporter <bookings|payments|manifest> <csv|json> <output dir>
+ *                        [from yyyy-mm-dd] [to yyyy-mm-dd] [--by-train]
+ */
+public class BookingExporter {
+    private static final int WRITE_BUFFER_CHARS = 64 * 1024;
+
+    public enum Format {
+        CSV(".csv.gz"), JSON(".json.gz");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    /**
+     * What can be exported: the exportable columns (name to SQL expression) in
+     * default order, the date column the range applies to, and the row order
+     */
+    public enum Dataset {
+        BOOKINGS("b.booking_time", "b.booking_id", """
+                FROM bookings b
+                JOIN trains t ON b.train_id = t.train_id
+                JOIN routes r ON b.route_id = r.route_id
+                LEFT JOIN users u ON b.user_id = u.user_id
+                LEFT JOIN seats s ON b.seat_id = s.seat_id
+                LEFT JOIN compartments c ON s.compartment_id = c.compartment_id
+                LEFT JOIN classes cl ON c.class_id = cl.class_id
+                """,
+            "booking_id", "b.booking_id",
+            "booking_time", "b.booking_time",
+            "status", "b.status",
+            "user_id", "b.user_id",
+            "username", "u.username",
+            "train_id", "b.train_id",
+            "train_number", "t.train_number",
+            "route_id", "b.route_id",
+            "source_station", "r.source_station",
+            "destination_station", "r.destination_station",
+            "journey_date", "b.journey_date",
+            "passenger_name", "b.passenger_name",
+            "passenger_age", "b.passenger_age",
+            "class_type", "cl.class_type",
+            "compartment_name", "c.compartment_name",
+            "seat_number", "s.seat_number",
+            "price", "r.price"),
+
+        PAYMENTS("p.payment_time", "p.payment_id", """
+                FROM payments p
+                JOIN bookings b ON p.booking_id = b.booking_id
+                JOIN trains t ON b.train_id = t.train_id
+                """,
+            "payment_id", "p.payment_id",
+            "payment_time", "p.payment_time",
+            "booking_id", "p.booking_id",
+            "train_id", "b.train_id",
+            "train_number", "t.train_number",
+            "amount", "p.amount",
+            "status", "p.status",
+            "payment_method", "p.payment_method",
+            "transaction_id", "p.transaction_id"),
+
+        // Travelling passengers only, in coach and seat order
+        MANIFEST("b.journey_date", "c.compartment_name, s.seat_number, b.booking_id", """
+                FROM bookings b
+                JOIN trains t ON b.train_id = t.train_id
+                JOIN routes r ON b.route_id = r.route_id
+                LEFT JOIN seats s ON b.seat_id = s.seat_id
+                LEFT JOIN compartments c ON s.compartment_id = c.compartment_id
+                LEFT JOIN classes cl ON c.class_id = cl.class_id
+                WHERE b.status IN ('Confirmed', 'RAC')
+                """,
+            "journey_date", "b.journey_date",
+            "train_number", "t.train_number",
+            "train_name", "t.train_name",
+            "class_type", "cl.class_type",
+            "compartment_name", "c.compartment_name",
+            "seat_number", "s.seat_number",
+            "berth_type", "s.berth_type",
+            "passenger_name", "b.passenger_name",
+            "passenger_age", "b.passenger_age",
+            "source_station", "r.source_station",
+            "destination_station", "r.destination_station",
+            "status", "b.status",
+            "booking_id", "b.booking_id");
+
+        private final String dateColumn;
+        private final String orderBy;
+        private final String from;
+        private final Map<String, String> columns = new LinkedHashMap<>();
+
+        Dataset(String dateColumn, String orderBy, String from, String... columnPairs) {
+            this.dateColumn = dateColumn;
+            this.orderBy = orderBy;
+            this.from = from;
+            for (int i = 0; i < columnPairs.length; i += 2) {
+                columns.put(columnPairs[i], columnPairs[i + 1]);
+            }
+        }
+
+        public List<String> getColumnNames() {
+            return new ArrayList<>(columns.keySet());
+        }
+    }
+
+    /**
+     * One export: dataset and format plus optional projection and filters
+     */
+    public static class ExportRequest {
+        private final Dataset dataset;
+        private final Format format;
+        private final Path outputDir;
+        private List<String> columns;
+        private LocalDate fromDate;
+        private LocalDate toDate;
+        private Integer trainId;
+        private boolean partitionByTrain;
+
+        public ExportRequest(Dataset dataset, Format format, Path outputDir) {
+            this.dataset = dataset;
+            this.format = format;
+            this.outputDir = outputDir;
+            this.columns = dataset.getColumnNames();
+        }
+
+        /** Columns to write, in this order (default: all of the dataset's) */
+        public void setColumns(List<String> columns) { this.columns = new ArrayList<>(columns); }
+        /** Inclusive date range on the dataset's date column; either end may be null */
+        public void setDateRange(LocalDate fromDate, LocalDate toDate) {
+            this.fromDate = fromDate;
+            this.toDate = toDate;
+        }
+        public void setTrainId(Integer trainId) { this.trainId = trainId; }
+        /** Write one file per train instead of one file */
+        public void setPartitionByTrain(boolean partitionByTrain) { this.partitionByTrain = partitionByTrain; }
+
+        public Dataset getDataset() { return dataset; }
+        public Format getFormat() { return format; }
+        public List<String> getColumns() { return columns; }
+    }
+
+    /**
+     * Files written by an export and their row counts
+     */
+    public static class ExportResult {
+        private final Map<Path, Long> files = new LinkedHashMap<>();
+        private long totalRows;
+        private long elapsedMillis;
+
+        public Map<Path, Long> getFiles() { return files; }
+        public long getTotalRows() { return totalRows; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        @Override
+        public String toString() {
+            return totalRows + " rows in " + files.size() + " file(s), " + elapsedMillis + " ms";
+        }
+    }
+
+    public ExportResult export(ExportRequest request) throws SQLException, IOException {
+        Dataset dataset = request.dataset;
+        List<String> expressions = new ArrayList<>();
+        for (String column : request.columns) {
+            String expression = dataset.columns.get(column);
+            if (expression == null) {
+                throw new IllegalArgumentException("Unknown " + dataset + " column: " + column
+                                                   + " (available: " + dataset.getColumnNames() + ")");
+            }
+            expressions.add(expression + " AS " + column);
+        }
+        if (expressions.isEmpty()) {
+            throw new IllegalArgumentException("No columns selected for " + dataset + " export");
+        }
+        // Partition key travels as an extra column that is not written
+        expressions.add("b.train_id AS export_train_id");
+
+        List<String> filters = new ArrayList<>();
+        if (request.fromDate != null) {
+            filters.add(dataset.dateColumn + " >= ?");
+        }
+        if (request.toDate != null) {
+            filters.add(dataset.dateColumn + " < ?");
+        }
+        if (request.trainId != null) {
+            filters.add("b.train_id = ?");
+        }
+        String from = dataset.from.strip();
+        if (!filters.isEmpty()) {
+            from += (from.contains("WHERE") ? " AND " : " WHERE ") + String.join(" AND ", filters);
+        }
+        String orderBy = request.partitionByTrain ? "b.train_id, " + dataset.orderBy : dataset.orderBy;
+        String query = "SELECT " + String.join(", ", expressions) + "\n" + from + "\nORDER BY " + orderBy;
+
+        Files.createDirectories(request.outputDir);
+        ExportResult result = new ExportResult();
+        long start = System.currentTimeMillis();
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            int index = 1;
+            if (request.fromDate != null) {
+                pstmt.setDate(index++, Date.valueOf(request.fromDate));
+            }
+            if (request.toDate != null) {
+                pstmt.setDate(index++, Date.valueOf(request.toDate.plusDays(1)));
+            }
+            if (request.trainId != null) {
+                pstmt.setInt(index, request.trainId);
+            }
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columnCount = request.columns.size();
+                boolean[] numeric = new boolean[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    numeric[i] = isNumeric(meta.getColumnType(i + 1));
+                }
+
+                RowWriter writer = null;
+                int currentTrain = -1;
+                try {
+                    while (rs.next()) {
+                        int trainId = rs.getInt("export_train_id");
+                        if (writer == null || (request.partitionByTrain && trainId != currentTrain)) {
+                            if (writer != null) {
+                                writer.close();
+                                result.files.put(writer.path, writer.rows);
+                            }
+                            currentTrain = trainId;
+                            writer = openWriter(request, request.partitionByTrain ? trainId : null);
+                        }
+                        writer.write(rs, numeric);
+                        result.totalRows++;
+                    }
+                    if (writer == null) {
+                        // Nothing matched - still leave a file with just the header
+                        writer = openWriter(request, null);
+                    }
+                } finally {
+                    if (writer != null) {
+                        writer.close();
+                        result.files.put(writer.path, writer.rows);
+                    }
+                }
+            }
+        }
+
+        result.elapsedMillis = System.currentTimeMillis() - start;
+        System.out.println("DEBUG: Exported " + request.dataset + ": " + result);
+        return result;
+    }
+
+    private RowWriter openWriter(ExportRequest request, Integer partitionTrain) throws IOException {
+        StringBuilder name = new StringBuilder(request.dataset.name().toLowerCase());
+        if (partitionTrain != null) {
+            name.append("_train").append(partitionTrain);
+        } else if (request.trainId != null) {
+            name.append("_train").append(request.trainId);
+        }
+        name.append('_').append(request.fromDate != null ? request.fromDate : "start");
+        name.append('_').append(request.toDate != null ? request.toDate : "now");
+        name.append(request.format.extension);
+        return new RowWriter(request.outputDir.resolve(name.toString()), request.format, request.columns);
+    }
+
+    private static boolean isNumeric(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+            case Types.FLOAT:
+            case Types.REAL:
+            case Types.DOUBLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * One open gzip file; values are written as they are read
+     */
+    private static class RowWriter implements AutoCloseable {
+        private final Path path;
+        private final Format format;
+        private final List<String> columns;
+        private final Writer out;
+        private long rows;
+
+        RowWriter(Path path, Format format, List<String> columns) throws IOException {
+            this.path = path;
+            this.format = format;
+            this.columns = columns;
+            this.out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(path)), StandardCharsets.UTF_8), WRITE_BUFFER_CHARS);
+            if (format == Format.CSV) {
+                for (int i = 0; i < columns.size(); i++) {
+                    if (i > 0) {
+                        out.write(',');
+                    }
+                    writeCsv(columns.get(i));
+                }
+                out.write('\n');
+            }
+        }
+
+        void write(ResultSet rs, boolean[] numeric) throws SQLException, IOException {
+            if (format == Format.CSV) {
+                for (int i = 0; i < columns.size(); i++) {
+                    if (i > 0) {
+                        out.write(',');
+                    }
+                    String value = rs.getString(i + 1);
+                    if (value != null) {
+                        writeCsv(value);
+                    }
+                }
+            } else {
+                out.write('{');
+                for (int i = 0; i < columns.size(); i++) {
+                    if (i > 0) {
+                        out.write(',');
+                    }
+                    writeJsonString(columns.get(i));
+                    out.write(':');
+                    String value = rs.getString(i + 1);
+                    if (value == null) {
+                        out.write("null");
+                    } else if (numeric[i]) {
+                        out.write(value);
+                    } else {
+                        writeJsonString(value);
+                    }
+                }
+                out.write('}');
+            }
+            out.write('\n');
+            rows++;
+        }
+
+        private void writeCsv(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char ch = value.charAt(i);
+                quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+            }
+            if (!quote) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        private void writeJsonString(String value) throws IOException {
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                switch (ch) {
+                    case '"': out.write("\\\""); break;
+                    case '\\': out.write("\\\\"); break;
+                    case '\n': out.write("\\n"); break;
+                    case '\r': out.write("\\r"); break;
+                    case '\t': out.write("\\t"); break;
+                    default:
+                        if (ch < 0x20) {
+                            out.write(String.format("\\u%04x", (int) ch));
+                        } else {
+                            out.write(ch);
+                        }
+                }
+            }
+            out.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: BookingExporter <bookings|payments|manifest> <csv|json> <output dir> "
+                               + "[from yyyy-mm-dd] [to yyyy-mm-dd] [--by-train]");
+            System.exit(2);
+        }
+        try {
+            ExportRequest request = new ExportRequest(
+                Dataset.valueOf(args[0].toUpperCase()), Format.valueOf(args[1].toUpperCase()), Paths.get(args[2]));
+            List<LocalDate> dates = new ArrayList<>();
+            for (int i = 3; i < args.length; i++) {
+                if ("--by-train".equals(args[i])) {
+                    request.setPartitionByTrain(true);
+                } else {
+                    dates.add(LocalDate.parse(args[i]));
+                }
+            }
+            request.setDateRange(dates.size() > 0 ? dates.get(0) : null, dates.size() > 1 ? dates.get(1) : null);
+
+            ExportResult result = new BookingExporter().export(request);
+            for (Map.Entry<Path, Long> file : result.getFiles().entrySet()) {
+                System.out.println(file.getKey() + ": " + file.getValue() + " rows");
+            }
+            System.out.println("Export completed: " + result);
+        } catch (SQLException | IOException e) {
+            System.err.println("Export failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
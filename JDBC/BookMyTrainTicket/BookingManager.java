@@ -1,8 +1,16 @@
 package BookMyTrainTicket;
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 import java.math.BigDecimal;
 
 /**
@@ -13,20 +21,108 @@ public class BookingManager {
     private SeatAvailabilityManager seatManager;
     private WaitlistManager waitlistManager;
     private RACQueue racQueue;
+    private IdGenerator ids;
+    
+    // Seats tried (requested one plus nearby alternatives) before falling back to RAC/waitlist
+    private static final int MAX_CLAIM_ATTEMPTS = 5;
+    
+    // Bookings cancelled per transaction by cancelBookings
+    private static final int CANCEL_BATCH_SIZE = 200;
+    
+    // Largest page the booking history APIs return
+    public static final int MAX_PAGE_SIZE = 200;
     
     public BookingManager() throws SQLException {
         this.dbManager = DatabaseManager.getInstance();
         this.seatManager = new SeatAvailabilityManager();
         this.waitlistManager = new WaitlistManager();
         this.racQueue = new RACQueue();
+        this.ids = IdGenerator.getInstance();
     }
     
     /**
-     * Create a new booking
+     * Create a new booking (travelling today)
      */
     public BookingResult createBooking(int userId, int seatId, int trainId, int routeId, 
                                      String passengerName, int passengerAge) throws SQLException {
+        return createBooking(userId, seatId, trainId, routeId, passengerName, passengerAge, LocalDate.now());
+    }
+    
+    /**
+     * Create a new booking for a journey date (fare of the whole route)
+     */
+    public BookingResult createBooking(int userId, int seatId, int trainId, int routeId, 
+                                     String passengerName, int passengerAge, LocalDate journeyDate) throws SQLException {
+        return createBooking(userId, seatId, trainId, routeId, passengerName, passengerAge, journeyDate,
+                             FareEngine.WHOLE_ROUTE, FareEngine.WHOLE_ROUTE);
+    }
+    
+    /**
+     * Create a new booking for a journey date, charging the fare between the
+     * passenger's boarding and alighting stops (route stop ordinals)
+     */
+    public BookingResult createBooking(int userId, int seatId, int trainId, int routeId, 
+                                     String passengerName, int passengerAge, LocalDate journeyDate,
+                                     int fromOrdinal, int toOrdinal) throws SQLException {
         
+        passengerName = validatePassenger(passengerName, passengerAge);
+        
+        System.out.println("DEBUG: Creating booking - userId: " + userId + ", seatId: " + seatId + 
+                          ", trainId: " + trainId + ", routeId: " + routeId + 
+                          ", passengerName: '" + passengerName + "' (length: " + passengerName.length() + "), passengerAge: " + passengerAge);
+        
+        // Check if this is a RAC/Waitlist booking request (seatId = -1)
+        if (seatId == -1) {
+            return handleRACWaitlistBooking(userId, trainId, routeId, passengerName, passengerAge, journeyDate,
+                                            fromOrdinal, toOrdinal);
+        }
+        
+        // Claim the requested seat, or a free one nearby if it was taken, with a bounded number of attempts
+        SeatInventory inventory = SeatInventory.getInstance();
+        int candidate = seatId;
+        List<Integer> alternatives = null;
+        
+        for (int attempt = 1; attempt <= MAX_CLAIM_ATTEMPTS; attempt++) {
+            if (!isBookable(inventory, userId, trainId, routeId, fromOrdinal, toOrdinal, journeyDate, candidate)) {
+                if (alternatives == null) {
+                    alternatives = seatManager.getAlternativeSeatIds(seatId);
+                }
+                candidate = nextFreeSeat(inventory, alternatives, userId, trainId, routeId, fromOrdinal, toOrdinal,
+                                         journeyDate, Set.of());
+                if (candidate == -1) {
+                    break;
+                }
+            }
+            
+            try {
+                BookingResult result = confirmSeat(userId, candidate, trainId, routeId, passengerName, passengerAge, journeyDate,
+                                                   fromOrdinal, toOrdinal);
+                if (result != null) {
+                    if (candidate != seatId) {
+                        return new BookingResult(true, "Requested seat was just taken - booking confirmed on a nearby seat",
+                                                 result.getId(), result.getStatus(), candidate);
+                    }
+                    return result;
+                }
+                System.out.println("DEBUG: Lost seat " + candidate + " to a concurrent booking (attempt " + attempt + ")");
+            } catch (SQLException e) {
+                if (!isTransientLockFailure(e) || attempt == MAX_CLAIM_ATTEMPTS) {
+                    throw e;
+                }
+                System.out.println("DEBUG: Retrying booking after lock conflict (attempt " + attempt + "): " + e.getMessage());
+                backoff(attempt);
+            }
+        }
+        
+        // No seat could be claimed - try to add to RAC or waitlist
+        return handleRACWaitlistBooking(userId, trainId, routeId, passengerName, passengerAge, journeyDate,
+                                        fromOrdinal, toOrdinal);
+    }
+    
+    /**
+     * Check a passenger's name and age; returns the cleaned name
+     */
+    private String validatePassenger(String passengerName, int passengerAge) throws SQLException {
         // Enhanced validation for input parameters
         if (passengerName == null) {
             throw new SQLException("Passenger name cannot be null");
@@ -53,86 +149,336 @@ public class BookingManager {
             throw new SQLException("Invalid passenger age: " + passengerAge);
         }
         
-        System.out.println("DEBUG: Creating booking - userId: " + userId + ", seatId: " + seatId + 
-                          ", trainId: " + trainId + ", routeId: " + routeId + 
-                          ", passengerName: '" + passengerName + "' (length: " + passengerName.length() + "), passengerAge: " + passengerAge);
+        return passengerName;
+    }
+    
+    /**
+     * Book several passengers on one train, route and date together.
+     * Seats are claimed all-or-nothing in one transaction; bookings and payments
+     * go in as JDBC batches and the fare is read once, so the number of round
+     * trips does not grow with the group. A seat lost to another clerk is swapped
+     * for a nearby one and the group retried; passengers asking for seat -1, or
+     * for whom no seat can be found, go to RAC/waitlist afterwards.
+     * Results are in the same order as the requests.
+     */
+    public List<BookingResult> createGroupBooking(List<PassengerRequest> passengers) throws SQLException {
+        List<BookingResult> results = new ArrayList<>();
+        if (passengers.isEmpty()) {
+            return results;
+        }
         
-        // Check if this is a RAC/Waitlist booking request (seatId = -1)
-        if (seatId == -1) {
-            return handleRACWaitlistBooking(userId, trainId, routeId, passengerName, passengerAge);
+        PassengerRequest first = passengers.get(0);
+        int trainId = first.getTrainId();
+        int routeId = first.getRouteId();
+        LocalDate journeyDate = first.getJourneyDate();
+        int fromOrdinal = first.getFromOrdinal();
+        int toOrdinal = first.getToOrdinal();
+        
+        int size = passengers.size();
+        String[] names = new String[size];
+        int[] seats = new int[size];
+        Set<Integer> requestedSeats = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            PassengerRequest passenger = passengers.get(i);
+            if (passenger.getTrainId() != trainId || passenger.getRouteId() != routeId
+                    || !passenger.getJourneyDate().equals(journeyDate)) {
+                throw new SQLException("All passengers of a group booking must travel on the same train, route and date");
+            }
+            // One segment is claimed and charged for the whole group
+            if (passenger.getFromOrdinal() != fromOrdinal || passenger.getToOrdinal() != toOrdinal) {
+                throw new SQLException("All passengers of a group booking must board and alight at the same stops");
+            }
+            names[i] = validatePassenger(passenger.getPassengerName(), passenger.getPassengerAge());
+            seats[i] = passenger.getSeatId();
+            if (seats[i] != -1 && !requestedSeats.add(seats[i])) {
+                throw new SQLException("Seat " + seats[i] + " was selected for more than one passenger");
+            }
         }
         
-        // Check if seat is available
-        SeatAvailabilityManager.SeatWithDetails seat = seatManager.getSeatById(seatId);
-        if (seat == null || !seat.isAvailable()) {
-            // Try to add to RAC or waitlist
-            return handleRACWaitlistBooking(userId, trainId, routeId, passengerName, passengerAge);
+        System.out.println("DEBUG: Creating group booking - " + size + " passengers, trainId: " + trainId +
+                          ", routeId: " + routeId + ", journeyDate: " + journeyDate);
+        
+        SeatInventory inventory = SeatInventory.getInstance();
+        Map<Integer, List<Integer>> alternatives = new HashMap<>();
+        int[] bookingIds = null;
+        
+        for (int attempt = 1; attempt <= MAX_CLAIM_ATTEMPTS && bookingIds == null; attempt++) {
+            // Give every seated passenger a distinct seat that currently looks free
+            Set<Integer> inUse = new HashSet<>();
+            for (int i = 0; i < size; i++) {
+                if (seats[i] == -1) {
+                    continue;
+                }
+                int userId = passengers.get(i).getUserId();
+                if (!isBookable(inventory, userId, trainId, routeId, fromOrdinal, toOrdinal, journeyDate, seats[i])
+                        || !inUse.add(seats[i])) {
+                    int requested = passengers.get(i).getSeatId();
+                    if (!alternatives.containsKey(requested)) {
+                        alternatives.put(requested, seatManager.getAlternativeSeatIds(requested));
+                    }
+                    seats[i] = nextFreeSeat(inventory, alternatives.get(requested), userId, trainId, routeId,
+                                            fromOrdinal, toOrdinal, journeyDate, inUse);
+                    if (seats[i] != -1) {
+                        inUse.add(seats[i]);
+                    }
+                }
+            }
+            
+            try {
+                bookingIds = confirmGroup(passengers, names, seats, trainId, routeId, journeyDate);
+                if (bookingIds == null) {
+                    System.out.println("DEBUG: Group lost a seat to a concurrent booking (attempt " + attempt + ")");
+                }
+            } catch (SQLException e) {
+                if (!isTransientLockFailure(e) || attempt == MAX_CLAIM_ATTEMPTS) {
+                    throw e;
+                }
+                System.out.println("DEBUG: Retrying group booking after lock conflict (attempt " + attempt + "): " + e.getMessage());
+                backoff(attempt);
+            }
         }
         
-        Connection conn = dbManager.getConnection();
-        conn.setAutoCommit(false);
+        for (int i = 0; i < size; i++) {
+            PassengerRequest passenger = passengers.get(i);
+            if (bookingIds != null && seats[i] != -1) {
+                String message = seats[i] == passenger.getSeatId()
+                    ? "Booking confirmed successfully"
+                    : "Requested seat was just taken - booking confirmed on a nearby seat";
+                results.add(new BookingResult(true, message, bookingIds[i], "Confirmed", seats[i]));
+            } else {
+                results.add(handleRACWaitlistBooking(passenger.getUserId(), trainId, routeId,
+                                                     names[i], passenger.getPassengerAge(), journeyDate,
+                                                     fromOrdinal, toOrdinal));
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * One attempt at the seated part of a group: claim every seat, then batch the
+     * bookings and payments. Returns booking IDs by passenger index (0 for
+     * passengers without a seat), or null if any seat was taken.
+     */
+    private int[] confirmGroup(List<PassengerRequest> passengers, String[] names, int[] seats,
+                               int trainId, int routeId, LocalDate journeyDate) throws SQLException {
+        List<Integer> seated = new ArrayList<>();
+        List<Integer> seatIds = new ArrayList<>();
+        for (int i = 0; i < seats.length; i++) {
+            if (seats[i] != -1) {
+                seated.add(i);
+                seatIds.add(seats[i]);
+            }
+        }
+        int[] bookingIds = new int[seats.length];
+        if (seated.isEmpty()) {
+            return bookingIds;
+        }
         
-        try {
-            // Create booking
-            String bookingQuery = """
-                INSERT INTO bookings (user_id, seat_id, train_id, route_id, passenger_name, passenger_age, status)
-                VALUES (?, ?, ?, ?, ?, ?, 'Confirmed')
-                """;
+        SeatInventory inventory = SeatInventory.getInstance();
+        PassengerRequest first = passengers.get(0);
+        try (Connection conn = dbManager.getConnection()) {
+            conn.setAutoCommit(false);
             
-            int bookingId;
-            try (PreparedStatement pstmt = conn.prepareStatement(bookingQuery, Statement.RETURN_GENERATED_KEYS)) {
-                pstmt.setInt(1, userId);
-                pstmt.setInt(2, seatId);
-                pstmt.setInt(3, trainId);
-                pstmt.setInt(4, routeId);
-                
-                // Extra safety check before setting passenger name
-                if (passengerName == null || passengerName.trim().isEmpty()) {
-                    throw new SQLException("CRITICAL: Passenger name is null or empty at SQL execution");
+            try {
+                // Occupy the seats between the group's stops, the segment charged below
+                if (!inventory.claimAll(conn, trainId, routeId, first.getFromOrdinal(), first.getToOrdinal(),
+                                        journeyDate, seatIds)) {
+                    conn.rollback();
+                    return null;
                 }
-                pstmt.setString(5, passengerName);
-                pstmt.setInt(6, passengerAge);
-                
-                System.out.println("DEBUG: Executing confirmed booking insert with passengerName: '" + passengerName + "' (length: " + passengerName.length() + ")");
                 
-                pstmt.executeUpdate();
+                // Fares of the whole group from the route's fare matrix, by seat class
+                int[] classIds = new int[seated.size()];
+                for (int k = 0; k < seated.size(); k++) {
+                    classIds[k] = inventory.getSeatClassId(conn, trainId, seats[seated.get(k)]);
+                }
+                BigDecimal[] amounts = FareEngine.getInstance().quoteGroup(conn, routeId, first.getFromOrdinal(),
+                                                                           first.getToOrdinal(), classIds);
                 
-                try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        bookingId = rs.getInt(1);
-                    } else {
-                        throw new SQLException("Failed to get booking ID");
+                String bookingQuery = """
+                    INSERT INTO bookings (user_id, seat_id, train_id, route_id, passenger_name, passenger_age, status, journey_date, pnr_number,
+                                          from_ordinal, to_ordinal)
+                    VALUES (?, ?, ?, ?, ?, ?, 'Confirmed', ?, ?, ?, ?)
+                    """;
+                try (PreparedStatement pstmt = conn.prepareStatement(bookingQuery, Statement.RETURN_GENERATED_KEYS)) {
+                    for (int i : seated) {
+                        pstmt.setInt(1, passengers.get(i).getUserId());
+                        pstmt.setInt(2, seats[i]);
+                        pstmt.setInt(3, trainId);
+                        pstmt.setInt(4, routeId);
+                        pstmt.setString(5, names[i]);
+                        pstmt.setInt(6, passengers.get(i).getPassengerAge());
+                        pstmt.setDate(7, Date.valueOf(journeyDate));
+                        pstmt.setString(8, ids.nextPnr());
+                        setOrdinal(pstmt, 9, first.getFromOrdinal());
+                        setOrdinal(pstmt, 10, first.getToOrdinal());
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                    
+                    try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                        for (int i : seated) {
+                            if (!rs.next()) {
+                                throw new SQLException("Failed to get booking ID");
+                            }
+                            bookingIds[i] = rs.getInt(1);
+                        }
                     }
                 }
-            } catch (SQLException sqlEx) {
-                // Enhanced error handling for passenger_name issues
-                if (sqlEx.getMessage().contains("passenger_name") && 
-                    sqlEx.getMessage().toLowerCase().contains("default value")) {
-                    System.err.println("CRITICAL ERROR: passenger_name constraint violation");
-                    System.err.println("Passenger name value: '" + passengerName + "'");
-                    System.err.println("Passenger name length: " + (passengerName != null ? passengerName.length() : "NULL"));
-                    throw new SQLException("Invalid passenger name - ensure name is at least 2 characters and contains valid characters", sqlEx);
-                } else {
-                    throw sqlEx;
+                
+                String paymentQuery = "INSERT INTO payments (booking_id, amount, status, transaction_id) VALUES (?, ?, 'Success', ?)";
+                try (PreparedStatement pstmt = conn.prepareStatement(paymentQuery)) {
+                    for (int k = 0; k < seated.size(); k++) {
+                        int i = seated.get(k);
+                        pstmt.setInt(1, bookingIds[i]);
+                        pstmt.setBigDecimal(2, amounts[k]);
+                        pstmt.setString(3, ids.nextTransactionId());
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
                 }
+                
+                conn.commit();
+                return bookingIds;
+                
+            } catch (SQLException e) {
+                conn.rollback();
+                inventory.evict(trainId, journeyDate);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
+        }
+    }
+    
+    /**
+     * One attempt at a confirmed booking: claim the seat first (the conditional
+     * update takes the row lock, so a racing clerk either waits or loses), then
+     * write the booking and payment. Returns null if the seat was taken.
+     */
+    private BookingResult confirmSeat(int userId, int seatId, int trainId, int routeId,
+                                      String passengerName, int passengerAge, LocalDate journeyDate,
+                                      int fromOrdinal, int toOrdinal) throws SQLException {
+        SeatInventory inventory = SeatInventory.getInstance();
+        
+        try (Connection conn = dbManager.getConnection()) {
+            conn.setAutoCommit(false);
+        
+            try {
+                // Occupy the seat between the passenger's stops, the segment charged below
+                if (!inventory.claim(conn, trainId, routeId, fromOrdinal, toOrdinal, journeyDate, seatId)) {
+                    conn.rollback();
+                    return null;
+                }
+                
+                // Create booking
+                String bookingQuery = """
+                    INSERT INTO bookings (user_id, seat_id, train_id, route_id, passenger_name, passenger_age, status, journey_date, pnr_number,
+                                          from_ordinal, to_ordinal)
+                    VALUES (?, ?, ?, ?, ?, ?, 'Confirmed', ?, ?, ?, ?)
+                    """;
             
-            // Mark seat as unavailable
-            seatManager.updateSeatAvailability(seatId, false);
+                int bookingId;
+                try (PreparedStatement pstmt = conn.prepareStatement(bookingQuery, Statement.RETURN_GENERATED_KEYS)) {
+                    pstmt.setInt(1, userId);
+                    pstmt.setInt(2, seatId);
+                    pstmt.setInt(3, trainId);
+                    pstmt.setInt(4, routeId);
+                
+                    // Extra safety check before setting passenger name
+                    if (passengerName == null || passengerName.trim().isEmpty()) {
+                        throw new SQLException("CRITICAL: Passenger name is null or empty at SQL execution");
+                    }
+                    pstmt.setString(5, passengerName);
+                    pstmt.setInt(6, passengerAge);
+                    pstmt.setDate(7, Date.valueOf(journeyDate));
+                    pstmt.setString(8, ids.nextPnr());
+                    setOrdinal(pstmt, 9, fromOrdinal);
+                    setOrdinal(pstmt, 10, toOrdinal);
+                
+                    System.out.println("DEBUG: Executing confirmed booking insert with passengerName: '" + passengerName + "' (length: " + passengerName.length() + ")");
+                
+                    pstmt.executeUpdate();
+                
+                    try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                        if (rs.next()) {
+                            bookingId = rs.getInt(1);
+                        } else {
+                            throw new SQLException("Failed to get booking ID");
+                        }
+                    }
+                } catch (SQLException sqlEx) {
+                    // Enhanced error handling for passenger_name issues
+                    if (sqlEx.getMessage().contains("passenger_name") && 
+                        sqlEx.getMessage().toLowerCase().contains("default value")) {
+                        System.err.println("CRITICAL ERROR: passenger_name constraint violation");
+                        System.err.println("Passenger name value: '" + passengerName + "'");
+                        System.err.println("Passenger name length: " + (passengerName != null ? passengerName.length() : "NULL"));
+                        throw new SQLException("Invalid passenger name - ensure name is at least 2 characters and contains valid characters", sqlEx);
+                    } else {
+                        throw sqlEx;
+                    }
+                }
             
-            // Create payment record
-            BigDecimal amount = getRoutePrice(routeId);
-            createPayment(bookingId, amount);
+                // Create payment record for the passenger's stops and the seat's class
+                BigDecimal amount = FareEngine.getInstance().quote(conn, routeId, fromOrdinal, toOrdinal,
+                                                                   inventory.getSeatClassId(conn, trainId, seatId));
+                createPayment(conn, bookingId, amount);
             
-            conn.commit();
+                conn.commit();
             
-            return new BookingResult(true, "Booking confirmed successfully", bookingId, "Confirmed");
+                return new BookingResult(true, "Booking confirmed successfully", bookingId, "Confirmed", seatId);
             
-        } catch (SQLException e) {
-            conn.rollback();
-            throw e;
-        } finally {
-            conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                conn.rollback();
+                inventory.evict(trainId, journeyDate);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+    
+    /**
+     * First seat in the (preference-ordered) list still bookable between the stops, removing
+     * every seat looked at so each is tried at most once
+     */
+    private int nextFreeSeat(SeatInventory inventory, List<Integer> candidates, int userId, int trainId, int routeId,
+                             int fromOrdinal, int toOrdinal, LocalDate journeyDate, Set<Integer> exclude) throws SQLException {
+        while (!candidates.isEmpty()) {
+            int seatId = candidates.remove(0);
+            if (!exclude.contains(seatId)
+                    && isBookable(inventory, userId, trainId, routeId, fromOrdinal, toOrdinal, journeyDate, seatId)) {
+                return seatId;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Free between the passenger's stops and not held in checkout by another user
+     */
+    private boolean isBookable(SeatInventory inventory, int userId, int trainId, int routeId,
+                               int fromOrdinal, int toOrdinal, LocalDate journeyDate, int seatId) throws SQLException {
+        return inventory.isSeatFree(trainId, routeId, fromOrdinal, toOrdinal, journeyDate, seatId)
+            && !SeatHoldService.getInstance().isHeldByOther(userId, trainId, routeId, fromOrdinal, toOrdinal,
+                                                                     journeyDate, seatId);
+    }
+    
+    /**
+     * Deadlocks and lock wait timeouts roll back the whole transaction and are worth retrying
+     */
+    private boolean isTransientLockFailure(SQLException e) {
+        String state = e.getSQLState();
+        return (state != null && state.startsWith("40")) || e.getErrorCode() == 1205 || e.getErrorCode() == 1213;
+    }
+    
+    private void backoff(int attempt) throws SQLException {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(5, 20L * attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while retrying booking", e);
         }
     }
     
@@ -140,7 +486,8 @@ public class BookingManager {
      * Handle booking when train is full (add to RAC or waitlist)
      */
     private BookingResult handleRACWaitlistBooking(int userId, int trainId, int routeId, 
-                                                  String passengerName, int passengerAge) throws SQLException {
+                                                  String passengerName, int passengerAge, LocalDate journeyDate,
+                                                  int fromOrdinal, int toOrdinal) throws SQLException {
         
         // Enhanced validation for input parameters
         if (passengerName == null) {
@@ -183,100 +530,98 @@ public class BookingManager {
                           ", trainId: " + trainId + ", routeId: " + routeId + 
                           ", passengerName: '" + passengerName + "' (length: " + passengerName.length() + "), passengerAge: " + passengerAge);
         
-        Connection conn = dbManager.getConnection();
-        conn.setAutoCommit(false);
+        try (Connection conn = dbManager.getConnection()) {
+            conn.setAutoCommit(false);
         
-        try {
-            // Check RAC availability (maximum 100 RAC positions)
-            int racCount = racQueue.getRACCount(trainId, routeId);
-            String status;
-            String message;
+            try {
+                // Check RAC availability on this transaction's connection
+                int racCount = racQueue.getRACCount(conn, trainId, routeId);
+                String status = racCount < RACQueue.MAX_RAC_ENTRIES ? "RAC" : "Waiting";
             
-            if (racCount < 100) {
-                status = "RAC";
-                message = "Added to RAC. Position: " + (racCount + 1);
-            } else {
-                status = "Waiting";
-                // Get waitlist position
-                int waitlistCount = waitlistManager.getWaitlistCount(trainId, routeId);
-                message = "Added to waitlist. Position: " + (waitlistCount + 1);
-            }
-            
-            System.out.println("DEBUG: Booking status determined as: " + status);
+                System.out.println("DEBUG: Booking status determined as: " + status);
             
-            // Create booking record with passenger details
-            String bookingQuery = """
-                INSERT INTO bookings (user_id, seat_id, train_id, route_id, passenger_name, passenger_age, status)
-                VALUES (?, NULL, ?, ?, ?, ?, ?)
-                """;
+                // Create booking record with passenger details
+                String bookingQuery = """
+                    INSERT INTO bookings (user_id, seat_id, train_id, route_id, passenger_name, passenger_age, status, journey_date, pnr_number,
+                                          from_ordinal, to_ordinal)
+                    VALUES (?, NULL, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                    """;
             
-            int bookingId;
-            try (PreparedStatement pstmt = conn.prepareStatement(bookingQuery, Statement.RETURN_GENERATED_KEYS)) {
-                pstmt.setInt(1, userId);        // Position 1: user_id
-                pstmt.setInt(2, trainId);       // Position 3: train_id (Position 2 is NULL for seat_id)
-                pstmt.setInt(3, routeId);       // Position 4: route_id
+                int bookingId;
+                try (PreparedStatement pstmt = conn.prepareStatement(bookingQuery, Statement.RETURN_GENERATED_KEYS)) {
+                    pstmt.setInt(1, userId);        // Position 1: user_id
+                    pstmt.setInt(2, trainId);       // Position 3: train_id (Position 2 is NULL for seat_id)
+                    pstmt.setInt(3, routeId);       // Position 4: route_id
                 
-                // Extra safety check before setting passenger name
-                if (passengerName == null || passengerName.trim().isEmpty()) {
-                    throw new SQLException("CRITICAL: Passenger name is null or empty at SQL execution for RAC/Waitlist");
-                }
-                pstmt.setString(4, passengerName);  // Position 5: passenger_name
-                pstmt.setInt(5, passengerAge);      // Position 6: passenger_age
-                pstmt.setString(6, status);         // Position 7: status
+                    // Extra safety check before setting passenger name
+                    if (passengerName == null || passengerName.trim().isEmpty()) {
+                        throw new SQLException("CRITICAL: Passenger name is null or empty at SQL execution for RAC/Waitlist");
+                    }
+                    pstmt.setString(4, passengerName);  // Position 5: passenger_name
+                    pstmt.setInt(5, passengerAge);      // Position 6: passenger_age
+                    pstmt.setString(6, status);         // Position 7: status
+                    pstmt.setDate(7, Date.valueOf(journeyDate)); // Position 8: journey_date
+                    pstmt.setString(8, ids.nextPnr());            // Position 9: pnr_number
+                    setOrdinal(pstmt, 9, fromOrdinal);            // Position 10: from_ordinal
+                    setOrdinal(pstmt, 10, toOrdinal);             // Position 11: to_ordinal
                 
-                System.out.println("DEBUG: Executing booking insert with parameters: " +
-                                 "userId=" + userId + ", trainId=" + trainId + ", routeId=" + routeId + 
-                                 ", passengerName='" + passengerName + "' (length: " + passengerName.length() + "), passengerAge=" + passengerAge + 
-                                 ", status='" + status + "'");
+                    System.out.println("DEBUG: Executing booking insert with parameters: " +
+                                     "userId=" + userId + ", trainId=" + trainId + ", routeId=" + routeId + 
+                                     ", passengerName='" + passengerName + "' (length: " + passengerName.length() + "), passengerAge=" + passengerAge + 
+                                     ", status='" + status + "'");
                 
-                pstmt.executeUpdate();
+                    pstmt.executeUpdate();
                 
-                try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        bookingId = rs.getInt(1);
-                        System.out.println("DEBUG: Booking created with ID: " + bookingId);
+                    try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                        if (rs.next()) {
+                            bookingId = rs.getInt(1);
+                            System.out.println("DEBUG: Booking created with ID: " + bookingId);
+                        } else {
+                            throw new SQLException("Failed to get booking ID");
+                        }
+                    }
+                } catch (SQLException sqlEx) {
+                    // Enhanced error handling for passenger_name issues
+                    if (sqlEx.getMessage().contains("passenger_name") && 
+                        sqlEx.getMessage().toLowerCase().contains("default value")) {
+                        System.err.println("CRITICAL ERROR: passenger_name constraint violation in RAC/Waitlist");
+                        System.err.println("Passenger name value: '" + passengerName + "'");
+                        System.err.println("Passenger name length: " + (passengerName != null ? passengerName.length() : "NULL"));
+                        throw new SQLException("Invalid passenger name for RAC/Waitlist booking - ensure name is at least 2 characters and contains valid characters", sqlEx);
                     } else {
-                        throw new SQLException("Failed to get booking ID");
+                        throw sqlEx;
                     }
                 }
-            } catch (SQLException sqlEx) {
-                // Enhanced error handling for passenger_name issues
-                if (sqlEx.getMessage().contains("passenger_name") && 
-                    sqlEx.getMessage().toLowerCase().contains("default value")) {
-                    System.err.println("CRITICAL ERROR: passenger_name constraint violation in RAC/Waitlist");
-                    System.err.println("Passenger name value: '" + passengerName + "'");
-                    System.err.println("Passenger name length: " + (passengerName != null ? passengerName.length() : "NULL"));
-                    throw new SQLException("Invalid passenger name for RAC/Waitlist booking - ensure name is at least 2 characters and contains valid characters", sqlEx);
+            
+                // Add to appropriate queue; the position is the entry's rank, read in this transaction
+                String message;
+                if ("RAC".equals(status)) {
+                    int racId = racQueue.addToRAC(conn, userId, trainId, routeId, bookingId);
+                    message = "Added to RAC. Position: " + QueuePositions.rank(conn, QueuePositions.Queue.RAC, racId);
                 } else {
-                    throw sqlEx;
+                    int waitlistId = waitlistManager.addToWaitlist(conn, userId, trainId, routeId, bookingId);
+                    message = "Added to waitlist. Position: " + waitlistManager.getWaitlistPosition(conn, waitlistId);
                 }
-            }
             
-            // Add to appropriate queue
-            if ("RAC".equals(status)) {
-                racQueue.addToRAC(userId, trainId, routeId);
-            } else {
-                waitlistManager.addToWaitlist(userId, trainId, routeId);
-            }
+                conn.commit();
+                return new BookingResult(true, message, bookingId, status);
             
-            conn.commit();
-            return new BookingResult(true, message, bookingId, status);
-            
-        } catch (SQLException e) {
-            conn.rollback();
-            throw e;
-        } finally {
-            conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         }
     }
 
     private BookingResult handleFullBooking(int userId, int trainId, int routeId, 
                                           String passengerName, int passengerAge) throws SQLException {
-        // Check RAC availability (maximum 100 RAC positions)
+        // Check RAC availability
         int racCount = racQueue.getRACCount(trainId, routeId);
-        if (racCount < 100) {
+        if (racCount < RACQueue.MAX_RAC_ENTRIES) {
             int racId = racQueue.addToRAC(userId, trainId, routeId);
-            return new BookingResult(true, "Added to RAC. Position: " + (racCount + 1), racId, "RAC");
+            return new BookingResult(true, "Added to RAC. Position: " + racQueue.getRACPosition(racId), racId, "RAC");
         } else {
             // Add to waitlist
             int waitlistId = waitlistManager.addToWaitlist(userId, trainId, routeId);
@@ -289,100 +634,260 @@ public class BookingManager {
      * Cancel a booking
      */
     public boolean cancelBooking(int bookingId) throws SQLException {
-        Connection conn = dbManager.getConnection();
-        conn.setAutoCommit(false);
+        return cancelBookings(List.of(bookingId)) > 0;
+    }
+    
+    /**
+     * Cancel many bookings at once (a whole coach, a cancelled run) and move the
+     * RAC and waitlist queues up behind them. Bookings are handled in chunks of
+     * CANCEL_BATCH_SIZE, one transaction each, with a fixed number of statements
+     * per journey rather than per booking. Bookings already cancelled are skipped.
+     * Returns how many bookings were cancelled.
+     */
+    public int cancelBookings(List<Integer> bookingIds) throws SQLException {
+        return cancelBookings(bookingIds, true);
+    }
+    
+    /**
+     * Cancel bookings, optionally without handing their seats to the queues
+     * (a whole run being cancelled, or bookings dropped at chart preparation)
+     */
+    int cancelBookings(List<Integer> bookingIds, boolean promote) throws SQLException {
+        PromotionEngine engine = PromotionEngine.getInstance();
+        int cancelled = 0;
         
-        try {
-            // Get booking details
-            BookingDetails booking = getBookingById(bookingId);
-            if (booking == null) {
-                return false;
-            }
-            
-            // Update booking status
-            String updateQuery = "UPDATE bookings SET status = 'Cancelled' WHERE booking_id = ?";
-            try (PreparedStatement pstmt = conn.prepareStatement(updateQuery)) {
-                pstmt.setInt(1, bookingId);
-                pstmt.executeUpdate();
-            }
+        for (int from = 0; from < bookingIds.size(); from += CANCEL_BATCH_SIZE) {
+            List<Integer> chunk = bookingIds.subList(from, Math.min(from + CANCEL_BATCH_SIZE, bookingIds.size()));
+            List<PromotionEngine.PromotionEvent> events = new ArrayList<>();
+            cancelled += cancelChunk(chunk, promote ? engine.newBatch() : null, events);
+            // Only committed promotions are announced
+            engine.publish(events);
+        }
+        
+        return cancelled;
+    }
+    
+    /**
+     * Cancel one chunk of bookings and apply the promotions it frees (none if
+     * promotions is null), in one transaction
+     */
+    private int cancelChunk(List<Integer> bookingIds, PromotionEngine.Batch promotions,
+                            List<PromotionEngine.PromotionEvent> events) throws SQLException {
+        SeatInventory inventory = SeatInventory.getInstance();
+        
+        try (Connection conn = dbManager.getConnection()) {
+            conn.setAutoCommit(false);
+        
+            try {
+                // Lock the bookings still to cancel
+                String selectQuery = """
+                    SELECT booking_id, seat_id, train_id, route_id, status, journey_date, from_ordinal, to_ordinal
+                    FROM bookings
+                    WHERE booking_id IN (%s) AND status <> 'Cancelled'
+                    FOR UPDATE
+                    """.formatted(placeholders(bookingIds.size()));
+                
+                List<Integer> toCancel = new ArrayList<>();
+                List<Integer> queued = new ArrayList<>();
+                Map<String, ReleasedSeats> releasedSeats = new LinkedHashMap<>();
+                
+                try (PreparedStatement pstmt = conn.prepareStatement(selectQuery)) {
+                    bindIds(pstmt, 1, bookingIds);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            int bookingId = rs.getInt("booking_id");
+                            int seatId = rs.getInt("seat_id");
+                            int trainId = rs.getInt("train_id");
+                            int routeId = rs.getInt("route_id");
+                            String status = rs.getString("status");
+                            Date date = rs.getDate("journey_date");
+                            LocalDate journeyDate = date != null ? date.toLocalDate() : null;
+                            int fromOrdinal = getOrdinal(rs, "from_ordinal");
+                            int toOrdinal = getOrdinal(rs, "to_ordinal");
+                            toCancel.add(bookingId);
+                            
+                            if (seatId > 0) {
+                                String key = trainId + ":" + routeId + ":" + journeyDate + ":" + fromOrdinal + ":" + toOrdinal;
+                                releasedSeats.computeIfAbsent(key,
+                                                              k -> new ReleasedSeats(trainId, routeId, journeyDate, fromOrdinal, toOrdinal))
+                                             .seatIds.add(seatId);
+                                if (promotions != null) {
+                                    promotions.seatFreed(trainId, routeId, journeyDate, seatId);
+                                }
+                            } else if ("RAC".equals(status) || "Waiting".equals(status)) {
+                                queued.add(bookingId);
+                                if ("RAC".equals(status) && promotions != null) {
+                                    promotions.racPlaceFreed(trainId, routeId, journeyDate);
+                                }
+                            }
+                        }
+                    }
+                }
+                
+                if (toCancel.isEmpty()) {
+                    conn.rollback();
+                    return 0;
+                }
+                
+                String updateQuery = "UPDATE bookings SET status = 'Cancelled' WHERE booking_id IN (%s)"
+                    .formatted(placeholders(toCancel.size()));
+                try (PreparedStatement pstmt = conn.prepareStatement(updateQuery)) {
+                    bindIds(pstmt, 1, toCancel);
+                    pstmt.executeUpdate();
+                }
             
-            // Make seat available again
-            if (booking.getSeatId() > 0) {
-                seatManager.updateSeatAvailability(booking.getSeatId(), true);
+                // Make the seats available again, one UPDATE per journey and segment
+                for (ReleasedSeats released : releasedSeats.values()) {
+                    if (released.journeyDate != null) {
+                        inventory.releaseAll(conn, released.trainId, released.routeId, released.fromOrdinal,
+                                             released.toOrdinal, released.journeyDate, released.seatIds);
+                    } else {
+                        // Booked before the segment inventory existed - it blocked the seats globally
+                        for (Integer seatId : released.seatIds) {
+                            seatManager.updateSeatAvailability(conn, seatId, true);
+                        }
+                        inventory.invalidateTrain(released.trainId);
+                    }
+                }
                 
-                // Promote from RAC or waitlist
-                promoteFromQueue(booking.getTrainId(), booking.getRouteId());
-            }
+                // Queued bookings leave their queue; nobody behind them is renumbered
+                if (!queued.isEmpty()) {
+                    for (QueuePositions.Queue queue : QueuePositions.Queue.values()) {
+                        String deleteQuery = "DELETE FROM %s WHERE booking_id IN (%s)"
+                            .formatted(queue.getTable(), placeholders(queued.size()));
+                        try (PreparedStatement pstmt = conn.prepareStatement(deleteQuery)) {
+                            bindIds(pstmt, 1, queued);
+                            pstmt.executeUpdate();
+                        }
+                    }
+                }
+                
+                // Freed seats go to RAC, freed RAC places to the waitlist
+                if (promotions != null) {
+                    events.addAll(promotions.apply(conn));
+                }
             
-            conn.commit();
-            return true;
+                conn.commit();
+                return toCancel.size();
             
-        } catch (SQLException e) {
-            conn.rollback();
-            throw e;
-        } finally {
-            conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                conn.rollback();
+                events.clear();
+                inventory.invalidateAll();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         }
     }
     
     /**
-     * Promote passengers from RAC or waitlist when seat becomes available
+     * Get all bookings for a specific user, newest first. Read page by page, so
+     * each query stays small; screens over long histories should use the
+     * paged overload.
      */
-    private void promoteFromQueue(int trainId, int routeId) throws SQLException {
-        // First try to promote from RAC
-        if (racQueue.promoteFromRAC(trainId, routeId)) {
-            return;
-        }
-        
-        // Then try to promote from waitlist
-        waitlistManager.promoteFromWaitlist(trainId, routeId);
+    public List<BookingDetails> getBookingsForUser(int userId) throws SQLException {
+        List<BookingDetails> bookings = new ArrayList<>();
+        PageCursor cursor = null;
+        do {
+            BookingPage page = getBookingsForUser(userId, cursor, MAX_PAGE_SIZE);
+            bookings.addAll(page.getBookings());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return bookings;
     }
     
     /**
-     * Get bookings for a user
+     * One page of a user's bookings, newest first, starting after the cursor
+     * (null for the first page)
      */
+    public BookingPage getBookingsForUser(int userId, PageCursor after, int pageSize) throws SQLException {
+        return loadBookingPage(userId, after, pageSize);
+    }
+    
     /**
-     * Get all bookings for a specific user
-     * Uses a subquery to get only the latest payment for each booking to avoid duplicates
+     * One page of all bookings for the admin view, newest first, starting after
+     * the cursor (null for the first page)
      */
-    public List<BookingDetails> getBookingsForUser(int userId) throws SQLException {
-        List<BookingDetails> bookings = new ArrayList<>();
+    public BookingPage getAllBookings(PageCursor after, int pageSize) throws SQLException {
+        return loadBookingPage(null, after, pageSize);
+    }
+    
+    /**
+     * Keyset page over (booking_time, booking_id) descending: the cursor is the
+     * last row of the previous page, so every page is an index range scan of
+     * pageSize + 1 rows however deep it is. Details and the latest payment are
+     * joined for the page's rows only.
+     */
+    private BookingPage loadBookingPage(Integer userId, PageCursor after, int pageSize) throws SQLException {
+        int limit = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+        
+        List<String> filters = new ArrayList<>();
+        if (userId != null) {
+            filters.add("user_id = ?");
+        }
+        if (after != null) {
+            filters.add("(booking_time < ? OR (booking_time = ? AND booking_id < ?))");
+        }
+        String where = filters.isEmpty() ? "" : "WHERE " + String.join(" AND ", filters);
         
         String query = """
+            WITH page AS (
+                SELECT booking_id, user_id, seat_id, train_id, route_id,
+                       passenger_name, passenger_age, booking_time, status, journey_date
+                FROM bookings
+                %s
+                ORDER BY booking_time DESC, booking_id DESC
+                LIMIT ?
+            ),
+            latest_payment AS (
+                SELECT p.booking_id, p.amount, p.status,
+                       ROW_NUMBER() OVER (PARTITION BY p.booking_id
+                                          ORDER BY p.payment_time DESC, p.payment_id DESC) AS payment_rank
+                FROM payments p
+                JOIN page ON p.booking_id = page.booking_id
+            )
             SELECT b.booking_id, b.user_id, b.seat_id, b.train_id, b.route_id,
-                   b.passenger_name, b.passenger_age, b.booking_time, b.status,
+                   b.passenger_name, b.passenger_age, b.booking_time, b.status, b.journey_date,
                    t.train_name, t.train_number,
                    r.source_station, r.destination_station, r.departure_time, r.arrival_time, r.price,
                    s.seat_number, s.berth_type,
                    c.compartment_name, cl.class_type,
-                   p.amount as payment_amount, p.status as payment_status
-            FROM bookings b
+                   u.username,
+                   lp.amount as payment_amount, lp.status as payment_status
+            FROM page b
             JOIN trains t ON b.train_id = t.train_id
             JOIN routes r ON b.route_id = r.route_id
             LEFT JOIN seats s ON b.seat_id = s.seat_id
             LEFT JOIN compartments c ON s.compartment_id = c.compartment_id
             LEFT JOIN classes cl ON c.class_id = cl.class_id
-            LEFT JOIN (
-                SELECT p1.booking_id, p1.amount, p1.status, p1.payment_time
-                FROM payments p1
-                WHERE p1.payment_time = (
-                    SELECT MAX(p2.payment_time) 
-                    FROM payments p2 
-                    WHERE p2.booking_id = p1.booking_id
-                )
-            ) p ON b.booking_id = p.booking_id
-            WHERE b.user_id = ?
-            ORDER BY b.booking_time DESC
-            """;
+            LEFT JOIN users u ON b.user_id = u.user_id
+            LEFT JOIN latest_payment lp ON lp.booking_id = b.booking_id AND lp.payment_rank = 1
+            ORDER BY b.booking_time DESC, b.booking_id DESC
+            """.formatted(where);
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
-            pstmt.setInt(1, userId);
+        List<BookingDetails> bookings = new ArrayList<>();
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            int index = 1;
+            if (userId != null) {
+                pstmt.setInt(index++, userId);
+            }
+            if (after != null) {
+                Timestamp afterTime = Timestamp.valueOf(after.getBookingTime());
+                pstmt.setTimestamp(index++, afterTime);
+                pstmt.setTimestamp(index++, afterTime);
+                pstmt.setInt(index++, after.getBookingId());
+            }
+            // One extra row tells whether another page follows
+            pstmt.setInt(index, limit + 1);
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
                     BookingDetails booking = new BookingDetails();
                     booking.setBookingId(rs.getInt("booking_id"));
                     booking.setUserId(rs.getInt("user_id"));
+                    booking.setUsername(rs.getString("username"));
                     booking.setSeatId(rs.getInt("seat_id"));
                     booking.setTrainId(rs.getInt("train_id"));
                     booking.setRouteId(rs.getInt("route_id"));
@@ -390,6 +895,8 @@ public class BookingManager {
                     booking.setPassengerAge(rs.getInt("passenger_age"));
                     booking.setBookingTime(rs.getTimestamp("booking_time").toLocalDateTime());
                     booking.setStatus(rs.getString("status"));
+                    Date journeyDate = rs.getDate("journey_date");
+                    booking.setJourneyDate(journeyDate != null ? journeyDate.toLocalDate() : null);
                     booking.setTrainName(rs.getString("train_name"));
                     booking.setTrainNumber(rs.getString("train_number"));
                     booking.setSourceStation(rs.getString("source_station"));
@@ -411,7 +918,13 @@ public class BookingManager {
             }
         }
         
-        return bookings;
+        PageCursor next = null;
+        if (bookings.size() > limit) {
+            bookings.remove(limit);
+            BookingDetails last = bookings.get(limit - 1);
+            next = new PageCursor(last.getBookingTime(), last.getBookingId());
+        }
+        return new BookingPage(bookings, next);
     }
     
     /**
@@ -420,7 +933,7 @@ public class BookingManager {
     public BookingDetails getBookingById(int bookingId) throws SQLException {
         String query = """
             SELECT b.booking_id, b.user_id, b.seat_id, b.train_id, b.route_id,
-                   b.passenger_name, b.passenger_age, b.booking_time, b.status,
+                   b.passenger_name, b.passenger_age, b.booking_time, b.status, b.journey_date,
                    t.train_name, t.train_number,
                    r.source_station, r.destination_station, r.departure_time, r.arrival_time, r.price
             FROM bookings b
@@ -429,7 +942,8 @@ public class BookingManager {
             WHERE b.booking_id = ?
             """;
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, bookingId);
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -444,6 +958,8 @@ public class BookingManager {
                     booking.setPassengerAge(rs.getInt("passenger_age"));
                     booking.setBookingTime(rs.getTimestamp("booking_time").toLocalDateTime());
                     booking.setStatus(rs.getString("status"));
+                    Date journeyDate = rs.getDate("journey_date");
+                    booking.setJourneyDate(journeyDate != null ? journeyDate.toLocalDate() : null);
                     booking.setTrainName(rs.getString("train_name"));
                     booking.setTrainNumber(rs.getString("train_number"));
                     booking.setSourceStation(rs.getString("source_station"));
@@ -463,35 +979,148 @@ public class BookingManager {
     /**
      * Create payment record
      */
-    private void createPayment(int bookingId, BigDecimal amount) throws SQLException {
-        String query = "INSERT INTO payments (booking_id, amount, status) VALUES (?, ?, 'Success')";
+    private void createPayment(Connection conn, int bookingId, BigDecimal amount) throws SQLException {
+        String query = "INSERT INTO payments (booking_id, amount, status, transaction_id) VALUES (?, ?, 'Success', ?)";
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, bookingId);
             pstmt.setBigDecimal(2, amount);
+            pstmt.setString(3, ids.nextTransactionId());
             pstmt.executeUpdate();
         }
     }
     
+    
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+    
+    private static void bindIds(PreparedStatement pstmt, int firstIndex, List<Integer> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            pstmt.setInt(firstIndex + i, ids.get(i));
+        }
+    }
+    
     /**
-     * Get route price
+     * Bind a booking's stop ordinal; the whole route is stored as NULL
      */
-    private BigDecimal getRoutePrice(int routeId) throws SQLException {
-        String query = "SELECT price FROM routes WHERE route_id = ?";
-        
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
-            pstmt.setInt(1, routeId);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getBigDecimal("price");
-                }
-            }
+    static void setOrdinal(PreparedStatement pstmt, int index, int ordinal) throws SQLException {
+        if (ordinal == FareEngine.WHOLE_ROUTE) {
+            pstmt.setNull(index, Types.INTEGER);
+        } else {
+            pstmt.setInt(index, ordinal);
         }
+    }
+    
+    /**
+     * Read a booking's stop ordinal; NULL (bookings made for the whole route) is WHOLE_ROUTE
+     */
+    static int getOrdinal(ResultSet rs, String column) throws SQLException {
+        int ordinal = rs.getInt(column);
+        return rs.wasNull() ? FareEngine.WHOLE_ROUTE : ordinal;
+    }
+    
+    /**
+     * Seats freed by a cancellation chunk on one journey, between the same stops
+     */
+    private static class ReleasedSeats {
+        private final int trainId;
+        private final int routeId;
+        private final LocalDate journeyDate;
+        private final int fromOrdinal;
+        private final int toOrdinal;
+        private final List<Integer> seatIds = new ArrayList<>();
         
-        return BigDecimal.ZERO;
+        ReleasedSeats(int trainId, int routeId, LocalDate journeyDate, int fromOrdinal, int toOrdinal) {
+            this.trainId = trainId;
+            this.routeId = routeId;
+            this.journeyDate = journeyDate;
+            this.fromOrdinal = fromOrdinal;
+            this.toOrdinal = toOrdinal;
+        }
     }
 
+    /**
+     * Position in the booking history: the last booking of a page
+     */
+    public static class PageCursor {
+        private final LocalDateTime bookingTime;
+        private final int bookingId;
+        
+        public PageCursor(LocalDateTime bookingTime, int bookingId) {
+            this.bookingTime = bookingTime;
+            this.bookingId = bookingId;
+        }
+        
+        public LocalDateTime getBookingTime() { return bookingTime; }
+        public int getBookingId() { return bookingId; }
+    }
+    
+    /**
+     * One page of bookings and the cursor of the next one (null on the last page)
+     */
+    public static class BookingPage {
+        private final List<BookingDetails> bookings;
+        private final PageCursor nextCursor;
+        
+        public BookingPage(List<BookingDetails> bookings, PageCursor nextCursor) {
+            this.bookings = bookings;
+            this.nextCursor = nextCursor;
+        }
+        
+        public List<BookingDetails> getBookings() { return bookings; }
+        public PageCursor getNextCursor() { return nextCursor; }
+        public boolean hasMore() { return nextCursor != null; }
+    }
+    
+    /**
+     * One passenger of a group booking
+     */
+    public static class PassengerRequest {
+        private int userId;
+        private int seatId;
+        private int trainId;
+        private int routeId;
+        private String passengerName;
+        private int passengerAge;
+        private LocalDate journeyDate;
+        private int fromOrdinal;
+        private int toOrdinal;
+        
+        public PassengerRequest(int userId, int seatId, int trainId, int routeId,
+                                String passengerName, int passengerAge, LocalDate journeyDate) {
+            this(userId, seatId, trainId, routeId, passengerName, passengerAge, journeyDate,
+                 FareEngine.WHOLE_ROUTE, FareEngine.WHOLE_ROUTE);
+        }
+        
+        /**
+         * A passenger travelling between two stops of the route (stop ordinals), for the fare
+         */
+        public PassengerRequest(int userId, int seatId, int trainId, int routeId,
+                                String passengerName, int passengerAge, LocalDate journeyDate,
+                                int fromOrdinal, int toOrdinal) {
+            this.userId = userId;
+            this.seatId = seatId;
+            this.trainId = trainId;
+            this.routeId = routeId;
+            this.passengerName = passengerName;
+            this.passengerAge = passengerAge;
+            this.journeyDate = journeyDate;
+            this.fromOrdinal = fromOrdinal;
+            this.toOrdinal = toOrdinal;
+        }
+        
+        public int getUserId() { return userId; }
+        public int getSeatId() { return seatId; }
+        public int getTrainId() { return trainId; }
+        public int getRouteId() { return routeId; }
+        public String getPassengerName() { return passengerName; }
+        public int getPassengerAge() { return passengerAge; }
+        public LocalDate getJourneyDate() { return journeyDate; }
+        public int getFromOrdinal() { return fromOrdinal; }
+        public int getToOrdinal() { return toOrdinal; }
+    }
+    
     /**
      * Inner class for booking results
      */
@@ -500,18 +1129,26 @@ public class BookingManager {
         private String message;
         private int id;
         private String status;
+        private int seatId;
         
         public BookingResult(boolean success, String message, int id, String status) {
+            this(success, message, id, status, -1);
+        }
+        
+        public BookingResult(boolean success, String message, int id, String status, int seatId) {
             this.success = success;
             this.message = message;
             this.id = id;
             this.status = status;
+            this.seatId = seatId;
         }
         
         public boolean isSuccess() { return success; }
         public String getMessage() { return message; }
         public int getId() { return id; }
         public String getStatus() { return status; }
+        /** Seat actually booked (may differ from the one requested), -1 for RAC/waitlist */
+        public int getSeatId() { return seatId; }
     }
     
     /**
@@ -527,6 +1164,7 @@ public class BookingManager {
         private String passengerName;
         private int passengerAge;
         private LocalDateTime bookingTime;
+        private LocalDate journeyDate;
         private String status;
         private String trainName;
         private String trainNumber;
@@ -570,6 +1208,9 @@ public class BookingManager {
         public LocalDateTime getBookingTime() { return bookingTime; }
         public void setBookingTime(LocalDateTime bookingTime) { this.bookingTime = bookingTime; }
         
+        public LocalDate getJourneyDate() { return journeyDate; }
+        public void setJourneyDate(LocalDate journeyDate) { this.journeyDate = journeyDate; }
+        
         public String getStatus() { return status; }
         public void setStatus(String status) { this.status = status; }
         
@@ -618,68 +1259,4 @@ public class BookingManager {
                    sourceStation + " to " + destinationStation + " - " + status;
         }
     }
-    
-    /**
-     * Get all bookings for admin view
-     */
-    public List<BookingDetails> getAllBookings() throws SQLException {
-        List<BookingDetails> bookings = new ArrayList<>();
-        
-        String query = """
-            SELECT b.booking_id, b.user_id, b.passenger_name, b.passenger_age, b.status, b.booking_time,
-                   t.train_name, t.train_number,
-                   r.source_station, r.destination_station, r.price,
-                   s.seat_number, s.berth_type,
-                   c.compartment_name, cl.class_type,
-                   u.username,
-                   p.amount as payment_amount, p.status as payment_status
-            FROM bookings b
-            JOIN trains t ON b.train_id = t.train_id
-            JOIN routes r ON b.route_id = r.route_id
-            LEFT JOIN seats s ON b.seat_id = s.seat_id
-            LEFT JOIN compartments c ON s.compartment_id = c.compartment_id
-            LEFT JOIN classes cl ON c.class_id = cl.class_id
-            LEFT JOIN users u ON b.user_id = u.user_id
-            LEFT JOIN payments p ON b.booking_id = p.booking_id
-            ORDER BY b.booking_time DESC
-            """;
-        
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query);
-             ResultSet rs = pstmt.executeQuery()) {
-            
-            while (rs.next()) {
-                BookingDetails booking = new BookingDetails();
-                booking.setBookingId(rs.getInt("booking_id"));
-                booking.setUserId(rs.getInt("user_id"));
-                booking.setUsername(rs.getString("username"));
-                booking.setPassengerName(rs.getString("passenger_name"));
-                booking.setPassengerAge(rs.getInt("passenger_age"));
-                booking.setStatus(rs.getString("status"));
-                booking.setBookingTime(rs.getTimestamp("booking_time").toLocalDateTime());
-                booking.setTrainName(rs.getString("train_name"));
-                booking.setTrainNumber(rs.getString("train_number"));
-                booking.setSourceStation(rs.getString("source_station"));
-                booking.setDestinationStation(rs.getString("destination_station"));
-                booking.setPrice(rs.getBigDecimal("price"));
-                booking.setSeatNumber(rs.getString("seat_number"));
-                booking.setBerthType(rs.getString("berth_type"));
-                booking.setCompartmentName(rs.getString("compartment_name"));
-                booking.setClassType(rs.getString("class_type"));
-                
-                BigDecimal paymentAmount = rs.getBigDecimal("payment_amount");
-                if (paymentAmount != null) {
-                    booking.setPaymentAmount(paymentAmount);
-                }
-                
-                String paymentStatus = rs.getString("payment_status");
-                if (paymentStatus != null) {
-                    booking.setPaymentStatus(paymentStatus);
-                }
-                
-                bookings.add(booking);
-            }
-        }
-        
-        return bookings;
-    }
 }
@@ -0,0 +1,385 @@
+package BookMyTrainTicket;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency stress test for BookingManager.createBooking
+ *
+ * Starts many bookers at once, all asking for a handful of "hot" seats on the
+ * same train, route and date, through the shared connection pool. A booker
+ * that finds no seat is queued on RAC/waitlist; any exception fails the run.
+ * Afterwards checks that no two confirmed bookings of a seat overlap on a
+ * segment of the journey (whatever their routes) and that each seat's
+ * occupied_mask is exactly the union of its bookings' segments, then reports
+ * throughput. A second check cancels three confirmed bookings while only one
+ * RAC passenger is queued: that passenger must get exactly one of the freed
+ * seats and the other two must be left free.
+ * Uses journey dates years ahead and removes everything it created.
+ *
+ * Usage: BookingStressTest [bookers] [hotSeats]
+ */
+public class BookingStressTest {
+    public static void main(String[] args) {
+        int bookers = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int hotSeats = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        try {
+            System.out.println("Testing concurrent bookings: " + bookers + " bookers on " + hotSeats + " hot seats...");
+            BookingManager bookingManager = new BookingManager();
+
+            int[] target = findTrainAndRoute();
+            int trainId = target[0];
+            int routeId = target[1];
+            int userId = findUserId("john_doe");
+            List<Integer> seatIds = findSeats(trainId, hotSeats);
+            LocalDate journeyDate = LocalDate.now().plusYears(5).plusDays(System.nanoTime() % 365);
+            Timestamp startedAt = databaseNow();
+            cleanUp(trainId, userId, journeyDate, startedAt);
+
+            AtomicInteger confirmed = new AtomicInteger();
+            AtomicInteger reassigned = new AtomicInteger();
+            AtomicInteger queued = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            CountDownLatch startGate = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(bookers);
+
+            for (int i = 0; i < bookers; i++) {
+                int requestedSeat = seatIds.get(i % seatIds.size());
+                executor.submit(() -> {
+                    try {
+                        startGate.await();
+                        BookingManager.BookingResult result = bookingManager.createBooking(
+                            userId, requestedSeat, trainId, routeId, "Stress Passenger", 30, journeyDate);
+                        if ("Confirmed".equals(result.getStatus())) {
+                            confirmed.incrementAndGet();
+                            if (result.getSeatId() != requestedSeat) {
+                                reassigned.incrementAndGet();
+                            }
+                        } else {
+                            queued.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        System.err.println("Booking failed: " + e.getMessage());
+                    }
+                    return null;
+                });
+            }
+
+            long start = System.nanoTime();
+            startGate.countDown();
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.MINUTES);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            Map<Integer, Long> bookedMasks = new HashMap<>();
+            int doubleBooked = countOverlappingSeats(trainId, journeyDate, bookedMasks);
+            int confirmedRows = countConfirmedBookings(trainId, journeyDate);
+            int mismatchedSeats = countInventoryMismatches(trainId, journeyDate, bookedMasks);
+
+            System.out.println("\n=== Booking stress results ===");
+            System.out.println("Confirmed         : " + confirmed.get() + " (" + reassigned.get() + " on a nearby seat)");
+            System.out.println("RAC / waitlisted  : " + queued.get());
+            System.out.println("Failed            : " + failed.get());
+            System.out.println(String.format("Elapsed           : %.2fs (%.1f bookings/s)", seconds, bookers / seconds));
+            System.out.println("Pool              : " + DatabaseManager.getPoolStats());
+            System.out.println("Double-booked     : " + doubleBooked + " seat(s) with overlapping segments");
+            System.out.println("Confirmed rows    : " + confirmedRows + ", seats not matching inventory: " + mismatchedSeats);
+
+            cleanUp(trainId, userId, journeyDate, startedAt);
+            SeatInventory.getInstance().evict(trainId, journeyDate);
+
+            if (failed.get() > 0) {
+                System.err.println("FAILED: " + failed.get() + " booking(s) ended in an error instead of a seat or a queue place");
+                System.exit(1);
+            }
+            if (doubleBooked > 0 || confirmedRows != confirmed.get() || mismatchedSeats > 0) {
+                System.err.println("FAILED: seat inventory is inconsistent with bookings");
+                System.exit(1);
+            }
+
+            LocalDate promotionDate = journeyDate.plusDays(1);
+            cleanUp(trainId, userId, promotionDate, startedAt);
+            String promotionProblem = checkShortQueuePromotion(bookingManager, trainId, routeId, userId,
+                                                               seatIds.subList(0, Math.min(3, seatIds.size())),
+                                                               promotionDate);
+            cleanUp(trainId, userId, promotionDate, startedAt);
+            SeatInventory.getInstance().evict(trainId, promotionDate);
+            if (promotionProblem != null) {
+                System.err.println("FAILED: short queue promotion - " + promotionProblem);
+                System.exit(1);
+            }
+            System.out.println("Short queue promotion: one RAC passenger got one of the freed seats");
+            System.out.println("Booking stress test passed!");
+
+        } catch (SQLException e) {
+            System.err.println("Database error during stress test: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Stress test interrupted");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Book the seats, queue one RAC passenger, cancel the bookings in one
+     * batch and check the promotion; returns what went wrong, or null
+     */
+    private static String checkShortQueuePromotion(BookingManager bookingManager, int trainId, int routeId, int userId,
+                                                   List<Integer> seatIds, LocalDate journeyDate) throws SQLException {
+        List<Integer> bookingIds = new ArrayList<>();
+        for (Integer seatId : seatIds) {
+            BookingManager.BookingResult result = bookingManager.createBooking(
+                userId, seatId, trainId, routeId, "Promotion Passenger", 30, journeyDate);
+            if (!"Confirmed".equals(result.getStatus())) {
+                return "could not book seat " + seatId + ": " + result.getMessage();
+            }
+            bookingIds.add(result.getId());
+        }
+
+        int racBookingId;
+        String insert = """
+            INSERT INTO bookings (user_id, seat_id, train_id, route_id, passenger_name, passenger_age, status, journey_date)
+            VALUES (?, NULL, ?, ?, 'RAC Passenger', 30, 'RAC', ?)
+            """;
+        try (Connection conn = DatabaseManager.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(insert, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setInt(1, userId);
+                pstmt.setInt(2, trainId);
+                pstmt.setInt(3, routeId);
+                pstmt.setDate(4, Date.valueOf(journeyDate));
+                pstmt.executeUpdate();
+                try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                    rs.next();
+                    racBookingId = rs.getInt(1);
+                }
+            }
+            new RACQueue().addToRAC(conn, userId, trainId, routeId, racBookingId);
+        }
+
+        bookingManager.cancelBookings(bookingIds);
+
+        BookingManager.BookingDetails promoted = bookingManager.getBookingById(racBookingId);
+        if (promoted == null || !"Confirmed".equals(promoted.getStatus())) {
+            return "RAC booking " + racBookingId + " was not confirmed";
+        }
+        int confirmed = countConfirmedBookings(trainId, journeyDate);
+        if (confirmed != 1) {
+            return confirmed + " confirmed bookings instead of 1";
+        }
+        int racRows = countForBooking("SELECT COUNT(*) FROM rac WHERE booking_id = ?", racBookingId);
+        if (racRows != 1) {
+            return racRows + " rac rows for the promoted booking instead of 1";
+        }
+        int payments = countForBooking("SELECT COUNT(*) FROM payments WHERE booking_id = ?", racBookingId);
+        if (payments > 1) {
+            return payments + " payments for the promoted booking";
+        }
+        Map<Integer, Long> bookedMasks = new HashMap<>();
+        if (countOverlappingSeats(trainId, journeyDate, bookedMasks) > 0
+                || countInventoryMismatches(trainId, journeyDate, bookedMasks) > 0) {
+            return "seat inventory holds freed seats nobody was given";
+        }
+        return null;
+    }
+
+    private static int countForBooking(String query, int bookingId) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, bookingId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private static int[] findTrainAndRoute() throws SQLException {
+        String query = """
+            SELECT r.train_id, r.route_id
+            FROM routes r
+            WHERE EXISTS (
+                SELECT 1 FROM seats s
+                JOIN compartments c ON s.compartment_id = c.compartment_id
+                JOIN classes cl ON c.class_id = cl.class_id
+                WHERE cl.train_id = r.train_id
+            )
+            ORDER BY r.route_id
+            LIMIT 1
+            """;
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query);
+             ResultSet rs = pstmt.executeQuery()) {
+            if (rs.next()) {
+                return new int[] { rs.getInt("train_id"), rs.getInt("route_id") };
+            }
+        }
+        throw new SQLException("No train with seats found - start the app once to create sample data");
+    }
+
+    private static int findUserId(String username) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT user_id FROM users WHERE username = ?")) {
+            pstmt.setString(1, username);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        }
+        throw new SQLException("User not found: " + username);
+    }
+
+    private static List<Integer> findSeats(int trainId, int count) throws SQLException {
+        String query = """
+            SELECT s.seat_id FROM seats s
+            JOIN compartments c ON s.compartment_id = c.compartment_id
+            JOIN classes cl ON c.class_id = cl.class_id
+            WHERE cl.train_id = ? AND s.is_available = TRUE
+            ORDER BY s.seat_id
+            LIMIT ?
+            """;
+        List<Integer> seatIds = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, trainId);
+            pstmt.setInt(2, count);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    seatIds.add(rs.getInt(1));
+                }
+            }
+        }
+        return seatIds;
+    }
+
+    /**
+     * Seats where two confirmed bookings share a segment of the train's run, on
+     * any routes; fills bookedMasks with the union of each seat's segments
+     */
+    private static int countOverlappingSeats(int trainId, LocalDate journeyDate,
+                                             Map<Integer, Long> bookedMasks) throws SQLException {
+        String query = """
+            SELECT seat_id, route_id, from_ordinal, to_ordinal FROM bookings
+            WHERE train_id = ? AND journey_date = ? AND status = 'Confirmed' AND seat_id IS NOT NULL
+            """;
+        SeatInventory inventory = SeatInventory.getInstance();
+        Set<Integer> overlapping = new HashSet<>();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, trainId);
+            pstmt.setDate(2, Date.valueOf(journeyDate));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int seatId = rs.getInt("seat_id");
+                    long mask = inventory.getSegmentMask(conn, trainId, rs.getInt("route_id"),
+                                                         BookingManager.getOrdinal(rs, "from_ordinal"),
+                                                         BookingManager.getOrdinal(rs, "to_ordinal"));
+                    long booked = bookedMasks.getOrDefault(seatId, 0L);
+                    if ((booked & mask) != 0) {
+                        overlapping.add(seatId);
+                    }
+                    bookedMasks.put(seatId, booked | mask);
+                }
+            }
+        }
+        return overlapping.size();
+    }
+
+    /**
+     * Seats whose occupied_mask is not exactly the union of their confirmed bookings' segments
+     */
+    private static int countInventoryMismatches(int trainId, LocalDate journeyDate,
+                                                Map<Integer, Long> bookedMasks) throws SQLException {
+        String query = "SELECT seat_id, occupied_mask FROM seat_inventory WHERE train_id = ? AND journey_date = ?";
+        Map<Integer, Long> occupied = new HashMap<>();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, trainId);
+            pstmt.setDate(2, Date.valueOf(journeyDate));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (rs.getLong("occupied_mask") != 0) {
+                        occupied.put(rs.getInt("seat_id"), rs.getLong("occupied_mask"));
+                    }
+                }
+            }
+        }
+        Set<Integer> seats = new HashSet<>(occupied.keySet());
+        seats.addAll(bookedMasks.keySet());
+        int mismatched = 0;
+        for (Integer seatId : seats) {
+            if (!occupied.getOrDefault(seatId, 0L).equals(bookedMasks.getOrDefault(seatId, 0L))) {
+                mismatched++;
+            }
+        }
+        return mismatched;
+    }
+
+    private static int countConfirmedBookings(int trainId, LocalDate journeyDate) throws SQLException {
+        return countForJourney("SELECT COUNT(*) FROM bookings WHERE train_id = ? AND journey_date = ? AND status = 'Confirmed'",
+                               trainId, journeyDate);
+    }
+
+    private static int countForJourney(String query, int trainId, LocalDate journeyDate) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, trainId);
+            pstmt.setDate(2, Date.valueOf(journeyDate));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private static Timestamp databaseNow() throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT NOW()");
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+
+    /**
+     * Remove bookings, payments, queue entries and inventory rows created by the run
+     */
+    private static void cleanUp(int trainId, int userId, LocalDate journeyDate, Timestamp startedAt) throws SQLException {
+        String[] deletes = {
+            "DELETE p FROM payments p JOIN bookings b ON p.booking_id = b.booking_id WHERE b.train_id = ? AND b.journey_date = ?",
+            "DELETE FROM bookings WHERE train_id = ? AND journey_date = ?",
+            "DELETE FROM seat_inventory WHERE train_id = ? AND journey_date = ?"
+        };
+        try (Connection conn = DatabaseManager.getConnection()) {
+            for (String delete : deletes) {
+                try (PreparedStatement pstmt = conn.prepareStatement(delete)) {
+                    pstmt.setInt(1, trainId);
+                    pstmt.setDate(2, Date.valueOf(journeyDate));
+                    pstmt.executeUpdate();
+                }
+            }
+            for (String table : new String[] { "rac", "waitlist" }) {
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "DELETE FROM " + table + " WHERE user_id = ? AND train_id = ? AND request_time >= ?")) {
+                    pstmt.setInt(1, userId);
+                    pstmt.setInt(2, trainId);
+                    pstmt.setTimestamp(3, startedAt);
+                    pstmt.executeUpdate();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package BookMyTrainTicket;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded JDBC connection pool used by DatabaseManager
+ * Connections handed out by borrow() return themselves to the pool when closed,
+ * so callers simply use try-with-resources around each unit of work
+ */
+public class ConnectionPool {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final Properties props;
+    private final int maxSize;
+    private final int minIdle;
+    private final long waitTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final long validationIntervalMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledEntry> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    private int totalCount;
+    private boolean closed;
+
+    // Metrics
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong statementCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public ConnectionPool(String url, Properties props, int maxSize, int minIdle,
+                          long waitTimeoutMillis, long idleTimeoutMillis, long maxLifetimeMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+        }
+        this.url = url;
+        this.props = props;
+        this.maxSize = maxSize;
+        this.minIdle = Math.min(minIdle, maxSize);
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.validationIntervalMillis = 5_000;
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection, waiting up to the configured timeout when the pool is exhausted
+     */
+    public Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        long remaining = TimeUnit.MILLISECONDS.toNanos(waitTimeoutMillis);
+
+        while (true) {
+            PooledEntry entry = null;
+            boolean create = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed");
+                    }
+                    entry = idle.pollFirst();
+                    if (entry != null) {
+                        break;
+                    }
+                    if (totalCount < maxSize) {
+                        totalCount++;
+                        create = true;
+                        break;
+                    }
+                    if (remaining <= 0) {
+                        timeoutCount.incrementAndGet();
+                        throw new SQLException("Timed out after " + waitTimeoutMillis +
+                                "ms waiting for a database connection (pool size " + maxSize + ")");
+                    }
+                    try {
+                        remaining = available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                try {
+                    entry = new PooledEntry(DriverManager.getConnection(url, props));
+                    createdCount.incrementAndGet();
+                } catch (SQLException e) {
+                    releaseSlot();
+                    throw e;
+                }
+            } else if (!isUsable(entry)) {
+                destroy(entry);
+                continue;
+            }
+
+            recordWait(System.nanoTime() - start);
+            borrowCount.incrementAndGet();
+            return entry.newHandle(this);
+        }
+    }
+
+    /**
+     * Check lifetime and, if the connection has been idle for a while, liveness
+     */
+    private boolean isUsable(PooledEntry entry) {
+        long now = System.currentTimeMillis();
+        if (now - entry.createdAt > maxLifetimeMillis) {
+            return false;
+        }
+        if (now - entry.lastReturned < validationIntervalMillis) {
+            return true;
+        }
+        try {
+            if (entry.physical.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                return true;
+            }
+        } catch (SQLException e) {
+            // fall through
+        }
+        validationFailures.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Called by a pooled connection's close(); resets session state and hands it back
+     */
+    void release(PooledEntry entry) {
+        boolean reusable;
+        try {
+            if (!entry.physical.getAutoCommit()) {
+                entry.physical.rollback();
+                entry.physical.setAutoCommit(true);
+            }
+            entry.physical.clearWarnings();
+            reusable = !entry.physical.isClosed()
+                    && System.currentTimeMillis() - entry.createdAt <= maxLifetimeMillis;
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        if (!reusable) {
+            destroy(entry);
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (closed) {
+                totalCount--;
+            } else {
+                entry.lastReturned = System.currentTimeMillis();
+                idle.offerFirst(entry);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        closeQuietly(entry);
+    }
+
+    private void destroy(PooledEntry entry) {
+        closeQuietly(entry);
+        releaseSlot();
+    }
+
+    private void releaseSlot() {
+        lock.lock();
+        try {
+            totalCount--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeQuietly(PooledEntry entry) {
+        destroyedCount.incrementAndGet();
+        try {
+            entry.physical.close();
+        } catch (SQLException e) {
+            System.err.println("DEBUG: Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Close connections that have sat idle too long or outlived max lifetime, keeping minIdle around
+     */
+    void evictIdle() {
+        Deque<PooledEntry> evicted = new ArrayDeque<>();
+        long now = System.currentTimeMillis();
+
+        lock.lock();
+        try {
+            // Oldest returns sit at the tail since release() pushes onto the head
+            Iterator<PooledEntry> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledEntry entry = it.next();
+                boolean expired = now - entry.createdAt > maxLifetimeMillis;
+                boolean stale = now - entry.lastReturned > idleTimeoutMillis && idle.size() > minIdle;
+                if (expired || stale) {
+                    it.remove();
+                    totalCount--;
+                    evicted.add(entry);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (PooledEntry entry : evicted) {
+            closeQuietly(entry);
+        }
+    }
+
+    /**
+     * Close all idle connections and refuse further borrows
+     */
+    public void close() {
+        Deque<PooledEntry> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayDeque<>(idle);
+            totalCount -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        evictor.shutdownNow();
+        for (PooledEntry entry : toClose) {
+            closeQuietly(entry);
+        }
+    }
+
+    /**
+     * Snapshot of pool counters
+     */
+    public PoolStats getStats() {
+        lock.lock();
+        try {
+            int idleCount = idle.size();
+            return new PoolStats(maxSize, totalCount - idleCount, idleCount,
+                    borrowCount.get(), statementCount.get(), timeoutCount.get(), createdCount.get(), destroyedCount.get(),
+                    validationFailures.get(), totalWaitNanos.get(), maxWaitNanos.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A physical connection plus its bookkeeping
+     */
+    static class PooledEntry {
+        private final Connection physical;
+        private final long createdAt;
+        private long lastReturned;
+
+        PooledEntry(Connection physical) {
+            this.physical = physical;
+            this.createdAt = System.currentTimeMillis();
+            this.lastReturned = createdAt;
+        }
+
+        Connection newHandle(ConnectionPool pool) {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    new Handle(pool, this));
+        }
+    }
+
+    /**
+     * Proxy handler: close() returns the connection, everything else is delegated.
+     * A handle is single use, so a second close() or use after close() cannot touch
+     * a connection that has since been lent to someone else.
+     */
+    private static class Handle implements InvocationHandler {
+        private final ConnectionPool pool;
+        private PooledEntry entry;
+
+        Handle(ConnectionPool pool, PooledEntry entry) {
+            this.pool = pool;
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (entry != null) {
+                        PooledEntry returning = entry;
+                        entry = null;
+                        pool.release(returning);
+                    }
+                    return null;
+                case "isClosed":
+                    return entry == null || entry.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + (entry == null ? "returned" : entry.physical) + "]";
+                default:
+                    break;
+            }
+            if (entry == null) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (name.equals("prepareStatement") || name.equals("createStatement") || name.equals("prepareCall")) {
+                // Every statement in this app is executed once, so this approximates round trips
+                pool.statementCount.incrementAndGet();
+            }
+            try {
+                return method.invoke(entry.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Immutable pool metrics
+     */
+    public static class PoolStats {
+        private final int maxSize;
+        private final int active;
+        private final int idle;
+        private final long borrowCount;
+        private final long statementCount;
+        private final long timeoutCount;
+        private final long createdCount;
+        private final long destroyedCount;
+        private final long validationFailures;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+
+        public PoolStats(int maxSize, int active, int idle, long borrowCount, long statementCount, long timeoutCount,
+                         long createdCount, long destroyedCount, long validationFailures,
+                         long totalWaitNanos, long maxWaitNanos) {
+            this.maxSize = maxSize;
+            this.active = active;
+            this.idle = idle;
+            this.borrowCount = borrowCount;
+            this.statementCount = statementCount;
+            this.timeoutCount = timeoutCount;
+            this.createdCount = createdCount;
+            this.destroyedCount = destroyedCount;
+            this.validationFailures = validationFailures;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        public int getMaxSize() { return maxSize; }
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public long getBorrowCount() { return borrowCount; }
+        public long getStatementCount() { return statementCount; }
+        public long getTimeoutCount() { return timeoutCount; }
+        public long getCreatedCount() { return createdCount; }
+        public long getDestroyedCount() { return destroyedCount; }
+        public long getValidationFailures() { return validationFailures; }
+        public long getMaxWaitMillis() { return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos); }
+
+        public double getAverageWaitMillis() {
+            return borrowCount == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / borrowCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Pool[active=%d, idle=%d, max=%d, borrows=%d, statements=%d, timeouts=%d, created=%d, destroyed=%d, " +
+                    "validationFailures=%d, avgWait=%.2fms, maxWait=%dms]",
+                    active, idle, maxSize, borrowCount, statementCount, timeoutCount, createdCount, destroyedCount,
+                    validationFailures, getAverageWaitMillis(), getMaxWaitMillis());
+        }
+    }
+}
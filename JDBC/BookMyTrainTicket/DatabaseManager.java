@@ -1,7 +1,10 @@
 package BookMyTrainTicket;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.StringJoiner;
 
 /**
  * Database connection and management class
@@ -12,8 +15,21 @@ public class DatabaseManager {
     private static final String DB_USER = "root";
     private static final String DB_PASSWORD = "Sai123"; // Set your MySQL password
     
+    // Pool sizing - enough for a handful of booking clerks plus admin screens
+    private static final int POOL_MAX_SIZE = 10;
+    private static final int POOL_MIN_IDLE = 2;
+    private static final long POOL_WAIT_TIMEOUT_MS = 10_000;
+    private static final long POOL_IDLE_TIMEOUT_MS = 5 * 60_000;
+    private static final long POOL_MAX_LIFETIME_MS = 30 * 60_000;
+    // Queue ticket upserts only: one autocommit statement each, never held across other work
+    private static final int SEQUENCE_POOL_SIZE = 2;
+    
     private static DatabaseManager instance;
-    private static Connection connection;
+    private static ConnectionPool pool;
+    private static ConnectionPool sequencePool;
+    
+    // Optional columns of the connected schema, read once after migrations
+    private static volatile SchemaCapabilities capabilities;
     
     private DatabaseManager() throws SQLException {
         try {
@@ -24,41 +40,172 @@ public class DatabaseManager {
             props.setProperty("useSSL", "false");
             props.setProperty("allowPublicKeyRetrieval", "true");
             props.setProperty("serverTimezone", "UTC");
+            // Let the driver turn JDBC batches into multi-row INSERTs (group bookings, seat generation)
+            props.setProperty("rewriteBatchedStatements", "true");
             
-            DatabaseManager.connection = DriverManager.getConnection(DB_URL, props);
+            DatabaseManager.pool = new ConnectionPool(DB_URL, props, POOL_MAX_SIZE, POOL_MIN_IDLE,
+                    POOL_WAIT_TIMEOUT_MS, POOL_IDLE_TIMEOUT_MS, POOL_MAX_LIFETIME_MS);
+            DatabaseManager.sequencePool = new ConnectionPool(DB_URL, props, SEQUENCE_POOL_SIZE, 1,
+                    POOL_WAIT_TIMEOUT_MS, POOL_IDLE_TIMEOUT_MS, POOL_MAX_LIFETIME_MS);
             initializeDatabase();
         } catch (ClassNotFoundException e) {
             throw new SQLException("MySQL JDBC Driver not found", e);
         }
     }
     
-    public static DatabaseManager getInstance() throws SQLException {
+    public static synchronized DatabaseManager getInstance() throws SQLException {
         if (instance == null) {
             instance = new DatabaseManager();
         }
         return instance;
     }
     
-    public static Connection getConnection() {
-        return connection;
+    /**
+     * Borrow a connection from the pool.
+     * The caller owns it for one unit of work and must close it (try-with-resources),
+     * which returns it to the pool rather than closing the socket.
+     */
+    public static Connection getConnection() throws SQLException {
+        if (pool == null) {
+            getInstance();
+        }
+        return pool.borrow();
+    }
+    
+    /**
+     * Borrow a connection for a short autocommit statement that must not join
+     * the caller's transaction (queue tickets). It comes from a small pool of
+     * its own, so a caller already holding a pooled connection can take one
+     * without waiting on the main pool.
+     */
+    static Connection getSequenceConnection() throws SQLException {
+        if (sequencePool == null) {
+            getInstance();
+        }
+        return sequencePool.borrow();
+    }
+    
+    /**
+     * Current pool metrics (active/idle counts, wait times, timeouts)
+     */
+    public static ConnectionPool.PoolStats getPoolStats() {
+        return pool != null ? pool.getStats() : null;
+    }
+    
+    /**
+     * Optional columns and tables of the connected database. Read once at
+     * startup; if the database cannot be reached nothing optional is reported.
+     */
+    public static SchemaCapabilities getSchemaCapabilities() {
+        if (capabilities == null && pool == null) {
+            try {
+                getInstance();
+            } catch (SQLException e) {
+                System.err.println("DEBUG: Could not read schema capabilities: " + e.getMessage());
+            }
+        }
+        SchemaCapabilities current = capabilities;
+        return current != null ? current : SchemaCapabilities.none();
     }
     
+    /**
+     * Bring the schema up to date (a single version check when it already is)
+     * and read its capabilities
+     */
     private void initializeDatabase() throws SQLException {
-        // Create database and tables if they don't exist
-        String createDB = "CREATE DATABASE IF NOT EXISTS train_booking";
-        String useDB = "USE train_booking";
+        try (Connection connection = pool.borrow()) {
+            capabilities = SchemaCapabilities.load(connection);
+            new SchemaMigrator().migrate(connection, migrations(),
+                (conn, migration) -> capabilities = SchemaCapabilities.load(conn));
+        }
+    }
+    
+    /**
+     * Schema history, oldest first. Applied migrations are never edited; add a
+     * new one with the next version for every schema change.
+     */
+    private List<SchemaMigrator.Migration> migrations() {
+        return List.of(
+            new SchemaMigrator.Migration(1, "Baseline tables, columns and indexes", this::createTables),
+            new SchemaMigrator.Migration(2, "Sample data", this::insertSampleData),
+            // Backfill route_stops for routes that only have the intermediate_stations text
+            new SchemaMigrator.Migration(3, "Backfill route_stops", conn -> new RouteStopsMigrator().migratePending(conn)),
+            new SchemaMigrator.Migration(4, "Seat hold journal", this::createSeatHolds),
+            new SchemaMigrator.Migration(5, "PNR column and ID generator node leases", this::createIdNodeLeases),
+            new SchemaMigrator.Migration(6, "Class fare multipliers",
+                conn -> addColumnIfMissing(conn, "classes", "base_price_multiplier", "DECIMAL(3,2) DEFAULT 1.00")),
+            new SchemaMigrator.Migration(7, "Booking stop segments", this::addBookingSegments),
+            new SchemaMigrator.Migration(8, "Seat hold stop segments", this::addSeatHoldSegments)
+        );
+    }
+    
+    /**
+     * Boarding and alighting stops (route ordinals) of each booking, so a
+     * cancellation frees exactly the segment that was claimed; NULL is the
+     * whole route, which is what every earlier booking holds
+     */
+    private void addBookingSegments(Connection connection) throws SQLException {
+        addColumnIfMissing(connection, "bookings", "from_ordinal", "INT NULL");
+        addColumnIfMissing(connection, "bookings", "to_ordinal", "INT NULL");
+    }
+    
+    /**
+     * Stops of each checkout hold, so recovered holds keep their segment;
+     * NULL is the whole route
+     */
+    private void addSeatHoldSegments(Connection connection) throws SQLException {
+        addColumnIfMissing(connection, "seat_holds", "from_ordinal", "INT NULL");
+        addColumnIfMissing(connection, "seat_holds", "to_ordinal", "INT NULL");
+    }
+    
+    /**
+     * Journal of active checkout holds (SeatHoldService), one row per hold
+     */
+    private void createSeatHolds(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS seat_holds (
+                    hold_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                    user_id INT NOT NULL,
+                    train_id INT NOT NULL,
+                    route_id INT NOT NULL,
+                    journey_date DATE NOT NULL,
+                    seat_ids VARCHAR(2000) NOT NULL,
+                    expires_at TIMESTAMP(3) NOT NULL,
+                    INDEX idx_seat_holds_expiry (expires_at)
+                )
+                """);
+        }
+    }
+    
+    /**
+     * bookings.pnr_number and the node ID leases of IdGenerator, one row per node
+     */
+    private void createIdNodeLeases(Connection connection) throws SQLException {
+        // Same name as the index of the column's UNIQUE in updated_schema.sql
+        addColumnIfMissing(connection, "bookings", "pnr_number", "VARCHAR(20)");
+        addIndexIfMissing(connection, "bookings", "pnr_number", "pnr_number", true);
         
         try (Statement stmt = connection.createStatement()) {
-            stmt.executeUpdate(createDB);
-            stmt.executeUpdate(useDB);
-            
-            // Create all tables from the schema
-            createTables();
-            insertSampleData();
+            stmt.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS id_node_leases (
+                    node_id INT PRIMARY KEY,
+                    owner VARCHAR(100),
+                    heartbeat_at TIMESTAMP(3) NULL,
+                    issued_through BIGINT NOT NULL DEFAULT 0
+                )
+                """);
+        }
+        StringJoiner rows = new StringJoiner(", ");
+        for (int nodeId = 0; nodeId < IdGenerator.MAX_NODES; nodeId++) {
+            rows.add("(" + nodeId + ")");
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("INSERT IGNORE INTO id_node_leases (node_id) VALUES " + rows);
         }
     }
     
-    private void createTables() throws SQLException {
+    private void createTables(Connection connection) throws SQLException {
         String[] createTableQueries = {
             """
             CREATE TABLE IF NOT EXISTS users (
@@ -124,6 +271,7 @@ public class DatabaseManager {
                 passenger_name VARCHAR(100),
                 passenger_age INT,
                 booking_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+                journey_date DATE,
                 status ENUM('Confirmed', 'Cancelled', 'RAC', 'Waiting') DEFAULT 'Confirmed',
                 FOREIGN KEY (user_id) REFERENCES users(user_id),
                 FOREIGN KEY (seat_id) REFERENCES seats(seat_id),
@@ -168,6 +316,73 @@ public class DatabaseManager {
                 FOREIGN KEY (train_id) REFERENCES trains(train_id),
                 FOREIGN KEY (route_id) REFERENCES routes(route_id)
             )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS seat_inventory (
+                train_id INT NOT NULL,
+                journey_date DATE NOT NULL,
+                seat_id INT NOT NULL,
+                occupied_mask BIGINT NOT NULL DEFAULT 0,
+                PRIMARY KEY (train_id, journey_date, seat_id),
+                FOREIGN KEY (train_id) REFERENCES trains(train_id) ON DELETE CASCADE,
+                FOREIGN KEY (seat_id) REFERENCES seats(seat_id) ON DELETE CASCADE
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS availability_summary (
+                train_id INT NOT NULL,
+                journey_date DATE NOT NULL,
+                route_id INT NOT NULL,
+                class_id INT NOT NULL,
+                free_seats INT NOT NULL,
+                updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+                PRIMARY KEY (train_id, journey_date, route_id, class_id),
+                FOREIGN KEY (train_id) REFERENCES trains(train_id) ON DELETE CASCADE
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS station_info (
+                station_id INT AUTO_INCREMENT PRIMARY KEY,
+                station_name VARCHAR(100) NOT NULL UNIQUE,
+                station_code VARCHAR(10) UNIQUE,
+                city VARCHAR(100),
+                state VARCHAR(50),
+                zone VARCHAR(50),
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS route_stops (
+                route_id INT NOT NULL,
+                ordinal INT NOT NULL,
+                station_id INT NOT NULL,
+                arrival_time TIME NULL,
+                departure_time TIME NULL,
+                distance_km INT NULL,
+                PRIMARY KEY (route_id, ordinal),
+                INDEX idx_route_stops_station (station_id, route_id, ordinal),
+                FOREIGN KEY (route_id) REFERENCES routes(route_id) ON DELETE CASCADE,
+                FOREIGN KEY (station_id) REFERENCES station_info(station_id)
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS queue_sequences (
+                queue_name VARCHAR(20) NOT NULL,
+                train_id INT NOT NULL,
+                route_id INT NOT NULL,
+                last_position INT NOT NULL,
+                PRIMARY KEY (queue_name, train_id, route_id)
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS batch_job_checkpoints (
+                job_key VARCHAR(100) PRIMARY KEY,
+                last_booking_id INT NOT NULL DEFAULT 0,
+                processed INT NOT NULL DEFAULT 0,
+                changed INT NOT NULL DEFAULT 0,
+                status ENUM('Running', 'Done') NOT NULL DEFAULT 'Running',
+                updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+            )
             """
         };
         
@@ -176,9 +391,72 @@ public class DatabaseManager {
                 stmt.executeUpdate(query);
             }
         }
+        
+        // Columns added after the original schema
+        addColumnIfMissing(connection, "bookings", "journey_date", "DATE");
+        addColumnIfMissing(connection, "payments", "payment_method", "VARCHAR(50)");
+        addColumnIfMissing(connection, "payments", "transaction_id", "VARCHAR(100)");
+        addColumnIfMissing(connection, "rac", "booking_id", "INT NULL");
+        addColumnIfMissing(connection, "waitlist", "booking_id", "INT NULL");
+        
+        // Transaction IDs are payment idempotency keys
+        addIndexIfMissing(connection, "payments", "uk_payments_transaction", "transaction_id", true);
+        
+        // Queue heads and ranks are read per (train, route) among waiting entries only
+        addIndexIfMissing(connection, "rac", "idx_rac_queue", "train_id, route_id, status, position", false);
+        addIndexIfMissing(connection, "waitlist", "idx_waitlist_queue", "train_id, route_id, status, position", false);
+        
+        // Batch jobs walk one (train, date) in booking_id order
+        addIndexIfMissing(connection, "bookings", "idx_bookings_journey", "train_id, journey_date, booking_id", false);
+        
+        // Booking history pages are keyset range scans, newest first; the latest payment is read per booking
+        addIndexIfMissing(connection, "bookings", "idx_bookings_user_time", "user_id, booking_time, booking_id", false);
+        addIndexIfMissing(connection, "bookings", "idx_bookings_time", "booking_time, booking_id", false);
+        addIndexIfMissing(connection, "payments", "idx_payments_booking_time", "booking_id, payment_time", false);
+        
+        // Cancelling a queued booking removes its entry; promotion updates the booking behind an entry
+        addIndexIfMissing(connection, "rac", "idx_rac_booking", "booking_id", false);
+        addIndexIfMissing(connection, "waitlist", "idx_waitlist_booking", "booking_id", false);
+        QueuePositions.seedSequences(connection);
+    }
+    
+    /**
+     * Add a column to an existing table if an older database doesn't have it yet
+     */
+    private void addColumnIfMissing(Connection connection, String table, String column, String definition) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getColumns(connection.getCatalog(), null, table, column)) {
+            if (rs.next()) {
+                return;
+            }
+        }
+        
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+            System.out.println("DEBUG: Added missing column " + table + "." + column);
+        }
+    }
+    
+    /**
+     * Add an index to an existing table if an older database doesn't have it yet
+     */
+    private void addIndexIfMissing(Connection connection, String table, String index, String columns,
+                                   boolean unique) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getIndexInfo(connection.getCatalog(), null, table, false, false)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return;
+                }
+            }
+        }
+        
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE " + table + " ADD " + (unique ? "UNIQUE KEY " : "INDEX ") +
+                               index + " (" + columns + ")");
+            System.out.println("DEBUG: Added missing index " + table + "." + index);
+        }
     }
     
-    private void insertSampleData() throws SQLException {
+    private void insertSampleData(Connection connection) throws SQLException {
         // Check if data already exists
         String checkQuery = "SELECT COUNT(*) FROM users WHERE username = 'admin'";
         try (PreparedStatement pstmt = connection.prepareStatement(checkQuery);
@@ -220,13 +498,14 @@ public class DatabaseManager {
         }
         
         // Generate seats for compartments
-        generateSeats();
+        generateSeats(connection);
     }
     
-    private void generateSeats() throws SQLException {
+    private void generateSeats(Connection connection) throws SQLException {
         String[] berthTypes = {"Lower", "Middle", "Upper", "Side Lower", "Side Upper"};
         
         // Generate seats for each compartment
+        List<SeatProvisioner.SeatRow> seats = new ArrayList<>();
         String getCompartmentsQuery = "SELECT compartment_id, compartment_name FROM compartments";
         try (PreparedStatement pstmt = connection.prepareStatement(getCompartmentsQuery);
              ResultSet rs = pstmt.executeQuery()) {
@@ -239,22 +518,23 @@ public class DatabaseManager {
                 for (int i = 1; i <= 24; i++) {
                     String seatNumber = compartmentName + "-" + i;
                     String berthType = berthTypes[(i - 1) % berthTypes.length];
-                    
-                    String insertSeatQuery = "INSERT INTO seats (compartment_id, berth_type, seat_number, is_available) VALUES (?, ?, ?, TRUE)";
-                    try (PreparedStatement seatStmt = connection.prepareStatement(insertSeatQuery)) {
-                        seatStmt.setInt(1, compartmentId);
-                        seatStmt.setString(2, berthType);
-                        seatStmt.setString(3, seatNumber);
-                        seatStmt.executeUpdate();
-                    }
+                    seats.add(new SeatProvisioner.SeatRow(compartmentId, seatNumber, berthType));
                 }
             }
         }
+        
+        // All sample seats go in as a few multi-row inserts
+        SeatProvisioner.insertSeats(connection, seats);
     }
     
     public void closeConnection() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
-            connection.close();
+        if (pool != null) {
+            System.out.println("DEBUG: Closing connection pool - " + pool.getStats());
+            pool.close();
+        }
+        if (sequencePool != null) {
+            sequencePool.close();
         }
+        capabilities = null;
     }
 }
\ No newline at end of file
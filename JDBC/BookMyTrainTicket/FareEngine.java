@@ -0,0 +1,389 @@
+package BookMyTrainTicket;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fares between any two stops of a route, per class
+ *
+ * For each route a fare matrix is built once from the distance of every
+ * stop: the route's price is the fare of the whole run in the base class,
+ * a partial journey pays its share of the distance, and each class of the
+ * train scales that by classes.base_price_multiplier. Fares are kept in
+ * paise in one int array per route (class x from x to), so a quote is an
+ * array lookup with no database access. Stops are route ordinals, the
+ * same ones RouteIndex matches searches on.
+ *
+ * Stops without a distance are placed by interpolating between their
+ * neighbours (the route end uses routes.distance_km when known); a route
+ * with no distances at all is split evenly between its stops. Matrices are
+ * built on first use, several routes per query, and dropped by
+ * {@link #invalidate} when a route, its stops or the train's classes change.
+ */
+public class FareEngine {
+    /** Passed as from/to stop to quote the whole route */
+    public static final int WHOLE_ROUTE = -1;
+
+    private static FareEngine instance;
+
+    private final Map<Integer, RouteFares> fares = new ConcurrentHashMap<>();
+
+    private FareEngine() {
+    }
+
+    public static synchronized FareEngine getInstance() {
+        if (instance == null) {
+            instance = new FareEngine();
+        }
+        return instance;
+    }
+
+    /**
+     * Fare of the whole route in a class (0 or an unknown class: the base fare)
+     */
+    public BigDecimal quote(int routeId, int classId) throws SQLException {
+        return quote(routeId, WHOLE_ROUTE, WHOLE_ROUTE, classId);
+    }
+
+    /**
+     * Fare between two stops (ordinals) of a route in a class
+     */
+    public BigDecimal quote(int routeId, int fromOrdinal, int toOrdinal, int classId) throws SQLException {
+        return toRupees(load(routeId).paise(fromOrdinal, toOrdinal, classId));
+    }
+
+    /**
+     * Fare between two stops, building the matrix on the caller's connection if needed
+     */
+    public BigDecimal quote(Connection conn, int routeId, int fromOrdinal, int toOrdinal, int classId) throws SQLException {
+        return toRupees(load(conn, routeId).paise(fromOrdinal, toOrdinal, classId));
+    }
+
+    /**
+     * Fares of a group travelling together, one per passenger class, from a
+     * single matrix lookup per passenger
+     */
+    public BigDecimal[] quoteGroup(int routeId, int fromOrdinal, int toOrdinal, int[] classIds) throws SQLException {
+        return quoteGroup(load(routeId), fromOrdinal, toOrdinal, classIds);
+    }
+
+    /**
+     * Fares of a group, building the matrix on the caller's connection if needed
+     */
+    public BigDecimal[] quoteGroup(Connection conn, int routeId, int fromOrdinal, int toOrdinal,
+                                   int[] classIds) throws SQLException {
+        return quoteGroup(load(conn, routeId), fromOrdinal, toOrdinal, classIds);
+    }
+
+    private static BigDecimal[] quoteGroup(RouteFares route, int fromOrdinal, int toOrdinal,
+                                           int[] classIds) throws SQLException {
+        BigDecimal[] quotes = new BigDecimal[classIds.length];
+        for (int i = 0; i < classIds.length; i++) {
+            quotes[i] = toRupees(route.paise(fromOrdinal, toOrdinal, classIds[i]));
+        }
+        return quotes;
+    }
+
+    /**
+     * Fare of each class of the train between two stops, keyed by class type
+     */
+    public Map<String, BigDecimal> quoteByClass(int routeId, int fromOrdinal, int toOrdinal) throws SQLException {
+        RouteFares route = load(routeId);
+        Map<String, BigDecimal> quotes = new LinkedHashMap<>();
+        for (int c = 1; c < route.classIds.length; c++) {
+            quotes.put(route.classTypes[c], toRupees(route.paise(fromOrdinal, toOrdinal, route.classIds[c])));
+        }
+        return quotes;
+    }
+
+    /**
+     * Build the matrices of any of the routes not built yet, with one query per table
+     */
+    public void preload(Collection<Integer> routeIds) throws SQLException {
+        List<Integer> missing = new ArrayList<>();
+        for (Integer routeId : new LinkedHashSet<>(routeIds)) {
+            if (!fares.containsKey(routeId)) {
+                missing.add(routeId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            try (Connection conn = DatabaseManager.getConnection()) {
+                fares.putAll(build(conn, missing));
+            }
+        }
+    }
+
+    /**
+     * Drop a route's matrix after its price, distance or stops change
+     */
+    public void invalidate(int routeId) {
+        fares.remove(routeId);
+    }
+
+    /**
+     * Drop every matrix (class multipliers changed, or the route is not known)
+     */
+    public void invalidateAll() {
+        fares.clear();
+    }
+
+    private RouteFares load(int routeId) throws SQLException {
+        RouteFares route = fares.get(routeId);
+        if (route == null) {
+            try (Connection conn = DatabaseManager.getConnection()) {
+                route = load(conn, routeId);
+            }
+        }
+        return route;
+    }
+
+    private RouteFares load(Connection conn, int routeId) throws SQLException {
+        RouteFares route = fares.get(routeId);
+        if (route == null) {
+            route = build(conn, List.of(routeId)).get(routeId);
+            if (route == null) {
+                throw new SQLException("Route not found: " + routeId);
+            }
+            fares.put(routeId, route);
+        }
+        return route;
+    }
+
+    private Map<Integer, RouteFares> build(Connection conn, List<Integer> routeIds) throws SQLException {
+        SchemaCapabilities capabilities = DatabaseManager.getSchemaCapabilities();
+        String placeholders = String.join(", ", Collections.nCopies(routeIds.size(), "?"));
+        String routeQuery = """
+            SELECT route_id, train_id, source_station, destination_station, price%s%s
+            FROM routes WHERE route_id IN (%s)
+            """.formatted(capabilities.hasIntermediateStations() ? ", intermediate_stations" : "",
+                          capabilities.hasRouteDistance() ? ", distance_km" : "",
+                          placeholders);
+        Map<Integer, List<RouteStop>> stopsByRoute = RouteStopRepository.getInstance().getStops(conn, routeIds);
+
+        Map<Integer, RouteFares> built = new HashMap<>();
+        Map<Integer, List<Integer>> routesByTrain = new HashMap<>();
+        Map<Integer, RouteRow> routeRows = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(routeQuery)) {
+            for (int i = 0; i < routeIds.size(); i++) {
+                pstmt.setInt(i + 1, routeIds.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int routeId = rs.getInt("route_id");
+                    int totalKm = capabilities.hasRouteDistance() ? rs.getInt("distance_km") : 0;
+                    List<String> stations = stationNames(rs, stopsByRoute.get(routeId),
+                                                         capabilities.hasIntermediateStations());
+                    routeRows.put(routeId, new RouteRow(rs.getBigDecimal("price"), stations,
+                        distances(stopsByRoute.get(routeId), stations.size(), totalKm)));
+                    routesByTrain.computeIfAbsent(rs.getInt("train_id"), t -> new ArrayList<>()).add(routeId);
+                }
+            }
+        }
+        if (routeRows.isEmpty()) {
+            return built;
+        }
+
+        // Multipliers of every class of the trains involved
+        Map<Integer, List<TrainClass>> classesByTrain = loadClasses(conn, routesByTrain.keySet());
+        for (Map.Entry<Integer, List<Integer>> train : routesByTrain.entrySet()) {
+            List<TrainClass> classes = classesByTrain.getOrDefault(train.getKey(), List.of());
+            for (Integer routeId : train.getValue()) {
+                RouteRow row = routeRows.get(routeId);
+                built.put(routeId, new RouteFares(row.price, row.stations, row.km, classes));
+            }
+        }
+        System.out.println("DEBUG: Built fare matrices for " + built.size() + " route(s)");
+        return built;
+    }
+
+    private static Map<Integer, List<TrainClass>> loadClasses(Connection conn, Collection<Integer> trainIds) throws SQLException {
+        Map<Integer, List<TrainClass>> classesByTrain = new HashMap<>();
+        boolean hasMultiplier = DatabaseManager.getSchemaCapabilities().hasColumn("classes", "base_price_multiplier");
+        String query = """
+            SELECT class_id, train_id, class_type%s FROM classes
+            WHERE train_id IN (%s) ORDER BY class_id
+            """.formatted(hasMultiplier ? ", base_price_multiplier" : "",
+                          String.join(", ", Collections.nCopies(trainIds.size(), "?")));
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            int index = 1;
+            for (Integer trainId : trainIds) {
+                pstmt.setInt(index++, trainId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    BigDecimal multiplier = hasMultiplier ? rs.getBigDecimal("base_price_multiplier") : null;
+                    classesByTrain.computeIfAbsent(rs.getInt("train_id"), t -> new ArrayList<>()).add(new TrainClass(
+                        rs.getInt("class_id"), rs.getString("class_type"),
+                        multiplier != null ? multiplier.doubleValue() : 1.0));
+                }
+            }
+        }
+        return classesByTrain;
+    }
+
+    private static List<String> stationNames(ResultSet rs, List<RouteStop> stops, boolean hasIntermediate) throws SQLException {
+        if (stops != null && !stops.isEmpty()) {
+            List<String> names = new ArrayList<>(stops.size());
+            for (RouteStop stop : stops) {
+                names.add(stop.getStationName());
+            }
+            return names;
+        }
+        return RouteStopRepository.parseStations(rs.getString("source_station"),
+                                                 hasIntermediate ? rs.getString("intermediate_stations") : null,
+                                                 rs.getString("destination_station"));
+    }
+
+    /**
+     * Distance of each stop from the source; unknown ones interpolated
+     */
+    static int[] distances(List<RouteStop> stops, int count, int totalKm) {
+        int[] km = new int[count];
+        boolean[] known = new boolean[count];
+        known[0] = true;
+        if (stops != null && stops.size() == count) {
+            for (int i = 1; i < count; i++) {
+                Integer distance = stops.get(i).getDistanceKm();
+                if (distance != null && distance > 0) {
+                    km[i] = distance;
+                    known[i] = true;
+                }
+            }
+        }
+        if (count > 1 && !known[count - 1]) {
+            if (totalKm > 0) {
+                km[count - 1] = totalKm;
+                known[count - 1] = true;
+            } else {
+                int lastKnown = 0;
+                for (int i = 0; i < count; i++) {
+                    if (known[i]) {
+                        lastKnown = i;
+                    }
+                }
+                if (lastKnown == 0) {
+                    // Nothing known: equal spacing
+                    for (int i = 0; i < count; i++) {
+                        km[i] = i;
+                    }
+                    return km;
+                }
+                // Extend at the average spacing of the known part
+                km[count - 1] = km[lastKnown] + (count - 1 - lastKnown) * Math.max(1, km[lastKnown] / lastKnown);
+                known[count - 1] = true;
+            }
+        }
+
+        int previous = 0;
+        for (int i = 1; i < count; i++) {
+            if (!known[i]) {
+                continue;
+            }
+            for (int j = previous + 1; j < i; j++) {
+                km[j] = km[previous] + (int) ((long) (km[i] - km[previous]) * (j - previous) / (i - previous));
+            }
+            previous = i;
+        }
+        return km;
+    }
+
+    private static BigDecimal toRupees(int paise) {
+        return BigDecimal.valueOf(paise, 2);
+    }
+
+    /**
+     * Fare matrix of one route. Class index 0 is the base fare (multiplier
+     * 1), used for class 0 and classes the train doesn't have.
+     */
+    private static final class RouteFares {
+        private final int stopCount;
+        private final int[] classIds;
+        private final String[] classTypes;
+        // paise, indexed [(class * stopCount + from) * stopCount + to]
+        private final int[] paise;
+
+        RouteFares(BigDecimal price, List<String> stations, int[] km, List<TrainClass> classes) {
+            this.stopCount = stations.size();
+            this.classIds = new int[classes.size() + 1];
+            this.classTypes = new String[classes.size() + 1];
+            double[] multipliers = new double[classes.size() + 1];
+            multipliers[0] = 1.0;
+            for (int c = 0; c < classes.size(); c++) {
+                classIds[c + 1] = classes.get(c).classId;
+                classTypes[c + 1] = classes.get(c).classType;
+                multipliers[c + 1] = classes.get(c).multiplier;
+            }
+
+            // Distance share of the route price, to the nearest paisa
+            this.paise = new int[classIds.length * stopCount * stopCount];
+            double fullPaise = price != null ? price.doubleValue() * 100 : 0;
+            int totalKm = stopCount > 0 ? km[stopCount - 1] : 0;
+            for (int c = 0; c < classIds.length; c++) {
+                for (int from = 0; from < stopCount; from++) {
+                    for (int to = from + 1; to < stopCount; to++) {
+                        double share = totalKm > 0 ? Math.max(0, (double) (km[to] - km[from]) / totalKm) : 1.0;
+                        long fare = Math.round(fullPaise * share * multipliers[c]);
+                        paise[(c * stopCount + from) * stopCount + to] = (int) Math.min(Integer.MAX_VALUE, fare);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Fare between two stops; WHOLE_ROUTE stands for the route's first or
+         * last stop, any other ordinal must be a stop of the route in order
+         */
+        int paise(int fromOrdinal, int toOrdinal, int classId) throws SQLException {
+            if (stopCount <= 1) {
+                return 0;
+            }
+            int from = fromOrdinal == WHOLE_ROUTE ? 0 : fromOrdinal;
+            int to = toOrdinal == WHOLE_ROUTE ? stopCount - 1 : toOrdinal;
+            if (from < 0 || to <= from || to >= stopCount) {
+                throw new SQLException("Invalid stops " + fromOrdinal + " -> " + toOrdinal +
+                                       " for a route of " + stopCount + " stops");
+            }
+            int c = 0;
+            for (int i = 1; i < classIds.length; i++) {
+                if (classIds[i] == classId) {
+                    c = i;
+                    break;
+                }
+            }
+            return paise[(c * stopCount + from) * stopCount + to];
+        }
+    }
+
+    private static final class RouteRow {
+        private final BigDecimal price;
+        private final List<String> stations;
+        private final int[] km;
+
+        RouteRow(BigDecimal price, List<String> stations, int[] km) {
+            this.price = price;
+            this.stations = stations;
+            this.km = km;
+        }
+    }
+
+    private static final class TrainClass {
+        private final int classId;
+        private final String classType;
+        private final double multiplier;
+
+        TrainClass(int classId, String classType, double multiplier) {
+            this.classId = classId;
+            this.classType = classType;
+            this.multiplier = multiplier;
+        }
+    }
+}
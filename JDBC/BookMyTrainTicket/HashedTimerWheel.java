@@ -0,0 +1,123 @@
+package BookMyTrainTicket;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timer wheel for many short-lived deadlines
+ *
+ * Time is cut into ticks; a deadline lands in bucket (deadline tick mod wheel
+ * size) with the number of full turns still to wait. Scheduling and
+ * cancelling are O(1) list operations, and each tick only walks one bucket,
+ * so expiring holds costs nothing per tick for the ones not yet due. The
+ * owner calls {@link #advance} from its own ticker thread.
+ */
+final class HashedTimerWheel<T> {
+    private final long tickMillis;
+    private final long startMillis;
+    private final Timeout<T>[] buckets;
+    private final int mask;
+    private long nextTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    HashedTimerWheel(long tickMillis, int wheelSize, long nowMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Tick must be positive and wheel size a power of two");
+        }
+        this.tickMillis = tickMillis;
+        this.startMillis = nowMillis;
+        this.buckets = (Timeout<T>[]) new Timeout<?>[wheelSize];
+        this.mask = wheelSize - 1;
+    }
+
+    /**
+     * Schedule an item to expire once the clock passes the deadline
+     * (deadlines already past expire on the next tick)
+     */
+    synchronized Timeout<T> schedule(T item, long deadlineMillis) {
+        long deadlineTick = Math.max(nextTick, Math.floorDiv(deadlineMillis - startMillis + tickMillis - 1, tickMillis));
+        Timeout<T> timeout = new Timeout<>(item);
+        timeout.rounds = (deadlineTick - nextTick) / buckets.length;
+        timeout.bucket = (int) (deadlineTick & mask);
+        timeout.next = buckets[timeout.bucket];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        buckets[timeout.bucket] = timeout;
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Remove a scheduled item; false if it already expired or was cancelled
+     */
+    synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.bucket < 0) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    /**
+     * Run every tick up to the given time and return the items that expired
+     */
+    synchronized List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        long lastTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+        while (nextTick <= lastTick) {
+            Timeout<T> timeout = buckets[(int) (nextTick & mask)];
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                if (timeout.rounds <= 0) {
+                    unlink(timeout);
+                    expired.add(timeout.item);
+                } else {
+                    timeout.rounds--;
+                }
+                timeout = next;
+            }
+            nextTick++;
+        }
+        return expired;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+        size--;
+    }
+
+    /**
+     * Handle of one scheduled item
+     */
+    static final class Timeout<T> {
+        private final T item;
+        private long rounds;
+        private int bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(T item) {
+            this.item = item;
+        }
+
+        T getItem() {
+            return item;
+        }
+    }
+}
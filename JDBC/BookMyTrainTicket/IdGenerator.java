@@ -0,0 +1,232 @@
+package BookMyTrainTicket;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.sql.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PNR and payment transaction IDs generated in memory
+ *
+ * An ID is 50 bits: seconds since 2024-01-01 (32 bits, good until 2160), the
+ * node ID of this app instance (6 bits) and a per-second sequence (12 bits).
+ * It is written as 10 Crockford base-32 characters (digits and capitals
+ * without I, L, O and U), so PNRs are short, case-insensitive to read out
+ * and sort by issue time. Issuing an ID is one compare-and-set on an
+ * AtomicLong: no lock and no database round trip.
+ *
+ * Each running instance leases its own node ID from the id_node_leases
+ * table at startup and renews it every minute, so two instances never share
+ * one; a lease not renewed for five minutes (by the database clock) can be
+ * taken over. Setting -Dbookmyticket.nodeId=N pins the node ID instead.
+ *
+ * Clock skew: IDs never go backwards. If the clock steps back, or more than
+ * 4096 IDs are asked for in one second, the generator keeps counting into the
+ * following seconds. It runs at most MAX_AHEAD_SECONDS ahead of the clock
+ * before waiting for it to catch up. The lease records the last second
+ * issued, and whoever takes over a node ID later starts past anything the
+ * previous owner could have issued before its lease lapsed, so a restart or
+ * a machine with a slower clock cannot repeat an ID. (An owner that cannot
+ * renew its lease cannot reach the database either, so IDs it might still
+ * generate are never stored.)
+ */
+public final class IdGenerator {
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    public static final int PNR_LENGTH = 10;
+
+    private static final int NODE_BITS = 6;
+    private static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODES = 1 << NODE_BITS;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long EPOCH_SECONDS = 1_704_067_200L; // 2024-01-01T00:00:00Z
+    private static final long MAX_AHEAD_SECONDS = 60;
+
+    private static final long LEASE_RENEW_SECONDS = 60;
+    private static final long LEASE_TIMEOUT_SECONDS = 300;
+    private static final String NODE_ID_PROPERTY = "bookmyticket.nodeId";
+
+    private static IdGenerator instance;
+
+    private final int nodeId;
+    // First second this generator may use (past anything an earlier owner of the node issued)
+    private final long floorSeconds;
+    // (seconds << SEQUENCE_BITS) | sequence of the last ID issued
+    private final AtomicLong state;
+
+    IdGenerator(int nodeId, long floorSeconds) {
+        if (nodeId < 0 || nodeId >= MAX_NODES) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + (MAX_NODES - 1) + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.floorSeconds = floorSeconds;
+        this.state = new AtomicLong(Math.max(floorSeconds, currentSeconds()) << SEQUENCE_BITS);
+    }
+
+    /**
+     * Generator for this instance; leases a node ID on first use unless one is configured
+     */
+    public static synchronized IdGenerator getInstance() throws SQLException {
+        if (instance == null) {
+            String configured = System.getProperty(NODE_ID_PROPERTY);
+            if (configured != null) {
+                instance = new IdGenerator(Integer.parseInt(configured.trim()), 0);
+                System.out.println("DEBUG: ID generator using configured node " + instance.nodeId);
+            } else {
+                instance = NodeLease.acquire();
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * New 10-character PNR
+     */
+    public String nextPnr() {
+        return encode(nextId());
+    }
+
+    /**
+     * New payment transaction ID ("TXN" + 10 characters)
+     */
+    public String nextTransactionId() {
+        return "TXN" + encode(nextId());
+    }
+
+    /**
+     * New refund transaction ID ("REF" + 10 characters)
+     */
+    public String nextRefundId() {
+        return "REF" + encode(nextId());
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    long nextId() {
+        while (true) {
+            long last = state.get();
+            long now = Math.max(floorSeconds, currentSeconds());
+            // A new second starts a fresh sequence; otherwise count on, carrying into the next second
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            long seconds = next >>> SEQUENCE_BITS;
+            if (seconds > now + MAX_AHEAD_SECONDS) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (state.compareAndSet(last, next)) {
+                return (seconds << (NODE_BITS + SEQUENCE_BITS)) | ((long) nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * Last second an ID was issued for (persisted with the lease)
+     */
+    long getIssuedThrough() {
+        return state.get() >>> SEQUENCE_BITS;
+    }
+
+    static String encode(long id) {
+        char[] chars = new char[PNR_LENGTH];
+        for (int i = PNR_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    private static long currentSeconds() {
+        return System.currentTimeMillis() / 1000 - EPOCH_SECONDS;
+    }
+
+    /**
+     * Node ID lease in id_node_leases, renewed in the background
+     */
+    private static final class NodeLease {
+        private NodeLease() {
+        }
+
+        static IdGenerator acquire() throws SQLException {
+            String owner = owner();
+            String candidates = """
+                SELECT node_id, issued_through FROM id_node_leases
+                WHERE heartbeat_at IS NULL OR heartbeat_at < NOW(3) - INTERVAL ? SECOND
+                ORDER BY node_id
+                """;
+            String claim = """
+                UPDATE id_node_leases SET owner = ?, heartbeat_at = NOW(3), issued_through = ?
+                WHERE node_id = ? AND issued_through = ?
+                  AND (heartbeat_at IS NULL OR heartbeat_at < NOW(3) - INTERVAL ? SECOND)
+                """;
+            try (Connection conn = DatabaseManager.getConnection();
+                 PreparedStatement select = conn.prepareStatement(candidates);
+                 PreparedStatement update = conn.prepareStatement(claim)) {
+                select.setLong(1, LEASE_TIMEOUT_SECONDS);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        int nodeId = rs.getInt("node_id");
+                        long issuedThrough = rs.getLong("issued_through");
+                        // The previous owner kept issuing until its lease lapsed, up to MAX_AHEAD_SECONDS early
+                        long floor = issuedThrough == 0 ? 0 : issuedThrough + LEASE_TIMEOUT_SECONDS + MAX_AHEAD_SECONDS + 1;
+                        update.setString(1, owner);
+                        update.setLong(2, Math.max(floor, currentSeconds()));
+                        update.setInt(3, nodeId);
+                        update.setLong(4, issuedThrough);
+                        update.setLong(5, LEASE_TIMEOUT_SECONDS);
+                        if (update.executeUpdate() == 1) {
+                            IdGenerator generator = new IdGenerator(nodeId, floor);
+                            startRenewing(generator, owner);
+                            System.out.println("DEBUG: ID generator leased node " + nodeId + " for " + owner);
+                            return generator;
+                        }
+                    }
+                }
+            }
+            throw new SQLException("No free ID generator node - more than " + MAX_NODES + " app instances are running");
+        }
+
+        private static void startRenewing(IdGenerator generator, String owner) {
+            ScheduledExecutorService renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "id-node-lease");
+                t.setDaemon(true);
+                return t;
+            });
+            renewer.scheduleWithFixedDelay(() -> renew(generator, owner),
+                                           LEASE_RENEW_SECONDS, LEASE_RENEW_SECONDS, TimeUnit.SECONDS);
+        }
+
+        private static void renew(IdGenerator generator, String owner) {
+            String update = """
+                UPDATE id_node_leases SET heartbeat_at = NOW(3), issued_through = GREATEST(issued_through, ?)
+                WHERE node_id = ? AND owner = ?
+                """;
+            try (Connection conn = DatabaseManager.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(update)) {
+                pstmt.setLong(1, generator.getIssuedThrough());
+                pstmt.setInt(2, generator.nodeId);
+                pstmt.setString(3, owner);
+                if (pstmt.executeUpdate() == 0) {
+                    Logger.getInstance().error("IdGenerator", "renew",
+                        "Lease on ID node " + generator.nodeId + " was taken over - restart this instance");
+                }
+            } catch (SQLException e) {
+                Logger.getInstance().warn("IdGenerator", "renew", "Could not renew ID node lease: " + e.getMessage());
+            }
+        }
+
+        private static String owner() {
+            String host;
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                host = "unknown";
+            }
+            String owner = host + "/" + ManagementFactory.getRuntimeMXBean().getName() + "/" + System.nanoTime();
+            return owner.length() > 100 ? owner.substring(owner.length() - 100) : owner;
+        }
+    }
+}
@@ -0,0 +1,558 @@
+package BookMyTrainTicket;
+
+import java.sql.*;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Connecting journeys (one or more trains) between two stations
+ *
+ * Runs RAPTOR (round-based public transit routing) over an in-memory
+ * timetable of every route. Round k finds the earliest arrival at each
+ * station using k trains, scanning only the routes that serve a station
+ * improved in round k - 1. Each route runs once a day, so boarding "the
+ * earliest catchable trip" means picking the first day the train can be
+ * caught. A change of trains needs a minimum connection time at the
+ * station.
+ *
+ * The result is Pareto-optimal by arrival time and number of changes: a
+ * journey with more changes is only offered if it arrives earlier than
+ * every journey with fewer.
+ *
+ * Stop times come from route_stops; stops without times are placed between
+ * their neighbours by distance. Like RouteIndex, the timetable is built on
+ * first use and rebuilt after invalidate(); callers that change routes,
+ * trains or stations must invalidate it.
+ */
+public class JourneyPlanner {
+    public static final int DEFAULT_MAX_TRANSFERS = 2;
+    public static final int DEFAULT_MIN_TRANSFER_MINUTES = 30;
+    private static final int MAX_TRANSFERS_LIMIT = 5;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private static JourneyPlanner instance;
+
+    private volatile Timetable timetable;
+
+    private JourneyPlanner() {
+    }
+
+    public static synchronized JourneyPlanner getInstance() {
+        if (instance == null) {
+            instance = new JourneyPlanner();
+        }
+        return instance;
+    }
+
+    /**
+     * Journeys leaving on a date (from now if it is today), with the default
+     * number of changes and connection time
+     */
+    public List<Journey> findJourneys(String source, String destination, LocalDate journeyDate) throws SQLException {
+        LocalDateTime earliestDeparture = journeyDate.equals(LocalDate.now())
+            ? LocalDateTime.now()
+            : journeyDate.atStartOfDay();
+        return findJourneys(source, destination, earliestDeparture, DEFAULT_MAX_TRANSFERS, DEFAULT_MIN_TRANSFER_MINUTES);
+    }
+
+    /**
+     * Pareto-optimal journeys departing at or after earliestDeparture, fewest
+     * changes first. Station names are resolved the way train search resolves them.
+     */
+    public List<Journey> findJourneys(String source, String destination, LocalDateTime earliestDeparture,
+                                      int maxTransfers, int minTransferMinutes) throws SQLException {
+        RouteIndex index = RouteIndex.getInstance();
+        return current().search(index.resolveStations(source), index.resolveStations(destination),
+                                earliestDeparture, maxTransfers, minTransferMinutes);
+    }
+
+    /**
+     * Drop the timetable; the next search rebuilds it from the database
+     */
+    public void invalidate() {
+        timetable = null;
+    }
+
+    /**
+     * Rebuild now (e.g. at startup) instead of on the next search
+     */
+    public void refresh() throws SQLException {
+        timetable = load();
+    }
+
+    private Timetable current() throws SQLException {
+        Timetable current = timetable;
+        if (current == null) {
+            synchronized (this) {
+                current = timetable;
+                if (current == null) {
+                    current = load();
+                    timetable = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Timetable load() throws SQLException {
+        long start = System.nanoTime();
+        boolean hasIntermediate = DatabaseManager.getSchemaCapabilities().hasIntermediateStations();
+        String query = """
+            SELECT t.train_id, t.train_name, t.train_number,
+                   r.route_id, r.source_station, r.destination_station,
+                   r.departure_time, r.arrival_time, r.price%s
+            FROM trains t
+            JOIN routes r ON t.train_id = r.train_id
+            ORDER BY r.route_id
+            """.formatted(hasIntermediate ? ", r.intermediate_stations" : "");
+
+        List<Trip> trips = new ArrayList<>();
+        Map<Integer, List<RouteStop>> stopsByRoute = RouteStopRepository.getInstance().getAllStops();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                Train train = new Train(rs.getInt("train_id"), rs.getString("train_name"), rs.getString("train_number"));
+                Route route = new Route(
+                    rs.getInt("route_id"),
+                    rs.getInt("train_id"),
+                    rs.getString("source_station"),
+                    rs.getString("destination_station"),
+                    rs.getTime("departure_time").toLocalTime(),
+                    rs.getTime("arrival_time").toLocalTime(),
+                    rs.getBigDecimal("price"),
+                    hasIntermediate ? rs.getString("intermediate_stations") : null
+                );
+
+                List<RouteStop> stops = stopsByRoute.get(route.getRouteId());
+                List<String> stations = stationNames(route, stops);
+                if (stations.size() < 2) {
+                    continue;
+                }
+                int[][] times = stopTimes(stops, stations.size(), route.getDepartureTime(), route.getArrivalTime());
+                trips.add(new Trip(train, route, stations, times[0], times[1]));
+            }
+        }
+
+        Timetable built = new Timetable(trips);
+        System.out.println("DEBUG: Timetable built - " + trips.size() + " trips, " + built.stationNames.length +
+                          " stations in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+        return built;
+    }
+
+    private static List<String> stationNames(Route route, List<RouteStop> stops) {
+        if (stops == null || stops.isEmpty()) {
+            return RouteStopRepository.parseStations(route.getSourceStation(), route.getIntermediateStations(),
+                                                     route.getDestinationStation());
+        }
+        List<String> names = new ArrayList<>(stops.size());
+        for (RouteStop stop : stops) {
+            names.add(stop.getStationName());
+        }
+        return names;
+    }
+
+    /**
+     * Arrival and departure minute of each stop, counted from midnight of the
+     * day the train leaves its source (so they only increase along the
+     * route). Stops without times are interpolated by distance.
+     */
+    static int[][] stopTimes(List<RouteStop> stops, int count, LocalTime departure, LocalTime arrival) {
+        int[] arrivals = new int[count];
+        int[] departures = new int[count];
+        boolean[] known = new boolean[count];
+        boolean withStops = stops != null && stops.size() == count;
+
+        // Unroll times of day past midnight as the train runs on
+        int offset = 0;
+        int previous = minuteOfDay(departure);
+        arrivals[0] = previous;
+        departures[0] = previous;
+        known[0] = true;
+        for (int i = 1; i < count; i++) {
+            LocalTime arrive = i == count - 1 ? arrival : withStops ? stops.get(i).getArrivalTime() : null;
+            LocalTime leave = i == count - 1 ? arrival : withStops ? stops.get(i).getDepartureTime() : null;
+            if (arrive == null) {
+                arrive = leave;
+            }
+            if (leave == null) {
+                leave = arrive;
+            }
+            if (arrive == null) {
+                continue;
+            }
+            int in = minuteOfDay(arrive) + offset;
+            while (in < previous) {
+                in += MINUTES_PER_DAY;
+                offset += MINUTES_PER_DAY;
+            }
+            int out = minuteOfDay(leave) + offset;
+            while (out < in) {
+                out += MINUTES_PER_DAY;
+                offset += MINUTES_PER_DAY;
+            }
+            arrivals[i] = in;
+            departures[i] = out;
+            known[i] = true;
+            previous = out;
+        }
+
+        int[] km = FareEngine.distances(withStops ? stops : null, count, 0);
+        int last = 0;
+        for (int i = 1; i < count; i++) {
+            if (!known[i]) {
+                continue;
+            }
+            for (int j = last + 1; j < i; j++) {
+                int span = km[i] - km[last];
+                double share = span > 0 ? (double) (km[j] - km[last]) / span : (double) (j - last) / (i - last);
+                int at = departures[last] + (int) Math.round((arrivals[i] - departures[last]) * share);
+                arrivals[j] = at;
+                departures[j] = at;
+            }
+            last = i;
+        }
+        return new int[][] { arrivals, departures };
+    }
+
+    private static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * First day (0 = the search date) on which a train leaving a stop at
+     * minute departure can be caught by a passenger ready at minute ready
+     */
+    private static int dayToCatch(int departure, int ready) {
+        if (ready <= departure) {
+            return 0;
+        }
+        return (ready - departure + MINUTES_PER_DAY - 1) / MINUTES_PER_DAY;
+    }
+
+    /**
+     * One route's daily run with its stop times (package-private for the benchmark)
+     */
+    static class Trip {
+        private final Train train;
+        private final Route route;
+        private final List<String> stations;
+        private final int[] arrivals;
+        private final int[] departures;
+
+        Trip(Train train, Route route, List<String> stations, int[] arrivals, int[] departures) {
+            this.train = train;
+            this.route = route;
+            this.stations = stations;
+            this.arrivals = arrivals;
+            this.departures = departures;
+        }
+    }
+
+    /**
+     * Trips indexed by station for RAPTOR. Immutable once built.
+     */
+    static class Timetable {
+        private final Trip[] trips;
+        private final String[] stationNames;
+        private final Map<String, Integer> stationIndex = new HashMap<>();
+        // Station of each stop, per trip
+        private final int[][] tripStops;
+        // (trip, ordinal) pairs serving each station
+        private final int[][] tripsAt;
+        private final int[][] ordinalsAt;
+
+        Timetable(List<Trip> trips) {
+            this.trips = trips.toArray(new Trip[0]);
+            this.tripStops = new int[trips.size()][];
+            List<String> names = new ArrayList<>();
+            List<List<int[]>> served = new ArrayList<>();
+            for (int t = 0; t < this.trips.length; t++) {
+                List<String> stations = this.trips[t].stations;
+                tripStops[t] = new int[stations.size()];
+                for (int i = 0; i < stations.size(); i++) {
+                    String key = RouteIndex.normalize(stations.get(i));
+                    Integer station = stationIndex.get(key);
+                    if (station == null) {
+                        station = names.size();
+                        stationIndex.put(key, station);
+                        names.add(stations.get(i).trim());
+                        served.add(new ArrayList<>());
+                    }
+                    tripStops[t][i] = station;
+                    served.get(station).add(new int[] { t, i });
+                }
+            }
+            this.stationNames = names.toArray(new String[0]);
+            this.tripsAt = new int[names.size()][];
+            this.ordinalsAt = new int[names.size()][];
+            for (int s = 0; s < names.size(); s++) {
+                List<int[]> pairs = served.get(s);
+                tripsAt[s] = new int[pairs.size()];
+                ordinalsAt[s] = new int[pairs.size()];
+                for (int p = 0; p < pairs.size(); p++) {
+                    tripsAt[s][p] = pairs.get(p)[0];
+                    ordinalsAt[s][p] = pairs.get(p)[1];
+                }
+            }
+        }
+
+        int getTripCount() {
+            return trips.length;
+        }
+
+        /**
+         * RAPTOR from any of the source stations to any of the target stations
+         * (normalized names). Journeys in the result have strictly fewer
+         * changes or an earlier arrival than the one before.
+         */
+        List<Journey> search(Set<String> sources, Set<String> targets, LocalDateTime earliestDeparture,
+                             int maxTransfers, int minTransferMinutes) {
+            int stationCount = stationNames.length;
+            boolean[] isSource = new boolean[stationCount];
+            boolean[] isTarget = new boolean[stationCount];
+            boolean anySource = mark(sources, isSource);
+            boolean anyTarget = false;
+            for (String target : targets) {
+                Integer station = stationIndex.get(target);
+                if (station != null && !isSource[station]) {
+                    isTarget[station] = true;
+                    anyTarget = true;
+                }
+            }
+            if (!anySource || !anyTarget) {
+                return Collections.emptyList();
+            }
+
+            int maxLegs = Math.max(0, Math.min(maxTransfers, MAX_TRANSFERS_LIMIT)) + 1;
+            int transfer = Math.max(0, minTransferMinutes);
+            LocalDateTime base = earliestDeparture.toLocalDate().atStartOfDay();
+            int start = minuteOfDay(earliestDeparture.toLocalTime());
+
+            // arrival[k][s]: earliest arrival at s using at most k trains; the
+            // other arrays record the leg that set it in round k
+            int[][] arrival = new int[maxLegs + 1][];
+            int[][] legTrip = new int[maxLegs + 1][];
+            int[][] legBoard = new int[maxLegs + 1][];
+            int[][] legAlight = new int[maxLegs + 1][];
+            int[][] legDay = new int[maxLegs + 1][];
+            arrival[0] = new int[stationCount];
+            Arrays.fill(arrival[0], UNREACHED);
+            boolean[] marked = new boolean[stationCount];
+            for (int s = 0; s < stationCount; s++) {
+                if (isSource[s]) {
+                    arrival[0][s] = start;
+                    marked[s] = true;
+                }
+            }
+            int[] best = arrival[0].clone();
+            int bestAtTarget = UNREACHED;
+
+            int[] firstOrdinal = new int[trips.length];
+            Arrays.fill(firstOrdinal, -1);
+            List<Integer> queue = new ArrayList<>();
+            List<Journey> journeys = new ArrayList<>();
+
+            for (int k = 1; k <= maxLegs; k++) {
+                // Trips serving a station improved last round, from their earliest such stop
+                queue.clear();
+                for (int s = 0; s < stationCount; s++) {
+                    if (!marked[s]) {
+                        continue;
+                    }
+                    marked[s] = false;
+                    for (int p = 0; p < tripsAt[s].length; p++) {
+                        int t = tripsAt[s][p];
+                        int ordinal = ordinalsAt[s][p];
+                        if (firstOrdinal[t] == -1) {
+                            queue.add(t);
+                            firstOrdinal[t] = ordinal;
+                        } else if (ordinal < firstOrdinal[t]) {
+                            firstOrdinal[t] = ordinal;
+                        }
+                    }
+                }
+                if (queue.isEmpty()) {
+                    break;
+                }
+
+                arrival[k] = arrival[k - 1].clone();
+                legTrip[k] = new int[stationCount];
+                Arrays.fill(legTrip[k], -1);
+                legBoard[k] = new int[stationCount];
+                legAlight[k] = new int[stationCount];
+                legDay[k] = new int[stationCount];
+                int bestBefore = bestAtTarget;
+
+                for (int t : queue) {
+                    Trip trip = trips[t];
+                    int[] stops = tripStops[t];
+                    int day = -1;
+                    int boardedAt = -1;
+                    for (int i = firstOrdinal[t]; i < stops.length; i++) {
+                        int s = stops[i];
+                        if (day >= 0) {
+                            int arrive = trip.arrivals[i] + day * MINUTES_PER_DAY;
+                            if (arrive < best[s] && arrive < bestAtTarget) {
+                                arrival[k][s] = arrive;
+                                best[s] = arrive;
+                                legTrip[k][s] = t;
+                                legBoard[k][s] = boardedAt;
+                                legAlight[k][s] = i;
+                                legDay[k][s] = day;
+                                marked[s] = true;
+                                if (isTarget[s]) {
+                                    bestAtTarget = arrive;
+                                }
+                            }
+                        }
+                        // Catch an earlier run of this train here if the last round gets us here in time
+                        int previous = arrival[k - 1][s];
+                        if (previous != UNREACHED && i < stops.length - 1) {
+                            int ready = isSource[s] ? previous : previous + transfer;
+                            int catchable = dayToCatch(trip.departures[i], ready);
+                            if (day < 0 || catchable < day) {
+                                day = catchable;
+                                boardedAt = i;
+                            }
+                        }
+                    }
+                    firstOrdinal[t] = -1;
+                }
+
+                if (bestAtTarget < bestBefore) {
+                    for (int s = 0; s < stationCount; s++) {
+                        if (isTarget[s] && arrival[k][s] == bestAtTarget) {
+                            journeys.add(reconstruct(k, s, base, legTrip, legBoard, legAlight, legDay));
+                            break;
+                        }
+                    }
+                }
+            }
+            return journeys;
+        }
+
+        private boolean mark(Set<String> stations, boolean[] flags) {
+            boolean any = false;
+            for (String name : stations) {
+                Integer station = stationIndex.get(name);
+                if (station != null) {
+                    flags[station] = true;
+                    any = true;
+                }
+            }
+            return any;
+        }
+
+        private Journey reconstruct(int round, int station, LocalDateTime base, int[][] legTrip,
+                                    int[][] legBoard, int[][] legAlight, int[][] legDay) {
+            List<Leg> legs = new ArrayList<>();
+            int k = round;
+            int s = station;
+            while (k > 0) {
+                // The arrival may have been carried over from an earlier round
+                while (k > 0 && legTrip[k][s] == -1) {
+                    k--;
+                }
+                if (k == 0) {
+                    break;
+                }
+                Trip trip = trips[legTrip[k][s]];
+                int board = legBoard[k][s];
+                int alight = legAlight[k][s];
+                int dayMinutes = legDay[k][s] * MINUTES_PER_DAY;
+                legs.add(new Leg(trip.train, trip.route, trip.stations.get(board).trim(), trip.stations.get(alight).trim(),
+                                 board, alight, base.toLocalDate().plusDays(legDay[k][s]),
+                                 base.plusMinutes(trip.departures[board] + dayMinutes),
+                                 base.plusMinutes(trip.arrivals[alight] + dayMinutes)));
+                s = tripStops[legTrip[k][s]][board];
+                k--;
+            }
+            Collections.reverse(legs);
+            return new Journey(legs);
+        }
+    }
+
+    /**
+     * One or more legs, changing trains between them
+     */
+    public static class Journey {
+        private final List<Leg> legs;
+
+        public Journey(List<Leg> legs) {
+            this.legs = Collections.unmodifiableList(new ArrayList<>(legs));
+        }
+
+        public List<Leg> getLegs() { return legs; }
+        public int getTransfers() { return legs.size() - 1; }
+        public LocalDateTime getDeparture() { return legs.get(0).getDeparture(); }
+        public LocalDateTime getArrival() { return legs.get(legs.size() - 1).getArrival(); }
+        public Duration getDuration() { return Duration.between(getDeparture(), getArrival()); }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (Leg leg : legs) {
+                if (sb.length() > 0) {
+                    sb.append(" | ");
+                }
+                sb.append(leg);
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * A ride on one train between two stops of its route
+     */
+    public static class Leg {
+        private final Train train;
+        private final Route route;
+        private final String fromStation;
+        private final String toStation;
+        private final int fromOrdinal;
+        private final int toOrdinal;
+        private final LocalDate journeyDate;
+        private final LocalDateTime departure;
+        private final LocalDateTime arrival;
+
+        public Leg(Train train, Route route, String fromStation, String toStation, int fromOrdinal, int toOrdinal,
+                   LocalDate journeyDate, LocalDateTime departure, LocalDateTime arrival) {
+            this.train = train;
+            this.route = route;
+            this.fromStation = fromStation;
+            this.toStation = toStation;
+            this.fromOrdinal = fromOrdinal;
+            this.toOrdinal = toOrdinal;
+            this.journeyDate = journeyDate;
+            this.departure = departure;
+            this.arrival = arrival;
+        }
+
+        public Train getTrain() { return train; }
+        public Route getRoute() { return route; }
+        public String getFromStation() { return fromStation; }
+        public String getToStation() { return toStation; }
+        public int getFromOrdinal() { return fromOrdinal; }
+        public int getToOrdinal() { return toOrdinal; }
+        /** Date the train leaves its source station (the date to book) */
+        public LocalDate getJourneyDate() { return journeyDate; }
+        public LocalDateTime getDeparture() { return departure; }
+        public LocalDateTime getArrival() { return arrival; }
+
+        @Override
+        public String toString() {
+            return train.getTrainName() + ": " + fromStation + " " + departure + " → " + toStation + " " + arrival;
+        }
+    }
+}
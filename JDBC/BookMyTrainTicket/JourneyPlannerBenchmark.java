@@ -0,0 +1,193 @@
+package BookMyTrainTicket;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Benchmark and sanity check for JourneyPlanner
+ *
+ * Runs without MySQL on a generated timetable: [trips] daily trains of 6-14
+ * stops each over [stations] stations, then plans random station pairs with
+ * up to two changes and a 30 minute connection time, reporting latency
+ * percentiles per search. Every journey found is checked: legs connect,
+ * connections respect the transfer time, and the list is Pareto-optimal
+ * (each extra change arrives strictly earlier). A small hand-made timetable
+ * checks that Delhi to Pune is found via Mumbai when no train runs direct.
+ *
+ * Usage: JourneyPlannerBenchmark [trips] [stations] [searches]
+ */
+public class JourneyPlannerBenchmark {
+    private static final int MAX_TRANSFERS = 2;
+    private static final int MIN_TRANSFER_MINUTES = 30;
+    private static final long P99_LIMIT_MS = 50;
+
+    public static void main(String[] args) {
+        int tripCount = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int stationCount = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int searches = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+
+        checkConnection();
+
+        Random random = new Random(42);
+        List<String> stations = new ArrayList<>();
+        for (int s = 0; s < stationCount; s++) {
+            stations.add("Station " + s);
+        }
+        List<JourneyPlanner.Trip> trips = new ArrayList<>();
+        for (int t = 0; t < tripCount; t++) {
+            trips.add(randomTrip(t, stations, random));
+        }
+        JourneyPlanner.Timetable timetable = new JourneyPlanner.Timetable(trips);
+        System.out.println("Timetable: " + timetable.getTripCount() + " trips over " + stationCount + " stations");
+
+        LocalDateTime earliest = LocalDate.now().plusDays(1).atTime(6, 0);
+        for (int warmup = 0; warmup < 200; warmup++) {
+            timetable.search(Set.of(key(stations, random)), Set.of(key(stations, random)), earliest,
+                             MAX_TRANSFERS, MIN_TRANSFER_MINUTES);
+        }
+
+        List<Long> micros = new ArrayList<>();
+        int found = 0;
+        int[] byTransfers = new int[MAX_TRANSFERS + 1];
+        for (int i = 0; i < searches; i++) {
+            String from = key(stations, random);
+            String to = key(stations, random);
+            long start = System.nanoTime();
+            List<JourneyPlanner.Journey> journeys = timetable.search(Set.of(from), Set.of(to), earliest,
+                                                                     MAX_TRANSFERS, MIN_TRANSFER_MINUTES);
+            micros.add((System.nanoTime() - start) / 1_000);
+            check(journeys, earliest);
+            if (!journeys.isEmpty()) {
+                found++;
+            }
+            for (JourneyPlanner.Journey journey : journeys) {
+                byTransfers[journey.getTransfers()]++;
+            }
+        }
+
+        Collections.sort(micros);
+        System.out.println("\n=== Journey planner benchmark results ===");
+        System.out.println(String.format("Searches          : %d (%d with a journey)", searches, found));
+        System.out.println(String.format("Journeys by changes: 0=%d 1=%d 2=%d", byTransfers[0], byTransfers[1], byTransfers[2]));
+        System.out.println(String.format("Latency           : p50=%.2fms p99=%.2fms max=%.2fms",
+            percentile(micros, 50) / 1000.0, percentile(micros, 99) / 1000.0, micros.get(micros.size() - 1) / 1000.0));
+
+        if (percentile(micros, 99) > P99_LIMIT_MS * 1000) {
+            System.err.println("FAILED: p99 above " + P99_LIMIT_MS + " ms");
+            System.exit(1);
+        }
+        System.out.println("Journey planner benchmark passed!");
+    }
+
+    /**
+     * Delhi - Mumbai - Pune with no direct train: one change, and the later
+     * Mumbai train when the connection to the earlier one is too tight
+     */
+    private static void checkConnection() {
+        List<JourneyPlanner.Trip> trips = new ArrayList<>();
+        trips.add(trip(1, "Rajdhani", LocalTime.of(16, 0), "Delhi", 0, "Kota", 330, "Mumbai", 960));
+        trips.add(trip(2, "Deccan Queen", LocalTime.of(7, 15), "Mumbai", 0, "Lonavala", 120, "Pune", 195));
+        trips.add(trip(3, "Pragati", LocalTime.of(8, 10), "Mumbai", 0, "Pune", 190));
+        trips.add(trip(4, "Shatabdi", LocalTime.of(6, 0), "Delhi", 0, "Agra", 120));
+        JourneyPlanner.Timetable timetable = new JourneyPlanner.Timetable(trips);
+
+        LocalDateTime earliest = LocalDate.of(2025, 1, 10).atStartOfDay();
+        List<JourneyPlanner.Journey> journeys = timetable.search(Set.of("delhi"), Set.of("pune"), earliest,
+                                                                 MAX_TRANSFERS, MIN_TRANSFER_MINUTES);
+        // Rajdhani reaches Mumbai at 08:00 next day: 07:15 is gone, 08:10 leaves too soon after, so the next 07:15
+        if (journeys.size() != 1 || journeys.get(0).getTransfers() != 1
+                || !journeys.get(0).getLegs().get(1).getTrain().getTrainName().equals("Deccan Queen")
+                || !journeys.get(0).getArrival().equals(LocalDate.of(2025, 1, 12).atTime(10, 30))) {
+            System.err.println("FAILED: Delhi to Pune via Mumbai not found as expected: " + journeys);
+            System.exit(1);
+        }
+        System.out.println("Connection check  : " + journeys.get(0));
+    }
+
+    private static JourneyPlanner.Trip trip(int id, String name, LocalTime departure, Object... stopsAndMinutes) {
+        List<String> stations = new ArrayList<>();
+        int count = stopsAndMinutes.length / 2;
+        int[] arrivals = new int[count];
+        int[] departures = new int[count];
+        int start = departure.getHour() * 60 + departure.getMinute();
+        for (int i = 0; i < count; i++) {
+            stations.add((String) stopsAndMinutes[2 * i]);
+            arrivals[i] = start + (Integer) stopsAndMinutes[2 * i + 1];
+            departures[i] = arrivals[i] + (i == 0 || i == count - 1 ? 0 : 5);
+        }
+        LocalTime arrival = departure.plusMinutes(arrivals[count - 1] - start);
+        Route route = new Route(id, id, stations.get(0), stations.get(count - 1), departure, arrival,
+                                BigDecimal.valueOf(500), null);
+        return new JourneyPlanner.Trip(new Train(id, name, String.valueOf(10000 + id)), route, stations,
+                                       arrivals, departures);
+    }
+
+    private static JourneyPlanner.Trip randomTrip(int id, List<String> stations, Random random) {
+        int count = 6 + random.nextInt(9);
+        List<String> names = new ArrayList<>();
+        int[] arrivals = new int[count];
+        int[] departures = new int[count];
+        int at = random.nextInt(24 * 60);
+        int station = random.nextInt(stations.size());
+        for (int i = 0; i < count; i++) {
+            names.add(stations.get(station));
+            // Mostly nearby stations, so trips overlap like real lines do
+            station = Math.floorMod(station + 1 + random.nextInt(20) - 5, stations.size());
+            arrivals[i] = at;
+            departures[i] = i == 0 || i == count - 1 ? at : at + 2 + random.nextInt(4);
+            at = departures[i] + 30 + random.nextInt(90);
+        }
+        LocalTime departure = LocalTime.of(departures[0] / 60, departures[0] % 60);
+        LocalTime arrival = LocalTime.of(arrivals[count - 1] / 60 % 24, arrivals[count - 1] % 60);
+        Route route = new Route(id, id, names.get(0), names.get(count - 1), departure, arrival,
+                                BigDecimal.valueOf(100 + random.nextInt(2000)), null);
+        return new JourneyPlanner.Trip(new Train(id, "Train " + id, String.valueOf(10000 + id)), route, names,
+                                       arrivals, departures);
+    }
+
+    private static void check(List<JourneyPlanner.Journey> journeys, LocalDateTime earliest) {
+        JourneyPlanner.Journey previous = null;
+        for (JourneyPlanner.Journey journey : journeys) {
+            List<JourneyPlanner.Leg> legs = journey.getLegs();
+            if (journey.getDeparture().isBefore(earliest)) {
+                fail("departs before the earliest departure", journey);
+            }
+            for (int i = 1; i < legs.size(); i++) {
+                JourneyPlanner.Leg in = legs.get(i - 1);
+                JourneyPlanner.Leg out = legs.get(i);
+                if (!in.getToStation().equals(out.getFromStation())) {
+                    fail("legs do not connect", journey);
+                }
+                if (out.getDeparture().isBefore(in.getArrival().plusMinutes(MIN_TRANSFER_MINUTES))) {
+                    fail("connection shorter than " + MIN_TRANSFER_MINUTES + " minutes", journey);
+                }
+            }
+            if (previous != null && (journey.getTransfers() <= previous.getTransfers()
+                                     || !journey.getArrival().isBefore(previous.getArrival()))) {
+                fail("not Pareto-optimal after " + previous, journey);
+            }
+            previous = journey;
+        }
+    }
+
+    private static void fail(String problem, JourneyPlanner.Journey journey) {
+        System.err.println("FAILED: " + problem + ": " + journey);
+        System.exit(1);
+    }
+
+    private static String key(List<String> stations, Random random) {
+        return RouteIndex.normalize(stations.get(random.nextInt(stations.size())));
+    }
+
+    private static long percentile(List<Long> sorted, int p) {
+        int index = (int) Math.ceil(p / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+    }
+}
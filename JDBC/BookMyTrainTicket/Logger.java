@@ -1,19 +1,27 @@
 package BookMyTrainTicket;
 
-import java.io.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 /**
  * Custom Logger class for the BookMyTrainTicket application
  * Provides thread-safe logging capabilities with different log levels
+ *
+ * Messages below the configured level are discarded before any formatting;
+ * the Supplier overloads defer building the message until it is known to be
+ * needed. Everything else is handed to an {@link AsyncLogAppender}, so the
+ * caller never waits on the disk. Configured with system properties:
+ * bookmyticket.log.level (default DEBUG), bookmyticket.log.console (default true)
+ * and bookmyticket.log.overflow (DROP or BLOCK, default BLOCK).
  */
 public class Logger {
     private static final String LOG_FILE_PATH = "logs/login_operations.log";
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
-    private static final ReentrantLock lock = new ReentrantLock();
-    private static Logger instance;
+    private static final int BUFFER_CAPACITY = 8192;
+    private static final long MAX_FILE_BYTES = 10L * 1024 * 1024;
+    private static final int MAX_ARCHIVES = 5;
+    private static volatile Logger instance;
+    
+    private final AsyncLogAppender appender;
+    private volatile LogLevel minLevel;
     
     // Log levels
     public enum LogLevel {
@@ -21,11 +29,15 @@ public class Logger {
     }
     
     private Logger() {
-        // Create logs directory if it doesn't exist
-        File logDir = new File("logs");
-        if (!logDir.exists()) {
-            logDir.mkdirs();
-        }
+        this.minLevel = LogLevel.valueOf(System.getProperty("bookmyticket.log.level", "DEBUG").toUpperCase());
+        this.appender = new AsyncLogAppender(
+            LOG_FILE_PATH,
+            BUFFER_CAPACITY,
+            MAX_FILE_BYTES,
+            MAX_ARCHIVES,
+            AsyncLogAppender.OverflowPolicy.valueOf(System.getProperty("bookmyticket.log.overflow", "BLOCK").toUpperCase()),
+            Boolean.parseBoolean(System.getProperty("bookmyticket.log.console", "true"))
+        );
     }
     
     /**
@@ -42,31 +54,50 @@ public class Logger {
         return instance;
     }
     
+    public void setLevel(LogLevel level) {
+        this.minLevel = level;
+    }
+    
+    public LogLevel getLevel() {
+        return minLevel;
+    }
+    
+    public boolean isEnabled(LogLevel level) {
+        return level.compareTo(minLevel) >= 0;
+    }
+    
     /**
      * Log a message with specified level
      */
     public void log(LogLevel level, String className, String methodName, String message) {
-        lock.lock();
-        try {
-            String timestamp = LocalDateTime.now().format(DATE_FORMATTER);
-            String logEntry = String.format("[%s] [%s] [%s.%s] %s%n", 
-                timestamp, level, className, methodName, message);
-            
-            // Write to file
-            try (FileWriter writer = new FileWriter(LOG_FILE_PATH, true)) {
-                writer.write(logEntry);
-            } catch (IOException e) {
-                System.err.println("Failed to write to log file: " + e.getMessage());
-            }
-            
-            // Also print to console for immediate feedback
-            System.out.print(logEntry);
-            
-        } finally {
-            lock.unlock();
+        if (isEnabled(level)) {
+            appender.append(level, className, methodName, message);
+        }
+    }
+    
+    /**
+     * Log a message built only if the level is enabled
+     */
+    public void log(LogLevel level, String className, String methodName, Supplier<String> message) {
+        if (isEnabled(level)) {
+            appender.append(level, className, methodName, message.get());
         }
     }
     
+    /**
+     * Block until every message logged so far is on disk
+     */
+    public void flush() {
+        appender.flush();
+    }
+    
+    /**
+     * Messages lost because the buffer was full (DROP policy only)
+     */
+    public long getDroppedCount() {
+        return appender.getDroppedCount();
+    }
+    
     /**
      * Log DEBUG level message
      */
@@ -74,6 +105,10 @@ public class Logger {
         log(LogLevel.DEBUG, className, methodName, message);
     }
     
+    public void debug(String className, String methodName, Supplier<String> message) {
+        log(LogLevel.DEBUG, className, methodName, message);
+    }
+    
     /**
      * Log INFO level message
      */
@@ -108,6 +143,9 @@ public class Logger {
      * Log method entry
      */
     public void logMethodEntry(String className, String methodName, String... params) {
+        if (!isEnabled(LogLevel.DEBUG)) {
+            return;
+        }
         StringBuilder sb = new StringBuilder("Method entry");
         if (params.length > 0) {
             sb.append(" - Parameters: ");
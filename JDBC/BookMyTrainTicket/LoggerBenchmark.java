@@ -0,0 +1,134 @@
+package BookMyTrainTicket;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Benchmark for Logger, no database needed
+ *
+ * Compares the cost seen by logging threads for:
+ *   legacy   - the previous Logger: global lock, String.format, new FileWriter per line
+ *   async    - AsyncLogAppender (ring buffer + background writer), BLOCK policy
+ *   filtered - Logger at INFO level receiving DEBUG messages through a Supplier
+ * "drain" is the extra time until the async writer has everything on disk.
+ * Console echo is off for all modes. Each mode gets a warm-up round first.
+ *
+ * Usage: LoggerBenchmark [messagesPerThread]
+ */
+public class LoggerBenchmark {
+    private static final int[] THREAD_COUNTS = {1, 4, 8};
+    private static final String LEGACY_FILE = "logs/bench_legacy.log";
+    private static final String ASYNC_FILE = "logs/bench_async.log";
+
+    public static void main(String[] args) throws Exception {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        new File("logs").mkdirs();
+
+        System.out.println("Testing logger performance (" + messages + " messages per thread)...");
+        LegacyLogger legacy = new LegacyLogger(LEGACY_FILE);
+        AsyncLogAppender async = new AsyncLogAppender(ASYNC_FILE, 8192, Long.MAX_VALUE, 1,
+                                                      AsyncLogAppender.OverflowPolicy.BLOCK, false);
+        Logger filtered = Logger.getInstance();
+        Logger.LogLevel previousLevel = filtered.getLevel();
+        filtered.setLevel(Logger.LogLevel.INFO);
+
+        System.out.println(String.format("%-8s %-9s %12s %14s %10s", "threads", "mode", "ns/message", "messages/s", "drain ms"));
+        for (int threads : THREAD_COUNTS) {
+            LogCall legacyCall = (thread, i) ->
+                legacy.log(Logger.LogLevel.INFO, "LoggerBenchmark", "run", "Login attempt " + i + " from thread " + thread);
+            LogCall asyncCall = (thread, i) ->
+                async.append(Logger.LogLevel.INFO, "LoggerBenchmark", "run", "Login attempt " + i + " from thread " + thread);
+            LogCall filteredCall = (thread, i) ->
+                filtered.debug("LoggerBenchmark", "run", () -> "Login attempt " + i + " from thread " + thread);
+
+            run(threads, messages, legacyCall);
+            report(threads, "legacy", messages, run(threads, messages, legacyCall), 0);
+
+            run(threads, messages, asyncCall);
+            async.flush();
+            long elapsed = run(threads, messages, asyncCall);
+            long drainStart = System.nanoTime();
+            async.flush();
+            report(threads, "async", messages, elapsed, System.nanoTime() - drainStart);
+
+            run(threads, messages, filteredCall);
+            report(threads, "filtered", messages, run(threads, messages, filteredCall), 0);
+        }
+
+        async.close();
+        filtered.setLevel(previousLevel);
+        new File(LEGACY_FILE).delete();
+        new File(ASYNC_FILE).delete();
+        System.out.println("Logger benchmark completed!");
+    }
+
+    private static long run(int threads, int messages, LogCall call) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch startGate = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.submit(() -> {
+                ready.countDown();
+                startGate.await();
+                for (int i = 0; i < messages; i++) {
+                    call.log(thread, i);
+                }
+                return null;
+            });
+        }
+        ready.await();
+        long start = System.nanoTime();
+        startGate.countDown();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.MINUTES);
+        return System.nanoTime() - start;
+    }
+
+    private static void report(int threads, String mode, int messages, long elapsedNanos, long drainNanos) {
+        long total = (long) threads * messages;
+        System.out.println(String.format("%-8d %-9s %12.0f %14.0f %10.1f", threads, mode,
+            (double) elapsedNanos * threads / total, total / (elapsedNanos / 1_000_000_000.0), drainNanos / 1_000_000.0));
+    }
+
+    private interface LogCall {
+        void log(int thread, int i);
+    }
+
+    /**
+     * The Logger as it was before the async appender, minus the console echo
+     */
+    private static class LegacyLogger {
+        private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+        private final ReentrantLock lock = new ReentrantLock();
+        private final String path;
+
+        LegacyLogger(String path) {
+            this.path = path;
+        }
+
+        void log(Logger.LogLevel level, String className, String methodName, String message) {
+            lock.lock();
+            try {
+                String timestamp = LocalDateTime.now().format(DATE_FORMATTER);
+                String logEntry = String.format("[%s] [%s] [%s.%s] %s%n",
+                    timestamp, level, className, methodName, message);
+                try (FileWriter writer = new FileWriter(path, true)) {
+                    writer.write(logEntry);
+                } catch (IOException e) {
+                    System.err.println("Failed to write to log file: " + e.getMessage());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
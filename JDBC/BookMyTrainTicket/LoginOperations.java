@@ -25,9 +25,10 @@ public class LoginOperations {
         
         String query = "SELECT user_id, username, password, email, role FROM users WHERE username = ?";
         
-        try (PreparedStatement pstmt = DatabaseManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setString(1, username);
-            logger.debug("LoginOperations", "authenticateUser", "Executing authentication query for user: " + username);
+            logger.debug("LoginOperations", "authenticateUser", () -> "Executing authentication query for user: " + username);
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
@@ -77,13 +78,14 @@ public class LoginOperations {
         
         String query = "INSERT INTO users (username, password, email, role) VALUES (?, ?, ?, ?)";
         
-        try (PreparedStatement pstmt = DatabaseManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setString(1, username);
             pstmt.setString(2, password); // In real app, hash the password
             pstmt.setString(3, email);
             pstmt.setString(4, role.name());
             
-            logger.debug("LoginOperations", "registerUser", "Executing user registration query for: " + username);
+            logger.debug("LoginOperations", "registerUser", () -> "Executing user registration query for: " + username);
             int rowsAffected = pstmt.executeUpdate();
             boolean success = rowsAffected > 0;
             
@@ -109,13 +111,14 @@ public class LoginOperations {
         
         String query = "SELECT COUNT(*) FROM users WHERE username = ?";
         
-        try (PreparedStatement pstmt = DatabaseManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setString(1, username);
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
                     boolean exists = rs.getInt(1) > 0;
-                    logger.debug("LoginOperations", "userExists", "Username '" + username + "' exists: " + exists);
+                    logger.debug("LoginOperations", "userExists", () -> "Username '" + username + "' exists: " + exists);
                     logger.logMethodExit("LoginOperations", "userExists", String.valueOf(exists));
                     return exists;
                 }
@@ -137,11 +140,12 @@ public class LoginOperations {
         
         String query = "UPDATE users SET password = ? WHERE user_id = ?";
         
-        try (PreparedStatement pstmt = DatabaseManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setString(1, newPassword); // In real app, hash the password
             pstmt.setInt(2, userId);
             
-            logger.debug("LoginOperations", "updatePassword", "Executing password update for user ID: " + userId);
+            logger.debug("LoginOperations", "updatePassword", () -> "Executing password update for user ID: " + userId);
             int rowsAffected = pstmt.executeUpdate();
             boolean success = rowsAffected > 0;
             
@@ -167,10 +171,11 @@ public class LoginOperations {
         
         String query = "SELECT user_id, username, password, email, role FROM users WHERE user_id = ?";
         
-        try (PreparedStatement pstmt = DatabaseManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, userId);
             
-            logger.debug("LoginOperations", "getUserById", "Executing query to get user by ID: " + userId);
+            logger.debug("LoginOperations", "getUserById", () -> "Executing query to get user by ID: " + userId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
                     User user = new User();
@@ -205,7 +210,8 @@ public class LoginOperations {
         List<User> users = new ArrayList<>();
         String query = "SELECT user_id, username, email, role FROM users ORDER BY user_id";
         
-        try (PreparedStatement pstmt = DatabaseManager.getConnection().prepareStatement(query);
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query);
              ResultSet rs = pstmt.executeQuery()) {
             
             logger.debug("LoginOperations", "getAllUsers", "Executing query to retrieve all users");
@@ -17,6 +17,8 @@ public class PaymentDialog extends JDialog {
     private BigDecimal amount;
     private JFrame parent;
     private boolean paymentSuccessful = false;
+    // Set while the gateway's answer is unknown; Pay again retries this payment instead of starting a new one
+    private String pendingTransactionId;
     
     // UI Components
     private JComboBox<PaymentManager.PaymentMethod> methodCombo;
@@ -294,6 +296,7 @@ public class PaymentDialog extends JDialog {
         } else if (method == PaymentManager.PaymentMethod.UPI) {
             request.setUpiId(upiIdField.getText().trim());
         }
+        request.setTransactionId(pendingTransactionId);
         
         // Show processing dialog
         showProcessingDialog(request);
@@ -352,31 +355,28 @@ public class PaymentDialog extends JDialog {
         
         processingDialog.add(panel);
         
-        // Process payment in background thread
-        SwingWorker<PaymentManager.PaymentResult, Void> worker = new SwingWorker<PaymentManager.PaymentResult, Void>() {
-            @Override
-            protected PaymentManager.PaymentResult doInBackground() throws Exception {
-                return paymentManager.processPayment(request);
-            }
-            
-            @Override
-            protected void done() {
+        // Payment completes asynchronously; results are handled back on the EDT
+        paymentManager.processPaymentAsync(request).whenComplete((result, error) ->
+            SwingUtilities.invokeLater(() -> {
                 processingDialog.dispose();
-                try {
-                    PaymentManager.PaymentResult result = get();
+                if (error != null) {
+                    Throwable cause = error.getCause() != null ? error.getCause() : error;
+                    showError("Payment processing error: " + cause.getMessage());
+                } else {
                     handlePaymentResult(result);
-                } catch (Exception ex) {
-                    showError("Payment processing error: " + ex.getMessage());
                 }
-            }
-        };
+            }));
         
-        worker.execute();
         processingDialog.setVisible(true);
     }
     
     private void handlePaymentResult(PaymentManager.PaymentResult result) {
-        if (result.isSuccess()) {
+        if (result.getStatus() == PaymentManager.PaymentStatus.PENDING) {
+            pendingTransactionId = result.getTransactionId();
+            JOptionPane.showMessageDialog(this,
+                result.getMessage() + ".\nYour booking is kept. Press Pay again to check the payment; you will not be charged twice.",
+                "Payment Pending", JOptionPane.WARNING_MESSAGE);
+        } else if (result.isSuccess()) {
             paymentSuccessful = true;
             showSuccessDialog(result);
         } else {
@@ -0,0 +1,16 @@
+package BookMyTrainTicket;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * External payment gateway as seen by PaymentManager
+ *
+ * Implementations must not block the calling thread: the returned future
+ * completes when the gateway answers. The transaction ID doubles as the
+ * idempotency key - charging the same ID twice must return the first
+ * outcome instead of taking the money again.
+ */
+public interface PaymentGateway {
+
+    CompletableFuture<PaymentManager.PaymentResult> charge(PaymentManager.PaymentRequest request, String transactionId);
+}
@@ -1,13 +1,24 @@
 package BookMyTrainTicket;
 import java.math.BigDecimal;
 import java.sql.*;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
 /**
  * PaymentManager handles payment processing, confirmation, and receipt generation
- * Includes dummy payment gateway simulation with success/failure scenarios
+ *
+ * Payments are asynchronous: the gateway is called through {@link PaymentGateway}
+ * and the payment row and booking are finalized when it answers, so no caller
+ * thread waits on the bank. The transaction ID is the idempotency key - a
+ * request retried with the same ID is never charged twice.
  */
 public class PaymentManager {
     
@@ -65,6 +76,7 @@ public class PaymentManager {
         private String expiryDate;
         private String cvv;
         private String upiId;
+        private String transactionId;
         
         public PaymentRequest(int bookingId, BigDecimal amount2, PaymentMethod method) {
             this.bookingId = bookingId;
@@ -81,6 +93,7 @@ public class PaymentManager {
         public String getExpiryDate() { return expiryDate; }
         public String getCvv() { return cvv; }
         public String getUpiId() { return upiId; }
+        public String getTransactionId() { return transactionId; }
         
         public void setCardDetails(String cardNumber, String cardHolderName, String expiryDate, String cvv) {
             this.cardNumber = cardNumber;
@@ -92,6 +105,13 @@ public class PaymentManager {
         public void setUpiId(String upiId) {
             this.upiId = upiId;
         }
+        
+        /**
+         * Set by the first processPaymentAsync call; keep it when retrying the same payment
+         */
+        public void setTransactionId(String transactionId) {
+            this.transactionId = transactionId;
+        }
     }
     
     public static class PaymentResult {
@@ -197,133 +217,210 @@ public class PaymentManager {
         public void setStatus(PaymentStatus status) { this.status = status; }
     }
     
-    private Connection connection;
-    private Random random;
+    private static final long GATEWAY_TIMEOUT_MS = 10_000;
+    private static final int FINALIZER_THREADS = 4;
+    
+    // Shared so idempotency keys are honoured across PaymentManager instances
+    private static final PaymentGateway DEFAULT_GATEWAY = new StubPaymentGateway();
+    
+    // Database work before and after the gateway call; waiting on the gateway holds no thread
+    private static final ExecutorService finalizer = Executors.newFixedThreadPool(FINALIZER_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "payment-finalizer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final PaymentGateway gateway;
+    private final IdGenerator ids;
     
     public PaymentManager() throws SQLException {
-        this.connection = DatabaseManager.getConnection();
-        this.random = new Random();
+        this(DEFAULT_GATEWAY);
+    }
+    
+    public PaymentManager(PaymentGateway gateway) throws SQLException {
+        // Initialize database manager so the connection pool is available
+        DatabaseManager.getInstance();
+        this.gateway = gateway;
+        this.ids = IdGenerator.getInstance();
     }
     
     /**
-     * Process payment through dummy payment gateway
+     * Process payment, blocking until it is finalized (prefer processPaymentAsync)
      */
     public PaymentResult processPayment(PaymentRequest request) throws SQLException {
-        // Simulate payment gateway processing delay
         try {
-            Thread.sleep(2000); // 2 second delay for realism
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-        
-        // Dummy payment gateway simulation
-        PaymentResult gatewayResponse = simulatePaymentGateway(request);
-        
-        // Create payment record in database
-        int paymentId = createPaymentRecord(request, gatewayResponse);
-        gatewayResponse.setPaymentId(paymentId);
-        
-        // Handle success/failure scenarios
-        if (gatewayResponse.isSuccess()) {
-            // Update booking status to confirmed
-            updateBookingStatus(request.getBookingId(), "Confirmed");
-        } else {
-            // Handle payment failure - rollback booking if needed
-            handlePaymentFailure(request.getBookingId());
+            return processPaymentAsync(request).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw e;
         }
-        
-        return gatewayResponse;
     }
     
     /**
-     * Simulate dummy payment gateway with random success/failure
+     * Process payment without blocking the caller.
+     * Records a Pending payment under the request's transaction ID, charges the
+     * gateway, then marks the payment Success/Failed and confirms or cancels the
+     * booking. Only a real decline cancels: if the gateway does not answer within
+     * GATEWAY_TIMEOUT_MS or errors, the charge may still go through, so the
+     * payment and booking stay Pending and the result is PENDING; retrying the
+     * same transaction ID asks the gateway again. Retrying a finished
+     * transaction ID returns the stored outcome.
+     * The future fails with a CompletionException wrapping any SQLException.
      */
-    private PaymentResult simulatePaymentGateway(PaymentRequest request) {
-        // 90% success rate for simulation
-        boolean success = random.nextDouble() > 0.1;
-        
-        String transactionId = generateTransactionId();
-        PaymentStatus status;
-        String message;
-        
-        if (success) {
-            status = PaymentStatus.SUCCESS;
-            message = "Payment processed successfully";
-            
-            // Additional validation based on payment method
-            if (request.getMethod() == PaymentMethod.CREDIT_CARD || 
-                request.getMethod() == PaymentMethod.DEBIT_CARD) {
-                
-                if (request.getCardNumber() == null || request.getCardNumber().length() < 16) {
-                    success = false;
-                    status = PaymentStatus.FAILED;
-                    message = "Invalid card number";
-                } else if (request.getCvv() == null || request.getCvv().length() != 3) {
-                    success = false;
-                    status = PaymentStatus.FAILED;
-                    message = "Invalid CVV";
-                }
-            } else if (request.getMethod() == PaymentMethod.UPI) {
-                if (request.getUpiId() == null || !request.getUpiId().contains("@")) {
-                    success = false;
-                    status = PaymentStatus.FAILED;
-                    message = "Invalid UPI ID";
-                }
-            }
-        } else {
-            status = PaymentStatus.FAILED;
-            String[] failureReasons = {
-                "Insufficient funds",
-                "Card expired",
-                "Transaction declined by bank",
-                "Network timeout",
-                "Invalid credentials"
-            };
-            message = failureReasons[random.nextInt(failureReasons.length)];
+    public CompletableFuture<PaymentResult> processPaymentAsync(PaymentRequest request) {
+        if (request.getTransactionId() == null) {
+            request.setTransactionId(ids.nextTransactionId());
         }
+        String transactionId = request.getTransactionId();
         
-        return new PaymentResult(success, transactionId, message, status);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return registerPayment(request);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, finalizer).thenCompose(registered -> {
+            if (registered.getStatus() != PaymentStatus.PENDING) {
+                return CompletableFuture.completedFuture(registered);
+            }
+            return gateway.charge(request, transactionId)
+                .copy()
+                .orTimeout(GATEWAY_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .exceptionally(e -> gatewayUnanswered(transactionId, e))
+                .thenApplyAsync(result -> {
+                    if (result.getStatus() == PaymentStatus.PENDING) {
+                        result.setPaymentId(registered.getPaymentId());
+                        return result;
+                    }
+                    try {
+                        return finalizePayment(request.getBookingId(), registered.getPaymentId(), result);
+                    } catch (SQLException e) {
+                        throw new CompletionException(e);
+                    }
+                }, finalizer);
+        });
     }
     
     /**
-     * Generate unique transaction ID
+     * No answer from the gateway is not a decline: the outcome is unknown, so
+     * the payment is left Pending to be retried under the same transaction ID
      */
-    private String generateTransactionId() {
-        long timestamp = System.currentTimeMillis();
-        int randomNum = 1000 + random.nextInt(9000);
-        return "TXN" + timestamp + randomNum;
+    private PaymentResult gatewayUnanswered(String transactionId, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        String message = cause instanceof TimeoutException
+            ? "Payment gateway did not respond in time"
+            : "Payment gateway error: " + cause.getMessage();
+        Logger.getInstance().warn("PaymentManager", "processPaymentAsync",
+            "Payment " + transactionId + " left pending - " + message);
+        return new PaymentResult(false, transactionId, message + "; the payment is pending, retry to check its status",
+                                 PaymentStatus.PENDING);
     }
     
     /**
-     * Create payment record in database
+     * Insert the Pending payment row for a transaction ID. If the ID is already
+     * known, returns its row instead: still PENDING means charge again (the
+     * gateway deduplicates), anything else is the final outcome.
      */
-    private int createPaymentRecord(PaymentRequest request, PaymentResult result) throws SQLException {
-        String sql = "INSERT INTO payments (booking_id, amount, status, payment_method, transaction_id, payment_time) VALUES (?, ?, ?, ?, ?, NOW())";
-        
-        try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            stmt.setInt(1, request.getBookingId());
-            stmt.setBigDecimal(2, request.getAmount());
-            stmt.setString(3, result.getStatus().toString());
-            stmt.setString(4, request.getMethod().toString());
-            stmt.setString(5, result.getTransactionId());
+    private PaymentResult registerPayment(PaymentRequest request) throws SQLException {
+        String sql = "INSERT INTO payments (booking_id, amount, status, payment_method, transaction_id, payment_time) VALUES (?, ?, 'Pending', ?, ?, NOW())";
+        
+        try (Connection conn = DatabaseManager.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setInt(1, request.getBookingId());
+                stmt.setBigDecimal(2, request.getAmount());
+                stmt.setString(3, request.getMethod().toString());
+                stmt.setString(4, request.getTransactionId());
+                
+                stmt.executeUpdate();
+                
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        PaymentResult pending = new PaymentResult(false, request.getTransactionId(),
+                            "Payment pending", PaymentStatus.PENDING);
+                        pending.setPaymentId(rs.getInt(1));
+                        return pending;
+                    }
+                }
+                throw new SQLException("Failed to create payment record");
+            } catch (SQLIntegrityConstraintViolationException e) {
+                if (e.getErrorCode() != 1062) {
+                    throw e;
+                }
+            }
             
-            stmt.executeUpdate();
+            // Duplicate transaction ID: the payment was submitted before
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT payment_id, status FROM payments WHERE transaction_id = ?")) {
+                stmt.setString(1, request.getTransactionId());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("Payment record vanished for transaction " + request.getTransactionId());
+                    }
+                    PaymentStatus status = PaymentStatus.valueOf(rs.getString("status").toUpperCase());
+                    PaymentResult existing = new PaymentResult(status == PaymentStatus.SUCCESS,
+                        request.getTransactionId(), "Payment already processed", status);
+                    existing.setPaymentId(rs.getInt("payment_id"));
+                    return existing;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Record the gateway's answer and confirm or cancel the booking, in one transaction.
+     * Only a Pending row is finalized, so a late duplicate answer changes nothing.
+     */
+    private PaymentResult finalizePayment(int bookingId, int paymentId, PaymentResult result) throws SQLException {
+        result.setPaymentId(paymentId);
+        List<PromotionEngine.PromotionEvent> promotions = List.of();
+        
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
             
-            ResultSet rs = stmt.getGeneratedKeys();
-            if (rs.next()) {
-                return rs.getInt(1);
+            try {
+                int updated;
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE payments SET status = ?, payment_time = NOW() WHERE payment_id = ? AND status = 'Pending'")) {
+                    stmt.setString(1, result.getStatus().toString());
+                    stmt.setInt(2, paymentId);
+                    updated = stmt.executeUpdate();
+                }
+                
+                if (updated > 0) {
+                    if (result.isSuccess()) {
+                        updateBookingStatus(conn, bookingId, "Confirmed");
+                    } else {
+                        // Handle payment failure - release the seat, cancel the booking
+                        // and give the seat to whoever is queued for it
+                        PromotionEngine.Batch batch = PromotionEngine.getInstance().newBatch();
+                        cancelUnpaidBooking(conn, bookingId, batch);
+                        promotions = batch.apply(conn);
+                    }
+                }
+                
+                conn.commit();
+                
+            } catch (SQLException e) {
+                conn.rollback();
+                SeatInventory.getInstance().invalidateAll();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
-            throw new SQLException("Failed to create payment record");
         }
+        PromotionEngine.getInstance().publish(promotions);
+        return result;
     }
     
     /**
      * Update booking status after payment
      */
-    private void updateBookingStatus(int bookingId, String status) throws SQLException {
+    private void updateBookingStatus(Connection conn, int bookingId, String status) throws SQLException {
         String sql = "UPDATE bookings SET status = ? WHERE booking_id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, status);
             stmt.setInt(2, bookingId);
             stmt.executeUpdate();
@@ -331,98 +428,76 @@ public class PaymentManager {
     }
     
     /**
-     * Handle payment failure - implement rollback logic
+     * Free a booking's seat and mark it cancelled, on the caller's transaction;
+     * the freed seat is added to the promotion batch
      */
-    private void handlePaymentFailure(int bookingId) throws SQLException {
-        // Start transaction for rollback
-        connection.setAutoCommit(false);
-        
-        try {
-            // Get booking details
-            String getBookingSql = "SELECT seat_id FROM bookings WHERE booking_id = ?";
-            int seatId = -1;
-            
-            try (PreparedStatement stmt = connection.prepareStatement(getBookingSql)) {
-                stmt.setInt(1, bookingId);
-                ResultSet rs = stmt.executeQuery();
+    private void cancelUnpaidBooking(Connection conn, int bookingId, PromotionEngine.Batch promotions) throws SQLException {
+        // Get booking details
+        String getBookingSql = "SELECT seat_id, train_id, route_id, journey_date, from_ordinal, to_ordinal FROM bookings WHERE booking_id = ?";
+        int seatId = -1;
+        int trainId = 0;
+        int routeId = 0;
+        int fromOrdinal = FareEngine.WHOLE_ROUTE;
+        int toOrdinal = FareEngine.WHOLE_ROUTE;
+        java.sql.Date journeyDate = null;
+        
+        try (PreparedStatement stmt = conn.prepareStatement(getBookingSql)) {
+            stmt.setInt(1, bookingId);
+            try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     seatId = rs.getInt("seat_id");
+                    if (rs.wasNull()) {
+                        seatId = -1;
+                    }
+                    trainId = rs.getInt("train_id");
+                    routeId = rs.getInt("route_id");
+                    journeyDate = rs.getDate("journey_date");
+                    fromOrdinal = BookingManager.getOrdinal(rs, "from_ordinal");
+                    toOrdinal = BookingManager.getOrdinal(rs, "to_ordinal");
                 }
             }
-            
-            // Mark seat as available again
-            if (seatId != -1) {
-                String updateSeatSql = "UPDATE seats SET is_available = TRUE WHERE seat_id = ?";
-                try (PreparedStatement stmt = connection.prepareStatement(updateSeatSql)) {
-                    stmt.setInt(1, seatId);
-                    stmt.executeUpdate();
-                }
+        }
+        
+        // Free the segment the booking claimed
+        if (seatId != -1 && journeyDate != null) {
+            SeatInventory.getInstance().release(conn, trainId, routeId, fromOrdinal, toOrdinal,
+                                                journeyDate.toLocalDate(), seatId);
+            promotions.seatFreed(trainId, routeId, journeyDate.toLocalDate(), seatId);
+        } else if (seatId != -1) {
+            String updateSeatSql = "UPDATE seats SET is_available = TRUE WHERE seat_id = ?";
+            try (PreparedStatement stmt = conn.prepareStatement(updateSeatSql)) {
+                stmt.setInt(1, seatId);
+                stmt.executeUpdate();
             }
-            
-            // Update booking status to cancelled
-            updateBookingStatus(bookingId, "Cancelled");
-            
-            // Commit transaction
-            connection.commit();
-            
-        } catch (SQLException e) {
-            // Rollback on error
-            connection.rollback();
-            throw e;
-        } finally {
-            connection.setAutoCommit(true);
+            SeatInventory.getInstance().invalidateTrain(trainId);
+            promotions.seatFreed(trainId, routeId, null, seatId);
         }
+        
+        // Update booking status to cancelled
+        updateBookingStatus(conn, bookingId, "Cancelled");
     }
     
     /**
      * Generate payment receipt with full booking details
      */
     public PaymentReceipt generateReceipt(int paymentId) throws SQLException {
-        // Check if intermediate_stations column exists
-        boolean hasIntermediateStations = checkIntermediateStationsColumn();
-        
-        String sql;
-        if (hasIntermediateStations) {
-            sql = """
-                SELECT 
-                    p.payment_id, p.booking_id, p.amount, p.payment_method, 
-                    p.transaction_id, p.payment_time, p.status as payment_status,
-                    b.pnr_number, b.passenger_name,
-                    t.train_name, t.train_number,
-                    r.source_station, r.destination_station, r.departure_time, r.arrival_time, r.intermediate_stations,
-                    s.seat_number, s.berth_type,
-                    cl.class_type
-                FROM payments p
-                JOIN bookings b ON p.booking_id = b.booking_id
-                JOIN trains t ON b.train_id = t.train_id
-                JOIN routes r ON b.route_id = r.route_id
-                LEFT JOIN seats s ON b.seat_id = s.seat_id
-                LEFT JOIN compartments comp ON s.compartment_id = comp.compartment_id
-                LEFT JOIN classes cl ON comp.class_id = cl.class_id
-                WHERE p.payment_id = ?
-            """;
-        } else {
-            sql = """
-                SELECT 
-                    p.payment_id, p.booking_id, p.amount, p.payment_method, 
-                    p.transaction_id, p.payment_time, p.status as payment_status,
-                    b.pnr_number, b.passenger_name,
-                    t.train_name, t.train_number,
-                    r.source_station, r.destination_station, r.departure_time, r.arrival_time,
-                    s.seat_number, s.berth_type,
-                    cl.class_type
-                FROM payments p
-                JOIN bookings b ON p.booking_id = b.booking_id
-                JOIN trains t ON b.train_id = t.train_id
-                JOIN routes r ON b.route_id = r.route_id
-                LEFT JOIN seats s ON b.seat_id = s.seat_id
-                LEFT JOIN compartments comp ON s.compartment_id = comp.compartment_id
-                LEFT JOIN classes cl ON comp.class_id = cl.class_id
-                WHERE p.payment_id = ?
-            """;
-        }
-        
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        String sql = """
+            SELECT 
+                p.payment_id, p.booking_id, p.amount, p.payment_method, 
+                p.transaction_id, p.payment_time, p.status as payment_status,
+                b.pnr_number, b.passenger_name, b.train_id, b.route_id,
+                s.seat_number, s.berth_type,
+                cl.class_type
+            FROM payments p
+            JOIN bookings b ON p.booking_id = b.booking_id
+            LEFT JOIN seats s ON b.seat_id = s.seat_id
+            LEFT JOIN compartments comp ON s.compartment_id = comp.compartment_id
+            LEFT JOIN classes cl ON comp.class_id = cl.class_id
+            WHERE p.payment_id = ?
+        """;
+        
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, paymentId);
             ResultSet rs = stmt.executeQuery();
             
@@ -432,20 +507,26 @@ public class PaymentManager {
                 receipt.setBookingId(rs.getInt("booking_id"));
                 receipt.setPnrNumber(rs.getString("pnr_number"));
                 receipt.setPassengerName(rs.getString("passenger_name"));
-                receipt.setTrainName(rs.getString("train_name"));
-                receipt.setTrainNumber(rs.getString("train_number"));
-                receipt.setSourceStation(rs.getString("source_station"));
-                receipt.setDestinationStation(rs.getString("destination_station"));
-                receipt.setDepartureTime(rs.getString("departure_time"));
-                receipt.setArrivalTime(rs.getString("arrival_time"));
+                
+                // Train and route details are reference data - served from the cache
+                ReferenceDataCache referenceData = ReferenceDataCache.getInstance();
+                Train train = referenceData.getTrain(rs.getInt("train_id"));
+                Route route = referenceData.getRoute(conn, rs.getInt("route_id"));
+                if (train == null || route == null) {
+                    throw new SQLException("Train or route no longer exists for payment ID: " + paymentId);
+                }
+                receipt.setTrainName(train.getTrainName());
+                receipt.setTrainNumber(train.getTrainNumber());
+                receipt.setSourceStation(route.getSourceStation());
+                receipt.setDestinationStation(route.getDestinationStation());
+                receipt.setDepartureTime(Time.valueOf(route.getDepartureTime()).toString());
+                receipt.setArrivalTime(Time.valueOf(route.getArrivalTime()).toString());
                 receipt.setSeatNumber(rs.getString("seat_number"));
                 receipt.setBerthType(rs.getString("berth_type"));
                 receipt.setClassType(rs.getString("class_type"));
                 
-                // Set intermediate stations only if column exists
-                if (hasIntermediateStations) {
-                    receipt.setIntermediateStations(rs.getString("intermediate_stations"));
-                }
+                // Via stations come pre-parsed from route_stops
+                receipt.setIntermediateStations(getViaStations(rs.getInt("route_id")));
                 
                 receipt.setAmount(rs.getDouble("amount"));
                 receipt.setPaymentMethod(PaymentMethod.valueOf(rs.getString("payment_method").replace(" ", "_").toUpperCase()));
@@ -460,6 +541,21 @@ public class PaymentManager {
         }
     }
     
+    /**
+     * Stops between source and destination, comma separated (null if none)
+     */
+    private String getViaStations(int routeId) throws SQLException {
+        List<RouteStop> stops = RouteStopRepository.getInstance().getStops(routeId);
+        if (stops.size() <= 2) {
+            return null;
+        }
+        List<String> names = new ArrayList<>();
+        for (RouteStop stop : stops.subList(1, stops.size() - 1)) {
+            names.add(stop.getStationName());
+        }
+        return String.join(", ", names);
+    }
+    
     /**
      * Generate printable receipt text
      */
@@ -526,32 +622,17 @@ public class PaymentManager {
         return sb.toString();
     }
     
-    /**
-     * Check if intermediate_stations column exists in routes table
-     */
-    private boolean checkIntermediateStationsColumn() {
-        try {
-            String testQuery = "SELECT intermediate_stations FROM routes LIMIT 1";
-            try (PreparedStatement pstmt = connection.prepareStatement(testQuery)) {
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    return true; // Column exists
-                }
-            }
-        } catch (SQLException e) {
-            return false; // Column doesn't exist
-        }
-    }
-    
     /**
      * Refund payment (for cancellations)
      */
     public PaymentResult refundPayment(int paymentId, String reason) throws SQLException {
         // Simulate refund processing
-        String refundTransactionId = "REF" + generateTransactionId().substring(3);
+        String refundTransactionId = ids.nextRefundId();
         
         // Update payment status
         String sql = "UPDATE payments SET status = 'Refunded' WHERE payment_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, paymentId);
             int updated = stmt.executeUpdate();
             
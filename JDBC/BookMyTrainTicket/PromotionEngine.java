@@ -0,0 +1,519 @@
+package BookMyTrainTicket;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Moves queued passengers up when seats or RAC places are freed
+ *
+ * Callers collect what a cancellation freed into a {@link Batch} and apply it
+ * on their own transaction. For each journey (train, route, date) a freed seat
+ * goes to the head of RAC, or to the head of the waitlist once RAC is empty,
+ * provided it is free between that passenger's stops (a head whose segment no
+ * freed seat covers keeps its place); the booking gets the seat for its
+ * segment and a payment, and its queue entry is marked
+ * Promoted. Every RAC place freed that way, or by a cancelled RAC booking, is
+ * then given to the next waitlisted passenger. Each step is a fixed number of
+ * statements per journey, however many seats were freed.
+ *
+ * Events are only published by {@link #publish} once the caller has committed,
+ * so listeners never hear about a promotion that was rolled back.
+ */
+public class PromotionEngine {
+    private static PromotionEngine instance;
+
+    private final List<PromotionListener> listeners = new CopyOnWriteArrayList<>();
+
+    private PromotionEngine() {
+    }
+
+    public static synchronized PromotionEngine getInstance() {
+        if (instance == null) {
+            instance = new PromotionEngine();
+        }
+        return instance;
+    }
+
+    /**
+     * Called once per committed promotion, on the thread that committed it
+     */
+    public interface PromotionListener {
+        void onPromotion(PromotionEvent event);
+    }
+
+    public void addListener(PromotionListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(PromotionListener listener) {
+        listeners.remove(listener);
+    }
+
+    public Batch newBatch() {
+        return new Batch();
+    }
+
+    /**
+     * Log the events and hand them to the listeners; call after commit
+     */
+    public void publish(List<PromotionEvent> events) {
+        Logger logger = Logger.getInstance();
+        for (PromotionEvent event : events) {
+            logger.info("PromotionEngine", "publish", event.toString());
+            for (PromotionListener listener : listeners) {
+                try {
+                    listener.onPromotion(event);
+                } catch (RuntimeException e) {
+                    logger.error("PromotionEngine", "publish", "Promotion listener failed for booking " + event.getBookingId(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Seats and RAC places freed by one transaction, grouped by journey
+     */
+    public static class Batch {
+        private final Map<Journey, Journey> journeys = new LinkedHashMap<>();
+
+        private Batch() {
+        }
+
+        /**
+         * A seat was released for the route on this date (null date: a seat
+         * released from the old global availability flag)
+         */
+        public void seatFreed(int trainId, int routeId, LocalDate journeyDate, int seatId) {
+            journey(trainId, routeId, journeyDate).freedSeats.add(seatId);
+        }
+
+        /**
+         * A RAC booking on this journey was cancelled
+         */
+        public void racPlaceFreed(int trainId, int routeId, LocalDate journeyDate) {
+            journey(trainId, routeId, journeyDate).freedRacPlaces++;
+        }
+
+        public boolean isEmpty() {
+            return journeys.isEmpty();
+        }
+
+        /**
+         * Run every promotion on the caller's transaction. Returns the events to
+         * {@link PromotionEngine#publish} after commit; on rollback the caller
+         * must evict the seat inventory as for any other claim.
+         */
+        public List<PromotionEvent> apply(Connection conn) throws SQLException {
+            List<PromotionEvent> events = new ArrayList<>();
+            for (Journey journey : journeys.values()) {
+                int confirmedFromRAC = confirmSeats(conn, journey, events);
+                moveWaitlistToRAC(conn, journey, journey.freedRacPlaces + confirmedFromRAC, events);
+            }
+            journeys.clear();
+            return events;
+        }
+
+        private Journey journey(int trainId, int routeId, LocalDate journeyDate) {
+            Journey key = new Journey(trainId, routeId, journeyDate);
+            return journeys.computeIfAbsent(key, k -> k);
+        }
+    }
+
+    /**
+     * Give the journey's freed seats to RAC heads, then to waitlist heads;
+     * returns how many RAC entries were confirmed
+     */
+    private static int confirmSeats(Connection conn, Journey journey, List<PromotionEvent> events) throws SQLException {
+        List<Integer> seats = journey.freedSeats;
+        if (seats.isEmpty()) {
+            return 0;
+        }
+
+        // The seats were released earlier in this transaction and their rows are still locked
+        SeatInventory inventory = SeatInventory.getInstance();
+        List<Integer> free = new ArrayList<>(seats);
+        long[] occupancy = journey.journeyDate != null
+            ? inventory.lockOccupancy(conn, journey.trainId, journey.journeyDate, seats)
+            : new long[seats.size()];
+        List<Entry> promoted = new ArrayList<>();
+        List<Integer> assigned = new ArrayList<>();
+
+        List<Entry> racHeads = takeHeads(conn, QueuePositions.Queue.RAC, journey, free.size());
+        List<Entry> fromRAC = assignSeats(conn, inventory, journey, racHeads, seats, occupancy, free, promoted, assigned);
+        List<Entry> waitlistHeads = takeHeads(conn, QueuePositions.Queue.WAITLIST, journey, free.size());
+        List<Entry> fromWaitlist = assignSeats(conn, inventory, journey, waitlistHeads, seats, occupancy, free,
+                                               promoted, assigned);
+        if (promoted.isEmpty()) {
+            return 0;
+        }
+
+        if (journey.journeyDate != null) {
+            // One claim per segment among the promoted passengers
+            Map<List<Integer>, List<Integer>> bySegment = new LinkedHashMap<>();
+            for (int i = 0; i < promoted.size(); i++) {
+                Entry entry = promoted.get(i);
+                bySegment.computeIfAbsent(List.of(entry.fromOrdinal, entry.toOrdinal), k -> new ArrayList<>())
+                         .add(assigned.get(i));
+            }
+            for (Map.Entry<List<Integer>, List<Integer>> segment : bySegment.entrySet()) {
+                if (!inventory.claimAll(conn, journey.trainId, journey.routeId, segment.getKey().get(0),
+                                        segment.getKey().get(1), journey.journeyDate, segment.getValue())) {
+                    throw new SQLException("Freed seats " + segment.getValue() + " could not be re-assigned on train " + journey.trainId);
+                }
+            }
+        } else {
+            String occupy = "UPDATE seats SET is_available = FALSE WHERE seat_id IN (%s)".formatted(placeholders(assigned.size()));
+            try (PreparedStatement pstmt = conn.prepareStatement(occupy)) {
+                bindIds(pstmt, 1, assigned);
+                pstmt.executeUpdate();
+            }
+            SeatInventory.getInstance().invalidateTrain(journey.trainId);
+        }
+
+        markPromoted(conn, QueuePositions.Queue.RAC, fromRAC);
+        markPromoted(conn, QueuePositions.Queue.WAITLIST, fromWaitlist);
+
+        String confirm = "UPDATE bookings SET status = 'Confirmed', seat_id = ? WHERE booking_id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(confirm)) {
+            for (int i = 0; i < promoted.size(); i++) {
+                pstmt.setInt(1, assigned.get(i));
+                pstmt.setInt(2, promoted.get(i).bookingId);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+
+        // Same payment a direct confirmed booking gets (fare of the passenger's stops in the assigned seat's class),
+        // unless one was already taken
+        FareEngine fares = FareEngine.getInstance();
+        String payment = """
+            INSERT INTO payments (booking_id, amount, status, transaction_id)
+            SELECT ?, ?, 'Success', ? FROM DUAL
+            WHERE NOT EXISTS (SELECT 1 FROM payments WHERE booking_id = ? AND status = 'Success')
+            """;
+        IdGenerator ids = IdGenerator.getInstance();
+        try (PreparedStatement pstmt = conn.prepareStatement(payment)) {
+            for (int i = 0; i < promoted.size(); i++) {
+                Entry entry = promoted.get(i);
+                int classId = inventory.getSeatClassId(conn, journey.trainId, assigned.get(i));
+                pstmt.setInt(1, entry.bookingId);
+                pstmt.setBigDecimal(2, fares.quote(conn, journey.routeId, entry.fromOrdinal, entry.toOrdinal, classId));
+                pstmt.setString(3, ids.nextTransactionId());
+                pstmt.setInt(4, entry.bookingId);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+
+        for (int i = 0; i < promoted.size(); i++) {
+            PromotionEvent.Type type = i < fromRAC.size()
+                ? PromotionEvent.Type.RAC_CONFIRMED
+                : PromotionEvent.Type.WAITLIST_CONFIRMED;
+            events.add(new PromotionEvent(type, promoted.get(i), journey, assigned.get(i)));
+        }
+        return fromRAC.size();
+    }
+
+    /**
+     * Give each head, in queue order, the first freed seat free between its
+     * stops; returns the heads that got one. Seats freed from the old global
+     * flag (no journey date) fit anyone.
+     */
+    private static List<Entry> assignSeats(Connection conn, SeatInventory inventory, Journey journey, List<Entry> heads,
+                                           List<Integer> seats, long[] occupancy, List<Integer> free,
+                                           List<Entry> promoted, List<Integer> assigned) throws SQLException {
+        List<Entry> matched = new ArrayList<>();
+        for (Entry head : heads) {
+            long mask = journey.journeyDate != null
+                ? inventory.getSegmentMask(conn, journey.trainId, journey.routeId, head.fromOrdinal, head.toOrdinal)
+                : 0;
+            for (Integer seatId : free) {
+                if ((occupancy[seats.indexOf(seatId)] & mask) == 0) {
+                    free.remove(seatId);
+                    matched.add(head);
+                    promoted.add(head);
+                    assigned.add(seatId);
+                    break;
+                }
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * Move waitlist heads into freed RAC places, without going over the RAC limit
+     */
+    private static void moveWaitlistToRAC(Connection conn, Journey journey, int freedPlaces,
+                                          List<PromotionEvent> events) throws SQLException {
+        if (freedPlaces <= 0) {
+            return;
+        }
+
+        int racCount;
+        String countQuery = "SELECT COUNT(*) FROM rac WHERE train_id = ? AND route_id = ? AND status = 'RAC'";
+        try (PreparedStatement pstmt = conn.prepareStatement(countQuery)) {
+            pstmt.setInt(1, journey.trainId);
+            pstmt.setInt(2, journey.routeId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                racCount = rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+        int places = Math.min(freedPlaces, RACQueue.MAX_RAC_ENTRIES - racCount);
+        if (places <= 0) {
+            return;
+        }
+
+        List<Entry> moved = takeHeads(conn, QueuePositions.Queue.WAITLIST, journey, places);
+        if (moved.isEmpty()) {
+            return;
+        }
+        markPromoted(conn, QueuePositions.Queue.WAITLIST, moved);
+
+        // One block of tickets keeps the moved passengers in their waitlist order
+        int firstTicket = QueuePositions.nextTickets(QueuePositions.Queue.RAC, journey.trainId, journey.routeId, moved.size());
+        String insert = "INSERT INTO rac (user_id, train_id, route_id, position, booking_id) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(insert)) {
+            for (int i = 0; i < moved.size(); i++) {
+                pstmt.setInt(1, moved.get(i).userId);
+                pstmt.setInt(2, journey.trainId);
+                pstmt.setInt(3, journey.routeId);
+                pstmt.setInt(4, firstTicket + i);
+                pstmt.setInt(5, moved.get(i).bookingId);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+
+        List<Integer> bookingIds = new ArrayList<>();
+        for (Entry entry : moved) {
+            bookingIds.add(entry.bookingId);
+        }
+        String toRAC = "UPDATE bookings SET status = 'RAC' WHERE booking_id IN (%s)".formatted(placeholders(bookingIds.size()));
+        try (PreparedStatement pstmt = conn.prepareStatement(toRAC)) {
+            bindIds(pstmt, 1, bookingIds);
+            pstmt.executeUpdate();
+        }
+
+        for (Entry entry : moved) {
+            events.add(new PromotionEvent(PromotionEvent.Type.WAITLIST_TO_RAC, entry, journey, 0));
+        }
+    }
+
+    /**
+     * Lock and return up to [count] waiting entries from the head of the queue
+     * for this journey, each with its booking. Entries written before queue rows
+     * carried a booking_id are matched to the user's oldest queued booking; an
+     * entry with no booking left is closed and skipped, and the queue is read
+     * again past it. Each entry is returned at most once, however short the queue.
+     */
+    private static List<Entry> takeHeads(Connection conn, QueuePositions.Queue queue, Journey journey,
+                                         int count) throws SQLException {
+        List<Entry> heads = new ArrayList<>();
+        Set<Integer> usedBookings = new HashSet<>();
+        List<Integer> taken = new ArrayList<>();
+
+        while (heads.size() < count) {
+            int wanted = count - heads.size();
+            String query = """
+                SELECT q.%2$s AS entry_id, q.user_id, q.booking_id, b.from_ordinal, b.to_ordinal
+                FROM %1$s q
+                LEFT JOIN bookings b ON b.booking_id = q.booking_id
+                WHERE q.train_id = ? AND q.route_id = ? AND q.status = ?
+                  AND (b.journey_date IS NULL OR b.journey_date = ?)%3$s
+                ORDER BY q.position, q.%2$s
+                LIMIT ?
+                FOR UPDATE
+                """.formatted(queue.getTable(), queue.getIdColumn(),
+                              taken.isEmpty() ? "" : "\n  AND q." + queue.getIdColumn() + " NOT IN (" + placeholders(taken.size()) + ")");
+            List<Entry> orphans = new ArrayList<>();
+            int fetched = 0;
+            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                pstmt.setInt(1, journey.trainId);
+                pstmt.setInt(2, journey.routeId);
+                pstmt.setString(3, queue.getWaitingStatus());
+                if (journey.journeyDate != null) {
+                    pstmt.setDate(4, Date.valueOf(journey.journeyDate));
+                } else {
+                    pstmt.setNull(4, Types.DATE);
+                }
+                bindIds(pstmt, 5, taken);
+                pstmt.setInt(5 + taken.size(), wanted);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        fetched++;
+                        Entry entry = new Entry(rs.getInt("entry_id"), rs.getInt("user_id"), rs.getInt("booking_id"));
+                        entry.fromOrdinal = BookingManager.getOrdinal(rs, "from_ordinal");
+                        entry.toOrdinal = BookingManager.getOrdinal(rs, "to_ordinal");
+                        taken.add(entry.entryId);
+                        orphans.add(entry);
+                    }
+                }
+            }
+
+            for (Entry entry : new ArrayList<>(orphans)) {
+                if (entry.bookingId == 0) {
+                    entry.bookingId = findLegacyBooking(conn, queue, journey, entry.userId, usedBookings);
+                }
+                if (entry.bookingId != 0) {
+                    usedBookings.add(entry.bookingId);
+                    heads.add(entry);
+                    orphans.remove(entry);
+                }
+            }
+            if (!orphans.isEmpty()) {
+                Logger.getInstance().warn("PromotionEngine", "takeHeads",
+                    orphans.size() + " " + queue.getTable() + " entries on train " + journey.trainId + " have no booking left; closing them");
+                markPromoted(conn, queue, orphans);
+            }
+            // Read again only to replace closed orphans, and only if the queue had more to give
+            if (fetched < wanted || orphans.isEmpty()) {
+                break;
+            }
+        }
+        return heads;
+    }
+
+    private static int findLegacyBooking(Connection conn, QueuePositions.Queue queue, Journey journey,
+                                         int userId, Set<Integer> usedBookings) throws SQLException {
+        String query = """
+            SELECT booking_id FROM bookings
+            WHERE user_id = ? AND train_id = ? AND route_id = ? AND status = ? AND seat_id IS NULL
+            ORDER BY booking_id
+            FOR UPDATE
+            """;
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, userId);
+            pstmt.setInt(2, journey.trainId);
+            pstmt.setInt(3, journey.routeId);
+            pstmt.setString(4, queue.getWaitingStatus());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int bookingId = rs.getInt("booking_id");
+                    if (!usedBookings.contains(bookingId)) {
+                        return bookingId;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static void markPromoted(Connection conn, QueuePositions.Queue queue, List<Entry> entries) throws SQLException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (Entry entry : entries) {
+            ids.add(entry.entryId);
+        }
+        String update = "UPDATE %s SET status = 'Promoted' WHERE %s IN (%s)"
+            .formatted(queue.getTable(), queue.getIdColumn(), placeholders(ids.size()));
+        try (PreparedStatement pstmt = conn.prepareStatement(update)) {
+            bindIds(pstmt, 1, ids);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static void bindIds(PreparedStatement pstmt, int firstIndex, List<Integer> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            pstmt.setInt(firstIndex + i, ids.get(i));
+        }
+    }
+
+    /**
+     * A passenger moved up by a committed cancellation
+     */
+    public static class PromotionEvent {
+        public enum Type {
+            RAC_CONFIRMED, WAITLIST_CONFIRMED, WAITLIST_TO_RAC
+        }
+
+        private final Type type;
+        private final int bookingId;
+        private final int userId;
+        private final int trainId;
+        private final int routeId;
+        private final LocalDate journeyDate;
+        private final int seatId;
+
+        private PromotionEvent(Type type, Entry entry, Journey journey, int seatId) {
+            this.type = type;
+            this.bookingId = entry.bookingId;
+            this.userId = entry.userId;
+            this.trainId = journey.trainId;
+            this.routeId = journey.routeId;
+            this.journeyDate = journey.journeyDate;
+            this.seatId = seatId;
+        }
+
+        public Type getType() { return type; }
+        public int getBookingId() { return bookingId; }
+        public int getUserId() { return userId; }
+        public int getTrainId() { return trainId; }
+        public int getRouteId() { return routeId; }
+        public LocalDate getJourneyDate() { return journeyDate; }
+        /** Seat given to the booking, 0 for WAITLIST_TO_RAC */
+        public int getSeatId() { return seatId; }
+
+        @Override
+        public String toString() {
+            return type + ": booking " + bookingId + " (user " + userId + ") on train " + trainId +
+                   ", route " + routeId + (journeyDate != null ? ", " + journeyDate : "") +
+                   (seatId > 0 ? ", seat " + seatId : "");
+        }
+    }
+
+    private static class Entry {
+        private final int entryId;
+        private final int userId;
+        private int bookingId;
+        private int fromOrdinal = FareEngine.WHOLE_ROUTE;
+        private int toOrdinal = FareEngine.WHOLE_ROUTE;
+
+        Entry(int entryId, int userId, int bookingId) {
+            this.entryId = entryId;
+            this.userId = userId;
+            this.bookingId = bookingId;
+        }
+    }
+
+    private static class Journey {
+        private final int trainId;
+        private final int routeId;
+        private final LocalDate journeyDate;
+        private final List<Integer> freedSeats = new ArrayList<>();
+        private int freedRacPlaces;
+
+        Journey(int trainId, int routeId, LocalDate journeyDate) {
+            this.trainId = trainId;
+            this.routeId = routeId;
+            this.journeyDate = journeyDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Journey)) return false;
+            Journey other = (Journey) o;
+            return trainId == other.trainId && routeId == other.routeId && Objects.equals(journeyDate, other.journeyDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(trainId, routeId, journeyDate);
+        }
+    }
+}
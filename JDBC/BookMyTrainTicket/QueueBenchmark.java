@@ -0,0 +1,193 @@
+package BookMyTrainTicket;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark for RAC/waitlist position handling on a deep queue
+ *
+ * Fills one train/route waitlist with [depth] entries, then measures:
+ *   enqueue  - addToWaitlist (sequence ticket + insert), first vs last 1000
+ *   promote  - promoteFromWaitlist, one committed transaction each
+ *   renumber - the old "position = position - 1" UPDATE at the same depth,
+ *              rolled back, for comparison
+ *   rank     - getWaitlistPosition of the last entry and a full getWaitlist
+ * Entries are created for the first sample user and removed afterwards.
+ *
+ * Usage: QueueBenchmark [depth] [promotions]
+ */
+public class QueueBenchmark {
+    private static final int SAMPLE = 1000;
+    private static final int RENUMBER_ROUNDS = 20;
+    private static final int RANK_ROUNDS = 100;
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int promotions = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        try {
+            System.out.println("Testing queue positions with a " + depth + "-deep waitlist...");
+            WaitlistManager waitlistManager = new WaitlistManager();
+            int[] target = findTrainAndRoute();
+            int trainId = target[0];
+            int routeId = target[1];
+            int userId = findUserId("john_doe");
+            Timestamp startedAt = databaseNow();
+
+            try {
+                List<Integer> waitlistIds = new ArrayList<>(depth);
+                long firstSample = 0;
+                long lastSample = 0;
+                for (int i = 0; i < depth; i++) {
+                    long start = System.nanoTime();
+                    waitlistIds.add(waitlistManager.addToWaitlist(userId, trainId, routeId));
+                    long elapsed = System.nanoTime() - start;
+                    if (i < SAMPLE) {
+                        firstSample += elapsed;
+                    } else if (i >= depth - SAMPLE) {
+                        lastSample += elapsed;
+                    }
+                }
+                int sample = Math.min(SAMPLE, depth);
+                report("enqueue (first " + sample + ")", firstSample, sample);
+                report("enqueue (last " + sample + ")", lastSample, sample);
+
+                int lastId = waitlistIds.get(waitlistIds.size() - 1);
+                long rankTime = 0;
+                int rank = 0;
+                for (int i = 0; i < RANK_ROUNDS; i++) {
+                    long start = System.nanoTime();
+                    rank = waitlistManager.getWaitlistPosition(lastId);
+                    rankTime += System.nanoTime() - start;
+                }
+                report("rank of last entry (" + rank + ")", rankTime, RANK_ROUNDS);
+
+                long listStart = System.nanoTime();
+                int listed = waitlistManager.getWaitlist(trainId, routeId).size();
+                report("getWaitlist (" + listed + " rows)", System.nanoTime() - listStart, 1);
+
+                long[] renumbered = legacyRenumber(trainId, routeId);
+                report("renumber UPDATE (" + renumbered[1] + " rows each, rolled back)", renumbered[0], RENUMBER_ROUNDS);
+
+                long promoteTime = 0;
+                int promoted = 0;
+                for (int i = 0; i < promotions; i++) {
+                    long start = System.nanoTime();
+                    if (promote(waitlistManager, trainId, routeId)) {
+                        promoted++;
+                    }
+                    promoteTime += System.nanoTime() - start;
+                }
+                report("promote (" + promoted + " committed)", promoteTime, Math.max(1, promotions));
+
+                int rankAfter = waitlistManager.getWaitlistPosition(lastId);
+                System.out.println("Last entry moved from position " + rank + " to " + rankAfter);
+                if (rank - rankAfter != promoted) {
+                    System.err.println("FAILED: rank did not move up by the number of promotions");
+                    System.exit(1);
+                }
+            } finally {
+                cleanUp(trainId, userId, startedAt);
+            }
+            System.out.println("Queue benchmark completed!");
+
+        } catch (SQLException e) {
+            System.err.println("Database error during queue benchmark: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static boolean promote(WaitlistManager waitlistManager, int trainId, int routeId) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                boolean promoted = waitlistManager.promoteFromWaitlist(conn, trainId, routeId);
+                conn.commit();
+                return promoted;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * The per-promotion UPDATE the queues used before tickets; returns {total nanos, rows per round}
+     */
+    private static long[] legacyRenumber(int trainId, int routeId) throws SQLException {
+        String query = "UPDATE waitlist SET position = position - 1 WHERE train_id = ? AND route_id = ? AND status = 'Waiting' AND position > 1";
+        long total = 0;
+        long rows = 0;
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                for (int i = 0; i < RENUMBER_ROUNDS; i++) {
+                    pstmt.setInt(1, trainId);
+                    pstmt.setInt(2, routeId);
+                    long start = System.nanoTime();
+                    rows = pstmt.executeUpdate();
+                    total += System.nanoTime() - start;
+                    conn.rollback();
+                }
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        }
+        return new long[] { total, rows };
+    }
+
+    private static void report(String label, long nanos, int operations) {
+        System.out.println(String.format("%-50s %10.1f us/op", label, nanos / 1000.0 / operations));
+    }
+
+    private static int[] findTrainAndRoute() throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT train_id, route_id FROM routes ORDER BY route_id LIMIT 1");
+             ResultSet rs = pstmt.executeQuery()) {
+            if (rs.next()) {
+                return new int[] { rs.getInt("train_id"), rs.getInt("route_id") };
+            }
+        }
+        throw new SQLException("No route found - start the app once to create sample data");
+    }
+
+    private static int findUserId(String username) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT user_id FROM users WHERE username = ?")) {
+            pstmt.setString(1, username);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        }
+        throw new SQLException("User not found: " + username);
+    }
+
+    private static Timestamp databaseNow() throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT NOW()");
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+
+    /**
+     * Remove the waitlist entries created by the run
+     */
+    private static void cleanUp(int trainId, int userId, Timestamp startedAt) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "DELETE FROM waitlist WHERE user_id = ? AND train_id = ? AND request_time >= ?")) {
+            pstmt.setInt(1, userId);
+            pstmt.setInt(2, trainId);
+            pstmt.setTimestamp(3, startedAt);
+            pstmt.executeUpdate();
+        }
+    }
+}
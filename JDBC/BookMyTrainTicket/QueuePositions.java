@@ -0,0 +1,137 @@
+package BookMyTrainTicket;
+
+import java.sql.*;
+
+/**
+ * Queue order for the RAC and waitlist tables
+ *
+ * The position column holds a ticket from a per-(queue, train, route)
+ * sequence in queue_sequences that only ever grows. Joining a queue is one
+ * upsert on the sequence row plus the insert; promotion and removal only
+ * touch the entry itself, so nobody behind it is renumbered and the work per
+ * write does not depend on queue length. Tickets are taken in their own
+ * short transaction, so the sequence row is not locked while the booking
+ * runs; a booking that rolls back leaves a gap, which is expected.
+ *
+ * The position shown to passengers is the rank: the number of entries still
+ * waiting whose ticket is at or before this one (ties on old data are broken
+ * by id). It is computed when read, from the (train, route, status, position)
+ * index.
+ */
+public final class QueuePositions {
+
+    public enum Queue {
+        RAC("rac", "rac_id", "RAC"),
+        WAITLIST("waitlist", "waitlist_id", "Waiting");
+
+        private final String table;
+        private final String idColumn;
+        private final String waitingStatus;
+
+        Queue(String table, String idColumn, String waitingStatus) {
+            this.table = table;
+            this.idColumn = idColumn;
+            this.waitingStatus = waitingStatus;
+        }
+
+        public String getTable() { return table; }
+        public String getIdColumn() { return idColumn; }
+        public String getWaitingStatus() { return waitingStatus; }
+    }
+
+    private QueuePositions() {
+    }
+
+    /**
+     * Take the next ticket for the queue. The upsert commits on its own
+     * connection right away, so concurrent bookings for the same train only
+     * wait on each other for that one statement and never get the same ticket.
+     */
+    public static int nextTicket(Queue queue, int trainId, int routeId) throws SQLException {
+        return nextTickets(queue, trainId, routeId, 1);
+    }
+
+    /**
+     * Take a block of consecutive tickets with one upsert; returns the first
+     */
+    public static int nextTickets(Queue queue, int trainId, int routeId, int count) throws SQLException {
+        String upsert = """
+            INSERT INTO queue_sequences (queue_name, train_id, route_id, last_position)
+            VALUES (?, ?, ?, LAST_INSERT_ID(?))
+            ON DUPLICATE KEY UPDATE last_position = LAST_INSERT_ID(last_position + ?)
+            """;
+        // LAST_INSERT_ID() is per session, so both statements run on the one borrowed connection
+        try (Connection conn = DatabaseManager.getSequenceConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(upsert)) {
+                pstmt.setString(1, queue.table);
+                pstmt.setInt(2, trainId);
+                pstmt.setInt(3, routeId);
+                pstmt.setInt(4, count);
+                pstmt.setInt(5, count);
+                pstmt.executeUpdate();
+            }
+
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT LAST_INSERT_ID()")) {
+                if (rs.next()) {
+                    return rs.getInt(1) - count + 1;
+                }
+            }
+        }
+        throw new SQLException("Could not take a " + queue.table + " ticket for train " + trainId + ", route " + routeId);
+    }
+
+    /**
+     * 1-based place in line of a waiting entry, or 0 if it is no longer waiting
+     */
+    public static int rank(Connection conn, Queue queue, int entryId) throws SQLException {
+        String query = """
+            SELECT COUNT(*)
+            FROM %1$s me
+            JOIN %1$s q ON q.train_id = me.train_id AND q.route_id = me.route_id AND q.status = me.status
+            WHERE me.%2$s = ? AND me.status = ?
+              AND (q.position < me.position OR (q.position = me.position AND q.%2$s <= me.%2$s))
+            """.formatted(queue.table, queue.idColumn);
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, entryId);
+            pstmt.setString(2, queue.waitingStatus);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * SQL expression for the rank of each row in a query over the queue table
+     * aliased as the given alias (0 for entries no longer waiting)
+     */
+    static String rankColumn(Queue queue, String alias) {
+        return """
+            CASE WHEN %1$s.status = '%2$s'
+                 THEN ROW_NUMBER() OVER (PARTITION BY %1$s.train_id, %1$s.route_id, %1$s.status
+                                         ORDER BY %1$s.position, %1$s.%3$s)
+                 ELSE 0 END""".formatted(alias, queue.waitingStatus, queue.idColumn);
+    }
+
+    /**
+     * Start every sequence above the positions already in the queue tables
+     * (entries written before the sequences existed)
+     */
+    static void seedSequences(Connection conn) throws SQLException {
+        for (Queue queue : Queue.values()) {
+            String seed = """
+                INSERT INTO queue_sequences (queue_name, train_id, route_id, last_position)
+                SELECT ?, train_id, route_id, max_position
+                FROM (SELECT train_id, route_id, MAX(position) AS max_position
+                      FROM %s
+                      WHERE position IS NOT NULL
+                      GROUP BY train_id, route_id) existing
+                ON DUPLICATE KEY UPDATE last_position = GREATEST(last_position, max_position)
+                """.formatted(queue.table);
+            try (PreparedStatement pstmt = conn.prepareStatement(seed)) {
+                pstmt.setString(1, queue.table);
+                pstmt.executeUpdate();
+            }
+        }
+    }
+}
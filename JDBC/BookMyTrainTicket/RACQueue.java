@@ -8,6 +8,9 @@ import java.util.List;
  * Manages RAC (Reservation Against Cancellation) queue operations
  */
 public class RACQueue {
+    // RAC places per train and route; bookings beyond this go to the waitlist
+    public static final int MAX_RAC_ENTRIES = 100;
+    
     private DatabaseManager dbManager;
     
     public RACQueue() throws SQLException {
@@ -18,16 +21,38 @@ public class RACQueue {
      * Add user to RAC
      */
     public int addToRAC(int userId, int trainId, int routeId) throws SQLException {
-        // Get next position
-        int position = getNextRACPosition(trainId, routeId);
+        try (Connection conn = dbManager.getConnection()) {
+            return addToRAC(conn, userId, trainId, routeId);
+        }
+    }
+    
+    /**
+     * Add user to RAC using the caller's connection
+     */
+    public int addToRAC(Connection conn, int userId, int trainId, int routeId) throws SQLException {
+        return addToRAC(conn, userId, trainId, routeId, 0);
+    }
+    
+    /**
+     * Add a RAC booking's passenger to RAC, linked to the booking so promotion
+     * can confirm it (bookingId 0 leaves the entry unlinked)
+     */
+    public int addToRAC(Connection conn, int userId, int trainId, int routeId, int bookingId) throws SQLException {
+        // Take the next ticket; the displayed position is computed from it when read
+        int position = QueuePositions.nextTicket(QueuePositions.Queue.RAC, trainId, routeId);
         
-        String query = "INSERT INTO rac (user_id, train_id, route_id, position) VALUES (?, ?, ?, ?)";
+        String query = "INSERT INTO rac (user_id, train_id, route_id, position, booking_id) VALUES (?, ?, ?, ?, ?)";
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             pstmt.setInt(1, userId);
             pstmt.setInt(2, trainId);
             pstmt.setInt(3, routeId);
             pstmt.setInt(4, position);
+            if (bookingId > 0) {
+                pstmt.setInt(5, bookingId);
+            } else {
+                pstmt.setNull(5, Types.INTEGER);
+            }
             
             pstmt.executeUpdate();
             
@@ -42,32 +67,30 @@ public class RACQueue {
     }
     
     /**
-     * Get next RAC position
+     * Current place in line of a RAC entry (0 once promoted)
      */
-    private int getNextRACPosition(int trainId, int routeId) throws SQLException {
-        String query = "SELECT COALESCE(MAX(position), 0) + 1 FROM rac WHERE train_id = ? AND route_id = ? AND status = 'RAC'";
-        
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
-            pstmt.setInt(1, trainId);
-            pstmt.setInt(2, routeId);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1);
-                }
-            }
+    public int getRACPosition(int racId) throws SQLException {
+        try (Connection conn = dbManager.getConnection()) {
+            return QueuePositions.rank(conn, QueuePositions.Queue.RAC, racId);
         }
-        
-        return 1;
     }
     
     /**
      * Get RAC count for a train and route
      */
     public int getRACCount(int trainId, int routeId) throws SQLException {
+        try (Connection conn = dbManager.getConnection()) {
+            return getRACCount(conn, trainId, routeId);
+        }
+    }
+    
+    /**
+     * Get RAC count for a train and route on the caller's connection
+     */
+    public int getRACCount(Connection conn, int trainId, int routeId) throws SQLException {
         String query = "SELECT COUNT(*) FROM rac WHERE train_id = ? AND route_id = ? AND status = 'RAC'";
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, trainId);
             pstmt.setInt(2, routeId);
             
@@ -85,51 +108,44 @@ public class RACQueue {
      * Promote first person from RAC
      */
     public boolean promoteFromRAC(int trainId, int routeId) throws SQLException {
+        try (Connection conn = dbManager.getConnection()) {
+            return promoteFromRAC(conn, trainId, routeId);
+        }
+    }
+    
+    /**
+     * Promote first person from RAC using the caller's connection,
+     * so it takes part in the caller's transaction
+     */
+    public boolean promoteFromRAC(Connection conn, int trainId, int routeId) throws SQLException {
         // Get first person in RAC
         String selectQuery = """
             SELECT rac_id, user_id FROM rac 
             WHERE train_id = ? AND route_id = ? AND status = 'RAC' 
-            ORDER BY position LIMIT 1
+            ORDER BY position, rac_id LIMIT 1
             """;
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(selectQuery)) {
+        int racId;
+        try (PreparedStatement pstmt = conn.prepareStatement(selectQuery)) {
             pstmt.setInt(1, trainId);
             pstmt.setInt(2, routeId);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    int racId = rs.getInt("rac_id");
-                    int userId = rs.getInt("user_id");
-                    
-                    // Update RAC status
-                    String updateQuery = "UPDATE rac SET status = 'Promoted' WHERE rac_id = ?";
-                    try (PreparedStatement updateStmt = dbManager.getConnection().prepareStatement(updateQuery)) {
-                        updateStmt.setInt(1, racId);
-                        updateStmt.executeUpdate();
-                    }
-                    
-                    // Update positions for remaining RAC
-                    updateRACPositions(trainId, routeId);
-                    
-                    return true;
+                if (!rs.next()) {
+                    return false;
                 }
+                racId = rs.getInt("rac_id");
             }
         }
         
-        return false;
-    }
-    
-    /**
-     * Update RAC positions after promotion
-     */
-    private void updateRACPositions(int trainId, int routeId) throws SQLException {
-        String query = "UPDATE rac SET position = position - 1 WHERE train_id = ? AND route_id = ? AND status = 'RAC' AND position > 1";
-        
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
-            pstmt.setInt(1, trainId);
-            pstmt.setInt(2, routeId);
-            pstmt.executeUpdate();
+        // Update RAC status; everyone behind moves up by rank, nothing is renumbered
+        String updateQuery = "UPDATE rac SET status = 'Promoted' WHERE rac_id = ?";
+        try (PreparedStatement updateStmt = conn.prepareStatement(updateQuery)) {
+            updateStmt.setInt(1, racId);
+            updateStmt.executeUpdate();
         }
+        
+        return true;
     }
     
     /**
@@ -139,15 +155,17 @@ public class RACQueue {
         List<RACEntry> racList = new ArrayList<>();
         
         String query = """
-            SELECT r.rac_id, r.user_id, r.position, r.request_time, r.status,
+            SELECT r.rac_id, r.user_id, r.request_time, r.status,
+                   %s AS queue_rank,
                    u.username, u.email
             FROM rac r
             JOIN users u ON r.user_id = u.user_id
             WHERE r.train_id = ? AND r.route_id = ?
-            ORDER BY r.position
-            """;
+            ORDER BY r.position, r.rac_id
+            """.formatted(QueuePositions.rankColumn(QueuePositions.Queue.RAC, "r"));
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, trainId);
             pstmt.setInt(2, routeId);
             
@@ -156,7 +174,7 @@ public class RACQueue {
                     RACEntry entry = new RACEntry();
                     entry.setRacId(rs.getInt("rac_id"));
                     entry.setUserId(rs.getInt("user_id"));
-                    entry.setPosition(rs.getInt("position"));
+                    entry.setPosition(rs.getInt("queue_rank"));
                     entry.setRequestTime(rs.getTimestamp("request_time").toLocalDateTime());
                     entry.setStatus(rs.getString("status"));
                     entry.setUsername(rs.getString("username"));
@@ -177,7 +195,8 @@ public class RACQueue {
         List<RACEntryWithTrainInfo> racList = new ArrayList<>();
         
         String query = """
-            SELECT r.rac_id, r.user_id, r.train_id, r.route_id, r.position, 
+            SELECT r.rac_id, r.user_id, r.train_id, r.route_id,
+                   %s AS queue_rank,
                    r.request_time, r.status, u.username, u.email,
                    t.train_name, t.train_number, rt.source_station, rt.destination_station
             FROM rac r
@@ -185,9 +204,10 @@ public class RACQueue {
             JOIN trains t ON r.train_id = t.train_id
             JOIN routes rt ON r.route_id = rt.route_id
             ORDER BY r.request_time DESC
-            """;
+            """.formatted(QueuePositions.rankColumn(QueuePositions.Queue.RAC, "r"));
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query);
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query);
              ResultSet rs = pstmt.executeQuery()) {
             
             while (rs.next()) {
@@ -196,7 +216,7 @@ public class RACQueue {
                 entry.setUserId(rs.getInt("user_id"));
                 entry.setTrainId(rs.getInt("train_id"));
                 entry.setRouteId(rs.getInt("route_id"));
-                entry.setPosition(rs.getInt("position"));
+                entry.setPosition(rs.getInt("queue_rank"));
                 entry.setRequestTime(rs.getTimestamp("request_time").toLocalDateTime());
                 entry.setStatus(rs.getString("status"));
                 entry.setUsername(rs.getString("username"));
@@ -219,7 +239,8 @@ public class RACQueue {
     public boolean removeFromRAC(int racId) throws SQLException {
         String query = "DELETE FROM rac WHERE rac_id = ?";
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, racId);
             
             int rowsAffected = pstmt.executeUpdate();
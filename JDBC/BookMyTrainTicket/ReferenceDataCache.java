@@ -0,0 +1,367 @@
+package BookMyTrainTicket;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache for reference data: trains, routes, classes and stations
+ *
+ * Each kind of data lives in its own region with a size limit (least recently
+ * used entries go first) and a time-to-live. Every region has a version;
+ * write paths call the matching invalidate method after their change is
+ * committed, which moves the version on and drops the region. An entry is only
+ * served while its version is current, and a load that raced with a write is
+ * not stored, so readers never get a price or name older than the last write.
+ *
+ * Loaders run outside the region lock and must not return null for data that
+ * exists; null results are not cached.
+ */
+public class ReferenceDataCache {
+    private static final long DEFAULT_TTL_MINUTES = 10;
+    private static final String ALL = "all";
+
+    private static ReferenceDataCache instance;
+
+    private final Region<Integer, Train> trains = new Region<>("trains", 1000);
+    private final Region<String, List<Train>> trainLists = new Region<>("trainLists", 4);
+    private final Region<Integer, Route> routes = new Region<>("routes", 5000);
+    private final Region<String, List<Route>> routeLists = new Region<>("routeLists", 4);
+    private final Region<String, Integer> classIds = new Region<>("classes", 5000);
+    private final Region<String, List<String>> stations = new Region<>("stations", 4);
+
+    private ReferenceDataCache() {
+    }
+
+    public static synchronized ReferenceDataCache getInstance() {
+        if (instance == null) {
+            instance = new ReferenceDataCache();
+        }
+        return instance;
+    }
+
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws SQLException;
+    }
+
+    // --- Trains ---
+
+    public Train getTrain(int trainId) throws SQLException {
+        return trains.get(trainId, () -> {
+            String query = "SELECT train_id, train_name, train_number FROM trains WHERE train_id = ?";
+            try (Connection conn = DatabaseManager.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
+                pstmt.setInt(1, trainId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? readTrain(rs) : null;
+                }
+            }
+        });
+    }
+
+    /**
+     * All trains ordered by name (unmodifiable)
+     */
+    public List<Train> getAllTrains() throws SQLException {
+        return trainLists.get(ALL, () -> {
+            List<Train> all = new ArrayList<>();
+            String query = "SELECT train_id, train_name, train_number FROM trains ORDER BY train_name";
+            try (Connection conn = DatabaseManager.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query);
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    all.add(readTrain(rs));
+                }
+            }
+            return Collections.unmodifiableList(all);
+        });
+    }
+
+    // --- Routes ---
+
+    public Route getRoute(int routeId) throws SQLException {
+        return routes.get(routeId, () -> {
+            try (Connection conn = DatabaseManager.getConnection()) {
+                return loadRoute(conn, routeId);
+            }
+        });
+    }
+
+    /**
+     * Route lookup that loads on the caller's connection on a miss (inside a transaction)
+     */
+    public Route getRoute(Connection conn, int routeId) throws SQLException {
+        return routes.get(routeId, () -> loadRoute(conn, routeId));
+    }
+
+    /**
+     * All routes ordered by train name, then source station (unmodifiable)
+     */
+    public List<Route> getAllRoutes() throws SQLException {
+        return routeLists.get(ALL, () -> {
+            List<Route> all = new ArrayList<>();
+            String query = """
+                SELECT r.*
+                FROM routes r
+                JOIN trains t ON r.train_id = t.train_id
+                ORDER BY t.train_name, r.source_station
+                """;
+            try (Connection conn = DatabaseManager.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query);
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    all.add(readRoute(rs));
+                }
+            }
+            return Collections.unmodifiableList(all);
+        });
+    }
+
+    // --- Classes ---
+
+    /**
+     * class_id of a train's class, or null if the train has no such class
+     */
+    public Integer getClassId(int trainId, String classType) throws SQLException {
+        return classIds.get(trainId + ":" + classType, () -> {
+            String query = "SELECT class_id FROM classes WHERE train_id = ? AND class_type = ?";
+            try (Connection conn = DatabaseManager.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
+                pstmt.setInt(1, trainId);
+                pstmt.setString(2, classType);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getInt("class_id") : null;
+                }
+            }
+        });
+    }
+
+    // --- Stations ---
+
+    /**
+     * Every station that appears as a route end, sorted (unmodifiable)
+     */
+    public List<String> getStationNames() throws SQLException {
+        return stations.get(ALL, () -> {
+            List<String> names = new ArrayList<>();
+            String query = """
+                SELECT DISTINCT station_name FROM (
+                    SELECT source_station as station_name FROM routes
+                    UNION
+                    SELECT destination_station as station_name FROM routes
+                ) stations
+                ORDER BY station_name
+                """;
+            try (Connection conn = DatabaseManager.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query);
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString("station_name"));
+                }
+            }
+            return Collections.unmodifiableList(names);
+        });
+    }
+
+    // --- Invalidation (call after the write has committed) ---
+
+    /**
+     * A train was added, renamed or deleted. Deleting a train cascades to its
+     * routes and classes, so those go too.
+     */
+    public void invalidateTrains() {
+        trains.invalidate();
+        trainLists.invalidate();
+        invalidateRoutes();
+        classIds.invalidate();
+    }
+
+    /**
+     * A route was added, changed or deleted
+     */
+    public void invalidateRoutes() {
+        routes.invalidate();
+        routeLists.invalidate();
+        stations.invalidate();
+    }
+
+    public void invalidateClasses() {
+        classIds.invalidate();
+    }
+
+    public void invalidateStations() {
+        stations.invalidate();
+    }
+
+    public void invalidateAll() {
+        invalidateTrains();
+    }
+
+    /**
+     * Hit/miss/eviction counters of every region
+     */
+    public List<Stats> getStats() {
+        return List.of(trains.stats(), trainLists.stats(), routes.stats(), routeLists.stats(),
+                       classIds.stats(), stations.stats());
+    }
+
+    private static Train readTrain(ResultSet rs) throws SQLException {
+        return new Train(rs.getInt("train_id"), rs.getString("train_name"), rs.getString("train_number"));
+    }
+
+    private static Route loadRoute(Connection conn, int routeId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM routes WHERE route_id = ?")) {
+            pstmt.setInt(1, routeId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? readRoute(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Map a routes row; stops and intermediate_stations only exist on migrated schemas
+     */
+    private static Route readRoute(ResultSet rs) throws SQLException {
+        Route route = new Route(
+            rs.getInt("route_id"),
+            rs.getInt("train_id"),
+            rs.getString("source_station"),
+            rs.getString("destination_station"),
+            rs.getTime("departure_time").toLocalTime(),
+            rs.getTime("arrival_time").toLocalTime(),
+            rs.getBigDecimal("price")
+        );
+        if (DatabaseManager.getSchemaCapabilities().hasRouteStopCount()) {
+            route.setStops(rs.getInt("stops"));
+        }
+        if (DatabaseManager.getSchemaCapabilities().hasIntermediateStations()) {
+            route.setIntermediateStations(rs.getString("intermediate_stations"));
+        }
+        return route;
+    }
+
+    /**
+     * Counters of one region at the time of the call
+     */
+    public static class Stats {
+        private final String region;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int size;
+        private final long version;
+
+        Stats(String region, long hits, long misses, long evictions, int size, long version) {
+            this.region = region;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+            this.version = version;
+        }
+
+        public String getRegion() { return region; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public int getSize() { return size; }
+        public long getVersion() { return version; }
+
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d hits, %d misses (%.1f%% hit rate), %d evictions, %d entries, version %d",
+                                 region, hits, misses, getHitRate() * 100, evictions, size, version);
+        }
+    }
+
+    /**
+     * One cache region: LRU map with TTL, guarded by its own lock
+     */
+    private static class Region<K, V> {
+        private final String name;
+        private final int maxSize;
+        private final long ttlNanos = TimeUnit.MINUTES.toNanos(DEFAULT_TTL_MINUTES);
+        private final AtomicLong version = new AtomicLong();
+        private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        Region(String name, int maxSize) {
+            this.name = name;
+            this.maxSize = maxSize;
+        }
+
+        V get(K key, Loader<V> loader) throws SQLException {
+            long loadVersion = version.get();
+            synchronized (this) {
+                Entry<V> entry = entries.get(key);
+                if (entry != null) {
+                    if (entry.version == loadVersion && System.nanoTime() - entry.loadedAt < ttlNanos) {
+                        hits.increment();
+                        return entry.value;
+                    }
+                    entries.remove(key);
+                    evictions.increment();
+                }
+            }
+
+            misses.increment();
+            V value = loader.load();
+            if (value != null) {
+                put(key, value, loadVersion);
+            }
+            return value;
+        }
+
+        private synchronized void put(K key, V value, long loadVersion) {
+            // A write landed while we were loading - what we read may predate it
+            if (loadVersion != version.get()) {
+                return;
+            }
+            entries.put(key, new Entry<>(value, loadVersion, System.nanoTime()));
+            Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+            while (entries.size() > maxSize && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+
+        void invalidate() {
+            version.incrementAndGet();
+            synchronized (this) {
+                entries.clear();
+            }
+        }
+
+        synchronized Stats stats() {
+            return new Stats(name, hits.sum(), misses.sum(), evictions.sum(), entries.size(), version.get());
+        }
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long version;
+        private final long loadedAt;
+
+        Entry(V value, long version, long loadedAt) {
+            this.value = value;
+            this.version = version;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -15,6 +15,7 @@ public class Route {
     private LocalTime arrivalTime;
     private BigDecimal price;
     private String intermediateStations; // New field for intermediate stations
+    private int stops;
     
     // Constructors
     public Route() {}
@@ -117,6 +118,14 @@ public class Route {
         this.intermediateStations = intermediateStations;
     }
     
+    public int getStops() {
+        return stops;
+    }
+    
+    public void setStops(int stops) {
+        this.stops = stops;
+    }
+    
     @Override
     public String toString() {
         return sourceStation + " → " + destinationStation + 
@@ -0,0 +1,367 @@
+package BookMyTrainTicket;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory index of every route, keyed by station
+ *
+ * Each normalized station maps to a posting list of (route, stop ordinal)
+ * sorted by route position, so "which routes run from A to B" is a merge of
+ * two sorted lists with an ordinal check instead of LIKE scans over the
+ * routes table. Routes are positioned by train name, matching the old
+ * ORDER BY of the search query.
+ *
+ * The index is built on first use and rebuilt lazily after invalidate();
+ * callers that change routes, trains or stations must invalidate it.
+ */
+public class RouteIndex {
+    private static RouteIndex instance;
+
+    private volatile Snapshot snapshot;
+
+    private RouteIndex() {
+    }
+
+    public static synchronized RouteIndex getInstance() {
+        if (instance == null) {
+            instance = new RouteIndex();
+        }
+        return instance;
+    }
+
+    /**
+     * Routes that stop at a station matching source and, later on, at one matching destination
+     */
+    public List<Entry> findRoutes(String source, String destination) throws SQLException {
+        Snapshot current = current();
+        Postings from = current.postingsFor(current.resolve(source));
+        Postings to = current.postingsFor(current.resolve(destination));
+
+        List<Entry> matches = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < from.size && j < to.size) {
+            int a = from.routes[i];
+            int b = to.routes[j];
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                if (from.firstOrdinal[i] < to.lastOrdinal[j]) {
+                    Entry entry = current.entries.get(a);
+                    matches.add(new Entry(entry.train, entry.route, from.firstOrdinal[i], to.lastOrdinal[j]));
+                }
+                i++;
+                j++;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Normalized names of the stations a typed name refers to, resolved as findRoutes does
+     */
+    public Set<String> resolveStations(String typed) throws SQLException {
+        return current().resolve(typed);
+    }
+
+    /**
+     * Station names for a partly typed (or mistyped) name, for "did you mean" hints
+     */
+    public List<String> suggestStations(String prefix, int limit) throws SQLException {
+        Snapshot current = current();
+        List<String> suggestions = new ArrayList<>();
+        for (String station : current.trie.suggest(normalize(prefix), limit)) {
+            suggestions.add(current.displayNames.getOrDefault(station, station));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Drop the index; the next lookup rebuilds it from the database
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    /**
+     * Rebuild now (e.g. at startup) instead of on the next search
+     */
+    public void refresh() throws SQLException {
+        snapshot = load();
+    }
+
+    private Snapshot current() throws SQLException {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = load();
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Snapshot load() throws SQLException {
+        long start = System.nanoTime();
+        boolean hasIntermediate = DatabaseManager.getSchemaCapabilities().hasIntermediateStations();
+        String query = """
+            SELECT t.train_id, t.train_name, t.train_number,
+                   r.route_id, r.source_station, r.destination_station,
+                   r.departure_time, r.arrival_time, r.price%s
+            FROM trains t
+            JOIN routes r ON t.train_id = r.train_id
+            ORDER BY t.train_name, r.route_id
+            """.formatted(hasIntermediate ? ", r.intermediate_stations" : "");
+
+        Snapshot built = new Snapshot();
+        Map<String, PostingsBuilder> builders = new HashMap<>();
+        Map<Integer, List<RouteStop>> stopsByRoute = RouteStopRepository.getInstance().getAllStops();
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(query);
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Train train = new Train(
+                        rs.getInt("train_id"),
+                        rs.getString("train_name"),
+                        rs.getString("train_number")
+                    );
+                    String intermediateStations = hasIntermediate ? rs.getString("intermediate_stations") : null;
+                    Route route = new Route(
+                        rs.getInt("route_id"),
+                        rs.getInt("train_id"),
+                        rs.getString("source_station"),
+                        rs.getString("destination_station"),
+                        rs.getTime("departure_time").toLocalTime(),
+                        rs.getTime("arrival_time").toLocalTime(),
+                        rs.getBigDecimal("price"),
+                        intermediateStations
+                    );
+
+                    int position = built.entries.size();
+                    built.entries.add(new Entry(train, route));
+
+                    List<String> stops = stationNames(route, stopsByRoute.get(route.getRouteId()));
+                    for (int ordinal = 0; ordinal < stops.size(); ordinal++) {
+                        String station = normalize(stops.get(ordinal));
+                        if (station.isEmpty()) {
+                            continue;
+                        }
+                        builders.computeIfAbsent(station, s -> new PostingsBuilder()).add(position, ordinal);
+                        built.displayNames.putIfAbsent(station, stops.get(ordinal).trim());
+                    }
+                }
+            }
+
+            // station_info may also list stations no route serves yet; those only feed the trie
+            if (DatabaseManager.getSchemaCapabilities().hasStationInfo()) {
+                try (PreparedStatement pstmt = conn.prepareStatement("SELECT station_name FROM station_info");
+                     ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        String name = rs.getString("station_name");
+                        if (name != null && !normalize(name).isEmpty()) {
+                            built.displayNames.putIfAbsent(normalize(name), name.trim());
+                        }
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<String, PostingsBuilder> entry : builders.entrySet()) {
+            built.postings.put(entry.getKey(), entry.getValue().build());
+        }
+        for (String station : built.displayNames.keySet()) {
+            built.trie.add(station);
+        }
+
+        System.out.println("DEBUG: Route index built - " + built.entries.size() + " routes, " +
+                          built.postings.size() + " stations in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+        return built;
+    }
+
+    /**
+     * Pre-parsed stops from route_stops, or the legacy text for routes not migrated yet
+     */
+    private static List<String> stationNames(Route route, List<RouteStop> stops) {
+        if (stops == null || stops.isEmpty()) {
+            return RouteStopRepository.parseStations(route.getSourceStation(), route.getIntermediateStations(),
+                                                     route.getDestinationStation());
+        }
+        List<String> names = new ArrayList<>(stops.size());
+        for (RouteStop stop : stops) {
+            names.add(stop.getStationName());
+        }
+        return names;
+    }
+
+    static String normalize(String station) {
+        return station == null ? "" : station.trim().toLowerCase().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * A route together with its train, as the search screen shows it
+     */
+    public static class Entry {
+        private final Train train;
+        private final Route route;
+        private final int fromOrdinal;
+        private final int toOrdinal;
+
+        public Entry(Train train, Route route) {
+            this(train, route, FareEngine.WHOLE_ROUTE, FareEngine.WHOLE_ROUTE);
+        }
+
+        /**
+         * A route matched by a search, with the ordinals of the stops searched from and to
+         */
+        public Entry(Train train, Route route, int fromOrdinal, int toOrdinal) {
+            this.train = train;
+            this.route = route;
+            this.fromOrdinal = fromOrdinal;
+            this.toOrdinal = toOrdinal;
+        }
+
+        public Train getTrain() { return train; }
+        public Route getRoute() { return route; }
+        public int getFromOrdinal() { return fromOrdinal; }
+        public int getToOrdinal() { return toOrdinal; }
+    }
+
+    /**
+     * Immutable once published
+     */
+    private static class Snapshot {
+        private final List<Entry> entries = new ArrayList<>();
+        private final Map<String, Postings> postings = new HashMap<>();
+        private final Map<String, String> displayNames = new HashMap<>();
+        private final StationTrie trie = new StationTrie();
+
+        /**
+         * Stations a typed name refers to: word prefixes first (the old LIKE
+         * behaviour for whole words), then any substring, then near misses
+         */
+        Set<String> resolve(String query) {
+            String key = normalize(query);
+            if (key.isEmpty()) {
+                return Collections.emptySet();
+            }
+            Set<String> stations = trie.withPrefix(key);
+            if (stations.isEmpty()) {
+                stations = new LinkedHashSet<>();
+                for (String station : postings.keySet()) {
+                    if (station.contains(key)) {
+                        stations.add(station);
+                    }
+                }
+            }
+            if (stations.isEmpty()) {
+                stations = trie.withFuzzyPrefix(key, StationTrie.maxEditsFor(key));
+            }
+            return stations;
+        }
+
+        /**
+         * Union of the stations' posting lists, keeping each route's earliest
+         * and latest matching stop
+         */
+        Postings postingsFor(Set<String> stations) {
+            List<Postings> lists = new ArrayList<>();
+            for (String station : stations) {
+                Postings list = postings.get(station);
+                if (list != null) {
+                    lists.add(list);
+                }
+            }
+            if (lists.isEmpty()) {
+                return Postings.EMPTY;
+            }
+            if (lists.size() == 1) {
+                return lists.get(0);
+            }
+
+            int[] first = new int[entries.size()];
+            int[] last = new int[entries.size()];
+            Arrays.fill(first, Integer.MAX_VALUE);
+            Arrays.fill(last, -1);
+            for (Postings list : lists) {
+                for (int i = 0; i < list.size; i++) {
+                    int route = list.routes[i];
+                    first[route] = Math.min(first[route], list.firstOrdinal[i]);
+                    last[route] = Math.max(last[route], list.lastOrdinal[i]);
+                }
+            }
+            PostingsBuilder merged = new PostingsBuilder();
+            for (int route = 0; route < first.length; route++) {
+                if (last[route] >= 0) {
+                    merged.add(route, first[route]);
+                    merged.add(route, last[route]);
+                }
+            }
+            return merged.build();
+        }
+    }
+
+    /**
+     * Parallel arrays sorted by route position; a station a route visits twice
+     * keeps its first and last ordinal
+     */
+    private static class Postings {
+        private static final Postings EMPTY = new Postings(new int[0], new int[0], new int[0], 0);
+
+        private final int[] routes;
+        private final int[] firstOrdinal;
+        private final int[] lastOrdinal;
+        private final int size;
+
+        Postings(int[] routes, int[] firstOrdinal, int[] lastOrdinal, int size) {
+            this.routes = routes;
+            this.firstOrdinal = firstOrdinal;
+            this.lastOrdinal = lastOrdinal;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Accepts (route, ordinal) pairs in ascending route order
+     */
+    private static class PostingsBuilder {
+        private int[] routes = new int[4];
+        private int[] firstOrdinal = new int[4];
+        private int[] lastOrdinal = new int[4];
+        private int size;
+
+        void add(int route, int ordinal) {
+            if (size > 0 && routes[size - 1] == route) {
+                firstOrdinal[size - 1] = Math.min(firstOrdinal[size - 1], ordinal);
+                lastOrdinal[size - 1] = Math.max(lastOrdinal[size - 1], ordinal);
+                return;
+            }
+            if (size == routes.length) {
+                routes = Arrays.copyOf(routes, size * 2);
+                firstOrdinal = Arrays.copyOf(firstOrdinal, size * 2);
+                lastOrdinal = Arrays.copyOf(lastOrdinal, size * 2);
+            }
+            routes[size] = route;
+            firstOrdinal[size] = ordinal;
+            lastOrdinal[size] = ordinal;
+            size++;
+        }
+
+        Postings build() {
+            return new Postings(routes, firstOrdinal, lastOrdinal, size);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package BookMyTrainTicket;
+
+import java.time.LocalTime;
+
+/**
+ * One stop of a route (a row of route_stops joined with station_info).
+ * Immutable; ordinal 0 is the route's source station.
+ */
+public class RouteStop {
+    private final int routeId;
+    private final int ordinal;
+    private final int stationId;
+    private final String stationName;
+    private final LocalTime arrivalTime;
+    private final LocalTime departureTime;
+    private final Integer distanceKm;
+
+    public RouteStop(int routeId, int ordinal, int stationId, String stationName,
+                     LocalTime arrivalTime, LocalTime departureTime, Integer distanceKm) {
+        this.routeId = routeId;
+        this.ordinal = ordinal;
+        this.stationId = stationId;
+        this.stationName = stationName;
+        this.arrivalTime = arrivalTime;
+        this.departureTime = departureTime;
+        this.distanceKm = distanceKm;
+    }
+
+    public int getRouteId() {
+        return routeId;
+    }
+
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    public int getStationId() {
+        return stationId;
+    }
+
+    public String getStationName() {
+        return stationName;
+    }
+
+    /**
+     * Null for the source station and for stops whose times are not known
+     */
+    public LocalTime getArrivalTime() {
+        return arrivalTime;
+    }
+
+    /**
+     * Null for the destination station and for stops whose times are not known
+     */
+    public LocalTime getDepartureTime() {
+        return departureTime;
+    }
+
+    /**
+     * Distance from the route's source, if known
+     */
+    public Integer getDistanceKm() {
+        return distanceKm;
+    }
+
+    @Override
+    public String toString() {
+        return ordinal + ": " + stationName;
+    }
+}
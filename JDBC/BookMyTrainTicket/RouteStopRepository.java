@@ -0,0 +1,238 @@
+package BookMyTrainTicket;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read access to route_stops as pre-parsed, immutable stop sequences
+ *
+ * Sequences are cached per route. Routes that have not been migrated yet
+ * (no route_stops rows) come back as an empty list; callers that still need
+ * a sequence for them fall back to {@link #parseStations}.
+ */
+public class RouteStopRepository {
+    private static RouteStopRepository instance;
+
+    private final Map<Integer, List<RouteStop>> cache = new ConcurrentHashMap<>();
+
+    private RouteStopRepository() {
+    }
+
+    public static synchronized RouteStopRepository getInstance() {
+        if (instance == null) {
+            instance = new RouteStopRepository();
+        }
+        return instance;
+    }
+
+    /**
+     * Stops of one route in travel order
+     */
+    public List<RouteStop> getStops(int routeId) throws SQLException {
+        return getStops(List.of(routeId)).get(routeId);
+    }
+
+    /**
+     * Stops of several routes, loading any not yet cached with one query
+     */
+    public Map<Integer, List<RouteStop>> getStops(Collection<Integer> routeIds) throws SQLException {
+        Map<Integer, List<RouteStop>> result = new HashMap<>();
+        List<Integer> missing = fromCache(routeIds, result);
+        if (!missing.isEmpty() && DatabaseManager.getSchemaCapabilities().hasRouteStops()) {
+            try (Connection conn = DatabaseManager.getConnection()) {
+                loadMissing(conn, missing, result);
+            }
+        } else {
+            putAll(new HashMap<>(), missing, result);
+        }
+        return result;
+    }
+
+    /**
+     * Stops of several routes, loading any not yet cached on the caller's connection
+     */
+    public Map<Integer, List<RouteStop>> getStops(Connection conn, Collection<Integer> routeIds) throws SQLException {
+        Map<Integer, List<RouteStop>> result = new HashMap<>();
+        List<Integer> missing = fromCache(routeIds, result);
+        if (!missing.isEmpty() && DatabaseManager.getSchemaCapabilities().hasRouteStops()) {
+            loadMissing(conn, missing, result);
+        } else {
+            putAll(new HashMap<>(), missing, result);
+        }
+        return result;
+    }
+
+    /**
+     * Copy the cached routes into result; returns the routes not cached
+     */
+    private List<Integer> fromCache(Collection<Integer> routeIds, Map<Integer, List<RouteStop>> result) {
+        List<Integer> missing = new ArrayList<>();
+        for (Integer routeId : new LinkedHashSet<>(routeIds)) {
+            List<RouteStop> stops = cache.get(routeId);
+            if (stops != null) {
+                result.put(routeId, stops);
+            } else {
+                missing.add(routeId);
+            }
+        }
+        return missing;
+    }
+
+    private void loadMissing(Connection conn, List<Integer> missing, Map<Integer, List<RouteStop>> result) throws SQLException {
+        String placeholders = String.join(", ", Collections.nCopies(missing.size(), "?"));
+        String query = """
+            SELECT rs.route_id, rs.ordinal, rs.station_id, si.station_name,
+                   rs.arrival_time, rs.departure_time, rs.distance_km
+            FROM route_stops rs
+            JOIN station_info si ON rs.station_id = si.station_id
+            WHERE rs.route_id IN (%s)
+            ORDER BY rs.route_id, rs.ordinal
+            """.formatted(placeholders);
+
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            for (int i = 0; i < missing.size(); i++) {
+                pstmt.setInt(i + 1, missing.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                putAll(readStops(rs), missing, result);
+            }
+        }
+    }
+
+    /**
+     * Stops of every route (used to build the in-memory route index)
+     */
+    public Map<Integer, List<RouteStop>> getAllStops() throws SQLException {
+        if (!DatabaseManager.getSchemaCapabilities().hasRouteStops()) {
+            return new HashMap<>();
+        }
+        String query = """
+            SELECT rs.route_id, rs.ordinal, rs.station_id, si.station_name,
+                   rs.arrival_time, rs.departure_time, rs.distance_km
+            FROM route_stops rs
+            JOIN station_info si ON rs.station_id = si.station_id
+            ORDER BY rs.route_id, rs.ordinal
+            """;
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query);
+             ResultSet rs = pstmt.executeQuery()) {
+            Map<Integer, List<RouteStop>> all = readStops(rs);
+            cache.putAll(all);
+            return all;
+        }
+    }
+
+    /**
+     * Station names of a route in travel order: from route_stops when the route
+     * has been migrated, otherwise parsed from the route's own fields
+     */
+    public List<String> getStationNames(Route route) throws SQLException {
+        List<RouteStop> stops = getStops(route.getRouteId());
+        if (stops.isEmpty()) {
+            return parseStations(route.getSourceStation(), route.getIntermediateStations(), route.getDestinationStation());
+        }
+        List<String> names = new ArrayList<>(stops.size());
+        for (RouteStop stop : stops) {
+            names.add(stop.getStationName());
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Route IDs that stop at fromStation and later at toStation (exact names),
+     * answered by the (station_id, route_id, ordinal) index
+     */
+    public List<Integer> findRoutesBetween(String fromStation, String toStation) throws SQLException {
+        String query = """
+            SELECT a.route_id
+            FROM station_info sa
+            JOIN route_stops a ON a.station_id = sa.station_id
+            JOIN route_stops b ON b.route_id = a.route_id AND b.ordinal > a.ordinal
+            JOIN station_info sb ON b.station_id = sb.station_id
+            WHERE sa.station_name = ? AND sb.station_name = ?
+            GROUP BY a.route_id
+            ORDER BY a.route_id
+            """;
+        List<Integer> routeIds = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setString(1, fromStation.trim());
+            pstmt.setString(2, toStation.trim());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    routeIds.add(rs.getInt("route_id"));
+                }
+            }
+        }
+        return routeIds;
+    }
+
+    /**
+     * Forget a route's cached stops after its stops were rewritten or it was deleted
+     */
+    public void invalidate(int routeId) {
+        cache.remove(routeId);
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    /**
+     * Legacy parse of the comma-separated intermediate_stations text; only used
+     * for routes not yet in route_stops and by the migrator itself
+     */
+    public static List<String> parseStations(String source, String intermediateStations, String destination) {
+        List<String> stations = new ArrayList<>();
+        stations.add(source == null ? "" : source.trim());
+        if (intermediateStations != null && !intermediateStations.trim().isEmpty()) {
+            for (String station : intermediateStations.split("[,\\n]")) {
+                if (!station.trim().isEmpty()) {
+                    stations.add(station.trim());
+                }
+            }
+        }
+        stations.add(destination == null ? "" : destination.trim());
+        return Collections.unmodifiableList(stations);
+    }
+
+    private Map<Integer, List<RouteStop>> readStops(ResultSet rs) throws SQLException {
+        Map<Integer, List<RouteStop>> stopsByRoute = new HashMap<>();
+        while (rs.next()) {
+            int routeId = rs.getInt("route_id");
+            Time arrival = rs.getTime("arrival_time");
+            Time departure = rs.getTime("departure_time");
+            int distance = rs.getInt("distance_km");
+            Integer distanceKm = rs.wasNull() ? null : distance;
+
+            stopsByRoute.computeIfAbsent(routeId, id -> new ArrayList<>()).add(new RouteStop(
+                routeId,
+                rs.getInt("ordinal"),
+                rs.getInt("station_id"),
+                rs.getString("station_name"),
+                arrival != null ? arrival.toLocalTime() : null,
+                departure != null ? departure.toLocalTime() : null,
+                distanceKm
+            ));
+        }
+        for (Map.Entry<Integer, List<RouteStop>> entry : stopsByRoute.entrySet()) {
+            entry.setValue(List.copyOf(entry.getValue()));
+        }
+        return stopsByRoute;
+    }
+
+    private void putAll(Map<Integer, List<RouteStop>> loaded, List<Integer> requested, Map<Integer, List<RouteStop>> result) {
+        for (Integer routeId : requested) {
+            List<RouteStop> stops = loaded.getOrDefault(routeId, List.of());
+            cache.put(routeId, stops);
+            result.put(routeId, stops);
+        }
+    }
+}
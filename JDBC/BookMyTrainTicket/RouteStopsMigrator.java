@@ -0,0 +1,216 @@
+package BookMyTrainTicket;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Backfills route_stops from the legacy routes.intermediate_stations text
+ *
+ * Runs online: routes without stops are migrated in small batches, each in
+ * its own short transaction, so bookings keep working while it runs. Safe to
+ * re-run - migrated routes are skipped and inserts ignore existing rows. The
+ * bulk backfill runs once as a schema migration; routes saved later are
+ * migrated one at a time as they are written.
+ */
+public class RouteStopsMigrator {
+    private static final int BATCH_SIZE = 200;
+
+    /**
+     * Migrate every route that has no stops yet; returns the number migrated
+     */
+    public int migratePending(Connection conn) throws SQLException {
+        boolean hasIntermediate = DatabaseManager.getSchemaCapabilities().hasIntermediateStations();
+        boolean hasDistance = DatabaseManager.getSchemaCapabilities().hasRouteDistance();
+        String query = """
+            SELECT r.route_id, r.source_station, r.destination_station, r.departure_time, r.arrival_time%s%s
+            FROM routes r
+            WHERE r.route_id > ?
+            AND NOT EXISTS (SELECT 1 FROM route_stops rs WHERE rs.route_id = r.route_id)
+            ORDER BY r.route_id
+            LIMIT ?
+            """.formatted(hasIntermediate ? ", r.intermediate_stations" : "",
+                          hasDistance ? ", r.distance_km" : "");
+
+        int migrated = 0;
+        int lastRouteId = 0;
+        while (true) {
+            List<PendingRoute> batch = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                pstmt.setInt(1, lastRouteId);
+                pstmt.setInt(2, BATCH_SIZE);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        batch.add(readPending(rs, hasIntermediate, hasDistance));
+                    }
+                }
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                writeStops(conn, batch);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+
+            for (PendingRoute route : batch) {
+                RouteStopRepository.getInstance().invalidate(route.routeId);
+            }
+            migrated += batch.size();
+            lastRouteId = batch.get(batch.size() - 1).routeId;
+        }
+
+        if (migrated > 0) {
+            System.out.println("DEBUG: Migrated " + migrated + " routes into route_stops");
+        }
+        return migrated;
+    }
+
+    /**
+     * Rebuild one route's stops from its routes row on the caller's connection
+     * (used after the route is added or edited, inside the caller's transaction if any)
+     */
+    public void migrateRoute(Connection conn, int routeId) throws SQLException {
+        boolean hasIntermediate = DatabaseManager.getSchemaCapabilities().hasIntermediateStations();
+        boolean hasDistance = DatabaseManager.getSchemaCapabilities().hasRouteDistance();
+        String query = """
+            SELECT r.route_id, r.source_station, r.destination_station, r.departure_time, r.arrival_time%s%s
+            FROM routes r
+            WHERE r.route_id = ?
+            """.formatted(hasIntermediate ? ", r.intermediate_stations" : "",
+                          hasDistance ? ", r.distance_km" : "");
+
+        PendingRoute route = null;
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, routeId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    route = readPending(rs, hasIntermediate, hasDistance);
+                }
+            }
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM route_stops WHERE route_id = ?")) {
+            pstmt.setInt(1, routeId);
+            pstmt.executeUpdate();
+        }
+        if (route != null) {
+            writeStops(conn, List.of(route));
+        }
+        RouteStopRepository.getInstance().invalidate(routeId);
+    }
+
+    private PendingRoute readPending(ResultSet rs, boolean hasIntermediate, boolean hasDistance) throws SQLException {
+        PendingRoute route = new PendingRoute();
+        route.routeId = rs.getInt("route_id");
+        route.stations = RouteStopRepository.parseStations(
+            rs.getString("source_station"),
+            hasIntermediate ? rs.getString("intermediate_stations") : null,
+            rs.getString("destination_station"));
+        route.departureTime = rs.getTime("departure_time");
+        route.arrivalTime = rs.getTime("arrival_time");
+        if (hasDistance) {
+            int distance = rs.getInt("distance_km");
+            route.distanceKm = rs.wasNull() ? null : distance;
+        }
+        return route;
+    }
+
+    /**
+     * Insert stops for a batch of routes. The source carries the route's departure
+     * time, the destination its arrival time and distance; intermediate stops have
+     * no times until they are edited.
+     */
+    private void writeStops(Connection conn, List<PendingRoute> routes) throws SQLException {
+        Set<String> names = new LinkedHashSet<>();
+        for (PendingRoute route : routes) {
+            names.addAll(route.stations);
+        }
+        Map<String, Integer> stationIds = resolveStationIds(conn, names);
+
+        String insert = """
+            INSERT IGNORE INTO route_stops (route_id, ordinal, station_id, arrival_time, departure_time, distance_km)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+        try (PreparedStatement pstmt = conn.prepareStatement(insert)) {
+            for (PendingRoute route : routes) {
+                int last = route.stations.size() - 1;
+                for (int ordinal = 0; ordinal <= last; ordinal++) {
+                    Integer stationId = stationIds.get(key(route.stations.get(ordinal)));
+                    if (stationId == null) {
+                        throw new SQLException("Station could not be resolved: " + route.stations.get(ordinal));
+                    }
+                    pstmt.setInt(1, route.routeId);
+                    pstmt.setInt(2, ordinal);
+                    pstmt.setInt(3, stationId);
+                    pstmt.setTime(4, ordinal == last ? route.arrivalTime : null);
+                    pstmt.setTime(5, ordinal == 0 ? route.departureTime : null);
+                    if (ordinal == 0) {
+                        pstmt.setInt(6, 0);
+                    } else if (ordinal == last && route.distanceKm != null) {
+                        pstmt.setInt(6, route.distanceKm);
+                    } else {
+                        pstmt.setNull(6, Types.INTEGER);
+                    }
+                    pstmt.addBatch();
+                }
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Make sure every name has a station_info row and return ids keyed by lower-cased name
+     */
+    private Map<String, Integer> resolveStationIds(Connection conn, Collection<String> names) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("INSERT IGNORE INTO station_info (station_name) VALUES (?)")) {
+            for (String name : names) {
+                pstmt.setString(1, name);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+
+        List<String> nameList = new ArrayList<>(names);
+        String query = "SELECT station_id, station_name FROM station_info WHERE station_name IN (" +
+                       String.join(", ", Collections.nCopies(nameList.size(), "?")) + ")";
+        Map<String, Integer> ids = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            for (int i = 0; i < nameList.size(); i++) {
+                pstmt.setString(i + 1, nameList.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.put(key(rs.getString("station_name")), rs.getInt("station_id"));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static String key(String name) {
+        return name.trim().toLowerCase();
+    }
+
+    private static class PendingRoute {
+        private int routeId;
+        private List<String> stations;
+        private Time departureTime;
+        private Time arrivalTime;
+        private Integer distanceKm;
+    }
+}
@@ -0,0 +1,93 @@
+package BookMyTrainTicket;
+
+import java.sql.*;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Optional columns and tables present in the connected database
+ *
+ * Older databases may lack columns that newer screens use (routes.stops,
+ * routes.intermediate_stations, compartments.capacity and so on). Instead of
+ * probing with a query on every call, the column list of the schema is read
+ * once with a single information_schema query after migrations have run, and
+ * every check is answered from memory. DatabaseManager holds the current
+ * instance and replaces it whenever the schema changes.
+ */
+public final class SchemaCapabilities {
+    private static final SchemaCapabilities NONE = new SchemaCapabilities(Collections.emptySet());
+
+    // "table.column", lower case
+    private final Set<String> columns;
+
+    private SchemaCapabilities(Set<String> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Read the column list of the connection's schema
+     */
+    static SchemaCapabilities load(Connection conn) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        String query = "SELECT TABLE_NAME, COLUMN_NAME FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE()";
+        try (PreparedStatement pstmt = conn.prepareStatement(query);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                columns.add(key(rs.getString("TABLE_NAME"), rs.getString("COLUMN_NAME")));
+            }
+        }
+        System.out.println("DEBUG: Loaded schema capabilities (" + columns.size() + " columns)");
+        return new SchemaCapabilities(Collections.unmodifiableSet(columns));
+    }
+
+    /**
+     * Capabilities of a database that could not be reached: nothing optional is present
+     */
+    static SchemaCapabilities none() {
+        return NONE;
+    }
+
+    public boolean hasColumn(String table, String column) {
+        return columns.contains(key(table, column));
+    }
+
+    /** routes.stops (number of stops) */
+    public boolean hasRouteStopCount() {
+        return hasColumn("routes", "stops");
+    }
+
+    /** routes.intermediate_stations (legacy comma-separated stop list) */
+    public boolean hasIntermediateStations() {
+        return hasColumn("routes", "intermediate_stations");
+    }
+
+    /** Both extended route columns, as written by the route admin screens */
+    public boolean hasExtendedRouteColumns() {
+        return hasRouteStopCount() && hasIntermediateStations();
+    }
+
+    /** routes.distance_km */
+    public boolean hasRouteDistance() {
+        return hasColumn("routes", "distance_km");
+    }
+
+    /** compartments.capacity */
+    public boolean hasCompartmentCapacity() {
+        return hasColumn("compartments", "capacity");
+    }
+
+    /** The normalized route_stops table */
+    public boolean hasRouteStops() {
+        return hasColumn("route_stops", "route_id");
+    }
+
+    /** The station_info table */
+    public boolean hasStationInfo() {
+        return hasColumn("station_info", "station_name");
+    }
+
+    private static String key(String table, String column) {
+        return table.toLowerCase() + "." + column.toLowerCase();
+    }
+}
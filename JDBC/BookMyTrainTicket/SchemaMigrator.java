@@ -0,0 +1,156 @@
+package BookMyTrainTicket;
+
+import java.sql.*;
+import java.util.List;
+
+/**
+ * Versioned schema migrations
+ *
+ * The schema_version table records every migration applied. At startup the
+ * runner reads the highest recorded version with one query and returns at
+ * once when the database is current; otherwise it takes a MySQL named lock
+ * (so two clients starting together don't both migrate), applies the pending
+ * migrations in order and records each one.
+ *
+ * MySQL commits DDL implicitly, so a migration is not atomic. Every step must
+ * be safe to re-run (CREATE TABLE IF NOT EXISTS, add-if-missing helpers,
+ * INSERT IGNORE); a run interrupted half way simply repeats the unrecorded
+ * migration next time. Schema changes go in a new migration with the next
+ * version number, never into an applied one.
+ */
+public class SchemaMigrator {
+    private static final String LOCK_NAME = "train_booking_schema";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    /**
+     * One unit of schema work
+     */
+    @FunctionalInterface
+    public interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    public static class Migration {
+        private final int version;
+        private final String description;
+        private final Step step;
+
+        public Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+
+        public int getVersion() { return version; }
+        public String getDescription() { return description; }
+    }
+
+    /**
+     * Called after each applied migration, e.g. to reload schema capabilities
+     */
+    @FunctionalInterface
+    public interface AppliedListener {
+        void migrationApplied(Connection conn, Migration migration) throws SQLException;
+    }
+
+    /**
+     * Apply the migrations newer than the recorded version, in version order.
+     * Returns the schema version afterwards.
+     */
+    public int migrate(Connection conn, List<Migration> migrations, AppliedListener listener) throws SQLException {
+        int latest = 0;
+        for (Migration migration : migrations) {
+            latest = Math.max(latest, migration.version);
+        }
+
+        int current = currentVersion(conn);
+        if (current >= latest) {
+            System.out.println("DEBUG: Schema is current at version " + current);
+            return current;
+        }
+
+        acquireLock(conn);
+        try {
+            // Another client may have migrated while we waited for the lock
+            current = currentVersion(conn);
+            createVersionTable(conn);
+            for (Migration migration : migrations.stream().sorted((a, b) -> Integer.compare(a.version, b.version)).toList()) {
+                if (migration.version <= current) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                migration.step.apply(conn);
+                long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                record(conn, migration, elapsedMillis);
+                current = migration.version;
+                System.out.println("DEBUG: Applied schema migration " + migration.version + " (" +
+                                  migration.description + ") in " + elapsedMillis + " ms");
+                if (listener != null) {
+                    listener.migrationApplied(conn, migration);
+                }
+            }
+        } finally {
+            releaseLock(conn);
+        }
+        return current;
+    }
+
+    /**
+     * Highest recorded version, or 0 when the version table doesn't exist yet
+     */
+    public int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            if ("42S02".equals(e.getSQLState())) {
+                return 0; // Table doesn't exist: nothing applied yet
+            }
+            throw e;
+        }
+    }
+
+    private void createVersionTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS schema_version (
+                    version INT PRIMARY KEY,
+                    description VARCHAR(200) NOT NULL,
+                    applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    duration_ms BIGINT NOT NULL
+                )
+                """);
+        }
+    }
+
+    private void record(Connection conn, Migration migration, long elapsedMillis) throws SQLException {
+        String insert = "INSERT INTO schema_version (version, description, duration_ms) VALUES (?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(insert)) {
+            pstmt.setInt(1, migration.version);
+            pstmt.setString(2, migration.description);
+            pstmt.setLong(3, elapsedMillis);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for the schema migration lock");
+                }
+            }
+        }
+    }
+
+    private void releaseLock(Connection conn) {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("DEBUG: Could not release schema migration lock: " + e.getMessage());
+        }
+    }
+}
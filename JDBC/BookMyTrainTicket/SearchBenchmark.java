@@ -0,0 +1,207 @@
+package BookMyTrainTicket;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark for TrainManager.searchTrains
+ *
+ * Seeds a growing number of benchmark trains on one corridor and compares
+ * database round trips and latency for:
+ *   live     - free seats of the matching trains recounted from seat_inventory
+ *              with a cold inventory cache (what search cost before the counters)
+ *   counters - the same availability read from availability_summary
+ *   search   - searchTrains end to end, which reads the counters
+ * and checks that the counters agree with the live count.
+ *
+ * Round trips are counted as statements prepared on pooled connections.
+ * Benchmark trains are removed again at the end (routes/seats cascade).
+ */
+public class SearchBenchmark {
+    private static final String SOURCE = "BenchSource";
+    private static final String DESTINATION = "BenchDest";
+    private static final String TRAIN_PREFIX = "BENCH";
+    private static final int SEATS_PER_TRAIN = 8;
+    private static final int[] ROUTE_COUNTS = {10, 50, 100, 250};
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) {
+        try {
+            System.out.println("Testing search performance...");
+            TrainManager trainManager = new TrainManager();
+            SeatInventory inventory = SeatInventory.getInstance();
+            AvailabilityCounters counters = AvailabilityCounters.getInstance();
+            LocalDate journeyDate = LocalDate.now().plusDays(1);
+
+            removeBenchmarkTrains();
+            int seeded = 0;
+
+            System.out.println(String.format("%-8s %-10s %14s %14s", "routes", "mode", "trips/search", "ms/search"));
+            for (int routeCount : ROUTE_COUNTS) {
+                seeded = seedTrains(seeded, routeCount);
+                RouteIndex.getInstance().refresh();
+
+                // First search seeds the counters of any new trains
+                List<Integer> trainIds = new ArrayList<>();
+                for (TrainManager.TrainSearchResult result : trainManager.searchTrains(SOURCE, DESTINATION, journeyDate)) {
+                    trainIds.add(result.getTrain().getTrainId());
+                }
+
+                Measurement live = new Measurement();
+                int liveFree = 0;
+                for (int run = 0; run < RUNS; run++) {
+                    inventory.invalidateAll();
+                    live.start();
+                    try (Connection conn = DatabaseManager.getConnection()) {
+                        liveFree = 0;
+                        for (Map<AvailabilityCounters.Key, Integer> train
+                                : inventory.countFreeByRouteAndClass(conn, trainIds, journeyDate).values()) {
+                            for (Integer free : train.values()) {
+                                liveFree += free;
+                            }
+                        }
+                    }
+                    live.stop();
+                }
+
+                Measurement counted = new Measurement();
+                int counterFree = 0;
+                for (int run = 0; run < RUNS; run++) {
+                    counted.start();
+                    counterFree = 0;
+                    for (AvailabilityCounters.RouteAvailability route : counters.getAvailability(trainIds, journeyDate).values()) {
+                        counterFree += route.getTotal();
+                    }
+                    counted.stop();
+                }
+
+                Measurement search = new Measurement();
+                for (int run = 0; run < RUNS; run++) {
+                    search.start();
+                    trainManager.searchTrains(SOURCE, DESTINATION, journeyDate);
+                    search.stop();
+                }
+
+                live.print(routeCount, "live");
+                counted.print(routeCount, "counters");
+                search.print(routeCount, "search");
+                if (counterFree != liveFree) {
+                    System.err.println("FAILED: counters show " + counterFree + " free seats, live count " + liveFree);
+                    removeBenchmarkTrains();
+                    System.exit(1);
+                }
+            }
+
+            System.out.println("Pool after benchmark: " + DatabaseManager.getPoolStats());
+            removeBenchmarkTrains();
+            inventory.invalidateAll();
+            RouteIndex.getInstance().invalidate();
+            System.out.println("Search benchmark completed!");
+
+        } catch (SQLException e) {
+            System.err.println("Database error during search benchmark: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Add benchmark trains (one route, one compartment of seats each) until there are target of them
+     */
+    private static int seedTrains(int existing, int target) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (int i = existing; i < target; i++) {
+                    int trainId = insertAndGetId(conn, "INSERT INTO trains (train_name, train_number) VALUES (?, ?)",
+                            "Benchmark Express " + i, TRAIN_PREFIX + i);
+
+                    try (PreparedStatement pstmt = conn.prepareStatement(
+                            "INSERT INTO routes (train_id, source_station, destination_station, departure_time, arrival_time, price) VALUES (?, ?, ?, ?, ?, ?)")) {
+                        pstmt.setInt(1, trainId);
+                        pstmt.setString(2, SOURCE);
+                        pstmt.setString(3, DESTINATION);
+                        pstmt.setTime(4, Time.valueOf("06:00:00"));
+                        pstmt.setTime(5, Time.valueOf("12:00:00"));
+                        pstmt.setBigDecimal(6, new java.math.BigDecimal("500.00"));
+                        pstmt.executeUpdate();
+                    }
+
+                    int classId = insertAndGetId(conn, "INSERT INTO classes (train_id, class_type) VALUES (?, ?)",
+                            trainId, "Sleeper");
+                    int compartmentId = insertAndGetId(conn, "INSERT INTO compartments (class_id, compartment_name) VALUES (?, ?)",
+                            classId, "S1");
+
+                    try (PreparedStatement pstmt = conn.prepareStatement(
+                            "INSERT INTO seats (compartment_id, berth_type, seat_number, is_available) VALUES (?, 'Lower', ?, TRUE)")) {
+                        for (int seat = 1; seat <= SEATS_PER_TRAIN; seat++) {
+                            pstmt.setInt(1, compartmentId);
+                            pstmt.setString(2, "S1-" + seat);
+                            pstmt.addBatch();
+                        }
+                        pstmt.executeBatch();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return target;
+    }
+
+    private static int insertAndGetId(Connection conn, String query, Object first, String second) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setObject(1, first);
+            pstmt.setString(2, second);
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                keys.next();
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    private static void removeBenchmarkTrains() throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM trains WHERE train_number LIKE ?")) {
+            pstmt.setString(1, TRAIN_PREFIX + "%");
+            int removed = pstmt.executeUpdate();
+            if (removed > 0) {
+                System.out.println("Removed " + removed + " benchmark trains");
+            }
+        }
+    }
+
+    /**
+     * Accumulates round trips and elapsed time over several runs
+     */
+    private static class Measurement {
+        private long statements;
+        private long nanos;
+        private int runs;
+        private long startStatements;
+        private long startNanos;
+
+        void start() {
+            startStatements = DatabaseManager.getPoolStats().getStatementCount();
+            startNanos = System.nanoTime();
+        }
+
+        void stop() {
+            nanos += System.nanoTime() - startNanos;
+            statements += DatabaseManager.getPoolStats().getStatementCount() - startStatements;
+            runs++;
+        }
+
+        void print(int routeCount, String mode) {
+            System.out.println(String.format("%-8d %-10s %14.1f %14.2f",
+                    routeCount, mode, (double) statements / runs, nanos / 1_000_000.0 / runs));
+        }
+    }
+}
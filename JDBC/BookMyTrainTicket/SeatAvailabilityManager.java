@@ -1,13 +1,20 @@
 package BookMyTrainTicket;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages seat availability and operations
  */
 public class SeatAvailabilityManager {
+    // Shared by every manager instance; entries are checked against SeatInventory versions
+    private static final Map<Integer, SeatMapSnapshot> seatMaps = new ConcurrentHashMap<>();
+    
     private DatabaseManager dbManager;
     
     public SeatAvailabilityManager() throws SQLException {
@@ -30,7 +37,8 @@ public class SeatAvailabilityManager {
             ORDER BY cl.class_type, c.compartment_name, s.seat_number
             """;
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, trainId);
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -53,37 +61,31 @@ public class SeatAvailabilityManager {
     }
     
     /**
-     * Get available seats for a specific train and route
+     * Get available seats for a specific train and route (travelling today)
      */
     public List<SeatWithDetails> getAvailableSeats(int trainId, int routeId) throws SQLException {
+        return getAvailableSeats(trainId, routeId, LocalDate.now());
+    }
+    
+    /**
+     * Get seats free on every segment of the route for the journey date
+     */
+    public List<SeatWithDetails> getAvailableSeats(int trainId, int routeId, LocalDate journeyDate) throws SQLException {
+        return getAvailableSeats(trainId, routeId, FareEngine.WHOLE_ROUTE, FareEngine.WHOLE_ROUTE, journeyDate);
+    }
+    
+    /**
+     * Get seats free between two stops (route ordinals) of the route for the journey date
+     */
+    public List<SeatWithDetails> getAvailableSeats(int trainId, int routeId, int fromOrdinal, int toOrdinal,
+                                                   LocalDate journeyDate) throws SQLException {
+        Set<Integer> freeSeatIds = getBookableSeatIds(trainId, routeId, fromOrdinal, toOrdinal, journeyDate);
         List<SeatWithDetails> availableSeats = new ArrayList<>();
         
-        String query = """
-            SELECT s.seat_id, s.compartment_id, s.berth_type, s.seat_number, s.is_available,
-                   c.compartment_name, cl.class_type
-            FROM seats s
-            JOIN compartments c ON s.compartment_id = c.compartment_id
-            JOIN classes cl ON c.class_id = cl.class_id
-            WHERE cl.train_id = ? AND s.is_available = TRUE
-            ORDER BY cl.class_type, c.compartment_name, s.seat_number
-            """;
-        
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
-            pstmt.setInt(1, trainId);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    SeatWithDetails seat = new SeatWithDetails();
-                    seat.setSeatId(rs.getInt("seat_id"));
-                    seat.setCompartmentId(rs.getInt("compartment_id"));
-                    seat.setBerthType(Seat.parseBerthType(rs.getString("berth_type")));
-                    seat.setSeatNumber(rs.getString("seat_number"));
-                    seat.setAvailable(rs.getBoolean("is_available"));
-                    seat.setCompartmentName(rs.getString("compartment_name"));
-                    seat.setClassType(rs.getString("class_type"));
-                    
-                    availableSeats.add(seat);
-                }
+        for (SeatWithDetails seat : getSeatsForTrain(trainId)) {
+            if (freeSeatIds.contains(seat.getSeatId())) {
+                seat.setAvailable(true);
+                availableSeats.add(seat);
             }
         }
         
@@ -94,9 +96,18 @@ public class SeatAvailabilityManager {
      * Update seat availability
      */
     public boolean updateSeatAvailability(int seatId, boolean isAvailable) throws SQLException {
+        try (Connection conn = dbManager.getConnection()) {
+            return updateSeatAvailability(conn, seatId, isAvailable);
+        }
+    }
+    
+    /**
+     * Update seat availability using the caller's connection (for use inside a transaction)
+     */
+    public boolean updateSeatAvailability(Connection conn, int seatId, boolean isAvailable) throws SQLException {
         String query = "UPDATE seats SET is_available = ? WHERE seat_id = ?";
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setBoolean(1, isAvailable);
             pstmt.setInt(2, seatId);
             
@@ -118,7 +129,8 @@ public class SeatAvailabilityManager {
             WHERE s.seat_id = ?
             """;
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, seatId);
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -140,6 +152,39 @@ public class SeatAvailabilityManager {
         return null;
     }
     
+    /**
+     * Other seats of the same class as the given seat, best substitutes first:
+     * same compartment and berth type, then same compartment, then same berth
+     * type elsewhere in the class. Availability is left to the caller.
+     */
+    public List<Integer> getAlternativeSeatIds(int seatId) throws SQLException {
+        String query = """
+            SELECT alt.seat_id
+            FROM seats s
+            JOIN compartments c ON s.compartment_id = c.compartment_id
+            JOIN compartments alt_c ON alt_c.class_id = c.class_id
+            JOIN seats alt ON alt.compartment_id = alt_c.compartment_id
+            WHERE s.seat_id = ? AND alt.seat_id <> s.seat_id
+            ORDER BY (alt.compartment_id = s.compartment_id) DESC,
+                     (alt.berth_type = s.berth_type) DESC,
+                     alt.seat_id
+            """;
+        
+        List<Integer> seatIds = new ArrayList<>();
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, seatId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    seatIds.add(rs.getInt("seat_id"));
+                }
+            }
+        }
+        
+        return seatIds;
+    }
+    
     /**
      * Get compartments for a specific train with available seat counts
      */
@@ -158,7 +203,8 @@ public class SeatAvailabilityManager {
             ORDER BY cl.class_type, c.compartment_name
             """;
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, trainId);
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -180,11 +226,83 @@ public class SeatAvailabilityManager {
         return compartments;
     }
     
+    /**
+     * Get compartments for a train with seat availability for the route's segments on the journey date
+     */
+    public List<CompartmentSeats> getCompartmentsForTrain(int trainId, int routeId, LocalDate journeyDate) throws SQLException {
+        return getSeatMap(trainId, routeId, journeyDate).toCompartmentSeats();
+    }
+    
+    /**
+     * Get compartments for a train with seat availability between two stops of the route on the journey date
+     */
+    public List<CompartmentSeats> getCompartmentsForTrain(int trainId, int routeId, int fromOrdinal, int toOrdinal,
+                                                          LocalDate journeyDate) throws SQLException {
+        return getSeatMap(trainId, routeId, fromOrdinal, toOrdinal, journeyDate).toCompartmentSeats();
+    }
+    
+    /**
+     * Seat map of a train with the static seat availability, cached until the
+     * train's seats or bookings change
+     */
+    public SeatMapSnapshot getSeatMap(int trainId) throws SQLException {
+        long version = SeatInventory.getInstance().getVersion(trainId);
+        SeatMapSnapshot cached = seatMaps.get(trainId);
+        if (cached != null && cached.getVersion() == version) {
+            return cached;
+        }
+        
+        SeatMapSnapshot snapshot;
+        try (Connection conn = dbManager.getConnection()) {
+            snapshot = SeatMapSnapshot.load(conn, trainId, version);
+        }
+        // A slower load of an older version must not replace a newer one
+        seatMaps.merge(trainId, snapshot, (old, loaded) -> loaded.getVersion() >= old.getVersion() ? loaded : old);
+        return snapshot;
+    }
+    
+    /**
+     * Seat map of a train with availability for the route's segments on the journey date
+     */
+    public SeatMapSnapshot getSeatMap(int trainId, int routeId, LocalDate journeyDate) throws SQLException {
+        return getSeatMap(trainId, routeId, FareEngine.WHOLE_ROUTE, FareEngine.WHOLE_ROUTE, journeyDate);
+    }
+    
+    /**
+     * Seat map of a train with availability between two stops of the route on the journey date
+     */
+    public SeatMapSnapshot getSeatMap(int trainId, int routeId, int fromOrdinal, int toOrdinal,
+                                      LocalDate journeyDate) throws SQLException {
+        Set<Integer> freeSeatIds = getBookableSeatIds(trainId, routeId, fromOrdinal, toOrdinal, journeyDate);
+        return getSeatMap(trainId).withAvailability(freeSeatIds);
+    }
+    
+    /**
+     * Seats free between the stops and not held by anyone in checkout
+     */
+    private Set<Integer> getBookableSeatIds(int trainId, int routeId, int fromOrdinal, int toOrdinal,
+                                            LocalDate journeyDate) throws SQLException {
+        Set<Integer> freeSeatIds = SeatInventory.getInstance().getFreeSeatIds(trainId, routeId, fromOrdinal, toOrdinal,
+                                                                              journeyDate);
+        freeSeatIds.removeAll(SeatHoldService.getInstance().getHeldSeatIds(trainId, routeId, fromOrdinal, toOrdinal,
+                                                                               journeyDate));
+        return freeSeatIds;
+    }
+    
     /**
      * Get recommended seats for user based on their role
      */
     public List<SeatWithDetails> getRecommendedSeats(int trainId, User.UserRole userRole) throws SQLException {
-        List<SeatWithDetails> allAvailableSeats = getAvailableSeats(trainId, 0);
+        return getRecommendedSeats(trainId, 0, FareEngine.WHOLE_ROUTE, FareEngine.WHOLE_ROUTE, LocalDate.now(), userRole);
+    }
+    
+    /**
+     * Get recommended seats for user based on their role, among the seats free
+     * between two stops of the route on the journey date
+     */
+    public List<SeatWithDetails> getRecommendedSeats(int trainId, int routeId, int fromOrdinal, int toOrdinal,
+                                                     LocalDate journeyDate, User.UserRole userRole) throws SQLException {
+        List<SeatWithDetails> allAvailableSeats = getAvailableSeats(trainId, routeId, fromOrdinal, toOrdinal, journeyDate);
         List<SeatWithDetails> recommendedSeats = new ArrayList<>();
         
         for (SeatWithDetails seat : allAvailableSeats) {
@@ -218,36 +336,7 @@ public class SeatAvailabilityManager {
      * Get seats grouped by compartment for a train
      */
     public List<CompartmentSeats> getSeatsGroupedByCompartment(int trainId) throws SQLException {
-        List<CompartmentSeats> compartmentSeatsList = new ArrayList<>();
-        
-        String compartmentQuery = """
-            SELECT DISTINCT c.compartment_id, c.compartment_name, cl.class_type
-            FROM compartments c
-            JOIN classes cl ON c.class_id = cl.class_id
-            WHERE cl.train_id = ?
-            ORDER BY cl.class_type, c.compartment_name
-            """;
-        
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(compartmentQuery)) {
-            pstmt.setInt(1, trainId);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    int compartmentId = rs.getInt("compartment_id");
-                    String compartmentName = rs.getString("compartment_name");
-                    String classType = rs.getString("class_type");
-                    
-                    List<SeatWithDetails> seats = getSeatsForCompartment(compartmentId);
-                    
-                    CompartmentSeats compartmentSeats = new CompartmentSeats(
-                        compartmentId, compartmentName, classType, seats
-                    );
-                    compartmentSeatsList.add(compartmentSeats);
-                }
-            }
-        }
-        
-        return compartmentSeatsList;
+        return getSeatMap(trainId).toCompartmentSeats();
     }
     
     /**
@@ -266,7 +355,8 @@ public class SeatAvailabilityManager {
             ORDER BY s.seat_number
             """;
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, compartmentId);
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -304,7 +394,8 @@ public class SeatAvailabilityManager {
             ORDER BY s.seat_number
             """;
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, compartmentId);
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -348,13 +439,16 @@ public class SeatAvailabilityManager {
     }
     
     /**
-     * Inner class to represent compartment with its seats
+     * Inner class to represent compartment with its seats. When backed by a
+     * seat map snapshot the seat objects are only built on first getSeats().
      */
     public static class CompartmentSeats {
         private int compartmentId;
         private String compartmentName;
         private String classType;
         private List<SeatWithDetails> seats;
+        private SeatMapSnapshot snapshot;
+        private int compartmentIndex;
         
         public CompartmentSeats(int compartmentId, String compartmentName, String classType, List<SeatWithDetails> seats) {
             this.compartmentId = compartmentId;
@@ -363,16 +457,36 @@ public class SeatAvailabilityManager {
             this.seats = seats;
         }
         
+        CompartmentSeats(SeatMapSnapshot snapshot, int compartmentIndex) {
+            this.compartmentId = snapshot.getCompartmentId(compartmentIndex);
+            this.compartmentName = snapshot.getCompartmentName(compartmentIndex);
+            this.classType = snapshot.getClassType(compartmentIndex);
+            this.snapshot = snapshot;
+            this.compartmentIndex = compartmentIndex;
+        }
+        
         public int getCompartmentId() { return compartmentId; }
         public String getCompartmentName() { return compartmentName; }
         public String getClassType() { return classType; }
-        public List<SeatWithDetails> getSeats() { return seats; }
+        
+        public List<SeatWithDetails> getSeats() {
+            if (seats == null) {
+                seats = snapshot.getSeats(compartmentIndex);
+            }
+            return seats;
+        }
         
         public int getAvailableSeatsCount() {
+            if (snapshot != null) {
+                return snapshot.getAvailableSeatsCount(compartmentIndex);
+            }
             return (int) seats.stream().filter(SeatWithDetails::isAvailable).count();
         }
         
         public int getTotalSeatsCount() {
+            if (snapshot != null) {
+                return snapshot.getTotalSeatsCount(compartmentIndex);
+            }
             return seats.size();
         }
         
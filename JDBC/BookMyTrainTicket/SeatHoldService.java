@@ -0,0 +1,452 @@
+package BookMyTrainTicket;
+
+import java.sql.*;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time-bounded seat holds during checkout
+ *
+ * A passenger who picks seats gets a hold on them for the segments between
+ * their stops until they book, give up or the hold runs out. Seat maps and the booking
+ * path treat seats held by someone else as taken, so two people never fill
+ * in passenger details for the same berth, and an abandoned cart frees its
+ * seats by itself when the hold expires.
+ *
+ * Active holds live in memory, indexed by journey, with their deadlines in a
+ * {@link HashedTimerWheel} ticked once a second. Each hold is also one row
+ * in the seat_holds journal (seat IDs packed into one column); the row is
+ * written when the hold is taken and deleted when it ends, and on startup
+ * unexpired rows are loaded back so a restart doesn't drop carts in progress.
+ * Holds only reserve seats within this application; the booking itself is
+ * still decided by SeatInventory's conditional claim.
+ */
+public class SeatHoldService {
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+    private static final long TICK_MILLIS = 1_000;
+    private static final int WHEEL_SIZE = 512;
+
+    private static SeatHoldService instance;
+
+    private final DatabaseManager dbManager;
+    private final HashedTimerWheel<Hold> wheel;
+    private final Map<Long, Hold> holds = new ConcurrentHashMap<>();
+    // Guarded by this
+    private final Map<JourneyKey, Set<Hold>> byJourney = new HashMap<>();
+    private final ScheduledExecutorService ticker;
+
+    private SeatHoldService() throws SQLException {
+        this.dbManager = DatabaseManager.getInstance();
+        this.wheel = new HashedTimerWheel<>(TICK_MILLIS, WHEEL_SIZE, System.currentTimeMillis());
+        recover();
+
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "seat-hold-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleWithFixedDelay(this::expireDue, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized SeatHoldService getInstance() throws SQLException {
+        if (instance == null) {
+            instance = new SeatHoldService();
+        }
+        return instance;
+    }
+
+    /**
+     * Hold seats between two stops of the route until the TTL runs out.
+     * Returns null if any seat is already booked or held by another user on an
+     * overlapping segment; the user's own earlier holds don't block them.
+     */
+    public Hold hold(int userId, int trainId, int routeId, int fromOrdinal, int toOrdinal, LocalDate journeyDate,
+                     List<Integer> seatIds, Duration ttl) throws SQLException {
+        if (seatIds.isEmpty()) {
+            throw new SQLException("A hold needs at least one seat");
+        }
+        SeatInventory inventory = SeatInventory.getInstance();
+        for (Integer seatId : seatIds) {
+            if (!inventory.isSeatFree(trainId, routeId, fromOrdinal, toOrdinal, journeyDate, seatId)) {
+                return null;
+            }
+        }
+
+        Map<Integer, Integer> seatClasses = new HashMap<>();
+        for (Integer seatId : seatIds) {
+            seatClasses.put(seatId, inventory.getSeatClassId(trainId, seatId));
+        }
+
+        long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+        Hold hold = new Hold(userId, trainId, routeId, fromOrdinal, toOrdinal, journeyDate,
+                             new LinkedHashSet<>(seatIds), seatClasses,
+                             inventory.getSegmentMask(trainId, routeId, fromOrdinal, toOrdinal), expiresAt);
+        synchronized (this) {
+            for (Integer seatId : hold.seatIds) {
+                if (heldByOther(userId, hold.journeyKey(), seatId, hold.segmentMask)) {
+                    return null;
+                }
+            }
+            byJourney.computeIfAbsent(hold.journeyKey(), k -> new HashSet<>()).add(hold);
+        }
+
+        try {
+            hold.holdId = writeJournal(hold);
+        } catch (SQLException e) {
+            unindex(hold);
+            throw e;
+        }
+        holds.put(hold.holdId, hold);
+        hold.timeout = wheel.schedule(hold, expiresAt);
+        System.out.println("DEBUG: Hold " + hold.holdId + " on " + hold.seatIds.size() + " seat(s) of train " +
+                          trainId + " for user " + userId + " until " + new Timestamp(expiresAt));
+        return hold;
+    }
+
+    /**
+     * End a hold because its seats were booked. Returns false if it had
+     * already expired or ended.
+     */
+    public boolean confirm(long holdId) throws SQLException {
+        return end(holdId, "confirmed");
+    }
+
+    /**
+     * End a hold without booking (checkout abandoned). Returns false if it had
+     * already expired or ended.
+     */
+    public boolean release(long holdId) throws SQLException {
+        return end(holdId, "released");
+    }
+
+    /**
+     * Seats held on segments overlapping the stops, by anyone
+     */
+    public Set<Integer> getHeldSeatIds(int trainId, int routeId, int fromOrdinal, int toOrdinal,
+                                       LocalDate journeyDate) throws SQLException {
+        long mask = SeatInventory.getInstance().getSegmentMask(trainId, routeId, fromOrdinal, toOrdinal);
+        synchronized (this) {
+            Set<Hold> journeyHolds = byJourney.get(new JourneyKey(trainId, journeyDate));
+            if (journeyHolds == null || journeyHolds.isEmpty()) {
+                return Collections.emptySet();
+            }
+            Set<Integer> held = new HashSet<>();
+            for (Hold hold : journeyHolds) {
+                if ((hold.segmentMask & mask) != 0) {
+                    held.addAll(hold.seatIds);
+                }
+            }
+            return held;
+        }
+    }
+
+    /**
+     * Held seats per class ID that cover every segment of the route: the ones
+     * the availability counters, which count seats free over the whole route,
+     * still count as free. Seats held on part of the route only may be booked
+     * on the rest, so they are left out. Holds are kept in memory with their
+     * seat classes, so this costs no database read.
+     */
+    public Map<Integer, Integer> getHeldCountsByClass(int trainId, int routeId, LocalDate journeyDate) throws SQLException {
+        JourneyKey key = new JourneyKey(trainId, journeyDate);
+        synchronized (this) {
+            Set<Hold> journeyHolds = byJourney.get(key);
+            if (journeyHolds == null || journeyHolds.isEmpty()) {
+                return Collections.emptyMap();
+            }
+        }
+        // The train's layout is cached since its holds were taken
+        long mask = SeatInventory.getInstance().getRouteMask(trainId, routeId);
+        Map<Integer, Integer> held = new HashMap<>();
+        Set<Integer> counted = new HashSet<>();
+        synchronized (this) {
+            for (Hold hold : byJourney.getOrDefault(key, Collections.emptySet())) {
+                if ((hold.segmentMask & mask) != mask) {
+                    continue;
+                }
+                for (Integer seatId : hold.seatIds) {
+                    if (counted.add(seatId)) {
+                        held.merge(hold.seatClasses.get(seatId), 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        return held;
+    }
+
+    /**
+     * Whether another user holds the seat on a segment overlapping the stops
+     */
+    public boolean isHeldByOther(int userId, int trainId, int routeId, int fromOrdinal, int toOrdinal,
+                                 LocalDate journeyDate, int seatId) throws SQLException {
+        long mask = SeatInventory.getInstance().getSegmentMask(trainId, routeId, fromOrdinal, toOrdinal);
+        synchronized (this) {
+            return heldByOther(userId, new JourneyKey(trainId, journeyDate), seatId, mask);
+        }
+    }
+
+    /**
+     * Number of holds currently active
+     */
+    public int getActiveHoldCount() {
+        return holds.size();
+    }
+
+    private boolean heldByOther(int userId, JourneyKey journey, int seatId, long mask) {
+        Set<Hold> journeyHolds = byJourney.get(journey);
+        if (journeyHolds == null) {
+            return false;
+        }
+        for (Hold hold : journeyHolds) {
+            if (hold.userId != userId && (hold.segmentMask & mask) != 0 && hold.seatIds.contains(seatId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean end(long holdId, String how) throws SQLException {
+        Hold hold = holds.remove(holdId);
+        if (hold == null) {
+            return false;
+        }
+        wheel.cancel(hold.timeout);
+        unindex(hold);
+        deleteJournal(List.of(holdId));
+        System.out.println("DEBUG: Hold " + holdId + " " + how);
+        return true;
+    }
+
+    /**
+     * Ticker: drop holds whose deadline passed, with one journal delete per tick
+     */
+    private void expireDue() {
+        List<Hold> expired = wheel.advance(System.currentTimeMillis());
+        if (expired.isEmpty()) {
+            return;
+        }
+        List<Long> holdIds = new ArrayList<>();
+        for (Hold hold : expired) {
+            if (holds.remove(hold.holdId) != null) {
+                unindex(hold);
+                holdIds.add(hold.holdId);
+            }
+        }
+        try {
+            deleteJournal(holdIds);
+        } catch (SQLException e) {
+            // Recovery skips expired rows, so a missed delete only leaves a stale row behind
+            Logger.getInstance().error("SeatHoldService", "expireDue", "Could not remove expired holds from the journal", e);
+        }
+        System.out.println("DEBUG: Expired " + holdIds.size() + " seat hold(s)");
+    }
+
+    private synchronized void unindex(Hold hold) {
+        Set<Hold> journeyHolds = byJourney.get(hold.journeyKey());
+        if (journeyHolds != null) {
+            journeyHolds.remove(hold);
+            if (journeyHolds.isEmpty()) {
+                byJourney.remove(hold.journeyKey());
+            }
+        }
+    }
+
+    private long writeJournal(Hold hold) throws SQLException {
+        String insert = """
+            INSERT INTO seat_holds (user_id, train_id, route_id, from_ordinal, to_ordinal,
+                                    journey_date, seat_ids, expires_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(insert, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, hold.userId);
+            pstmt.setInt(2, hold.trainId);
+            pstmt.setInt(3, hold.routeId);
+            BookingManager.setOrdinal(pstmt, 4, hold.fromOrdinal);
+            BookingManager.setOrdinal(pstmt, 5, hold.toOrdinal);
+            pstmt.setDate(6, Date.valueOf(hold.journeyDate));
+            pstmt.setString(7, joinIds(hold.seatIds));
+            pstmt.setTimestamp(8, new Timestamp(hold.expiresAt));
+            pstmt.executeUpdate();
+            try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                if (rs.next()) {
+                    return rs.getLong(1);
+                }
+            }
+        }
+        throw new SQLException("Failed to get hold ID");
+    }
+
+    private void deleteJournal(List<Long> holdIds) throws SQLException {
+        if (holdIds.isEmpty()) {
+            return;
+        }
+        String delete = "DELETE FROM seat_holds WHERE hold_id IN (" +
+                        String.join(", ", Collections.nCopies(holdIds.size(), "?")) + ")";
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(delete)) {
+            for (int i = 0; i < holdIds.size(); i++) {
+                pstmt.setLong(i + 1, holdIds.get(i));
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Load unexpired holds from the journal after a restart and clear out the rest
+     */
+    private void recover() throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int recovered = 0;
+        try (Connection conn = dbManager.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM seat_holds WHERE expires_at <= ?")) {
+                pstmt.setTimestamp(1, now);
+                pstmt.executeUpdate();
+            }
+
+            String query = """
+                SELECT hold_id, user_id, train_id, route_id, from_ordinal, to_ordinal,
+                       journey_date, seat_ids, expires_at
+                FROM seat_holds
+                WHERE expires_at > ?
+                """;
+            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                pstmt.setTimestamp(1, now);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        int trainId = rs.getInt("train_id");
+                        int routeId = rs.getInt("route_id");
+                        int fromOrdinal = BookingManager.getOrdinal(rs, "from_ordinal");
+                        int toOrdinal = BookingManager.getOrdinal(rs, "to_ordinal");
+                        Set<Integer> seatIds = parseIds(rs.getString("seat_ids"));
+                        Map<Integer, Integer> seatClasses = new HashMap<>();
+                        for (Integer seatId : seatIds) {
+                            seatClasses.put(seatId, SeatInventory.getInstance().getSeatClassId(conn, trainId, seatId));
+                        }
+                        Hold hold = new Hold(rs.getInt("user_id"), trainId, routeId, fromOrdinal, toOrdinal,
+                                             rs.getDate("journey_date").toLocalDate(), seatIds, seatClasses,
+                                             SeatInventory.getInstance().getSegmentMask(conn, trainId, routeId,
+                                                 fromOrdinal, toOrdinal),
+                                             rs.getTimestamp("expires_at").getTime());
+                        hold.holdId = rs.getLong("hold_id");
+                        synchronized (this) {
+                            byJourney.computeIfAbsent(hold.journeyKey(), k -> new HashSet<>()).add(hold);
+                        }
+                        holds.put(hold.holdId, hold);
+                        hold.timeout = wheel.schedule(hold, hold.expiresAt);
+                        recovered++;
+                    }
+                }
+            }
+        }
+        if (recovered > 0) {
+            System.out.println("DEBUG: Recovered " + recovered + " seat hold(s) from the journal");
+        }
+    }
+
+    private static String joinIds(Set<Integer> ids) {
+        StringBuilder sb = new StringBuilder();
+        for (Integer id : ids) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(id);
+        }
+        return sb.toString();
+    }
+
+    private static Set<Integer> parseIds(String ids) {
+        Set<Integer> parsed = new LinkedHashSet<>();
+        if (ids != null) {
+            for (String id : ids.split(",")) {
+                if (!id.isBlank()) {
+                    parsed.add(Integer.parseInt(id.trim()));
+                }
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * One user's hold on some seats of a journey
+     */
+    public static class Hold {
+        private long holdId;
+        private final int userId;
+        private final int trainId;
+        private final int routeId;
+        private final int fromOrdinal;
+        private final int toOrdinal;
+        private final LocalDate journeyDate;
+        private final Set<Integer> seatIds;
+        // Seat ID -> class ID
+        private final Map<Integer, Integer> seatClasses;
+        private final long segmentMask;
+        private final long expiresAt;
+        private HashedTimerWheel.Timeout<Hold> timeout;
+
+        Hold(int userId, int trainId, int routeId, int fromOrdinal, int toOrdinal, LocalDate journeyDate,
+             Set<Integer> seatIds, Map<Integer, Integer> seatClasses, long segmentMask, long expiresAt) {
+            this.userId = userId;
+            this.trainId = trainId;
+            this.routeId = routeId;
+            this.fromOrdinal = fromOrdinal;
+            this.toOrdinal = toOrdinal;
+            this.journeyDate = journeyDate;
+            this.seatIds = Collections.unmodifiableSet(seatIds);
+            this.seatClasses = seatClasses;
+            this.segmentMask = segmentMask;
+            this.expiresAt = expiresAt;
+        }
+
+        public long getHoldId() { return holdId; }
+        public int getUserId() { return userId; }
+        public int getTrainId() { return trainId; }
+        public int getRouteId() { return routeId; }
+        public int getFromOrdinal() { return fromOrdinal; }
+        public int getToOrdinal() { return toOrdinal; }
+        public LocalDate getJourneyDate() { return journeyDate; }
+        public Set<Integer> getSeatIds() { return seatIds; }
+        public long getExpiresAt() { return expiresAt; }
+
+        private JourneyKey journeyKey() {
+            return new JourneyKey(trainId, journeyDate);
+        }
+    }
+
+    private static class JourneyKey {
+        private final int trainId;
+        private final LocalDate journeyDate;
+
+        JourneyKey(int trainId, LocalDate journeyDate) {
+            this.trainId = trainId;
+            this.journeyDate = journeyDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof JourneyKey)) return false;
+            JourneyKey other = (JourneyKey) o;
+            return trainId == other.trainId && journeyDate.equals(other.journeyDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(trainId, journeyDate);
+        }
+    }
+}
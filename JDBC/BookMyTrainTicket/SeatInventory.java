@@ -0,0 +1,987 @@
+package BookMyTrainTicket;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Segment-aware seat inventory
+ *
+ * A train's run is split into segments (station i to station i+1). For every
+ * (train, journey date, seat) we keep a long bitmap with one bit per segment,
+ * so a seat booked New Delhi -> Gwalior stays sellable for Bhopal -> Mumbai.
+ * Availability checks are a single AND against the passenger's segment mask:
+ * the segments between their boarding and alighting stops (route stop
+ * ordinals, FareEngine.WHOLE_ROUTE for the route's ends), placed on the
+ * train's stop sequence.
+ *
+ * The train's stop sequence is its longest route with the stops of the other
+ * routes merged in after their preceding common station. A route that visits
+ * the train's stations in a different order cannot be placed; it is logged
+ * and any claim on it fails, while the train's other routes stay bookable.
+ *
+ * Bitmaps are persisted in the seat_inventory table (one row per occupied seat
+ * per date) and loaded lazily per (train, date). Seats with is_available = FALSE
+ * are treated as out of service and blocked on every segment.
+ *
+ * Every change to a train's seats or occupancy (claim, release, eviction,
+ * invalidation) moves that train's version forward, so caches built on top,
+ * such as {@link SeatMapSnapshot}, can tell when they are stale. Claims,
+ * releases and blocks also adjust {@link AvailabilityCounters} in the same
+ * transaction.
+ */
+public class SeatInventory {
+    /** Bits available in a mask (kept below the sign bit so masks fit a signed BIGINT);
+     *  stations past this collapse into the last segment */
+    public static final int MAX_SEGMENTS = 63;
+    private static final long ALL_SEGMENTS = Long.MAX_VALUE;
+
+    private static SeatInventory instance;
+
+    private final DatabaseManager dbManager;
+    private final Map<Integer, TrainLayout> layouts = new ConcurrentHashMap<>();
+    private final Map<JourneyKey, JourneyInventory> journeys = new ConcurrentHashMap<>();
+    private final AtomicLong versionClock = new AtomicLong();
+    private final Map<Integer, Long> trainVersions = new ConcurrentHashMap<>();
+    private volatile long allVersion;
+
+    private SeatInventory() throws SQLException {
+        this.dbManager = DatabaseManager.getInstance();
+    }
+
+    public static synchronized SeatInventory getInstance() throws SQLException {
+        if (instance == null) {
+            instance = new SeatInventory();
+        }
+        return instance;
+    }
+
+    /**
+     * Bitmask covering segments [fromStation, toStation)
+     */
+    public static long segmentMask(int fromStation, int toStation) {
+        int from = Math.min(fromStation, MAX_SEGMENTS - 1);
+        int to = Math.min(toStation, MAX_SEGMENTS);
+        if (to <= from) {
+            to = from + 1;
+        }
+        long upper = (1L << to) - 1;
+        long lower = (1L << from) - 1;
+        return upper & ~lower;
+    }
+
+    /**
+     * Segment mask for a route of the given train
+     */
+    public long getRouteMask(int trainId, int routeId) throws SQLException {
+        return getSegmentMask(trainId, routeId, FareEngine.WHOLE_ROUTE, FareEngine.WHOLE_ROUTE);
+    }
+
+    /**
+     * Segment mask between two stops (route ordinals) of a route of the given train
+     */
+    public long getSegmentMask(int trainId, int routeId, int fromOrdinal, int toOrdinal) throws SQLException {
+        return getLayout(trainId).mask(routeId, fromOrdinal, toOrdinal);
+    }
+
+    /**
+     * Segment mask between two stops, loading the train's layout on the caller's connection if needed
+     */
+    public long getSegmentMask(Connection conn, int trainId, int routeId, int fromOrdinal, int toOrdinal) throws SQLException {
+        return getLayout(conn, trainId).mask(routeId, fromOrdinal, toOrdinal);
+    }
+
+    /**
+     * Check whether a seat is free on every segment of the route for the date
+     */
+    public boolean isSeatFree(int trainId, int routeId, LocalDate journeyDate, int seatId) throws SQLException {
+        return isSeatFree(trainId, routeId, FareEngine.WHOLE_ROUTE, FareEngine.WHOLE_ROUTE, journeyDate, seatId);
+    }
+
+    /**
+     * Check whether a seat is free between two stops of the route for the date
+     */
+    public boolean isSeatFree(int trainId, int routeId, int fromOrdinal, int toOrdinal, LocalDate journeyDate,
+                              int seatId) throws SQLException {
+        TrainLayout layout = getLayout(trainId);
+        Integer index = layout.seatIndex.get(seatId);
+        if (index == null) {
+            return false;
+        }
+        return getJourney(layout, journeyDate).isFree(index, layout.mask(routeId, fromOrdinal, toOrdinal));
+    }
+
+    /**
+     * Count seats free on every segment of the route for the date
+     */
+    public int countFreeSeats(int trainId, int routeId, LocalDate journeyDate) throws SQLException {
+        TrainLayout layout = getLayout(trainId);
+        return getJourney(layout, journeyDate).countFree(layout.routeMask(routeId));
+    }
+
+    /**
+     * IDs of seats free on every segment of the route for the date
+     */
+    public Set<Integer> getFreeSeatIds(int trainId, int routeId, LocalDate journeyDate) throws SQLException {
+        return getFreeSeatIds(trainId, routeId, FareEngine.WHOLE_ROUTE, FareEngine.WHOLE_ROUTE, journeyDate);
+    }
+
+    /**
+     * IDs of seats free between two stops of the route for the date
+     */
+    public Set<Integer> getFreeSeatIds(int trainId, int routeId, int fromOrdinal, int toOrdinal,
+                                       LocalDate journeyDate) throws SQLException {
+        TrainLayout layout = getLayout(trainId);
+        return freeSeatIds(layout, getJourney(layout, journeyDate), layout.mask(routeId, fromOrdinal, toOrdinal));
+    }
+
+    /**
+     * IDs of seats free between two stops, loading anything not cached on the caller's connection
+     */
+    public Set<Integer> getFreeSeatIds(Connection conn, int trainId, int routeId, int fromOrdinal, int toOrdinal,
+                                       LocalDate journeyDate) throws SQLException {
+        TrainLayout layout = getLayout(conn, trainId);
+        return freeSeatIds(layout, getJourney(conn, layout, journeyDate), layout.mask(routeId, fromOrdinal, toOrdinal));
+    }
+
+    private static Set<Integer> freeSeatIds(TrainLayout layout, JourneyInventory journey, long mask) {
+
+        Set<Integer> free = new HashSet<>();
+        for (int i = 0; i < layout.seatIds.length; i++) {
+            if (journey.isFree(i, mask)) {
+                free.add(layout.seatIds[i]);
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Occupy a seat for the whole route (see the segment overload)
+     */
+    public boolean claim(Connection conn, int trainId, int routeId, LocalDate journeyDate, int seatId) throws SQLException {
+        return claim(conn, trainId, routeId, FareEngine.WHOLE_ROUTE, FareEngine.WHOLE_ROUTE, journeyDate, seatId);
+    }
+
+    /**
+     * Occupy a seat between two stops of the route on the caller's connection.
+     * Returns false if any segment is already taken. The row-level check in SQL
+     * makes this safe against concurrent clerks; if the caller's transaction is
+     * rolled back it must call {@link #evict(int, LocalDate)} so memory reloads.
+     */
+    public boolean claim(Connection conn, int trainId, int routeId, int fromOrdinal, int toOrdinal,
+                         LocalDate journeyDate, int seatId) throws SQLException {
+        TrainLayout layout = getLayout(conn, trainId);
+        Integer index = layout.seatIndex.get(seatId);
+        if (index == null) {
+            return false;
+        }
+        long mask = layout.mask(routeId, fromOrdinal, toOrdinal);
+        AvailabilityCounters.getInstance().ensureJourney(conn, trainId, journeyDate);
+
+        String ensureRow = "INSERT IGNORE INTO seat_inventory (train_id, journey_date, seat_id, occupied_mask) VALUES (?, ?, ?, 0)";
+        try (PreparedStatement pstmt = conn.prepareStatement(ensureRow)) {
+            pstmt.setInt(1, trainId);
+            pstmt.setDate(2, Date.valueOf(journeyDate));
+            pstmt.setInt(3, seatId);
+            pstmt.executeUpdate();
+        }
+        long[] before = lockMasks(conn, layout, journeyDate, List.of(seatId));
+
+        String claimQuery = """
+            UPDATE seat_inventory SET occupied_mask = occupied_mask | ?
+            WHERE train_id = ? AND journey_date = ? AND seat_id = ? AND (occupied_mask & ?) = 0
+            """;
+        int rowsAffected;
+        try (PreparedStatement pstmt = conn.prepareStatement(claimQuery)) {
+            pstmt.setLong(1, mask);
+            pstmt.setInt(2, trainId);
+            pstmt.setDate(3, Date.valueOf(journeyDate));
+            pstmt.setInt(4, seatId);
+            pstmt.setLong(5, mask);
+            rowsAffected = pstmt.executeUpdate();
+        }
+
+        if (rowsAffected == 0) {
+            // Someone else holds an overlapping segment; our cached copy is stale
+            evict(trainId, journeyDate);
+            return false;
+        }
+        recordChange(conn, layout, journeyDate, List.of(seatId), before, new long[] {before[0] | mask});
+        getJourney(conn, layout, journeyDate).occupy(index, mask);
+        bumpVersion(trainId);
+        return true;
+    }
+
+    /**
+     * Occupy several seats for the whole route (see the segment overload)
+     */
+    public boolean claimAll(Connection conn, int trainId, int routeId, LocalDate journeyDate, List<Integer> seatIds) throws SQLException {
+        return claimAll(conn, trainId, routeId, FareEngine.WHOLE_ROUTE, FareEngine.WHOLE_ROUTE, journeyDate, seatIds);
+    }
+
+    /**
+     * Occupy several seats between two stops of the route, all or nothing, in a
+     * fixed two round trips: a batched row insert and one conditional UPDATE
+     * over the whole set. Returns false (caller must roll back) if any seat has
+     * an overlapping segment taken. Seat IDs must be distinct.
+     */
+    public boolean claimAll(Connection conn, int trainId, int routeId, int fromOrdinal, int toOrdinal,
+                            LocalDate journeyDate, List<Integer> seatIds) throws SQLException {
+        TrainLayout layout = getLayout(conn, trainId);
+        for (Integer seatId : seatIds) {
+            if (!layout.seatIndex.containsKey(seatId)) {
+                return false;
+            }
+        }
+        long mask = layout.mask(routeId, fromOrdinal, toOrdinal);
+        AvailabilityCounters.getInstance().ensureJourney(conn, trainId, journeyDate);
+
+        String ensureRow = "INSERT IGNORE INTO seat_inventory (train_id, journey_date, seat_id, occupied_mask) VALUES (?, ?, ?, 0)";
+        try (PreparedStatement pstmt = conn.prepareStatement(ensureRow)) {
+            for (Integer seatId : seatIds) {
+                pstmt.setInt(1, trainId);
+                pstmt.setDate(2, Date.valueOf(journeyDate));
+                pstmt.setInt(3, seatId);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        long[] before = lockMasks(conn, layout, journeyDate, seatIds);
+
+        String claimQuery = """
+            UPDATE seat_inventory SET occupied_mask = occupied_mask | ?
+            WHERE train_id = ? AND journey_date = ? AND (occupied_mask & ?) = 0 AND seat_id IN (%s)
+            """.formatted(placeholders(seatIds.size()));
+        int rowsAffected;
+        try (PreparedStatement pstmt = conn.prepareStatement(claimQuery)) {
+            pstmt.setLong(1, mask);
+            pstmt.setInt(2, trainId);
+            pstmt.setDate(3, Date.valueOf(journeyDate));
+            pstmt.setLong(4, mask);
+            bindIds(pstmt, 5, seatIds);
+            rowsAffected = pstmt.executeUpdate();
+        }
+
+        if (rowsAffected != seatIds.size()) {
+            evict(trainId, journeyDate);
+            return false;
+        }
+        long[] after = new long[before.length];
+        for (int i = 0; i < before.length; i++) {
+            after[i] = before[i] | mask;
+        }
+        recordChange(conn, layout, journeyDate, seatIds, before, after);
+        JourneyInventory journey = getJourney(conn, layout, journeyDate);
+        for (Integer seatId : seatIds) {
+            journey.occupy(layout.seatIndex.get(seatId), mask);
+        }
+        bumpVersion(trainId);
+        return true;
+    }
+
+    /**
+     * Free a seat for the whole route (see the segment overload)
+     */
+    public void release(Connection conn, int trainId, int routeId, LocalDate journeyDate, int seatId) throws SQLException {
+        release(conn, trainId, routeId, FareEngine.WHOLE_ROUTE, FareEngine.WHOLE_ROUTE, journeyDate, seatId);
+    }
+
+    /**
+     * Free a seat between two stops of the route on the caller's connection,
+     * the segment it was claimed for (same rollback rule as {@link #claim})
+     */
+    public void release(Connection conn, int trainId, int routeId, int fromOrdinal, int toOrdinal,
+                        LocalDate journeyDate, int seatId) throws SQLException {
+        TrainLayout layout = getLayout(conn, trainId);
+        long mask = layout.mask(routeId, fromOrdinal, toOrdinal);
+        AvailabilityCounters.getInstance().ensureJourney(conn, trainId, journeyDate);
+        long[] before = lockMasks(conn, layout, journeyDate, List.of(seatId));
+
+        String releaseQuery = """
+            UPDATE seat_inventory SET occupied_mask = occupied_mask & ~?
+            WHERE train_id = ? AND journey_date = ? AND seat_id = ?
+            """;
+        try (PreparedStatement pstmt = conn.prepareStatement(releaseQuery)) {
+            pstmt.setLong(1, mask);
+            pstmt.setInt(2, trainId);
+            pstmt.setDate(3, Date.valueOf(journeyDate));
+            pstmt.setInt(4, seatId);
+            pstmt.executeUpdate();
+        }
+        recordChange(conn, layout, journeyDate, List.of(seatId), before, released(layout, List.of(seatId), before, mask));
+
+        Integer index = layout.seatIndex.get(seatId);
+        JourneyInventory journey = journeys.get(new JourneyKey(trainId, journeyDate));
+        if (index != null && journey != null) {
+            journey.free(index, mask);
+        }
+        bumpVersion(trainId);
+    }
+
+    /**
+     * Free several seats for the whole route (see the segment overload)
+     */
+    public void releaseAll(Connection conn, int trainId, int routeId, LocalDate journeyDate, List<Integer> seatIds) throws SQLException {
+        releaseAll(conn, trainId, routeId, FareEngine.WHOLE_ROUTE, FareEngine.WHOLE_ROUTE, journeyDate, seatIds);
+    }
+
+    /**
+     * Free several seats between two stops of the route with one UPDATE
+     * (same rollback rule as {@link #claim})
+     */
+    public void releaseAll(Connection conn, int trainId, int routeId, int fromOrdinal, int toOrdinal,
+                           LocalDate journeyDate, List<Integer> seatIds) throws SQLException {
+        if (seatIds.isEmpty()) {
+            return;
+        }
+        TrainLayout layout = getLayout(conn, trainId);
+        long mask = layout.mask(routeId, fromOrdinal, toOrdinal);
+        AvailabilityCounters.getInstance().ensureJourney(conn, trainId, journeyDate);
+        long[] before = lockMasks(conn, layout, journeyDate, seatIds);
+
+        String releaseQuery = """
+            UPDATE seat_inventory SET occupied_mask = occupied_mask & ~?
+            WHERE train_id = ? AND journey_date = ? AND seat_id IN (%s)
+            """.formatted(placeholders(seatIds.size()));
+        try (PreparedStatement pstmt = conn.prepareStatement(releaseQuery)) {
+            pstmt.setLong(1, mask);
+            pstmt.setInt(2, trainId);
+            pstmt.setDate(3, Date.valueOf(journeyDate));
+            bindIds(pstmt, 4, seatIds);
+            pstmt.executeUpdate();
+        }
+        recordChange(conn, layout, journeyDate, seatIds, before, released(layout, seatIds, before, mask));
+
+        JourneyInventory journey = journeys.get(new JourneyKey(trainId, journeyDate));
+        if (journey != null) {
+            for (Integer seatId : seatIds) {
+                Integer index = layout.seatIndex.get(seatId);
+                if (index != null) {
+                    journey.free(index, mask);
+                }
+            }
+        }
+        bumpVersion(trainId);
+    }
+
+    /**
+     * Take seats out of service for one date (a withdrawn coach): every segment
+     * is marked occupied, with one batched upsert. Bookings on them are not
+     * touched. Same rollback rule as {@link #claim}.
+     */
+    public void blockSeats(Connection conn, int trainId, LocalDate journeyDate, List<Integer> seatIds) throws SQLException {
+        if (seatIds.isEmpty()) {
+            return;
+        }
+        TrainLayout layout = getLayout(conn, trainId);
+        AvailabilityCounters.getInstance().ensureJourney(conn, trainId, journeyDate);
+        long[] before = lockMasks(conn, layout, journeyDate, seatIds);
+
+        String blockQuery = """
+            INSERT INTO seat_inventory (train_id, journey_date, seat_id, occupied_mask) VALUES (?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE occupied_mask = VALUES(occupied_mask)
+            """;
+        try (PreparedStatement pstmt = conn.prepareStatement(blockQuery)) {
+            for (Integer seatId : seatIds) {
+                pstmt.setInt(1, trainId);
+                pstmt.setDate(2, Date.valueOf(journeyDate));
+                pstmt.setInt(3, seatId);
+                pstmt.setLong(4, ALL_SEGMENTS);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        long[] after = new long[before.length];
+        Arrays.fill(after, ALL_SEGMENTS);
+        recordChange(conn, layout, journeyDate, seatIds, before, after);
+
+        JourneyInventory journey = journeys.get(new JourneyKey(trainId, journeyDate));
+        if (journey != null) {
+            for (Integer seatId : seatIds) {
+                Integer index = layout.seatIndex.get(seatId);
+                if (index != null) {
+                    journey.occupy(index, ALL_SEGMENTS);
+                }
+            }
+        }
+        bumpVersion(trainId);
+    }
+
+    /**
+     * Class of a seat, or 0 if the seat is not part of the train
+     */
+    int getSeatClassId(int trainId, int seatId) throws SQLException {
+        return seatClassOf(getLayout(trainId), seatId);
+    }
+
+    /**
+     * Class of a seat, loading the train's layout on the caller's connection if needed
+     */
+    int getSeatClassId(Connection conn, int trainId, int seatId) throws SQLException {
+        return seatClassOf(getLayout(conn, trainId), seatId);
+    }
+
+    private static int seatClassOf(TrainLayout layout, int seatId) {
+        Integer index = layout.seatIndex.get(seatId);
+        return index != null ? layout.seatClasses[index] : 0;
+    }
+
+    /**
+     * Free seats per (route, class) of each train for one date, counted from
+     * seat_inventory on the caller's connection (seeds and checks
+     * {@link AvailabilityCounters}). Nothing is cached from this read.
+     */
+    Map<Integer, Map<AvailabilityCounters.Key, Integer>> countFreeByRouteAndClass(Connection conn, Collection<Integer> trainIds,
+                                                                                 LocalDate journeyDate) throws SQLException {
+        List<Integer> missingLayouts = new ArrayList<>();
+        for (Integer trainId : new LinkedHashSet<>(trainIds)) {
+            if (!layouts.containsKey(trainId)) {
+                missingLayouts.add(trainId);
+            }
+        }
+        if (!missingLayouts.isEmpty()) {
+            layouts.putAll(loadLayouts(conn, missingLayouts));
+        }
+
+        List<TrainLayout> withSeats = new ArrayList<>();
+        Map<Integer, Map<AvailabilityCounters.Key, Integer>> counts = new HashMap<>();
+        for (Integer trainId : new LinkedHashSet<>(trainIds)) {
+            TrainLayout layout = layouts.get(trainId);
+            counts.put(trainId, new HashMap<>());
+            if (layout != null && layout.seatIds.length > 0) {
+                withSeats.add(layout);
+            }
+        }
+        if (withSeats.isEmpty()) {
+            return counts;
+        }
+
+        Map<Integer, JourneyInventory> loaded = loadJourneys(conn, withSeats, journeyDate);
+        for (TrainLayout layout : withSeats) {
+            long[] masks = loaded.get(layout.trainId).masks;
+            Map<AvailabilityCounters.Key, Integer> trainCounts = counts.get(layout.trainId);
+            for (Map.Entry<Integer, Long> route : layout.routeMasks.entrySet()) {
+                for (int i = 0; i < masks.length; i++) {
+                    int free = (masks[i] & route.getValue()) == 0 ? 1 : 0;
+                    trainCounts.merge(new AvailabilityCounters.Key(route.getKey(), layout.seatClasses[i]), free, Integer::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Occupied segments of the seats, read from their rows locked on the
+     * caller's transaction, so segments it has already released count as free.
+     * Check a passenger's segment with {@link #getSegmentMask} before claiming.
+     */
+    long[] lockOccupancy(Connection conn, int trainId, LocalDate journeyDate, List<Integer> seatIds) throws SQLException {
+        return lockMasks(conn, getLayout(conn, trainId), journeyDate, seatIds);
+    }
+
+    private long[] lockMasks(Connection conn, TrainLayout layout, LocalDate journeyDate, List<Integer> seatIds) throws SQLException {
+        Map<Integer, Long> current = new HashMap<>();
+        String query = """
+            SELECT seat_id, occupied_mask FROM seat_inventory
+            WHERE train_id = ? AND journey_date = ? AND seat_id IN (%s)
+            FOR UPDATE
+            """.formatted(placeholders(seatIds.size()));
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, layout.trainId);
+            pstmt.setDate(2, Date.valueOf(journeyDate));
+            bindIds(pstmt, 3, seatIds);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    current.put(rs.getInt("seat_id"), rs.getLong("occupied_mask"));
+                }
+            }
+        }
+
+        long[] masks = new long[seatIds.size()];
+        for (int i = 0; i < masks.length; i++) {
+            Integer index = layout.seatIndex.get(seatIds.get(i));
+            masks[i] = (index == null || !layout.inService[index]) ? ALL_SEGMENTS : current.getOrDefault(seatIds.get(i), 0L);
+        }
+        return masks;
+    }
+
+    private static long[] released(TrainLayout layout, List<Integer> seatIds, long[] before, long mask) {
+        long[] after = new long[before.length];
+        for (int i = 0; i < before.length; i++) {
+            Integer index = layout.seatIndex.get(seatIds.get(i));
+            after[i] = (index == null || !layout.inService[index]) ? ALL_SEGMENTS : before[i] & ~mask;
+        }
+        return after;
+    }
+
+    /**
+     * Turn per-seat bitmap changes into per-(route, class) counter deltas
+     */
+    private void recordChange(Connection conn, TrainLayout layout, LocalDate journeyDate, List<Integer> seatIds,
+                              long[] before, long[] after) throws SQLException {
+        Map<AvailabilityCounters.Key, Integer> deltas = new HashMap<>();
+        for (int i = 0; i < seatIds.size(); i++) {
+            Integer index = layout.seatIndex.get(seatIds.get(i));
+            if (index == null || before[i] == after[i]) {
+                continue;
+            }
+            for (Map.Entry<Integer, Long> route : layout.routeMasks.entrySet()) {
+                int wasFree = (before[i] & route.getValue()) == 0 ? 1 : 0;
+                int isFree = (after[i] & route.getValue()) == 0 ? 1 : 0;
+                if (wasFree != isFree) {
+                    deltas.merge(new AvailabilityCounters.Key(route.getKey(), layout.seatClasses[index]), isFree - wasFree, Integer::sum);
+                }
+            }
+        }
+        AvailabilityCounters.getInstance().apply(conn, layout.trainId, journeyDate, deltas);
+    }
+
+    /**
+     * Drop the cached bitmaps for one journey so the next read reloads them
+     */
+    public void evict(int trainId, LocalDate journeyDate) {
+        journeys.remove(new JourneyKey(trainId, journeyDate));
+        bumpVersion(trainId);
+    }
+
+    /**
+     * Drop layout and bitmaps for a train after its routes or seats change
+     */
+    public void invalidateTrain(int trainId) {
+        layouts.remove(trainId);
+        journeys.keySet().removeIf(key -> key.trainId == trainId);
+        bumpVersion(trainId);
+    }
+
+    /**
+     * Drop everything (used when the affected train is not known)
+     */
+    public void invalidateAll() {
+        layouts.clear();
+        journeys.clear();
+        allVersion = versionClock.incrementAndGet();
+    }
+
+    /**
+     * Current version of a train's seats and occupancy; it only ever grows
+     */
+    public long getVersion(int trainId) {
+        return Math.max(trainVersions.getOrDefault(trainId, 0L), allVersion);
+    }
+
+    private void bumpVersion(int trainId) {
+        trainVersions.put(trainId, versionClock.incrementAndGet());
+    }
+
+    private TrainLayout getLayout(int trainId) throws SQLException {
+        TrainLayout layout = layouts.get(trainId);
+        if (layout == null) {
+            try (Connection conn = dbManager.getConnection()) {
+                layout = getLayout(conn, trainId);
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * Layout from the cache, or loaded on the caller's connection; methods that
+     * are handed a connection use this so they never borrow a second one
+     */
+    private TrainLayout getLayout(Connection conn, int trainId) throws SQLException {
+        TrainLayout layout = layouts.get(trainId);
+        if (layout == null) {
+            layout = loadLayouts(conn, List.of(trainId)).get(trainId);
+            layouts.put(trainId, layout);
+        }
+        return layout;
+    }
+
+    private JourneyInventory getJourney(TrainLayout layout, LocalDate journeyDate) throws SQLException {
+        JourneyInventory journey = journeys.get(new JourneyKey(layout.trainId, journeyDate));
+        if (journey == null) {
+            try (Connection conn = dbManager.getConnection()) {
+                journey = getJourney(conn, layout, journeyDate);
+            }
+        }
+        return journey;
+    }
+
+    /**
+     * Bitmaps from the cache, or loaded on the caller's connection. Inside a
+     * transaction this sees its own uncommitted changes; a rollback must evict
+     * as for any claim.
+     */
+    private JourneyInventory getJourney(Connection conn, TrainLayout layout, LocalDate journeyDate) throws SQLException {
+        JourneyKey key = new JourneyKey(layout.trainId, journeyDate);
+        JourneyInventory journey = journeys.get(key);
+        if (journey == null) {
+            journey = loadJourneys(conn, List.of(layout), journeyDate).get(layout.trainId);
+            JourneyInventory existing = journeys.putIfAbsent(key, journey);
+            if (existing != null) {
+                journey = existing;
+            }
+        }
+        return journey;
+    }
+
+    /**
+     * Build each train's station sequence from its routes and map every route's
+     * stops onto it, then load the seat lists. One routes query and one seats
+     * query cover all the requested trains.
+     */
+    private Map<Integer, TrainLayout> loadLayouts(Connection conn, List<Integer> trainIds) throws SQLException {
+        Map<Integer, List<Integer>> routeIds = new HashMap<>();
+        Map<Integer, List<List<String>>> routeStations = new HashMap<>();
+        Map<Integer, List<Integer>> seatIds = new HashMap<>();
+        Map<Integer, List<Boolean>> inService = new HashMap<>();
+        Map<Integer, List<Integer>> seatClasses = new HashMap<>();
+        Map<Integer, List<String>> legacyStations = new HashMap<>();
+        for (Integer trainId : trainIds) {
+            routeIds.put(trainId, new ArrayList<>());
+            routeStations.put(trainId, new ArrayList<>());
+            seatIds.put(trainId, new ArrayList<>());
+            inService.put(trainId, new ArrayList<>());
+            seatClasses.put(trainId, new ArrayList<>());
+        }
+
+        boolean hasIntermediate = DatabaseManager.getSchemaCapabilities().hasIntermediateStations();
+        String routeQuery = (hasIntermediate
+            ? "SELECT train_id, route_id, source_station, destination_station, intermediate_stations FROM routes"
+            : "SELECT train_id, route_id, source_station, destination_station FROM routes")
+            + " WHERE train_id IN (" + placeholders(trainIds.size()) + ")";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(routeQuery)) {
+            bindIds(pstmt, 1, trainIds);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int trainId = rs.getInt("train_id");
+                    int routeId = rs.getInt("route_id");
+                    routeIds.get(trainId).add(routeId);
+                    legacyStations.put(routeId, RouteStopRepository.parseStations(
+                        rs.getString("source_station"),
+                        hasIntermediate ? rs.getString("intermediate_stations") : null,
+                        rs.getString("destination_station")));
+                }
+            }
+        }
+
+        // Prefer the normalized stop sequences; the text columns only cover routes not yet migrated
+        Map<Integer, List<RouteStop>> stopsByRoute = RouteStopRepository.getInstance().getStops(conn, legacyStations.keySet());
+        for (Integer trainId : trainIds) {
+            for (Integer routeId : routeIds.get(trainId)) {
+                List<RouteStop> stops = stopsByRoute.get(routeId);
+                List<String> stations = new ArrayList<>();
+                if (stops == null || stops.isEmpty()) {
+                    for (String station : legacyStations.get(routeId)) {
+                        stations.add(normalize(station));
+                    }
+                } else {
+                    for (RouteStop stop : stops) {
+                        stations.add(normalize(stop.getStationName()));
+                    }
+                }
+                routeStations.get(trainId).add(stations);
+            }
+        }
+
+        String seatQuery = """
+            SELECT cl.train_id, cl.class_id, s.seat_id, s.is_available
+            FROM seats s
+            JOIN compartments c ON s.compartment_id = c.compartment_id
+            JOIN classes cl ON c.class_id = cl.class_id
+            WHERE cl.train_id IN (%s)
+            ORDER BY s.seat_id
+            """.formatted(placeholders(trainIds.size()));
+        try (PreparedStatement pstmt = conn.prepareStatement(seatQuery)) {
+            bindIds(pstmt, 1, trainIds);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int trainId = rs.getInt("train_id");
+                    seatIds.get(trainId).add(rs.getInt("seat_id"));
+                    inService.get(trainId).add(rs.getBoolean("is_available"));
+                    seatClasses.get(trainId).add(rs.getInt("class_id"));
+                }
+            }
+        }
+
+        Map<Integer, TrainLayout> loaded = new HashMap<>();
+        for (Integer trainId : trainIds) {
+            List<List<String>> stationsByRoute = routeStations.get(trainId);
+            List<Integer> trainRouteIds = routeIds.get(trainId);
+
+            // Merge the routes into one run, longest first
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < stationsByRoute.size(); i++) {
+                order.add(i);
+            }
+            order.sort((a, b) -> stationsByRoute.get(b).size() - stationsByRoute.get(a).size());
+            List<String> fullRun = new ArrayList<>();
+            Set<Integer> unmapped = new HashSet<>();
+            for (Integer i : order) {
+                if (!mergeStops(fullRun, stationsByRoute.get(i))) {
+                    unmapped.add(i);
+                }
+            }
+
+            Map<Integer, Long> routeMasks = new HashMap<>();
+            Map<Integer, int[]> routeStops = new HashMap<>();
+            Set<Integer> unmappedRoutes = new HashSet<>();
+            for (int i = 0; i < stationsByRoute.size(); i++) {
+                int routeId = trainRouteIds.get(i);
+                int[] positions = unmapped.contains(i) ? null : positionsOn(fullRun, stationsByRoute.get(i));
+                if (positions == null || positions.length < 2) {
+                    Logger.getInstance().error("SeatInventory", "loadLayouts",
+                        "Route " + routeId + " of train " + trainId + " does not follow the train's stop sequence " +
+                        fullRun + "; it cannot be booked until its stops are corrected");
+                    unmappedRoutes.add(routeId);
+                    continue;
+                }
+                routeStops.put(routeId, positions);
+                routeMasks.put(routeId, segmentMask(positions[0], positions[positions.length - 1]));
+            }
+
+            System.out.println("DEBUG: Loaded seat inventory layout for train " + trainId + ": " +
+                              fullRun.size() + " stations, " + stationsByRoute.size() + " routes, " +
+                              seatIds.get(trainId).size() + " seats");
+            loaded.put(trainId, new TrainLayout(trainId, routeMasks, routeStops, unmappedRoutes,
+                                              seatIds.get(trainId), inService.get(trainId), seatClasses.get(trainId)));
+        }
+        return loaded;
+    }
+
+    /**
+     * Load the occupancy bitmaps of several trains for one date with a single query
+     */
+    private Map<Integer, JourneyInventory> loadJourneys(Connection conn, List<TrainLayout> trainLayouts,
+                                                        LocalDate journeyDate) throws SQLException {
+        Map<Integer, long[]> masksByTrain = new HashMap<>();
+        Map<Integer, TrainLayout> layoutById = new HashMap<>();
+        List<Integer> trainIds = new ArrayList<>();
+        for (TrainLayout layout : trainLayouts) {
+            long[] masks = new long[layout.seatIds.length];
+            for (int i = 0; i < masks.length; i++) {
+                if (!layout.inService[i]) {
+                    masks[i] = ALL_SEGMENTS;
+                }
+            }
+            masksByTrain.put(layout.trainId, masks);
+            layoutById.put(layout.trainId, layout);
+            trainIds.add(layout.trainId);
+        }
+
+        String query = "SELECT train_id, seat_id, occupied_mask FROM seat_inventory " +
+                       "WHERE journey_date = ? AND occupied_mask <> 0 AND train_id IN (" + placeholders(trainIds.size()) + ")";
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setDate(1, Date.valueOf(journeyDate));
+            bindIds(pstmt, 2, trainIds);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int trainId = rs.getInt("train_id");
+                    TrainLayout layout = layoutById.get(trainId);
+                    Integer index = layout != null ? layout.seatIndex.get(rs.getInt("seat_id")) : null;
+                    if (index != null) {
+                        masksByTrain.get(trainId)[index] |= rs.getLong("occupied_mask");
+                    }
+                }
+            }
+        }
+
+        Map<Integer, JourneyInventory> loaded = new HashMap<>();
+        for (Map.Entry<Integer, long[]> entry : masksByTrain.entrySet()) {
+            loaded.put(entry.getKey(), new JourneyInventory(entry.getValue()));
+        }
+        return loaded;
+    }
+
+    /**
+     * Merge a route's stations into the run in order. Stations the run lacks
+     * go just before the next station they share, or after the last shared one
+     * at the end of the route. Returns false, leaving the run unchanged, if
+     * the route visits the run's stations out of order.
+     */
+    static boolean mergeStops(List<String> run, List<String> stations) {
+        List<String> merged = new ArrayList<>(run);
+        List<String> pending = new ArrayList<>();
+        int last = -1;
+        for (String station : stations) {
+            int index = merged.indexOf(station);
+            if (index < 0) {
+                if (pending.contains(station)) {
+                    return false;
+                }
+                pending.add(station);
+                continue;
+            }
+            if (index <= last) {
+                return false;
+            }
+            merged.addAll(index, pending);
+            last = index + pending.size();
+            pending.clear();
+        }
+        merged.addAll(last + 1, pending);
+        run.clear();
+        run.addAll(merged);
+        return true;
+    }
+
+    /**
+     * Position on the run of each of a route's stations, strictly increasing,
+     * or null if the route cannot be placed on it
+     */
+    static int[] positionsOn(List<String> run, List<String> stations) {
+        int[] positions = new int[stations.size()];
+        int last = -1;
+        for (int i = 0; i < positions.length; i++) {
+            int index = run.subList(last + 1, run.size()).indexOf(stations.get(i));
+            if (index < 0) {
+                return null;
+            }
+            last += index + 1;
+            positions[i] = last;
+        }
+        return positions;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static void bindIds(PreparedStatement pstmt, int firstIndex, List<Integer> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            pstmt.setInt(firstIndex + i, ids.get(i));
+        }
+    }
+
+    private static String normalize(String station) {
+        return station == null ? "" : station.trim().toLowerCase();
+    }
+
+    /**
+     * Per-train station/route/seat mapping; immutable once built
+     */
+    private static class TrainLayout {
+        private final int trainId;
+        private final Map<Integer, Long> routeMasks;
+        private final Map<Integer, int[]> routeStops;
+        private final Set<Integer> unmappedRoutes;
+        private final int[] seatIds;
+        private final boolean[] inService;
+        private final int[] seatClasses;
+        private final Map<Integer, Integer> seatIndex = new HashMap<>();
+
+        TrainLayout(int trainId, Map<Integer, Long> routeMasks, Map<Integer, int[]> routeStops,
+                    Set<Integer> unmappedRoutes, List<Integer> seatIds, List<Boolean> inService,
+                    List<Integer> seatClasses) {
+            this.trainId = trainId;
+            this.routeMasks = routeMasks;
+            this.routeStops = routeStops;
+            this.unmappedRoutes = unmappedRoutes;
+            this.seatIds = new int[seatIds.size()];
+            this.inService = new boolean[seatIds.size()];
+            this.seatClasses = new int[seatIds.size()];
+            for (int i = 0; i < this.seatIds.length; i++) {
+                this.seatIds[i] = seatIds.get(i);
+                this.inService[i] = inService.get(i);
+                this.seatClasses[i] = seatClasses.get(i);
+                seatIndex.put(this.seatIds[i], i);
+            }
+        }
+
+        long routeMask(int routeId) {
+            // Unknown route (e.g. legacy callers passing 0): require the whole run
+            return routeMasks.getOrDefault(routeId, ALL_SEGMENTS);
+        }
+
+        /**
+         * Mask of the segments between two stops (route ordinals, WHOLE_ROUTE
+         * for the route's ends) of a route
+         */
+        long mask(int routeId, int fromOrdinal, int toOrdinal) throws SQLException {
+            if (unmappedRoutes.contains(routeId)) {
+                throw new SQLException("Route " + routeId + " of train " + trainId +
+                                       " does not follow the train's stop sequence");
+            }
+            int[] stops = routeStops.get(routeId);
+            if (stops == null) {
+                return ALL_SEGMENTS;
+            }
+            int from = fromOrdinal == FareEngine.WHOLE_ROUTE ? 0 : fromOrdinal;
+            int to = toOrdinal == FareEngine.WHOLE_ROUTE ? stops.length - 1 : toOrdinal;
+            if (from < 0 || to <= from || to >= stops.length) {
+                throw new SQLException("Invalid stops " + fromOrdinal + " -> " + toOrdinal +
+                                       " for route " + routeId + " of train " + trainId);
+            }
+            return segmentMask(stops[from], stops[to]);
+        }
+    }
+
+    /**
+     * Occupancy bitmaps for one (train, date), indexed like TrainLayout.seatIds
+     */
+    private static class JourneyInventory {
+        private final long[] masks;
+
+        JourneyInventory(long[] masks) {
+            this.masks = masks;
+        }
+
+        synchronized boolean isFree(int index, long mask) {
+            return (masks[index] & mask) == 0;
+        }
+
+        synchronized int countFree(long mask) {
+            int free = 0;
+            for (long occupied : masks) {
+                if ((occupied & mask) == 0) {
+                    free++;
+                }
+            }
+            return free;
+        }
+
+        synchronized void occupy(int index, long mask) {
+            masks[index] |= mask;
+        }
+
+        synchronized void free(int index, long mask) {
+            masks[index] &= ~mask;
+        }
+    }
+
+    private static class JourneyKey {
+        private final int trainId;
+        private final LocalDate journeyDate;
+
+        JourneyKey(int trainId, LocalDate journeyDate) {
+            this.trainId = trainId;
+            this.journeyDate = journeyDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof JourneyKey)) return false;
+            JourneyKey other = (JourneyKey) o;
+            return trainId == other.trainId && journeyDate.equals(other.journeyDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(trainId, journeyDate);
+        }
+    }
+}
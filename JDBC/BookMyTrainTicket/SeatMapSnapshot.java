@@ -0,0 +1,237 @@
+package BookMyTrainTicket;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable seat map of one train, loaded with a single query
+ *
+ * Seats are stored column-wise in primitive arrays, grouped by compartment in
+ * display order (class, compartment name, seat number): compartment i owns
+ * seat positions [seatStart[i], seatStart[i + 1]). Compartment names and class
+ * strings are kept once per compartment rather than once per seat, and
+ * availability is a bitset over seat positions. {@link #withAvailability}
+ * shares the layout arrays, so per-journey views cost one bitset.
+ *
+ * The version is the {@link SeatInventory#getVersion} value read before
+ * loading; a cached snapshot is stale once the train's version moves on.
+ */
+public class SeatMapSnapshot {
+    private static final Seat.BerthType[] BERTH_TYPES = Seat.BerthType.values();
+
+    private final int trainId;
+    private final long version;
+
+    // Per compartment
+    private final int[] compartmentIds;
+    private final String[] compartmentNames;
+    private final String[] classTypes;
+    private final int[] seatStart;
+
+    // Per seat position
+    private final int[] seatIds;
+    private final String[] seatNumbers;
+    private final byte[] berths;
+    private final BitSet available;
+
+    private SeatMapSnapshot(int trainId, long version, int[] compartmentIds, String[] compartmentNames,
+                            String[] classTypes, int[] seatStart, int[] seatIds, String[] seatNumbers,
+                            byte[] berths, BitSet available) {
+        this.trainId = trainId;
+        this.version = version;
+        this.compartmentIds = compartmentIds;
+        this.compartmentNames = compartmentNames;
+        this.classTypes = classTypes;
+        this.seatStart = seatStart;
+        this.seatIds = seatIds;
+        this.seatNumbers = seatNumbers;
+        this.berths = berths;
+        this.available = available;
+    }
+
+    /**
+     * Stream every compartment and seat of the train in one query. Availability
+     * is the static seats.is_available flag; compartments without seats are kept.
+     */
+    public static SeatMapSnapshot load(Connection conn, int trainId, long version) throws SQLException {
+        String query = """
+            SELECT c.compartment_id, c.compartment_name, cl.class_type,
+                   s.seat_id, s.seat_number, s.berth_type, s.is_available
+            FROM compartments c
+            JOIN classes cl ON c.class_id = cl.class_id
+            LEFT JOIN seats s ON s.compartment_id = c.compartment_id
+            WHERE cl.train_id = ?
+            ORDER BY cl.class_type, c.compartment_name, c.compartment_id, s.seat_number
+            """;
+
+        IntList compartmentIds = new IntList();
+        List<String> compartmentNames = new ArrayList<>();
+        List<String> classTypes = new ArrayList<>();
+        IntList seatStart = new IntList();
+        IntList seatIds = new IntList();
+        List<String> seatNumbers = new ArrayList<>();
+        ByteList berths = new ByteList();
+        BitSet available = new BitSet();
+        Map<String, String> classNames = new HashMap<>();
+
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, trainId);
+            pstmt.setFetchSize(1000);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int currentCompartment = -1;
+                while (rs.next()) {
+                    int compartmentId = rs.getInt("compartment_id");
+                    if (compartmentIds.size == 0 || compartmentId != currentCompartment) {
+                        currentCompartment = compartmentId;
+                        compartmentIds.add(compartmentId);
+                        compartmentNames.add(rs.getString("compartment_name"));
+                        String classType = rs.getString("class_type");
+                        classTypes.add(classNames.computeIfAbsent(classType, name -> name));
+                        seatStart.add(seatIds.size);
+                    }
+
+                    int seatId = rs.getInt("seat_id");
+                    if (rs.wasNull()) {
+                        continue;
+                    }
+                    if (rs.getBoolean("is_available")) {
+                        available.set(seatIds.size);
+                    }
+                    seatIds.add(seatId);
+                    seatNumbers.add(rs.getString("seat_number"));
+                    berths.add((byte) Seat.parseBerthType(rs.getString("berth_type")).ordinal());
+                }
+            }
+        }
+        seatStart.add(seatIds.size);
+
+        return new SeatMapSnapshot(trainId, version, compartmentIds.toArray(),
+                                   compartmentNames.toArray(new String[0]), classTypes.toArray(new String[0]),
+                                   seatStart.toArray(), seatIds.toArray(), seatNumbers.toArray(new String[0]),
+                                   berths.toArray(), available);
+    }
+
+    /**
+     * Same layout with availability taken from the given seat IDs
+     */
+    public SeatMapSnapshot withAvailability(Set<Integer> freeSeatIds) {
+        BitSet free = new BitSet(seatIds.length);
+        for (int i = 0; i < seatIds.length; i++) {
+            if (freeSeatIds.contains(seatIds[i])) {
+                free.set(i);
+            }
+        }
+        return new SeatMapSnapshot(trainId, version, compartmentIds, compartmentNames, classTypes,
+                                   seatStart, seatIds, seatNumbers, berths, free);
+    }
+
+    public int getTrainId() { return trainId; }
+    public long getVersion() { return version; }
+
+    public int getCompartmentCount() { return compartmentIds.length; }
+    public int getCompartmentId(int compartment) { return compartmentIds[compartment]; }
+    public String getCompartmentName(int compartment) { return compartmentNames[compartment]; }
+    public String getClassType(int compartment) { return classTypes[compartment]; }
+
+    /**
+     * First seat position of the compartment; its seats run up to {@link #getSeatEnd}
+     */
+    public int getSeatStart(int compartment) { return seatStart[compartment]; }
+    public int getSeatEnd(int compartment) { return seatStart[compartment + 1]; }
+
+    public int getSeatCount() { return seatIds.length; }
+    public int getSeatId(int seat) { return seatIds[seat]; }
+    public String getSeatNumber(int seat) { return seatNumbers[seat]; }
+    public Seat.BerthType getBerthType(int seat) { return BERTH_TYPES[berths[seat]]; }
+    public boolean isAvailable(int seat) { return available.get(seat); }
+
+    public int getTotalSeatsCount(int compartment) {
+        return seatStart[compartment + 1] - seatStart[compartment];
+    }
+
+    public int getAvailableSeatsCount(int compartment) {
+        int count = 0;
+        for (int seat = available.nextSetBit(seatStart[compartment]);
+             seat >= 0 && seat < seatStart[compartment + 1];
+             seat = available.nextSetBit(seat + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    public int getAvailableSeatsCount() {
+        return available.cardinality();
+    }
+
+    /**
+     * Seat objects for one compartment, built on demand
+     */
+    public List<SeatAvailabilityManager.SeatWithDetails> getSeats(int compartment) {
+        List<SeatAvailabilityManager.SeatWithDetails> seats = new ArrayList<>(getTotalSeatsCount(compartment));
+        for (int seat = seatStart[compartment]; seat < seatStart[compartment + 1]; seat++) {
+            SeatAvailabilityManager.SeatWithDetails details = new SeatAvailabilityManager.SeatWithDetails();
+            details.setSeatId(seatIds[seat]);
+            details.setCompartmentId(compartmentIds[compartment]);
+            details.setBerthType(getBerthType(seat));
+            details.setSeatNumber(seatNumbers[seat]);
+            details.setAvailable(available.get(seat));
+            details.setCompartmentName(compartmentNames[compartment]);
+            details.setClassType(classTypes[compartment]);
+            seats.add(details);
+        }
+        return seats;
+    }
+
+    /**
+     * One lazy CompartmentSeats per compartment, in display order
+     */
+    public List<SeatAvailabilityManager.CompartmentSeats> toCompartmentSeats() {
+        List<SeatAvailabilityManager.CompartmentSeats> compartments = new ArrayList<>(compartmentIds.length);
+        for (int i = 0; i < compartmentIds.length; i++) {
+            compartments.add(new SeatAvailabilityManager.CompartmentSeats(this, i));
+        }
+        return compartments;
+    }
+
+    private static class IntList {
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static class ByteList {
+        private byte[] values = new byte[64];
+        private int size;
+
+        void add(byte value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package BookMyTrainTicket;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bulk seat provisioning for new coaches and rakes
+ *
+ * Layouts come from the sleeper, AC and chair car patterns. All seats of a
+ * request are written in one transaction as multi-row INSERT statements of up
+ * to {@link #ROWS_PER_STATEMENT} rows each, so a 20-coach rake costs a handful
+ * of round trips instead of one per berth. Seat numbers already present in a
+ * compartment are skipped.
+ */
+public class SeatProvisioner {
+    /** Rows per INSERT statement; keeps each packet well under max_allowed_packet */
+    static final int ROWS_PER_STATEMENT = 500;
+
+    private final DatabaseManager dbManager;
+
+    public enum Pattern {
+        SLEEPER("Sleeper Pattern"),
+        AC("AC Pattern"),
+        CHAIR_CAR("Chair Car Pattern");
+
+        private final String label;
+
+        Pattern(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() { return label; }
+
+        /**
+         * Pattern for a label shown in the admin dialogs; unknown labels fall back to chair car
+         */
+        public static Pattern fromLabel(String label) {
+            for (Pattern pattern : values()) {
+                if (pattern.label.equals(label)) {
+                    return pattern;
+                }
+            }
+            return CHAIR_CAR;
+        }
+    }
+
+    public SeatProvisioner() throws SQLException {
+        this.dbManager = DatabaseManager.getInstance();
+    }
+
+    /**
+     * Seat numbers and berth types of one compartment in the given pattern
+     */
+    public static List<SeatRow> layout(Pattern pattern, int seatCount) {
+        List<SeatRow> seats = new ArrayList<>();
+        switch (pattern) {
+            case SLEEPER: {
+                String[] berthTypes = {"Lower", "Middle", "Upper", "Side Lower", "Side Upper", "Lower"};
+                int bays = seatCount / 8; // 8 berths per bay in sleeper
+                for (int bay = 1; bay <= bays; bay++) {
+                    for (int i = 0; i < 8 && (bay - 1) * 8 + i < seatCount; i++) {
+                        seats.add(new SeatRow(0, String.format("S%d", (bay - 1) * 8 + i + 1), berthTypes[i % 6]));
+                    }
+                }
+                break;
+            }
+            case AC: {
+                String[] berthTypes = {"Lower", "Upper", "Side Lower", "Side Upper"};
+                int bays = seatCount / 6; // 6 berths per bay in AC
+                for (int bay = 1; bay <= bays; bay++) {
+                    for (int i = 0; i < 6 && (bay - 1) * 6 + i < seatCount; i++) {
+                        seats.add(new SeatRow(0, String.format("A%d", (bay - 1) * 6 + i + 1), berthTypes[i % 4]));
+                    }
+                }
+                break;
+            }
+            default:
+                for (int i = 1; i <= seatCount; i++) {
+                    seats.add(new SeatRow(0, String.format("CC%d", i), "Lower"));
+                }
+        }
+        return seats;
+    }
+
+    /**
+     * Generate the pattern's seats for one compartment
+     */
+    public ProvisionResult provisionCompartment(int compartmentId, Pattern pattern, int seatCount) throws SQLException {
+        return provision(List.of(compartmentId), pattern, seatCount);
+    }
+
+    /**
+     * Generate the pattern's seats for every compartment of the train that has
+     * no seats yet, in one transaction
+     */
+    public ProvisionResult provisionTrain(int trainId, Pattern pattern, int seatsPerCompartment) throws SQLException {
+        List<Integer> compartmentIds = new ArrayList<>();
+        String query = """
+            SELECT c.compartment_id
+            FROM compartments c
+            JOIN classes cl ON c.class_id = cl.class_id
+            WHERE cl.train_id = ?
+              AND NOT EXISTS (SELECT 1 FROM seats s WHERE s.compartment_id = c.compartment_id)
+            ORDER BY c.compartment_id
+            """;
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, trainId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    compartmentIds.add(rs.getInt("compartment_id"));
+                }
+            }
+        }
+        return provision(compartmentIds, pattern, seatsPerCompartment);
+    }
+
+    private ProvisionResult provision(List<Integer> compartmentIds, Pattern pattern, int seatCount) throws SQLException {
+        List<SeatRow> template = layout(pattern, seatCount);
+        List<SeatRow> rows = new ArrayList<>(compartmentIds.size() * template.size());
+        for (Integer compartmentId : compartmentIds) {
+            for (SeatRow seat : template) {
+                rows.add(new SeatRow(compartmentId, seat.seatNumber, seat.berthType));
+            }
+        }
+
+        long start = System.nanoTime();
+        int inserted;
+        try (Connection conn = dbManager.getConnection()) {
+            boolean originalAutoCommit = conn.getAutoCommit();
+            try {
+                conn.setAutoCommit(false);
+                inserted = insertSeats(conn, rows);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(originalAutoCommit);
+            }
+        }
+        ProvisionResult result = new ProvisionResult(compartmentIds.size(), rows.size(), inserted, System.nanoTime() - start);
+        System.out.println("DEBUG: Seat provisioning - " + result);
+        return result;
+    }
+
+    /**
+     * Insert seats on the caller's connection as multi-row INSERT IGNORE
+     * statements; returns the number of rows actually inserted
+     */
+    static int insertSeats(Connection conn, List<SeatRow> rows) throws SQLException {
+        int inserted = 0;
+        for (int from = 0; from < rows.size(); from += ROWS_PER_STATEMENT) {
+            List<SeatRow> chunk = rows.subList(from, Math.min(rows.size(), from + ROWS_PER_STATEMENT));
+            String sql = "INSERT IGNORE INTO seats (compartment_id, seat_number, berth_type, is_available) VALUES " +
+                         String.join(", ", Collections.nCopies(chunk.size(), "(?, ?, ?, TRUE)"));
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                int index = 1;
+                for (SeatRow seat : chunk) {
+                    pstmt.setInt(index++, seat.compartmentId);
+                    pstmt.setString(index++, seat.seatNumber);
+                    pstmt.setString(index++, seat.berthType);
+                }
+                inserted += pstmt.executeUpdate();
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * One seat to insert
+     */
+    public static class SeatRow {
+        private final int compartmentId;
+        private final String seatNumber;
+        private final String berthType;
+
+        public SeatRow(int compartmentId, String seatNumber, String berthType) {
+            this.compartmentId = compartmentId;
+            this.seatNumber = seatNumber;
+            this.berthType = berthType;
+        }
+
+        public int getCompartmentId() { return compartmentId; }
+        public String getSeatNumber() { return seatNumber; }
+        public String getBerthType() { return berthType; }
+    }
+
+    /**
+     * Outcome and throughput of one provisioning run
+     */
+    public static class ProvisionResult {
+        private final int compartments;
+        private final int requestedRows;
+        private final int insertedRows;
+        private final long elapsedNanos;
+
+        ProvisionResult(int compartments, int requestedRows, int insertedRows, long elapsedNanos) {
+            this.compartments = compartments;
+            this.requestedRows = requestedRows;
+            this.insertedRows = insertedRows;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getCompartments() { return compartments; }
+        public int getRequestedRows() { return requestedRows; }
+        public int getInsertedRows() { return insertedRows; }
+        public int getSkippedRows() { return requestedRows - insertedRows; }
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos > 0 ? insertedRows * 1_000_000_000.0 / elapsedNanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d seats inserted (%d skipped) in %d compartment(s), %d ms, %.0f rows/sec",
+                insertedRows, getSkippedRows(), compartments, getElapsedMillis(), getRowsPerSecond());
+        }
+    }
+}
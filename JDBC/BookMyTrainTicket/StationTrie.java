@@ -0,0 +1,144 @@
+package BookMyTrainTicket;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Prefix trie over normalized station names
+ *
+ * Every name is inserted under its full text and under each word start, so
+ * "delhi" finds both "delhi cantt" and "new delhi". Lookups are exact-prefix,
+ * or prefix within a small edit distance for typo tolerance ("bopal" -> "bhopal").
+ * Not thread safe for writes; RouteIndex builds one and then only reads it.
+ */
+public class StationTrie {
+    private final Node root = new Node();
+    private int size;
+
+    /**
+     * Index a normalized station name
+     */
+    public void add(String station) {
+        if (station == null || station.isEmpty()) {
+            return;
+        }
+        insert(station, station);
+        for (int i = 1; i < station.length(); i++) {
+            if (station.charAt(i - 1) == ' ' && station.charAt(i) != ' ') {
+                insert(station.substring(i), station);
+            }
+        }
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Stations having a word that starts with the prefix
+     */
+    public Set<String> withPrefix(String prefix) {
+        Set<String> results = new LinkedHashSet<>();
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        if (node != null) {
+            collect(node, results);
+        }
+        return results;
+    }
+
+    /**
+     * Stations having a word that starts with something within maxEdits
+     * insertions, deletions or substitutions of the prefix
+     */
+    public Set<String> withFuzzyPrefix(String prefix, int maxEdits) {
+        Set<String> results = new LinkedHashSet<>();
+        int[] firstRow = new int[prefix.length() + 1];
+        for (int i = 0; i < firstRow.length; i++) {
+            firstRow[i] = i;
+        }
+        if (firstRow[prefix.length()] <= maxEdits) {
+            collect(root, results);
+            return results;
+        }
+        for (Map.Entry<Character, Node> child : root.children.entrySet()) {
+            searchFuzzy(child.getValue(), child.getKey(), prefix, firstRow, maxEdits, results);
+        }
+        return results;
+    }
+
+    /**
+     * Up to limit stations for a partly typed name: prefix matches first, then near misses
+     */
+    public List<String> suggest(String prefix, int limit) {
+        Set<String> results = new LinkedHashSet<>(withPrefix(prefix));
+        if (results.size() < limit) {
+            results.addAll(withFuzzyPrefix(prefix, maxEditsFor(prefix)));
+        }
+        List<String> suggestions = new ArrayList<>(results);
+        return suggestions.size() > limit ? suggestions.subList(0, limit) : suggestions;
+    }
+
+    /**
+     * Edit budget that grows with what has been typed, so short inputs stay strict
+     */
+    public static int maxEditsFor(String prefix) {
+        if (prefix.length() < 4) {
+            return 0;
+        }
+        return prefix.length() < 8 ? 1 : 2;
+    }
+
+    private void insert(String key, String station) {
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+        }
+        node.stations.add(station);
+    }
+
+    /**
+     * One Levenshtein row per trie level; once the whole prefix fits within
+     * the budget every name below this node matches
+     */
+    private void searchFuzzy(Node node, char letter, String prefix, int[] previousRow, int maxEdits, Set<String> results) {
+        int[] row = new int[previousRow.length];
+        row[0] = previousRow[0] + 1;
+        int rowMin = row[0];
+        for (int i = 1; i < row.length; i++) {
+            int substitution = previousRow[i - 1] + (prefix.charAt(i - 1) == letter ? 0 : 1);
+            row[i] = Math.min(substitution, Math.min(row[i - 1] + 1, previousRow[i] + 1));
+            rowMin = Math.min(rowMin, row[i]);
+        }
+
+        if (row[row.length - 1] <= maxEdits) {
+            collect(node, results);
+            return;
+        }
+        if (rowMin > maxEdits) {
+            return;
+        }
+        for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+            searchFuzzy(child.getValue(), child.getKey(), prefix, row, maxEdits, results);
+        }
+    }
+
+    private void collect(Node node, Set<String> results) {
+        results.addAll(node.stations);
+        for (Node child : node.children.values()) {
+            collect(child, results);
+        }
+    }
+
+    private static class Node {
+        private final Map<Character, Node> children = new TreeMap<>();
+        private final Set<String> stations = new LinkedHashSet<>(1);
+    }
+}
@@ -0,0 +1,94 @@
+package BookMyTrainTicket;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for a real payment gateway with random success/failure
+ *
+ * Answers after a fixed latency using a delayed executor, so no thread is
+ * held while the "bank" thinks. Outcomes are remembered per transaction ID
+ * for RETENTION_MS after they are decided, long enough for a retry racing
+ * the payment's finalization; after that PaymentManager answers retries from
+ * the payments table, so the entry is dropped.
+ */
+public class StubPaymentGateway implements PaymentGateway {
+    private static final long DEFAULT_LATENCY_MS = 2000;
+    private static final long RETENTION_MS = 60_000;
+
+    private final Executor delayed;
+    private final Executor retention = CompletableFuture.delayedExecutor(RETENTION_MS, TimeUnit.MILLISECONDS);
+    private final Map<String, CompletableFuture<PaymentManager.PaymentResult>> charges = new ConcurrentHashMap<>();
+    private final Random random = new Random();
+
+    public StubPaymentGateway() {
+        this(DEFAULT_LATENCY_MS);
+    }
+
+    public StubPaymentGateway(long latencyMs) {
+        this.delayed = CompletableFuture.delayedExecutor(latencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public CompletableFuture<PaymentManager.PaymentResult> charge(PaymentManager.PaymentRequest request, String transactionId) {
+        return charges.computeIfAbsent(transactionId, id -> {
+            CompletableFuture<PaymentManager.PaymentResult> charge =
+                CompletableFuture.supplyAsync(() -> decide(request, id), delayed);
+            charge.whenCompleteAsync((result, e) -> charges.remove(id, charge), retention);
+            return charge;
+        });
+    }
+
+    /**
+     * Simulate dummy payment gateway with random success/failure
+     */
+    private PaymentManager.PaymentResult decide(PaymentManager.PaymentRequest request, String transactionId) {
+        // 90% success rate for simulation
+        boolean success = random.nextDouble() > 0.1;
+
+        PaymentManager.PaymentStatus status;
+        String message;
+
+        if (success) {
+            status = PaymentManager.PaymentStatus.SUCCESS;
+            message = "Payment processed successfully";
+
+            // Additional validation based on payment method
+            if (request.getMethod() == PaymentManager.PaymentMethod.CREDIT_CARD ||
+                request.getMethod() == PaymentManager.PaymentMethod.DEBIT_CARD) {
+
+                if (request.getCardNumber() == null || request.getCardNumber().length() < 16) {
+                    success = false;
+                    status = PaymentManager.PaymentStatus.FAILED;
+                    message = "Invalid card number";
+                } else if (request.getCvv() == null || request.getCvv().length() != 3) {
+                    success = false;
+                    status = PaymentManager.PaymentStatus.FAILED;
+                    message = "Invalid CVV";
+                }
+            } else if (request.getMethod() == PaymentManager.PaymentMethod.UPI) {
+                if (request.getUpiId() == null || !request.getUpiId().contains("@")) {
+                    success = false;
+                    status = PaymentManager.PaymentStatus.FAILED;
+                    message = "Invalid UPI ID";
+                }
+            }
+        } else {
+            status = PaymentManager.PaymentStatus.FAILED;
+            String[] failureReasons = {
+                "Insufficient funds",
+                "Card expired",
+                "Transaction declined by bank",
+                "Network timeout",
+                "Invalid credentials"
+            };
+            message = failureReasons[random.nextInt(failureReasons.length)];
+        }
+
+        return new PaymentManager.PaymentResult(success, transactionId, message, status);
+    }
+}
@@ -1,8 +1,13 @@
 package BookMyTrainTicket;
 
+import java.math.BigDecimal;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Manages train-related operations
@@ -18,23 +23,7 @@ public class TrainManager {
      * Get all trains
      */
     public List<Train> getAllTrains() throws SQLException {
-        List<Train> trains = new ArrayList<>();
-        String query = "SELECT train_id, train_name, train_number FROM trains ORDER BY train_name";
-        
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query);
-             ResultSet rs = pstmt.executeQuery()) {
-            
-            while (rs.next()) {
-                Train train = new Train(
-                    rs.getInt("train_id"),
-                    rs.getString("train_name"),
-                    rs.getString("train_number")
-                );
-                trains.add(train);
-            }
-        }
-        
-        return trains;
+        return new ArrayList<>(ReferenceDataCache.getInstance().getAllTrains());
     }
     
     /**
@@ -43,11 +32,13 @@ public class TrainManager {
     public boolean addTrain(String trainName, String trainNumber) throws SQLException {
         String query = "INSERT INTO trains (train_name, train_number) VALUES (?, ?)";
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setString(1, trainName);
             pstmt.setString(2, trainNumber);
             
             int rowsAffected = pstmt.executeUpdate();
+            ReferenceDataCache.getInstance().invalidateTrains();
             return rowsAffected > 0;
         }
     }
@@ -58,12 +49,17 @@ public class TrainManager {
     public boolean updateTrain(int trainId, String trainName, String trainNumber) throws SQLException {
         String query = "UPDATE trains SET train_name = ?, train_number = ? WHERE train_id = ?";
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setString(1, trainName);
             pstmt.setString(2, trainNumber);
             pstmt.setInt(3, trainId);
             
             int rowsAffected = pstmt.executeUpdate();
+            ReferenceDataCache.getInstance().invalidateTrains();
+            RouteIndex.getInstance().invalidate();
+            // Journey legs carry the train's name and number
+            JourneyPlanner.getInstance().invalidate();
             return rowsAffected > 0;
         }
     }
@@ -72,231 +68,120 @@ public class TrainManager {
      * Delete a train
      */
     public boolean deleteTrain(int trainId) throws SQLException {
+        String routesQuery = "SELECT route_id FROM routes WHERE train_id = ?";
         String query = "DELETE FROM trains WHERE train_id = ?";
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
-            pstmt.setInt(1, trainId);
+        try (Connection conn = dbManager.getConnection()) {
+            // The train's routes, to drop their fare matrices once they are gone
+            List<Integer> routeIds = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(routesQuery)) {
+                pstmt.setInt(1, trainId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        routeIds.add(rs.getInt("route_id"));
+                    }
+                }
+            }
             
-            int rowsAffected = pstmt.executeUpdate();
+            int rowsAffected;
+            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                pstmt.setInt(1, trainId);
+                rowsAffected = pstmt.executeUpdate();
+            }
+            
+            // Routes, classes and seats go with the train (ON DELETE CASCADE)
+            ReferenceDataCache.getInstance().invalidateTrains();
+            RouteIndex.getInstance().invalidate();
+            JourneyPlanner.getInstance().invalidate();
+            RouteStopRepository.getInstance().invalidateAll();
+            SeatInventory.getInstance().invalidateTrain(trainId);
+            FareEngine fareEngine = FareEngine.getInstance();
+            for (Integer routeId : routeIds) {
+                fareEngine.invalidate(routeId);
+            }
             return rowsAffected > 0;
         }
     }
     
     /**
-     * Search trains by source and destination
+     * Search trains by source and destination (travelling today)
      */
     public List<TrainSearchResult> searchTrains(String source, String destination) throws SQLException {
-        List<TrainSearchResult> results = new ArrayList<>();
+        return searchTrains(source, destination, LocalDate.now());
+    }
+    
+    /**
+     * Search trains by source and destination for a journey date
+     */
+    public List<TrainSearchResult> searchTrains(String source, String destination, LocalDate journeyDate) throws SQLException {
+        // Station matching and stop order come from the in-memory route index;
+        // the database is only touched for availability
+        List<RouteIndex.Entry> matches = RouteIndex.getInstance().findRoutes(source, destination);
         
-        // First, check if intermediate_stations column exists
-        boolean hasIntermediateStations = checkIntermediateStationsColumn();
+        // Availability of every matched route comes from the precomputed counters in one grouped read
+        Set<Integer> trainIds = new LinkedHashSet<>();
+        for (RouteIndex.Entry match : matches) {
+            trainIds.add(match.getTrain().getTrainId());
+        }
+        Map<Integer, AvailabilityCounters.RouteAvailability> availability =
+            AvailabilityCounters.getInstance().getAvailability(trainIds, journeyDate);
+        SeatHoldService holds = SeatHoldService.getInstance();
         
-        String query;
-        if (hasIntermediateStations) {
-            // Enhanced query that searches in intermediate stations as well
-            query = """
-                SELECT DISTINCT t.train_id, t.train_name, t.train_number,
-                       r.route_id, r.source_station, r.destination_station,
-                       r.departure_time, r.arrival_time, r.price, r.intermediate_stations
-                FROM trains t
-                JOIN routes r ON t.train_id = r.train_id
-                WHERE (
-                    -- Direct source-destination match
-                    (LOWER(r.source_station) LIKE LOWER(?) AND LOWER(r.destination_station) LIKE LOWER(?))
-                    OR
-                    -- Source in intermediate stations, destination as actual destination
-                    (LOWER(r.intermediate_stations) LIKE LOWER(?) AND LOWER(r.destination_station) LIKE LOWER(?))
-                    OR
-                    -- Source as actual source, destination in intermediate stations
-                    (LOWER(r.source_station) LIKE LOWER(?) AND LOWER(r.intermediate_stations) LIKE LOWER(?))
-                    OR
-                    -- Both source and destination in intermediate stations (if train passes through both)
-                    (LOWER(r.intermediate_stations) LIKE LOWER(?) AND LOWER(r.intermediate_stations) LIKE LOWER(?))
-                )
-                ORDER BY t.train_name
-                """;
-        } else {
-            // Fallback to original query if intermediate_stations column doesn't exist
-            query = """
-                SELECT DISTINCT t.train_id, t.train_name, t.train_number,
-                       r.route_id, r.source_station, r.destination_station,
-                       r.departure_time, r.arrival_time, r.price
-                FROM trains t
-                JOIN routes r ON t.train_id = r.train_id
-                WHERE LOWER(r.source_station) LIKE LOWER(?) 
-                AND LOWER(r.destination_station) LIKE LOWER(?)
-                ORDER BY t.train_name
-                """;
+        // Fare matrices of all matched routes, built together on first use
+        FareEngine fareEngine = FareEngine.getInstance();
+        List<Integer> routeIds = new ArrayList<>();
+        for (RouteIndex.Entry match : matches) {
+            routeIds.add(match.getRoute().getRouteId());
         }
+        fareEngine.preload(routeIds);
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
-            if (hasIntermediateStations) {
-                // Set parameters for enhanced search
-                String sourcePattern = "%" + source + "%";
-                String destPattern = "%" + destination + "%";
-                
-                pstmt.setString(1, sourcePattern);  // Direct source match
-                pstmt.setString(2, destPattern);    // Direct destination match
-                pstmt.setString(3, sourcePattern);  // Source in intermediate stations
-                pstmt.setString(4, destPattern);    // Destination as actual destination
-                pstmt.setString(5, sourcePattern);  // Source as actual source
-                pstmt.setString(6, destPattern);    // Destination in intermediate stations
-                pstmt.setString(7, sourcePattern);  // Source in intermediate stations
-                pstmt.setString(8, destPattern);    // Destination in intermediate stations
-            } else {
-                // Set parameters for basic search
-                pstmt.setString(1, "%" + source + "%");
-                pstmt.setString(2, "%" + destination + "%");
-            }
+        List<TrainSearchResult> results = new ArrayList<>();
+        for (RouteIndex.Entry match : matches) {
+            Train train = match.getTrain();
+            Route route = match.getRoute();
+            AvailabilityCounters.RouteAvailability routeAvailability = availability.get(route.getRouteId());
             
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    Train train = new Train(
-                        rs.getInt("train_id"),
-                        rs.getString("train_name"),
-                        rs.getString("train_number")
-                    );
-                    
-                    Route route;
-                    if (hasIntermediateStations) {
-                        // Use the enhanced constructor with intermediate stations
-                        route = new Route(
-                            rs.getInt("route_id"),
-                            rs.getInt("train_id"),
-                            rs.getString("source_station"),
-                            rs.getString("destination_station"),
-                            rs.getTime("departure_time").toLocalTime(),
-                            rs.getTime("arrival_time").toLocalTime(),
-                            rs.getBigDecimal("price"),
-                            rs.getString("intermediate_stations")
-                        );
-                    } else {
-                        // Use the original constructor without intermediate stations
-                        route = new Route(
-                            rs.getInt("route_id"),
-                            rs.getInt("train_id"),
-                            rs.getString("source_station"),
-                            rs.getString("destination_station"),
-                            rs.getTime("departure_time").toLocalTime(),
-                            rs.getTime("arrival_time").toLocalTime(),
-                            rs.getBigDecimal("price")
-                        );
-                    }
-                    
-                    // Validate station order - only include if source comes before destination in the route
-                    if (isValidStationOrder(route, source, destination)) {
-                        int availableSeats = getAvailableSeatsCount(train.getTrainId(), route.getRouteId());
-                        TrainSearchResult result = new TrainSearchResult(train, route, availableSeats);
-                        results.add(result);
-                    }
+            // Seats held in someone's checkout are not offered (held seats are still free in the counters)
+            if (routeAvailability != null) {
+                for (Map.Entry<Integer, Integer> held
+                        : holds.getHeldCountsByClass(train.getTrainId(), route.getRouteId(), journeyDate).entrySet()) {
+                    routeAvailability.subtract(held.getKey(), held.getValue());
                 }
             }
+            Map<String, Integer> seatsByClass = routeAvailability != null ? routeAvailability.getByClass() : Map.of();
+            int availableSeats = routeAvailability != null ? routeAvailability.getTotal() : 0;
+            
+            // Fares for the searched stops, not the whole route
+            int from = match.getFromOrdinal();
+            int to = match.getToOrdinal();
+            BigDecimal fare = fareEngine.quote(route.getRouteId(), from, to, 0);
+            Map<String, BigDecimal> faresByClass = fareEngine.quoteByClass(route.getRouteId(), from, to);
+            results.add(new TrainSearchResult(train, route, availableSeats, journeyDate, seatsByClass,
+                                              from, to, fare, faresByClass));
         }
         
         return results;
     }
     
     /**
-     * Check if the routes table has the intermediate_stations column
+     * Journeys that may change trains on the way, Pareto-optimal by arrival time and number of changes
      */
-    private boolean checkIntermediateStationsColumn() {
-        try {
-            String testQuery = "SELECT intermediate_stations FROM routes LIMIT 1";
-            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(testQuery)) {
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    return true; // Column exists
-                }
-            }
-        } catch (SQLException e) {
-            // Column doesn't exist
-            return false;
-        }
+    public List<JourneyPlanner.Journey> searchConnections(String source, String destination, LocalDate journeyDate) throws SQLException {
+        return JourneyPlanner.getInstance().findJourneys(source, destination, journeyDate);
     }
     
     /**
-     * Validate that the source station comes before the destination station in the route order
+     * Station names close to what was typed, for "did you mean" hints when a search finds nothing
      */
-    private boolean isValidStationOrder(Route route, String searchSource, String searchDestination) {
-        String sourceStation = route.getSourceStation();
-        String destinationStation = route.getDestinationStation();
-        String intermediateStations = route.getIntermediateStations();
-        
-        // Convert search terms to lowercase for comparison
-        String searchSourceLower = searchSource.toLowerCase();
-        String searchDestLower = searchDestination.toLowerCase();
-        
-        // Build the complete station sequence: source -> intermediate stations -> destination
-        List<String> stationSequence = new ArrayList<>();
-        stationSequence.add(sourceStation.toLowerCase());
-        
-        // Add intermediate stations if they exist
-        if (intermediateStations != null && !intermediateStations.trim().isEmpty()) {
-            String[] intermediates = intermediateStations.split(",");
-            for (String station : intermediates) {
-                stationSequence.add(station.trim().toLowerCase());
-            }
-        }
-        
-        stationSequence.add(destinationStation.toLowerCase());
-        
-        // Find positions of search source and destination in the sequence
-        int sourcePos = -1;
-        int destPos = -1;
-        
-        for (int i = 0; i < stationSequence.size(); i++) {
-            String station = stationSequence.get(i);
-            
-            // Check if this station matches the search source
-            if (sourcePos == -1 && station.contains(searchSourceLower)) {
-                sourcePos = i;
-            }
-            
-            // Check if this station matches the search destination
-            if (destPos == -1 && station.contains(searchDestLower)) {
-                destPos = i;
-            }
-        }
-        
-        // Valid only if both stations found and source comes before destination
-        if (sourcePos != -1 && destPos != -1) {
-            boolean isValidOrder = sourcePos < destPos;
-            
-            // Debug logging
-            System.out.println("DEBUG: Station order validation for " + route.getRouteId());
-            System.out.println("  Route: " + sourceStation + " -> " + destinationStation);
-            System.out.println("  Intermediates: " + (intermediateStations != null ? intermediateStations : "None"));
-            System.out.println("  Search: " + searchSource + " -> " + searchDestination);
-            System.out.println("  Source position: " + sourcePos + ", Dest position: " + destPos);
-            System.out.println("  Valid order: " + isValidOrder);
-            
-            return isValidOrder;
-        }
-        
-        // If either station not found, this route doesn't match the search criteria
-        return false;
+    public List<String> suggestStations(String typed, int limit) throws SQLException {
+        return RouteIndex.getInstance().suggestStations(typed, limit);
     }
     
     /**
      * Get train by ID
      */
     public Train getTrainById(int trainId) throws SQLException {
-        String query = "SELECT train_id, train_name, train_number FROM trains WHERE train_id = ?";
-        
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
-            pstmt.setInt(1, trainId);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return new Train(
-                        rs.getInt("train_id"),
-                        rs.getString("train_name"),
-                        rs.getString("train_number")
-                    );
-                }
-            }
-        }
-        
-        return null;
+        return ReferenceDataCache.getInstance().getTrain(trainId);
     }
     
     /**
@@ -305,7 +190,8 @@ public class TrainManager {
     public boolean trainNumberExists(String trainNumber) throws SQLException {
         String query = "SELECT COUNT(*) FROM trains WHERE train_number = ?";
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setString(1, trainNumber);
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -318,30 +204,6 @@ public class TrainManager {
         return false;
     }
     
-    /**
-     * Get available seats count for a train and route
-     */
-    private int getAvailableSeatsCount(int trainId, int routeId) throws SQLException {
-        String query = """
-            SELECT COUNT(*) FROM seats s
-            JOIN compartments c ON s.compartment_id = c.compartment_id
-            JOIN classes cl ON c.class_id = cl.class_id
-            WHERE cl.train_id = ? AND s.is_available = TRUE
-            """;
-        
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
-            pstmt.setInt(1, trainId);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1);
-                }
-            }
-        }
-        
-        return 0;
-    }
-    
     /**
      * Inner class to represent search results
      */
@@ -349,16 +211,61 @@ public class TrainManager {
         private Train train;
         private Route route;
         private int availableSeats;
+        private LocalDate journeyDate;
+        private Map<String, Integer> seatsByClass;
+        private int fromOrdinal;
+        private int toOrdinal;
+        private BigDecimal fare;
+        private Map<String, BigDecimal> faresByClass;
         
         public TrainSearchResult(Train train, Route route, int availableSeats) {
+            this(train, route, availableSeats, LocalDate.now());
+        }
+        
+        public TrainSearchResult(Train train, Route route, int availableSeats, LocalDate journeyDate) {
+            this(train, route, availableSeats, journeyDate, Map.of());
+        }
+        
+        public TrainSearchResult(Train train, Route route, int availableSeats, LocalDate journeyDate,
+                                 Map<String, Integer> seatsByClass) {
+            this(train, route, availableSeats, journeyDate, seatsByClass, FareEngine.WHOLE_ROUTE,
+                 FareEngine.WHOLE_ROUTE, route.getPrice(), Map.of());
+        }
+        
+        /**
+         * A result for a journey between two stops of the route (ordinals), with its fares
+         */
+        public TrainSearchResult(Train train, Route route, int availableSeats, LocalDate journeyDate,
+                                 Map<String, Integer> seatsByClass, int fromOrdinal, int toOrdinal,
+                                 BigDecimal fare, Map<String, BigDecimal> faresByClass) {
             this.train = train;
             this.route = route;
             this.availableSeats = availableSeats;
+            this.journeyDate = journeyDate;
+            this.seatsByClass = seatsByClass;
+            this.fromOrdinal = fromOrdinal;
+            this.toOrdinal = toOrdinal;
+            this.fare = fare;
+            this.faresByClass = faresByClass;
         }
         
         public Train getTrain() { return train; }
         public Route getRoute() { return route; }
         public int getAvailableSeats() { return availableSeats; }
+        public LocalDate getJourneyDate() { return journeyDate; }
+        public Map<String, Integer> getSeatsByClass() { return seatsByClass; }
+        public int getFromOrdinal() { return fromOrdinal; }
+        public int getToOrdinal() { return toOrdinal; }
+        public BigDecimal getFare() { return fare; }
+        public Map<String, BigDecimal> getFaresByClass() { return faresByClass; }
+        
+        /**
+         * Fare in a class of the train, or the base fare for an unknown class
+         */
+        public BigDecimal getFare(String classType) {
+            BigDecimal classFare = classType != null ? faresByClass.get(classType) : null;
+            return classFare != null ? classFare : fare;
+        }
         
         @Override
         public String toString() {
@@ -0,0 +1,206 @@
+package BookMyTrainTicket;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Background task for the Swing UI, built on SwingWorker
+ *
+ * The work runs on a worker thread; every callback (onStart, onChunks,
+ * onProgress, onSuccess, onError) runs on the EDT. Work can publish partial
+ * results that are handed to onChunks in batches, so screens fill in while
+ * the load is still running.
+ *
+ * Tasks started with the same key are coalesced: while one is running, a new
+ * start only queues itself, replacing anything queued earlier. When the
+ * running task ends its result is dropped and the queued one runs, so a burst
+ * of refreshes costs at most two loads and the last one wins.
+ *
+ * start() may be called from any thread; cancel() must be called on the EDT.
+ */
+public class UiTask<T, C> {
+    // Only touched on the EDT
+    private static final Map<String, UiTask<?, ?>> running = new HashMap<>();
+    private static final Map<String, UiTask<?, ?>> queued = new HashMap<>();
+
+    /**
+     * What the work sees of its task
+     */
+    public interface Context<C> {
+        void publish(C chunk);
+
+        /**
+         * 0-100
+         */
+        void progress(int percent);
+
+        boolean isCancelled();
+    }
+
+    @FunctionalInterface
+    public interface Work<T, C> {
+        T run(Context<C> context) throws Exception;
+    }
+
+    private final String key;
+    private final Work<T, C> work;
+    private Runnable onStart = () -> { };
+    private Consumer<List<C>> onChunks = chunks -> { };
+    private IntConsumer onProgress = percent -> { };
+    private Consumer<T> onSuccess = result -> { };
+    private Consumer<Exception> onError = e -> System.err.println("Background task failed: " + e.getMessage());
+    private Worker worker;
+    private boolean cancelled;
+
+    private UiTask(String key, Work<T, C> work) {
+        this.key = key;
+        this.work = work;
+    }
+
+    /**
+     * @param key coalescing key, or null to always run
+     */
+    public static <T, C> UiTask<T, C> create(String key, Work<T, C> work) {
+        return new UiTask<>(key, work);
+    }
+
+    /**
+     * Runs on the EDT right before the work starts (e.g. clear the view, show "Loading...")
+     */
+    public UiTask<T, C> onStart(Runnable onStart) {
+        this.onStart = onStart;
+        return this;
+    }
+
+    public UiTask<T, C> onChunks(Consumer<List<C>> onChunks) {
+        this.onChunks = onChunks;
+        return this;
+    }
+
+    public UiTask<T, C> onProgress(IntConsumer onProgress) {
+        this.onProgress = onProgress;
+        return this;
+    }
+
+    public UiTask<T, C> onSuccess(Consumer<T> onSuccess) {
+        this.onSuccess = onSuccess;
+        return this;
+    }
+
+    public UiTask<T, C> onError(Consumer<Exception> onError) {
+        this.onError = onError;
+        return this;
+    }
+
+    public UiTask<T, C> start() {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(this::start);
+            return this;
+        }
+        if (key != null && running.containsKey(key)) {
+            UiTask<?, ?> replaced = queued.put(key, this);
+            if (replaced != null) {
+                replaced.cancelled = true;
+            }
+            return this;
+        }
+        launch();
+        return this;
+    }
+
+    /**
+     * Stop delivering results; the work sees isCancelled() and should stop early
+     */
+    public void cancel() {
+        checkEdt();
+        cancelled = true;
+        if (key != null && queued.get(key) == this) {
+            queued.remove(key);
+        }
+        if (worker != null) {
+            worker.cancel(false);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void launch() {
+        if (key != null) {
+            running.put(key, this);
+        }
+        onStart.run();
+        worker = new Worker();
+        worker.addPropertyChangeListener(event -> {
+            if ("progress".equals(event.getPropertyName()) && !cancelled) {
+                onProgress.accept((Integer) event.getNewValue());
+            }
+        });
+        worker.execute();
+    }
+
+    private static void checkEdt() {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            throw new IllegalStateException("UiTask must be cancelled on the EDT");
+        }
+    }
+
+    private class Worker extends SwingWorker<T, C> implements Context<C> {
+        @Override
+        protected T doInBackground() throws Exception {
+            return work.run(this);
+        }
+
+        @Override
+        public void publish(C chunk) {
+            super.publish(chunk);
+        }
+
+        @Override
+        public void progress(int percent) {
+            setProgress(Math.max(0, Math.min(100, percent)));
+        }
+
+        @Override
+        protected void process(List<C> chunks) {
+            if (!cancelled) {
+                onChunks.accept(chunks);
+            }
+        }
+
+        @Override
+        protected void done() {
+            UiTask<?, ?> next = null;
+            if (key != null) {
+                running.remove(key);
+                next = queued.remove(key);
+            }
+
+            // A newer request for the same data supersedes this result
+            if (!cancelled && next == null) {
+                try {
+                    onSuccess.accept(get());
+                } catch (CancellationException e) {
+                    // cancelled while running - nothing to deliver
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    onError.accept(cause instanceof Exception ? (Exception) cause : new Exception(cause));
+                }
+            }
+
+            if (next != null) {
+                next.launch();
+            }
+        }
+    }
+}
@@ -18,16 +18,38 @@ public class WaitlistManager {
      * Add user to waitlist
      */
     public int addToWaitlist(int userId, int trainId, int routeId) throws SQLException {
-        // Get next position
-        int position = getNextWaitlistPosition(trainId, routeId);
+        try (Connection conn = dbManager.getConnection()) {
+            return addToWaitlist(conn, userId, trainId, routeId);
+        }
+    }
+    
+    /**
+     * Add user to waitlist using the caller's connection
+     */
+    public int addToWaitlist(Connection conn, int userId, int trainId, int routeId) throws SQLException {
+        return addToWaitlist(conn, userId, trainId, routeId, 0);
+    }
+    
+    /**
+     * Add a waiting booking's passenger to the waitlist, linked to the booking
+     * so promotion can update it (bookingId 0 leaves the entry unlinked)
+     */
+    public int addToWaitlist(Connection conn, int userId, int trainId, int routeId, int bookingId) throws SQLException {
+        // Take the next ticket; the displayed position is computed from it when read
+        int position = QueuePositions.nextTicket(QueuePositions.Queue.WAITLIST, trainId, routeId);
         
-        String query = "INSERT INTO waitlist (user_id, train_id, route_id, position) VALUES (?, ?, ?, ?)";
+        String query = "INSERT INTO waitlist (user_id, train_id, route_id, position, booking_id) VALUES (?, ?, ?, ?, ?)";
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             pstmt.setInt(1, userId);
             pstmt.setInt(2, trainId);
             pstmt.setInt(3, routeId);
             pstmt.setInt(4, position);
+            if (bookingId > 0) {
+                pstmt.setInt(5, bookingId);
+            } else {
+                pstmt.setNull(5, Types.INTEGER);
+            }
             
             pstmt.executeUpdate();
             
@@ -42,93 +64,63 @@ public class WaitlistManager {
     }
     
     /**
-     * Get next waitlist position
+     * Current place in line of a waitlist entry (0 once promoted)
      */
-    private int getNextWaitlistPosition(int trainId, int routeId) throws SQLException {
-        String query = "SELECT COALESCE(MAX(position), 0) + 1 FROM waitlist WHERE train_id = ? AND route_id = ? AND status = 'Waiting'";
-        
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
-            pstmt.setInt(1, trainId);
-            pstmt.setInt(2, routeId);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1);
-                }
-            }
+    public int getWaitlistPosition(int waitlistId) throws SQLException {
+        try (Connection conn = dbManager.getConnection()) {
+            return getWaitlistPosition(conn, waitlistId);
         }
-        
-        return 1;
     }
     
     /**
-     * Get waitlist position for a waitlist ID
+     * Place in line read on the caller's connection (sees its uncommitted insert)
      */
-    public int getWaitlistPosition(int waitlistId) throws SQLException {
-        String query = "SELECT position FROM waitlist WHERE waitlist_id = ?";
-        
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
-            pstmt.setInt(1, waitlistId);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1);
-                }
-            }
-        }
-        
-        return 0;
+    public int getWaitlistPosition(Connection conn, int waitlistId) throws SQLException {
+        return QueuePositions.rank(conn, QueuePositions.Queue.WAITLIST, waitlistId);
     }
     
     /**
      * Promote first person from waitlist
      */
     public boolean promoteFromWaitlist(int trainId, int routeId) throws SQLException {
+        try (Connection conn = dbManager.getConnection()) {
+            return promoteFromWaitlist(conn, trainId, routeId);
+        }
+    }
+    
+    /**
+     * Promote first person from waitlist using the caller's connection,
+     * so it takes part in the caller's transaction
+     */
+    public boolean promoteFromWaitlist(Connection conn, int trainId, int routeId) throws SQLException {
         // Get first person in waitlist
         String selectQuery = """
             SELECT waitlist_id, user_id FROM waitlist 
             WHERE train_id = ? AND route_id = ? AND status = 'Waiting' 
-            ORDER BY position LIMIT 1
+            ORDER BY position, waitlist_id LIMIT 1
             """;
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(selectQuery)) {
+        int waitlistId;
+        try (PreparedStatement pstmt = conn.prepareStatement(selectQuery)) {
             pstmt.setInt(1, trainId);
             pstmt.setInt(2, routeId);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    int waitlistId = rs.getInt("waitlist_id");
-                    int userId = rs.getInt("user_id");
-                    
-                    // Update waitlist status
-                    String updateQuery = "UPDATE waitlist SET status = 'Promoted' WHERE waitlist_id = ?";
-                    try (PreparedStatement updateStmt = dbManager.getConnection().prepareStatement(updateQuery)) {
-                        updateStmt.setInt(1, waitlistId);
-                        updateStmt.executeUpdate();
-                    }
-                    
-                    // Update positions for remaining waitlist
-                    updateWaitlistPositions(trainId, routeId);
-                    
-                    return true;
+                if (!rs.next()) {
+                    return false;
                 }
+                waitlistId = rs.getInt("waitlist_id");
             }
         }
         
-        return false;
-    }
-    
-    /**
-     * Update waitlist positions after promotion
-     */
-    private void updateWaitlistPositions(int trainId, int routeId) throws SQLException {
-        String query = "UPDATE waitlist SET position = position - 1 WHERE train_id = ? AND route_id = ? AND status = 'Waiting' AND position > 1";
-        
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
-            pstmt.setInt(1, trainId);
-            pstmt.setInt(2, routeId);
-            pstmt.executeUpdate();
+        // Update waitlist status; everyone behind moves up by rank, nothing is renumbered
+        String updateQuery = "UPDATE waitlist SET status = 'Promoted' WHERE waitlist_id = ?";
+        try (PreparedStatement updateStmt = conn.prepareStatement(updateQuery)) {
+            updateStmt.setInt(1, waitlistId);
+            updateStmt.executeUpdate();
         }
+        
+        return true;
     }
     
     /**
@@ -138,15 +130,17 @@ public class WaitlistManager {
         List<WaitlistEntry> waitlist = new ArrayList<>();
         
         String query = """
-            SELECT w.waitlist_id, w.user_id, w.position, w.request_time, w.status,
+            SELECT w.waitlist_id, w.user_id, w.request_time, w.status,
+                   %s AS queue_rank,
                    u.username, u.email
             FROM waitlist w
             JOIN users u ON w.user_id = u.user_id
             WHERE w.train_id = ? AND w.route_id = ?
-            ORDER BY w.position
-            """;
+            ORDER BY w.position, w.waitlist_id
+            """.formatted(QueuePositions.rankColumn(QueuePositions.Queue.WAITLIST, "w"));
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, trainId);
             pstmt.setInt(2, routeId);
             
@@ -155,7 +149,7 @@ public class WaitlistManager {
                     WaitlistEntry entry = new WaitlistEntry();
                     entry.setWaitlistId(rs.getInt("waitlist_id"));
                     entry.setUserId(rs.getInt("user_id"));
-                    entry.setPosition(rs.getInt("position"));
+                    entry.setPosition(rs.getInt("queue_rank"));
                     entry.setRequestTime(rs.getTimestamp("request_time").toLocalDateTime());
                     entry.setStatus(rs.getString("status"));
                     entry.setUsername(rs.getString("username"));
@@ -176,7 +170,8 @@ public class WaitlistManager {
         List<WaitlistEntryWithTrainInfo> waitlist = new ArrayList<>();
         
         String query = """
-            SELECT w.waitlist_id, w.user_id, w.train_id, w.route_id, w.position, 
+            SELECT w.waitlist_id, w.user_id, w.train_id, w.route_id,
+                   %s AS queue_rank,
                    w.request_time, w.status, u.username, u.email,
                    t.train_name, t.train_number, rt.source_station, rt.destination_station
             FROM waitlist w
@@ -184,9 +179,10 @@ public class WaitlistManager {
             JOIN trains t ON w.train_id = t.train_id
             JOIN routes rt ON w.route_id = rt.route_id
             ORDER BY w.request_time DESC
-            """;
+            """.formatted(QueuePositions.rankColumn(QueuePositions.Queue.WAITLIST, "w"));
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query);
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query);
              ResultSet rs = pstmt.executeQuery()) {
             
             while (rs.next()) {
@@ -195,7 +191,7 @@ public class WaitlistManager {
                 entry.setUserId(rs.getInt("user_id"));
                 entry.setTrainId(rs.getInt("train_id"));
                 entry.setRouteId(rs.getInt("route_id"));
-                entry.setPosition(rs.getInt("position"));
+                entry.setPosition(rs.getInt("queue_rank"));
                 entry.setRequestTime(rs.getTimestamp("request_time").toLocalDateTime());
                 entry.setStatus(rs.getString("status"));
                 entry.setUsername(rs.getString("username"));
@@ -218,7 +214,8 @@ public class WaitlistManager {
     public int getWaitlistCount(int trainId, int routeId) throws SQLException {
         String query = "SELECT COUNT(*) FROM waitlist WHERE train_id = ? AND route_id = ? AND status = 'Waiting'";
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, trainId);
             pstmt.setInt(2, routeId);
             
@@ -238,7 +235,8 @@ public class WaitlistManager {
     public boolean removeFromWaitlist(int waitlistId) throws SQLException {
         String query = "DELETE FROM waitlist WHERE waitlist_id = ?";
         
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, waitlistId);
             
             int rowsAffected = pstmt.executeUpdate();
@@ -6,6 +6,8 @@ CREATE DATABASE IF NOT EXISTS train_booking;
 USE train_booking;
 
 -- Drop existing tables if they exist (for clean setup)
+DROP TABLE IF EXISTS batch_job_checkpoints;
+DROP TABLE IF EXISTS queue_sequences;
 DROP TABLE IF EXISTS payments;
 DROP TABLE IF EXISTS waitlist;
 DROP TABLE IF EXISTS rac;
@@ -111,6 +113,7 @@ CREATE TABLE payments (
     payment_method VARCHAR(50),
     transaction_id VARCHAR(100),
     payment_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_payments_transaction (transaction_id),
     FOREIGN KEY (booking_id) REFERENCES bookings(booking_id) ON DELETE CASCADE
 );
 
@@ -125,9 +128,11 @@ CREATE TABLE waitlist (
     request_time DATETIME DEFAULT CURRENT_TIMESTAMP,
     status ENUM('Waiting', 'Promoted') DEFAULT 'Waiting',
     position INT NOT NULL,
+    booking_id INT NULL,
     FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE,
     FOREIGN KEY (train_id) REFERENCES trains(train_id) ON DELETE CASCADE,
-    FOREIGN KEY (route_id) REFERENCES routes(route_id) ON DELETE CASCADE
+    FOREIGN KEY (route_id) REFERENCES routes(route_id) ON DELETE CASCADE,
+    FOREIGN KEY (booking_id) REFERENCES bookings(booking_id) ON DELETE CASCADE
 );
 
 -- Create RAC (Reservation Against Cancellation) table
@@ -141,9 +146,11 @@ CREATE TABLE rac (
     request_time DATETIME DEFAULT CURRENT_TIMESTAMP,
     status ENUM('RAC', 'Promoted') DEFAULT 'RAC',
     position INT NOT NULL,
+    booking_id INT NULL,
     FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE,
     FOREIGN KEY (train_id) REFERENCES trains(train_id) ON DELETE CASCADE,
-    FOREIGN KEY (route_id) REFERENCES routes(route_id) ON DELETE CASCADE
+    FOREIGN KEY (route_id) REFERENCES routes(route_id) ON DELETE CASCADE,
+    FOREIGN KEY (booking_id) REFERENCES bookings(booking_id) ON DELETE CASCADE
 );
 
 -- Create station_info table for comprehensive station management
@@ -157,9 +164,48 @@ CREATE TABLE station_info (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Create route_stops table: one row per stop, in travel order
+-- (backfilled from routes.intermediate_stations by RouteStopsMigrator)
+CREATE TABLE route_stops (
+    route_id INT NOT NULL,
+    ordinal INT NOT NULL,
+    station_id INT NOT NULL,
+    arrival_time TIME NULL,
+    departure_time TIME NULL,
+    distance_km INT NULL,
+    PRIMARY KEY (route_id, ordinal),
+    INDEX idx_route_stops_station (station_id, route_id, ordinal),
+    FOREIGN KEY (route_id) REFERENCES routes(route_id) ON DELETE CASCADE,
+    FOREIGN KEY (station_id) REFERENCES station_info(station_id)
+);
+
+-- Create queue_sequences table: last ticket handed out per RAC/waitlist queue
+-- (rac.position and waitlist.position hold these tickets; the displayed place is the rank)
+CREATE TABLE queue_sequences (
+    queue_name VARCHAR(20) NOT NULL,
+    train_id INT NOT NULL,
+    route_id INT NOT NULL,
+    last_position INT NOT NULL,
+    PRIMARY KEY (queue_name, train_id, route_id)
+);
+
+-- Create batch_job_checkpoints table: restart point of bulk booking jobs (BookingBatchJob)
+CREATE TABLE batch_job_checkpoints (
+    job_key VARCHAR(100) PRIMARY KEY,
+    last_booking_id INT NOT NULL DEFAULT 0,
+    processed INT NOT NULL DEFAULT 0,
+    changed INT NOT NULL DEFAULT 0,
+    status ENUM('Running', 'Done') NOT NULL DEFAULT 'Running',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
 -- Create indexes for better performance
 CREATE INDEX idx_bookings_user ON bookings(user_id);
 CREATE INDEX idx_bookings_train_route ON bookings(train_id, route_id);
+CREATE INDEX idx_bookings_journey ON bookings(train_id, journey_date, booking_id);
+CREATE INDEX idx_bookings_user_time ON bookings(user_id, booking_time, booking_id);
+CREATE INDEX idx_bookings_time ON bookings(booking_time, booking_id);
+CREATE INDEX idx_payments_booking_time ON payments(booking_id, payment_time);
 CREATE INDEX idx_seats_compartment ON seats(compartment_id);
 CREATE INDEX idx_seats_available ON seats(is_available);
 CREATE INDEX idx_routes_train ON routes(train_id);
@@ -167,6 +213,8 @@ CREATE INDEX idx_routes_stations ON routes(source_station, destination_station);
 CREATE INDEX idx_routes_stops ON routes(stops);
 CREATE INDEX idx_waitlist_train_route ON waitlist(train_id, route_id, position);
 CREATE INDEX idx_rac_train_route ON rac(train_id, route_id, position);
+CREATE INDEX idx_waitlist_queue ON waitlist(train_id, route_id, status, position);
+CREATE INDEX idx_rac_queue ON rac(train_id, route_id, status, position);
 
 -- Insert sample users
 INSERT INTO users (username, password, email, role) VALUES